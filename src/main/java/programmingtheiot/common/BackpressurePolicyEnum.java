@@ -0,0 +1,98 @@
+/**
+ * This class is part of the Programming the Internet of Things
+ * project, and is available via the MIT License, which can be
+ * found in the LICENSE file at the top level of this repository.
+ * 
+ * Copyright (c) 2020 by Andrew D. King
+ */
+
+package programmingtheiot.common;
+
+import java.util.HashMap;
+
+/**
+ * The policies available for handling inbound messages when the
+ * gateway's bounded ingest buffer for a resource is full.
+ * 
+ */
+public enum BackpressurePolicyEnum
+{
+	// static
+	
+	/** Evict the oldest buffered message to make room for the new one. */
+	DROP_OLDEST("dropOldest"),
+	
+	/** Discard the new message, keeping those already buffered. */
+	DROP_NEWEST("dropNewest"),
+	
+	/**
+	 * Replace any buffered message from the same sensor with the new one,
+	 * so only the latest reading per sensor is kept. Falls back to
+	 * {@link #DROP_OLDEST} when the buffer is full of distinct sensors.
+	 */
+	COALESCE_LATEST("coalesceLatest"),
+	
+	/**
+	 * Block the producer until there is room, up to a configured time
+	 * limit, after which the new message is discarded.
+	 */
+	BLOCK_PRODUCER("blockProducer");
+	
+	private static final HashMap<String, BackpressurePolicyEnum> _PolicyLookupMap = new HashMap<>();
+	
+	static {
+		for (BackpressurePolicyEnum bp : BackpressurePolicyEnum.values()) {
+			_PolicyLookupMap.put(bp.getName().toLowerCase(), bp);
+			_PolicyLookupMap.put(bp.name().toLowerCase(), bp);
+		}
+	}
+	
+	/**
+	 * Convenience method for looking up an enum type based on either
+	 * the config file name (e.g. 'dropOldest') or the enum constant name
+	 * (e.g. 'DROP_OLDEST'). The lookup is not case sensitive. If the lookup
+	 * fails, null will be returned.
+	 * 
+	 * @param valStr The name of the enum to lookup.
+	 * @return BackpressurePolicyEnum The enum instance, or null if not found.
+	 */
+	public static BackpressurePolicyEnum getEnumFromValue(String valStr)
+	{
+		if (valStr != null && valStr.trim().length() > 0) {
+			return _PolicyLookupMap.get(valStr.trim().toLowerCase());
+		}
+		
+		return null;
+	}
+	
+	
+	// private var's
+	
+	private String name = "";
+	
+	
+	// constructor
+	
+	/**
+	 * Constructor.
+	 * 
+	 * @param name
+	 */
+	private BackpressurePolicyEnum(String name)
+	{
+		this.name = name;
+	}
+	
+	
+	// public methods
+	
+	/**
+	 * 
+	 * @return String The name, as used in the config file.
+	 */
+	public String getName()
+	{
+		return this.name;
+	}
+	
+}
@@ -0,0 +1,77 @@
+/**
+ * This class is part of the Programming the Internet of Things
+ * project, and is available via the MIT License, which can be
+ * found in the LICENSE file at the top level of this repository.
+ * 
+ * Copyright (c) 2020 by Andrew D. King
+ */
+
+package programmingtheiot.common;
+
+/**
+ * Immutable view of a cloud connector configuration section, such as
+ * {@link ConfigConst#CLOUD_GATEWAY_SERVICE}. Cloud connectors use MQTT,
+ * so this extends {@link MqttConfig} with the cloud specific properties.
+ * 
+ */
+public class CloudConfig extends MqttConfig
+{
+	// private var's
+	
+	private final String baseUrl;
+	private final String baseTopic;
+	
+	
+	// constructors
+	
+	/**
+	 * Constructor.
+	 * 
+	 * @param reader The reader for the section.
+	 */
+	CloudConfig(ConfigSectionReader reader)
+	{
+		super(reader);
+		
+		this.baseUrl   = reader.getString(ConfigConst.BASE_URL_KEY, "");
+		this.baseTopic = reader.getString(ConfigConst.BASE_TOPIC_KEY, "");
+	}
+	
+	
+	// public methods
+	
+	/**
+	 * 
+	 * @return String The base URL, which may be empty.
+	 */
+	public String getBaseUrl()
+	{
+		return this.baseUrl;
+	}
+	
+	/**
+	 * 
+	 * @return String The base topic, which may be empty.
+	 */
+	public String getBaseTopic()
+	{
+		return this.baseTopic;
+	}
+	
+	/**
+	 * Returns a string representation of this instance. This will invoke the base class
+	 * {@link #toString()} method, then append the output from this call.
+	 * 
+	 * @return String The string representing this instance, returned in CSV 'key=value' format.
+	 */
+	public String toString()
+	{
+		StringBuilder sb = new StringBuilder(super.toString());
+		
+		sb.append(',').append(ConfigConst.BASE_URL_KEY).append('=').append(this.baseUrl);
+		sb.append(',').append(ConfigConst.BASE_TOPIC_KEY).append('=').append(this.baseTopic);
+		
+		return sb.toString();
+	}
+	
+}
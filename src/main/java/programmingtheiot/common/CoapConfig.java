@@ -0,0 +1,84 @@
+/**
+ * This class is part of the Programming the Internet of Things
+ * project, and is available via the MIT License, which can be
+ * found in the LICENSE file at the top level of this repository.
+ * 
+ * Copyright (c) 2020 by Andrew D. King
+ */
+
+package programmingtheiot.common;
+
+import programmingtheiot.data.DataEncodingEnum;
+
+/**
+ * Immutable view of a CoAP client and server configuration section,
+ * such as {@link ConfigConst#COAP_GATEWAY_SERVICE}.
+ * 
+ */
+public class CoapConfig extends ServiceConfig
+{
+	// private var's
+	
+	private final boolean enableConfirmedMsgs;
+	private final DataEncodingEnum dataEncoding;
+	
+	
+	// constructors
+	
+	/**
+	 * Constructor.
+	 * 
+	 * @param reader The reader for the section.
+	 */
+	CoapConfig(ConfigSectionReader reader)
+	{
+		super(reader, ConfigConst.DEFAULT_COAP_PORT, ConfigConst.DEFAULT_COAP_SECURE_PORT);
+		
+		this.enableConfirmedMsgs = reader.getBoolean(ConfigConst.ENABLE_CON_MSGS_KEY, true);
+		this.dataEncoding        = reader.getDataEncoding(ConfigConst.DATA_ENCODING_KEY, DataEncodingEnum.JSON);
+	}
+	
+	
+	// public methods
+	
+	public boolean isConfirmedMsgsEnabled()
+	{
+		return this.enableConfirmedMsgs;
+	}
+	
+	public DataEncodingEnum getDataEncoding()
+	{
+		return this.dataEncoding;
+	}
+	
+	/**
+	 * Returns the server URI, using the secure protocol and port
+	 * if encryption is enabled.
+	 * 
+	 * @return String The server URI, such as 'coap://localhost:5683'.
+	 */
+	public String getServerAddress()
+	{
+		String protocol =
+			(isCryptEnabled() ? ConfigConst.DEFAULT_COAP_SECURE_PROTOCOL : ConfigConst.DEFAULT_COAP_PROTOCOL);
+		
+		return protocol + "://" + getHost() + ":" + getActivePort();
+	}
+	
+	/**
+	 * Returns a string representation of this instance. This will invoke the base class
+	 * {@link #toString()} method, then append the output from this call.
+	 * 
+	 * @return String The string representing this instance, returned in CSV 'key=value' format.
+	 */
+	public String toString()
+	{
+		StringBuilder sb = new StringBuilder(super.toString());
+		
+		sb.append(',').append(ConfigConst.ENABLE_CON_MSGS_KEY).append('=').append(this.enableConfirmedMsgs);
+		sb.append(',').append(ConfigConst.DATA_ENCODING_KEY).append('=').append(this.dataEncoding.getName());
+		
+		return sb.toString();
+	}
+	
+}
@@ -0,0 +1,241 @@
+/**
+ * This class is part of the Programming the Internet of Things
+ * project, and is available via the MIT License, which can be
+ * found in the LICENSE file at the top level of this repository.
+ * 
+ * Copyright (c) 2020 by Andrew D. King
+ */
+
+package programmingtheiot.common;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Typed, validated bindings for the connector and gateway configuration
+ * sections. Each section is read from {@link ConfigUtil} once per
+ * configuration load into an immutable instance - {@link MqttConfig},
+ * {@link CoapConfig}, {@link SmtpConfig}, {@link CloudConfig} and
+ * {@link GatewayDeviceConfig}, plus an {@link EdgeRuleConfig} for each
+ * configured edge analytics rule - so callers on hot paths read final fields
+ * rather than doing string-keyed lookups and conversions.
+ * <p>
+ * The bindings are refreshed on first access after the configuration is
+ * reloaded. If the reloaded configuration is invalid, the previous
+ * bindings are retained and the errors are available via
+ * {@link #getValidationErrors()}. Invalid values in the initial
+ * configuration are replaced with their defaults; call {@link #validate()}
+ * at startup to fail fast instead.
+ * 
+ */
+public class ConfigBindings
+{
+	// static
+	
+	private static final Logger _Logger =
+		Logger.getLogger(ConfigBindings.class.getName());
+	
+	private static final ConfigBindings _Instance = new ConfigBindings();
+	
+	/**
+	 * Returns the Singleton instance of this class.
+	 * 
+	 * @return ConfigBindings
+	 */
+	public static final ConfigBindings getInstance()
+	{
+		return _Instance;
+	}
+	
+	
+	// private var's
+	
+	private volatile Bindings bindings = null;
+	
+	
+	// constructors
+	
+	/**
+	 * Default (private).
+	 * 
+	 */
+	private ConfigBindings()
+	{
+		super();
+		
+		getBindings();
+	}
+	
+	
+	// public methods
+	
+	public CloudConfig getCloudConfig()
+	{
+		return getBindings().cloudConfig;
+	}
+	
+	public CoapConfig getCoapConfig()
+	{
+		return getBindings().coapConfig;
+	}
+	
+	public GatewayDeviceConfig getGatewayDeviceConfig()
+	{
+		return getBindings().gatewayDeviceConfig;
+	}
+	
+	/**
+	 * 
+	 * @return List<EdgeRuleConfig> The edge analytics rules listed in the
+	 * GatewayDevice section, in order (read-only).
+	 */
+	public List<EdgeRuleConfig> getEdgeRuleConfigs()
+	{
+		return getBindings().edgeRuleConfigs;
+	}
+	
+	public MqttConfig getMqttConfig()
+	{
+		return getBindings().mqttConfig;
+	}
+	
+	public SmtpConfig getSmtpConfig()
+	{
+		return getBindings().smtpConfig;
+	}
+	
+	/**
+	 * Returns the problems found when binding the most recently loaded
+	 * configuration, such as a port out of range or a non-numeric value.
+	 * 
+	 * @return List<String> The errors, which will be empty if the configuration is valid.
+	 */
+	public List<String> getValidationErrors()
+	{
+		return getBindings().errors;
+	}
+	
+	/**
+	 * Validates the most recently loaded configuration.
+	 * 
+	 * @throws IllegalStateException If the configuration is invalid. The
+	 * message will list each problem found.
+	 */
+	public void validate()
+	{
+		List<String> errors = getValidationErrors();
+		
+		if (! errors.isEmpty()) {
+			throw new IllegalStateException("Invalid configuration: " + String.join(" ", errors));
+		}
+	}
+	
+	
+	// private methods
+	
+	private Bindings getBindings()
+	{
+		Bindings curBindings = this.bindings;
+		int configVersion = ConfigUtil.getInstance().getConfigVersion();
+		
+		if (curBindings == null || curBindings.configVersion != configVersion) {
+			curBindings = rebind(configVersion);
+		}
+		
+		return curBindings;
+	}
+	
+	private synchronized Bindings rebind(int configVersion)
+	{
+		Bindings prevBindings = this.bindings;
+		
+		// another thread may have already rebound
+		if (prevBindings != null && prevBindings.configVersion == configVersion) {
+			return prevBindings;
+		}
+		
+		Bindings newBindings = new Bindings(ConfigUtil.getInstance(), configVersion);
+		
+		if (newBindings.errors.isEmpty() || prevBindings == null) {
+			this.bindings = newBindings;
+		} else {
+			// keep the previous values, but report the new errors
+			this.bindings = new Bindings(prevBindings, configVersion, newBindings.errors);
+		}
+		
+		for (String error : newBindings.errors) {
+			_Logger.warning(error);
+		}
+		
+		return this.bindings;
+	}
+	
+	
+	// private classes
+	
+	/**
+	 * Immutable set of bindings for one configuration version.
+	 * 
+	 */
+	private static final class Bindings
+	{
+		final int configVersion;
+		final List<String> errors;
+		
+		final CloudConfig cloudConfig;
+		final CoapConfig coapConfig;
+		final GatewayDeviceConfig gatewayDeviceConfig;
+		final MqttConfig mqttConfig;
+		final SmtpConfig smtpConfig;
+		final List<EdgeRuleConfig> edgeRuleConfigs;
+		
+		Bindings(ConfigUtil configUtil, int configVersion)
+		{
+			List<String> errors = new ArrayList<>();
+			
+			this.configVersion = configVersion;
+			
+			this.cloudConfig =
+				new CloudConfig(new ConfigSectionReader(configUtil, ConfigConst.CLOUD_GATEWAY_SERVICE, errors));
+			this.coapConfig =
+				new CoapConfig(new ConfigSectionReader(configUtil, ConfigConst.COAP_GATEWAY_SERVICE, errors));
+			this.gatewayDeviceConfig =
+				new GatewayDeviceConfig(new ConfigSectionReader(configUtil, ConfigConst.GATEWAY_DEVICE, errors));
+			this.mqttConfig =
+				new MqttConfig(new ConfigSectionReader(configUtil, ConfigConst.MQTT_GATEWAY_SERVICE, errors));
+			this.smtpConfig =
+				new SmtpConfig(new ConfigSectionReader(configUtil, ConfigConst.SMTP_GATEWAY_SERVICE, errors));
+			
+			List<EdgeRuleConfig> ruleConfigs = new ArrayList<>();
+			
+			for (String ruleName : this.gatewayDeviceConfig.getEdgeRuleNames()) {
+				String sectionName = ConfigConst.EDGE_RULE + "." + ruleName;
+				
+				if (configUtil.hasSection(sectionName)) {
+					ruleConfigs.add(new EdgeRuleConfig(new ConfigSectionReader(configUtil, sectionName, errors), ruleName));
+				} else {
+					errors.add("[" + ConfigConst.GATEWAY_DEVICE + "] " + ConfigConst.EDGE_RULES_KEY +
+						" lists a rule with no [" + sectionName + "] section.");
+				}
+			}
+			
+			this.edgeRuleConfigs = Collections.unmodifiableList(ruleConfigs);
+			this.errors = Collections.unmodifiableList(errors);
+		}
+		
+		Bindings(Bindings bindings, int configVersion, List<String> errors)
+		{
+			this.configVersion       = configVersion;
+			this.errors              = errors;
+			this.cloudConfig         = bindings.cloudConfig;
+			this.coapConfig          = bindings.coapConfig;
+			this.gatewayDeviceConfig = bindings.gatewayDeviceConfig;
+			this.mqttConfig          = bindings.mqttConfig;
+			this.smtpConfig          = bindings.smtpConfig;
+			this.edgeRuleConfigs     = bindings.edgeRuleConfigs;
+		}
+	}
+	
+}
@@ -31,6 +31,8 @@ public class ConfigConst
 	public static final String DEFAULT_MQTT_SECURE_PROTOCOL = "ssl";
 	public static final int    DEFAULT_MQTT_PORT        = 1883;
 	public static final int    DEFAULT_MQTT_SECURE_PORT = 8883;
+	public static final int    DEFAULT_SMTP_PORT        = 25;
+	public static final int    DEFAULT_SMTP_SECURE_PORT = 587;
 	public static final int    DEFAULT_KEEP_ALIVE       = 60;
 	public static final int    DEFAULT_POLL_CYCLES      = 60;
 	public static final int    DEFAULT_TTL              = 60;
@@ -66,6 +68,7 @@ public class ConfigConst
 	public static final String TYPE_CATEGORY_ID_PROP = "typeCategoryID";
 	public static final String TYPE_ID_PROP     = "typeID";
 	public static final String TIMESTAMP_PROP   = "timeStamp";
+	public static final String TIMESTAMP_MILLIS_PROP = "timeStampMillis";
 	public static final String HAS_ERROR_PROP   = "hasError";
 	public static final String STATUS_CODE_PROP = "statusCode";
 	public static final String LOCATION_ID_PROP = "locationID";
@@ -178,6 +181,17 @@ public class ConfigConst
 	public static final String DEFAULT_CERT_FILE_NAME        = "./cert/PiotCert.pem";
 	
 	public static final int DEFAULT_QOS = 0;
+	public static final int DEFAULT_MAX_INFLIGHT = 64;
+	public static final int DEFAULT_PUBLISH_TIMEOUT_MILLIS = 5000;
+	public static final int DEFAULT_JOURNAL_SEGMENT_BYTES  = 1048576;
+	public static final int DEFAULT_OFFLINE_QUEUE_SIZE     = 100000;
+	public static final int DEFAULT_OFFLINE_MEMORY_QUEUE_SIZE = 1000;
+	public static final int DEFAULT_OFFLINE_DRAIN_RATE     = 100;
+	public static final int DEFAULT_RECEIVE_MAXIMUM        = 64;
+	public static final int DEFAULT_TOPIC_ALIAS_MAXIMUM    = 16;
+	
+	// outside the working directory, which may well be the source tree
+	public static final String DEFAULT_MQTT_PERSISTENCE_DIR = System.getProperty("user.home") + "/.piot/mqtt";
 	
 	public static final String TEST_GDA_DATA_PATH_KEY = "testGdaDataPath";
 	public static final String TEST_CDA_DATA_PATH_KEY = "testCdaDataPath";
@@ -200,6 +214,70 @@ public class ConfigConst
 	public static final String ENABLE_SYSTEM_PERF_KEY        = "enableSystemPerformance";
 	
 	public static final String ENABLE_RUN_FOREVER_KEY        = "enableRunForever";
+	public static final String ENABLE_DATA_RECYCLING_KEY     = "enableDataRecycling";
+	public static final String RECYCLER_POOL_SIZE_KEY        = "recyclerPoolSize";
+	
+	public static final String ENABLE_CONFIG_WATCH_KEY       = "enableConfigWatch";
+	public static final String ENABLE_TELEMETRY_HISTORY_KEY  = "enableTelemetryHistory";
+	public static final String TELEMETRY_HISTORY_SIZE_KEY    = "telemetryHistorySize";
+	public static final String ENABLE_ASYNC_PIPELINE_KEY     = "enableAsyncPipeline";
+	public static final String ENABLE_VIRTUAL_THREADS_KEY    = "enableVirtualThreads";
+	public static final String PIPELINE_QUEUE_SIZE_KEY       = "pipelineQueueSize";
+	public static final String DECODE_WORKERS_KEY            = "decodeWorkers";
+	public static final String ANALYSIS_WORKERS_KEY          = "analysisWorkers";
+	public static final String PERSISTENCE_WORKERS_KEY       = "persistenceWorkers";
+	public static final String UPSTREAM_WORKERS_KEY          = "upstreamWorkers";
+	public static final String INGEST_POLICY_KEY             = "ingestPolicy";
+	public static final String INGEST_POLICY_OVERRIDES_KEY   = "ingestPolicyOverrides";
+	public static final String INGEST_BUFFER_SIZE_KEY        = "ingestBufferSize";
+	public static final String INGEST_BLOCK_TIMEOUT_KEY      = "ingestBlockTimeoutMillis";
+	public static final String UPSTREAM_BATCH_SIZE_KEY       = "upstreamBatchSize";
+	public static final String UPSTREAM_BATCH_BYTES_KEY      = "upstreamBatchBytes";
+	public static final String UPSTREAM_LINGER_MILLIS_KEY    = "upstreamLingerMillis";
+	public static final String ENABLE_ORDERED_DISPATCH_KEY   = "enableOrderedDispatch";
+	public static final String DISPATCH_LANES_KEY            = "dispatchLanes";
+	public static final String DISPATCH_LANE_QUEUE_SIZE_KEY  = "dispatchLaneQueueSize";
+	public static final String ENABLE_EDGE_ANALYTICS_KEY     = "enableEdgeAnalytics";
+	public static final String EDGE_RULES_KEY                = "edgeRules";
+	public static final String ENABLE_AGGREGATION_KEY        = "enableAggregation";
+	public static final String AGGREGATION_WINDOW_MILLIS_KEY = "aggregationWindowMillis";
+	public static final String AGGREGATION_SLIDE_MILLIS_KEY  = "aggregationSlideMillis";
+	public static final String AGGREGATION_PERCENTILES_KEY   = "aggregationPercentiles";
+	public static final String ENABLE_SENSOR_DEDUP_KEY       = "enableSensorDedup";
+	public static final String DEDUP_CACHE_SIZE_KEY          = "dedupCacheSize";
+	public static final String SENSOR_DEADBAND_KEY           = "sensorDeadband";
+	
+	public static final int    DEFAULT_RECYCLER_POOL_SIZE    = 64;
+	public static final int    DEFAULT_TELEMETRY_HISTORY_SIZE = 8192;
+	public static final int    DEFAULT_PIPELINE_QUEUE_SIZE   = 1024;
+	public static final int    DEFAULT_PIPELINE_WORKERS      = 1;
+	public static final int    DEFAULT_INGEST_BUFFER_SIZE    = 256;
+	public static final int    DEFAULT_INGEST_BLOCK_TIMEOUT  = 1000;
+	public static final int    DEFAULT_UPSTREAM_BATCH_SIZE   = 100;
+	public static final int    DEFAULT_UPSTREAM_BATCH_BYTES  = 65536;
+	public static final int    DEFAULT_UPSTREAM_LINGER_MILLIS = 1000;
+	public static final int    DEFAULT_DISPATCH_LANES        = 4;
+	public static final int    DEFAULT_DISPATCH_LANE_QUEUE_SIZE = 1024;
+	public static final int    DEFAULT_AGGREGATION_WINDOW_MILLIS = 60000;
+	public static final int    DEFAULT_DEDUP_CACHE_SIZE      = 4096;
+	
+	// edge analytics rule sections are named EDGE_RULE + "." + <rule name>
+	public static final String EDGE_RULE            = "EdgeRule";
+	
+	public static final String RULE_TYPE_KEY        = "type";
+	public static final String SENSOR_NAME_KEY      = "sensorName";
+	public static final String SENSOR_TYPE_ID_KEY   = "sensorTypeID";
+	public static final String TRIGGER_ABOVE_KEY    = "triggerAbove";
+	public static final String THRESHOLD_KEY        = "threshold";
+	public static final String ON_VALUE_KEY         = "onValue";
+	public static final String OFF_VALUE_KEY        = "offValue";
+	public static final String MAX_RATE_PER_SEC_KEY = "maxRatePerSec";
+	public static final String WINDOW_MILLIS_KEY    = "windowMillis";
+	public static final String ACTUATOR_NAME_KEY    = "actuatorName";
+	public static final String ACTUATOR_TYPE_ID_KEY = "actuatorTypeID";
+	public static final String ACTUATOR_VALUE_KEY   = "actuatorValue";
+	
+	public static final int    DEFAULT_RULE_WINDOW_MILLIS = 10000;
 	
 	public static final String AWS_CLOUD_SVC_NAME     = "AWS";
 	public static final String AZURE_CLOUD_SVC_NAME   = "Azure";
@@ -240,6 +318,7 @@ public class ConfigConst
 	public static final String PORT_KEY             = "port";
 	public static final String SECURE_PORT_KEY      = "securePort";
 	public static final String USE_ASYNC_CLIENT_KEY = "useAsyncClient";
+	public static final String DATA_ENCODING_KEY    = "dataEncoding";
 	
 	public static final String ROOT_CERT_ALIAS = "root";
 	
@@ -269,6 +348,18 @@ public class ConfigConst
 	public static final String POLL_CYCLES_KEY      = "pollCycleSecs";
 	public static final String KEEP_ALIVE_KEY       = "keepAlive";
 	public static final String DEFAULT_QOS_KEY      = "defaultQos";
+	public static final String MAX_INFLIGHT_KEY     = "maxInflight";
+	public static final String PUBLISH_TIMEOUT_MILLIS_KEY = "publishTimeoutMillis";
+	public static final String CLEAN_SESSION_KEY    = "cleanSession";
+	public static final String PERSISTENCE_DIR_KEY  = "persistenceDir";
+	public static final String JOURNAL_SEGMENT_BYTES_KEY  = "journalSegmentBytes";
+	public static final String ENABLE_OFFLINE_QUEUE_KEY   = "enableOfflineQueue";
+	public static final String OFFLINE_QUEUE_SIZE_KEY     = "offlineQueueSize";
+	public static final String OFFLINE_MEMORY_QUEUE_SIZE_KEY = "offlineMemoryQueueSize";
+	public static final String OFFLINE_DRAIN_RATE_KEY     = "offlineDrainRate";
+	public static final String RECEIVE_MAXIMUM_KEY        = "receiveMaximum";
+	public static final String TOPIC_ALIAS_MAXIMUM_KEY    = "topicAliasMaximum";
+	public static final String SHARED_SUBSCRIPTION_GROUP_KEY = "sharedSubscriptionGroup";
 	public static final String ENABLE_CON_MSGS_KEY  = "enableConfirmedMsgs";
 	
 	public static final String IMAGE_PREPROCESS_PATH_KEY = "imgPreprocessPath";
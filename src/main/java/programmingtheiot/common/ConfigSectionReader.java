@@ -0,0 +1,289 @@
+/**
+ * This class is part of the Programming the Internet of Things
+ * project, and is available via the MIT License, which can be
+ * found in the LICENSE file at the top level of this repository.
+ * 
+ * Copyright (c) 2020 by Andrew D. King
+ */
+
+package programmingtheiot.common;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.configuration2.ex.ConversionException;
+
+import programmingtheiot.data.DataEncodingEnum;
+
+/**
+ * Reads and validates the properties of a single configuration section
+ * on behalf of the typed configuration classes. Each problem found is
+ * added to the shared error list, and the default value used in its place.
+ * 
+ */
+final class ConfigSectionReader
+{
+	// private var's
+	
+	private final ConfigUtil configUtil;
+	private final String sectionName;
+	private final List<String> errors;
+	
+	
+	// constructors
+	
+	ConfigSectionReader(ConfigUtil configUtil, String sectionName, List<String> errors)
+	{
+		super();
+		
+		this.configUtil  = configUtil;
+		this.sectionName = sectionName;
+		this.errors      = errors;
+	}
+	
+	
+	// package-private methods
+	
+	String getSectionName()
+	{
+		return this.sectionName;
+	}
+	
+	/**
+	 * Returns the first of the given keys present in the section, or the
+	 * first key if none are. This allows for keys whose case differs
+	 * between configuration files and {@link ConfigConst}.
+	 */
+	String resolveKey(String ... keys)
+	{
+		for (String key : keys) {
+			if (this.configUtil.hasProperty(this.sectionName, key)) {
+				return key;
+			}
+		}
+		
+		return keys[0];
+	}
+	
+	String getString(String key, String defaultVal)
+	{
+		String val = this.configUtil.getProperty(this.sectionName, key);
+		
+		return (val != null ? val.trim() : defaultVal);
+	}
+	
+	String getRequiredString(String key, String defaultVal)
+	{
+		String val = getString(key, defaultVal);
+		
+		if (val == null || val.isEmpty()) {
+			addError(key, "must not be empty");
+			
+			return defaultVal;
+		}
+		
+		return val;
+	}
+	
+	boolean getBoolean(String key, boolean defaultVal)
+	{
+		if (! this.configUtil.hasProperty(this.sectionName, key)) {
+			return defaultVal;
+		}
+		
+		try {
+			return this.configUtil.getBoolean(this.sectionName, key);
+		} catch (ConversionException e) {
+			addError(key, "must be a boolean");
+			
+			return defaultVal;
+		}
+	}
+	
+	int getInteger(String key, int defaultVal, int minVal, int maxVal)
+	{
+		if (! this.configUtil.hasProperty(this.sectionName, key)) {
+			return defaultVal;
+		}
+		
+		try {
+			int val = this.configUtil.getInteger(this.sectionName, key);
+			
+			if (val < minVal || val > maxVal) {
+				addError(key, "must be between " + minVal + " and " + maxVal + ", but is " + val);
+				
+				return defaultVal;
+			}
+			
+			return val;
+		} catch (ConversionException e) {
+			addError(key, "must be an integer");
+			
+			return defaultVal;
+		}
+	}
+	
+	float getFloat(String key, float defaultVal)
+	{
+		if (! this.configUtil.hasProperty(this.sectionName, key)) {
+			return defaultVal;
+		}
+		
+		try {
+			return this.configUtil.getFloat(this.sectionName, key);
+		} catch (ConversionException e) {
+			addError(key, "must be a number");
+			
+			return defaultVal;
+		}
+	}
+	
+	/**
+	 * Reads a comma-separated list of non-empty values.
+	 */
+	List<String> getList(String key)
+	{
+		String val = getString(key, null);
+		List<String> list = new ArrayList<>();
+		
+		if (val != null) {
+			for (String entry : val.split(",")) {
+				if (! entry.trim().isEmpty()) {
+					list.add(entry.trim());
+				}
+			}
+		}
+		
+		return Collections.unmodifiableList(list);
+	}
+	
+	/**
+	 * Reads a comma-separated list of numbers, each between the given bounds.
+	 */
+	float[] getFloatArray(String key, float[] defaultVal, float minVal, float maxVal)
+	{
+		if (! this.configUtil.hasProperty(this.sectionName, key)) {
+			return defaultVal;
+		}
+		
+		List<String> entries = getList(key);
+		float[] vals = new float[entries.size()];
+		
+		for (int i = 0; i < vals.length; i++) {
+			try {
+				vals[i] = Float.parseFloat(entries.get(i));
+			} catch (NumberFormatException e) {
+				addError(key, "must be a list of numbers, but contains '" + entries.get(i) + "'");
+				
+				return defaultVal;
+			}
+			
+			if (vals[i] < minVal || vals[i] > maxVal) {
+				addError(key, "values must be between " + minVal + " and " + maxVal + ", but one is " + vals[i]);
+				
+				return defaultVal;
+			}
+		}
+		
+		return vals;
+	}
+	
+	DataEncodingEnum getDataEncoding(String key, DataEncodingEnum defaultVal)
+	{
+		String val = getString(key, null);
+		
+		if (val == null || val.isEmpty()) {
+			return defaultVal;
+		}
+		
+		DataEncodingEnum encoding = DataEncodingEnum.getEnumFromValue(val);
+		
+		if (encoding == null) {
+			addError(key, "is not a supported data encoding: " + val);
+			
+			return defaultVal;
+		}
+		
+		return encoding;
+	}
+	
+	BackpressurePolicyEnum getBackpressurePolicy(String key, BackpressurePolicyEnum defaultVal)
+	{
+		String val = getString(key, null);
+		
+		if (val == null || val.isEmpty()) {
+			return defaultVal;
+		}
+		
+		BackpressurePolicyEnum policy = BackpressurePolicyEnum.getEnumFromValue(val);
+		
+		if (policy == null) {
+			addError(key, "is not a supported backpressure policy: " + val);
+			
+			return defaultVal;
+		}
+		
+		return policy;
+	}
+	
+	/**
+	 * Reads a required edge rule type, returning null if it's missing or invalid.
+	 */
+	EdgeRuleTypeEnum getEdgeRuleType(String key)
+	{
+		String val = getString(key, null);
+		EdgeRuleTypeEnum ruleType = EdgeRuleTypeEnum.getEnumFromValue(val);
+		
+		if (ruleType == null) {
+			addError(key, "is not a supported rule type: " + val);
+		}
+		
+		return ruleType;
+	}
+	
+	/**
+	 * Reads a comma-separated list of 'RESOURCE_NAME:policy' pairs, where
+	 * RESOURCE_NAME is a {@link ResourceNameEnum} constant name.
+	 */
+	Map<ResourceNameEnum, BackpressurePolicyEnum> getBackpressurePolicyMap(String key)
+	{
+		String val = getString(key, null);
+		Map<ResourceNameEnum, BackpressurePolicyEnum> policyMap = new EnumMap<>(ResourceNameEnum.class);
+		
+		if (val != null && ! val.isEmpty()) {
+			for (String entry : val.split(",")) {
+				String[] pair = entry.split(":");
+				
+				ResourceNameEnum resource = null;
+				BackpressurePolicyEnum policy = null;
+				
+				if (pair.length == 2) {
+					try {
+						resource = ResourceNameEnum.valueOf(pair[0].trim());
+					} catch (IllegalArgumentException e) {
+						// handled below
+					}
+					
+					policy = BackpressurePolicyEnum.getEnumFromValue(pair[1]);
+				}
+				
+				if (resource != null && policy != null) {
+					policyMap.put(resource, policy);
+				} else {
+					addError(key, "has an invalid 'RESOURCE_NAME:policy' entry: " + entry.trim());
+				}
+			}
+		}
+		
+		return Collections.unmodifiableMap(policyMap);
+	}
+	
+	void addError(String key, String msg)
+	{
+		this.errors.add("[" + this.sectionName + "] " + key + " " + msg + ".");
+	}
+	
+}
@@ -13,16 +13,44 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.apache.commons.configuration2.*;
+import org.apache.commons.configuration2.convert.PropertyConverter;
 import org.apache.commons.configuration2.ex.ConfigurationException;
+import org.apache.commons.configuration2.ex.ConversionException;
 
 /**
  * A simple utility wrapper around the Apache Commons
  * configuration infrastructure.
+ * <p>
+ * Each time the configuration is loaded, every section is flattened into an
+ * immutable snapshot of pre-converted values, which is then published via a
+ * volatile reference. The property getters read from the current snapshot
+ * without locking or allocating, so they're safe to use on hot paths.
+ * <p>
+ * The configuration file can optionally be watched for changes via
+ * {@link #startConfigWatch()}. On change, the file is reloaded, the new
+ * snapshot swapped in, and each registered {@link IConfigUpdateListener}
+ * notified. If the changed file can't be parsed, the current configuration
+ * is retained.
  * 
  */
 public class ConfigUtil
@@ -32,6 +60,10 @@ public class ConfigUtil
 	private static final Logger _Logger =
 		Logger.getLogger(ConfigUtil.class.getName());
 	
+	// editors often save a file in more than one step, so wait for
+	// change events to settle before reloading
+	private static final long CONFIG_WATCH_SETTLE_MILLIS = 250L;
+	
 	private static final ConfigUtil _Instance = new ConfigUtil();
 
 	/**
@@ -47,10 +79,16 @@ public class ConfigUtil
 	
 	// private var's
 	
-	private INIConfiguration sectionProperties = null;
+	private volatile ConfigSnapshot snapshot = ConfigSnapshot.EMPTY;
 	
-	private boolean isLoaded = false;
+	private volatile boolean isLoaded = false;
 	private String  configFileName = ConfigConst.DEFAULT_CONFIG_FILE_NAME;
+	private volatile File loadedConfigFile = null;
+	
+	private List<IConfigUpdateListener> configUpdateListeners = new CopyOnWriteArrayList<>();
+	
+	private WatchService configWatchService = null;
+	private Thread configWatchThread = null;
 	
 	
 	// constructors
@@ -58,7 +96,8 @@ public class ConfigUtil
 	/**
 	 * Default (private).
 	 * 
-	 * Creates a new instance of {@link HierarchichalINIConfiguration}.
+	 * Loads the configuration file named by the system property
+	 * {@link ConfigConst#CONFIG_FILE_KEY}, or the default if not set.
 	 */
 	private ConfigUtil()
 	{
@@ -74,13 +113,154 @@ public class ConfigUtil
 			_Logger.warning("Security exception reading system property to retrieve config file name. Using default.");
 		}
 		
-		initBackingProperties();
 		loadConfig();
 	}
 	
 	
 	// public methods
 	
+	/**
+	 * Adds a listener to be notified each time the configuration is reloaded.
+	 * 
+	 * @param listener The listener to add. If null or already added, it's ignored.
+	 */
+	public void addConfigUpdateListener(IConfigUpdateListener listener)
+	{
+		if (listener != null && ! this.configUpdateListeners.contains(listener)) {
+			this.configUpdateListeners.add(listener);
+		}
+	}
+	
+	/**
+	 * Removes a listener previously added via {@link #addConfigUpdateListener(IConfigUpdateListener)}.
+	 * 
+	 * @param listener The listener to remove.
+	 */
+	public void removeConfigUpdateListener(IConfigUpdateListener listener)
+	{
+		if (listener != null) {
+			this.configUpdateListeners.remove(listener);
+		}
+	}
+	
+	/**
+	 * Reloads the configuration file, and if successful, swaps in the new
+	 * configuration and notifies each registered listener. Only the file
+	 * that was loaded is read again; if it's missing (which it may briefly
+	 * be while an editor saves it), or can't be read or parsed, the current
+	 * configuration is retained.
+	 * 
+	 * @return boolean True if the configuration was reloaded; false otherwise.
+	 */
+	public boolean reloadConfig()
+	{
+		File cfgFile = this.loadedConfigFile;
+		boolean isReloaded = false;
+		
+		if (cfgFile == null) {
+			// nothing's been loaded yet, so there's nothing to retain
+			isReloaded = loadConfig();
+		} else if (! cfgFile.exists()) {
+			_Logger.log(Level.WARNING, "Config file {0} doesn't exist.", cfgFile.getAbsolutePath());
+		} else {
+			isReloaded = readConfigFile(cfgFile);
+		}
+		
+		if (! isReloaded) {
+			_Logger.warning("Failed to reload configuration. Retaining current configuration.");
+			
+			return false;
+		}
+		
+		_Logger.info("Configuration reloaded. Version: " + getConfigVersion());
+		
+		for (IConfigUpdateListener listener : this.configUpdateListeners) {
+			try {
+				listener.onConfigUpdate(this);
+			} catch (Exception e) {
+				_Logger.log(Level.WARNING, "Configuration update listener failed: " + listener, e);
+			}
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Starts watching the loaded configuration file for changes, reloading
+	 * it via {@link #reloadConfig()} whenever it's modified. The watch runs
+	 * on its own daemon thread. Calling this when already started has no effect.
+	 * 
+	 * @return boolean True if the watch is running; false if it couldn't be started.
+	 */
+	public synchronized boolean startConfigWatch()
+	{
+		if (this.configWatchThread != null) {
+			return true;
+		}
+		
+		File cfgFile = this.loadedConfigFile;
+		
+		if (cfgFile == null) {
+			_Logger.warning("No configuration file loaded. Can't watch for changes.");
+			
+			return false;
+		}
+		
+		Path cfgDir = cfgFile.toPath().getParent();
+		String cfgFileName = cfgFile.getName();
+		
+		try {
+			WatchService watchService = cfgDir.getFileSystem().newWatchService();
+			
+			cfgDir.register(
+				watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+			
+			this.configWatchService = watchService;
+			this.configWatchThread  = new Thread(() -> runConfigWatch(watchService, cfgFileName), "ConfigWatch");
+			this.configWatchThread.setDaemon(true);
+			this.configWatchThread.start();
+			
+			_Logger.info("Watching configuration file for changes: " + cfgFile);
+			
+			return true;
+		} catch (IOException e) {
+			_Logger.log(Level.WARNING, "Failed to watch configuration file: " + cfgFile, e);
+			
+			return false;
+		}
+	}
+	
+	/**
+	 * Stops watching the configuration file for changes.
+	 * 
+	 */
+	public synchronized void stopConfigWatch()
+	{
+		if (this.configWatchService != null) {
+			try {
+				this.configWatchService.close();
+			} catch (IOException e) {
+				_Logger.log(Level.WARNING, "Failed to close configuration file watch service.", e);
+			}
+			
+			this.configWatchThread.interrupt();
+			
+			this.configWatchService = null;
+			this.configWatchThread  = null;
+			
+			_Logger.info("Stopped watching configuration file for changes.");
+		}
+	}
+	
+	/**
+	 * 
+	 * @return boolean True if the configuration file is being watched for changes.
+	 */
+	public synchronized boolean isConfigWatchStarted()
+	{
+		return (this.configWatchThread != null);
+	}
+	
 	/**
 	 * Creates the cloud service configuration section name from
 	 * the given parameters.
@@ -103,160 +283,158 @@ public class ConfigUtil
 	/**
 	 * Returns the requested property from the given section.
 	 * 
-	 * @param section The section from which to retrieve 'propName'. If it
-	 * doesn't exist, it will be created.
+	 * @param section The section from which to retrieve 'propName'.
 	 * @param propName The name of the property to retrieve.
 	 * @return String The value for 'propName'. If no mapping exists,
 	 * a {@link ConversionException will be thrown}.
 	 * @Exception ConversionException Thrown if 'propName' does not map to a String.
 	 */
-	public synchronized String getProperty(String section, String propName)
+	public String getProperty(String section, String propName)
 	{
-		SubnodeConfiguration subNodeConfig = sectionProperties.getSection(section);
+		ConfigValue value = this.snapshot.getValue(section, propName);
 		
-		return subNodeConfig.getString(propName);
+		return (value != null ? value.strVal : null);
 	}
 	
 	/**
 	 * Returns the requested property from the given section.
 	 * 
-	 * @param section The section from which to retrieve 'propName'. If it
-	 * doesn't exist, it will be created.
+	 * @param section The section from which to retrieve 'propName'.
 	 * @param propName The name of the property to retrieve.
 	 * @param defaultVal The default value if the property doesn't exist.
 	 * @return String The value for 'propName'. If no mapping exists,
 	 * a {@link ConversionException will be thrown}.
 	 * @Exception ConversionException Thrown if 'propName' does not map to a String.
 	 */
-	public synchronized String getProperty(String section, String propName, String defaultVal)
+	public String getProperty(String section, String propName, String defaultVal)
 	{
-		SubnodeConfiguration subNodeConfig = sectionProperties.getSection(section);
+		ConfigValue value = this.snapshot.getValue(section, propName);
 		
-		return subNodeConfig.getString(propName, defaultVal);
+		return (value != null ? value.strVal : defaultVal);
 	}
 	
 	/**
 	 * Returns the requested property from the given section.
 	 * 
-	 * @param section The section from which to retrieve the value for 'propName'. If it
-	 * doesn't exist, it will be created.
+	 * @param section The section from which to retrieve the value for 'propName'.
 	 * @param propName The name of the property to retrieve.
 	 * @return boolean The value for 'propName'. If no mapping exists,
 	 * a {@link ConversionException will be thrown}.
 	 * @Exception ConversionException Thrown if 'propName' does not map to a boolean.
 	 */
-	public synchronized boolean getBoolean(String section, String propName)
+	public boolean getBoolean(String section, String propName)
 	{
-		SubnodeConfiguration subNodeConfig = sectionProperties.getSection(section);
+		ConfigValue value = this.snapshot.getValue(section, propName);
 		
-		return subNodeConfig.getBoolean(propName, false);
+		if (value == null) {
+			return false;
+		}
+		
+		if (value.boolVal == null) {
+			throw newConversionException(section, propName, value, Boolean.class);
+		}
+		
+		return value.boolVal;
 	}
 	
 	/**
 	 * Returns the requested property from the given section.
 	 * 
-	 * @param section The section from which to retrieve 'propName'. If it
-	 * doesn't exist, it will be created.
+	 * @param section The section from which to retrieve 'propName'.
 	 * @param propName The name of the property to retrieve.
 	 * @return int The value for 'propName'. If no mapping exists,
 	 * a {@link ConversionException will be thrown}.
 	 * @Exception ConversionException Thrown if 'propName' does not map to a int.
 	 */
-	public synchronized int getInteger(String section, String propName)
+	public int getInteger(String section, String propName)
 	{
-		SubnodeConfiguration subNodeConfig = sectionProperties.getSection(section);
+		ConfigValue value = this.snapshot.getValue(section, propName);
+		
+		if (value == null) {
+			throw newNoSuchElementException(section, propName);
+		}
 		
-		return subNodeConfig.getInt(propName);
+		return getInteger(section, propName, value);
 	}
 	
 	/**
 	 * Returns the requested property from the given section.
 	 * 
-	 * @param section The section from which to retrieve 'propName'. If it
-	 * doesn't exist, it will be created.
+	 * @param section The section from which to retrieve 'propName'.
 	 * @param propName The name of the property to retrieve.
 	 * @param defaultVal The default value if the property doesn't exist.
 	 * @return int The value for 'propName'. If no mapping exists,
 	 * a {@link ConversionException will be thrown}.
 	 * @Exception ConversionException Thrown if 'propName' does not map to a int.
 	 */
-	public synchronized int getInteger(String section, String propName, int defaultVal)
+	public int getInteger(String section, String propName, int defaultVal)
 	{
-		SubnodeConfiguration subNodeConfig = sectionProperties.getSection(section);
+		ConfigValue value = this.snapshot.getValue(section, propName);
 		
-		return subNodeConfig.getInt(propName, defaultVal);
+		return (value != null ? getInteger(section, propName, value) : defaultVal);
 	}
 	
 	/**
 	 * Returns the requested property from the given section.
 	 * 
-	 * @param section The section from which to retrieve 'propName'. If it
-	 * doesn't exist, it will be created.
+	 * @param section The section from which to retrieve 'propName'.
 	 * @param propName The name of the property to retrieve.
 	 * @return float The value for 'propName'. If no mapping exists,
 	 * a {@link ConversionException will be thrown}.
 	 * @Exception ConversionException Thrown if 'propName' does not map to a float.
 	 */
-	public synchronized float getFloat(String section, String propName)
+	public float getFloat(String section, String propName)
 	{
-		SubnodeConfiguration subNodeConfig = sectionProperties.getSection(section);
+		ConfigValue value = this.snapshot.getValue(section, propName);
 		
-		return subNodeConfig.getFloat(propName);
+		if (value == null) {
+			throw newNoSuchElementException(section, propName);
+		}
+		
+		return getFloat(section, propName, value);
 	}
 	
 	/**
 	 * Returns the requested property from the given section.
 	 * 
-	 * @param section The section from which to retrieve 'propName'. If it
-	 * doesn't exist, it will be created.
+	 * @param section The section from which to retrieve 'propName'.
 	 * @param propName The name of the property to retrieve.
 	 * @param defaultVal The default value if the property doesn't exist.
 	 * @return float The value for 'propName'. If no mapping exists,
 	 * a {@link ConversionException will be thrown}.
 	 * @Exception ConversionException Thrown if 'propName' does not map to a float.
 	 */
-	public synchronized float getFloat(String section, String propName, float defaultVal)
+	public float getFloat(String section, String propName, float defaultVal)
 	{
-		SubnodeConfiguration subNodeConfig = sectionProperties.getSection(section);
+		ConfigValue value = this.snapshot.getValue(section, propName);
 		
-		return subNodeConfig.getFloat(propName, defaultVal);
+		return (value != null ? getFloat(section, propName, value) : defaultVal);
 	}
 	
 	/**
 	 * Returns true if the requested property exists in the given section.
 	 * 
-	 * @param section The section from which to retrieve 'propName'. If it
-	 * doesn't exist, it will be created.
+	 * @param section The section from which to retrieve 'propName'.
 	 * @param propName The name of the property to retrieve.
 	 * @return boolean True if the property exists; false otherwise.
 	 * @Exception ConversionException Thrown if 'propName' does not map to a String.
 	 */
-	public synchronized boolean hasProperty(String section, String propName)
+	public boolean hasProperty(String section, String propName)
 	{
-		SubnodeConfiguration subNodeConfig = sectionProperties.getSection(section);
-		
-		return (subNodeConfig.getProperty(propName) != null);
+		return (this.snapshot.getValue(section, propName) != null);
 	}
 	
 	/**
-	 * Returns true if the requested section exists and / or contains
-	 * any properties within the loaded configuration.
-	 * <p>
-	 * NOTE: The underlying configuration handler will create 'section' if
-	 * it doesn't already exist; hence, it can make for large configurations
-	 * if this method is called with a different non-existent section name
-	 * often, even if they remain empty (which is the default case).
+	 * Returns true if the requested section exists within the loaded
+	 * configuration. Unlike earlier versions, a non-existent section is
+	 * no longer created as a side effect of this call.
 	 * 
-	 * @param section The section from which to retrieve 'propName'. If it
-	 * doesn't exist, it will be created as an empty section.
-	 * @return boolean True on success; false otherwise.
-	 * @Exception ConversionException Thrown if 'section' does not map to a String.
+	 * @param section The section to look up.
+	 * @return boolean True if the section exists; false otherwise.
 	 */
-	public synchronized boolean hasSection(String section)
+	public boolean hasSection(String section)
 	{
-		SubnodeConfiguration subNodeConfig = sectionProperties.getSection(section);
-		
-		return (subNodeConfig != null);// && subNodeConfig.isEmpty());
+		return this.snapshot.hasSection(section);
 	}
 	
 	/**
@@ -272,6 +450,20 @@ public class ConfigUtil
 		return isLoaded;
 	}
 	
+	/**
+	 * Returns the version number of the loaded configuration, which is
+	 * incremented each time the configuration is successfully (re)loaded.
+	 * <p>
+	 * This can be used by callers that cache configuration values to
+	 * cheaply determine if their cached values are stale.
+	 * 
+	 * @return int The configuration version number.
+	 */
+	public int getConfigVersion()
+	{
+		return this.snapshot.version;
+	}
+	
 	/**
 	 * Attempts to load a separate configuration 'credential' file comprised
 	 * of simple key = value pairs. The assumption with this call is that
@@ -296,7 +488,7 @@ public class ConfigUtil
 	{
 		Properties props = null;
 		
-		if (hasSection(section)) {
+		if (hasProperty(section, ConfigConst.CRED_FILE_KEY)) {
 			String credFileName = getProperty(section, ConfigConst.CRED_FILE_KEY);
 			File   credFile     = new File(credFileName);
 			
@@ -332,14 +524,111 @@ public class ConfigUtil
 	// private methods
 	
 	/**
-	 * Initializes the backing properties store - this will either create a new
-	 * instance (if the current ref is null) or clear the contents from the
-	 * existing instance.
+	 * Flattens each section of the given configuration into a new snapshot,
+	 * converting each value once up front.
 	 * 
+	 * @param iniConfig The parsed configuration.
+	 * @param version The version number for the new snapshot.
+	 * @return ConfigSnapshot
 	 */
-	private void initBackingProperties()
+	private ConfigSnapshot createSnapshot(INIConfiguration iniConfig, int version)
 	{
-		sectionProperties = new INIConfiguration();
+		Map<String, Map<String, ConfigValue>> sectionMap = new HashMap<>();
+		
+		for (String section : iniConfig.getSections()) {
+			if (section == null) {
+				continue;
+			}
+			
+			SubnodeConfiguration subNodeConfig = iniConfig.getSection(section);
+			Map<String, ConfigValue> valueMap = new HashMap<>();
+			
+			for (Iterator<String> keys = subNodeConfig.getKeys(); keys.hasNext(); ) {
+				String key = keys.next();
+				String val = subNodeConfig.getString(key);
+				
+				if (val != null) {
+					valueMap.put(key, new ConfigValue(val));
+				}
+			}
+			
+			sectionMap.put(section, Collections.unmodifiableMap(valueMap));
+		}
+		
+		return new ConfigSnapshot(version, Collections.unmodifiableMap(sectionMap));
+	}
+	
+	private int getInteger(String section, String propName, ConfigValue value)
+	{
+		if (value.intVal == null) {
+			throw newConversionException(section, propName, value, Integer.class);
+		}
+		
+		return value.intVal;
+	}
+	
+	private float getFloat(String section, String propName, ConfigValue value)
+	{
+		if (value.floatVal == null) {
+			throw newConversionException(section, propName, value, Float.class);
+		}
+		
+		return value.floatVal;
+	}
+	
+	private ConversionException newConversionException(
+		String section, String propName, ConfigValue value, Class<?> type)
+	{
+		return new ConversionException(
+			"Property '" + propName + "' in section '" + section + "' doesn't map to a " +
+			type.getSimpleName() + ": " + value.strVal);
+	}
+	
+	private NoSuchElementException newNoSuchElementException(String section, String propName)
+	{
+		return new NoSuchElementException(
+			"Property '" + propName + "' in section '" + section + "' doesn't map to an existing object.");
+	}
+	
+	/**
+	 * Runs on the configuration watch thread until the watch service is closed.
+	 * 
+	 * @param watchService The watch service registered for the config file's directory.
+	 * @param cfgFileName The config file name (without the path).
+	 */
+	private void runConfigWatch(WatchService watchService, String cfgFileName)
+	{
+		try {
+			while (true) {
+				WatchKey watchKey = watchService.take();
+				boolean isChanged = false;
+				
+				for (WatchEvent<?> event : watchKey.pollEvents()) {
+					if (event.kind() == StandardWatchEventKinds.OVERFLOW ||
+						cfgFileName.equals(String.valueOf(event.context()))) {
+						isChanged = true;
+					}
+				}
+				
+				if (! watchKey.reset()) {
+					_Logger.warning("Configuration file directory is no longer accessible. Stopping watch.");
+					break;
+				}
+				
+				if (isChanged) {
+					WatchKey nextKey = null;
+					
+					while ((nextKey = watchService.poll(CONFIG_WATCH_SETTLE_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+						nextKey.pollEvents();
+						nextKey.reset();
+					}
+					
+					reloadConfig();
+				}
+			}
+		} catch (InterruptedException | ClosedWatchServiceException e) {
+			// stopped via stopConfigWatch()
+		}
 	}
 	
 	/**
@@ -354,9 +643,10 @@ public class ConfigUtil
 	}
 	
 	/**
-	 * Attempts to load the given configuration file. If the load
-	 * fails, the default configuration file as specified
+	 * Attempts to load the given configuration file. If it doesn't
+	 * exist, the default configuration file as specified
 	 * by {@link ConfigConst#DEFAULT_CONFIG_FILE_NAME} will be used.
+	 * This is only for the initial load; see {@link #reloadConfig()}.
 	 * 
 	 * @param configFileName The configuration file name.
 	 * @return boolean True on success; false otherwise.
@@ -377,38 +667,7 @@ public class ConfigUtil
 		}
 		
 		if (cfgFile.exists()) {
-			try {
-				// init the backing properties, or clear out the existing one
-				initBackingProperties();
-				
-				FileReader fReader = new FileReader(new File(cfgFile.getAbsoluteFile().toString()));
-				
-				sectionProperties.read(fReader);
-				// sectionProperties.setFileName(cfgFile.getAbsoluteFile().toString());
-				// sectionProperties.load();
-				isLoaded = true;
-			} catch (ConfigurationException e) {
-				_Logger.log(
-					Level.SEVERE,
-					"Failed to parse existing config file: {0}. Config not set.",
-					cfgFile.getAbsolutePath());
-				
-				_Logger.log(Level.SEVERE, "Configuration exception thrown loading config file.", e);
-			} catch (FileNotFoundException e) {
-				_Logger.log(
-					Level.SEVERE,
-					"Failed to load config file: {0} doesn't exist. Config not set.",
-					cfgFile.getAbsolutePath());
-				
-				_Logger.log(Level.SEVERE, "File exception thrown loading config file.", e);
-			} catch (IOException e) {
-				_Logger.log(
-					Level.SEVERE,
-					"Failed to read config file: {0}. Config not set.",
-					cfgFile.getAbsolutePath());
-				
-				_Logger.log(Level.SEVERE, "IO exception thrown loading config file.", e);
-			}
+			readConfigFile(cfgFile);
 		} else {
 			_Logger.log(
 				Level.WARNING,
@@ -426,4 +685,115 @@ public class ConfigUtil
 		return isLoaded;
 	}
 	
+	/**
+	 * Reads and parses the given configuration file, and if successful,
+	 * swaps in its configuration.
+	 * 
+	 * @param cfgFile The configuration file.
+	 * @return boolean True on success; false otherwise.
+	 */
+	private synchronized boolean readConfigFile(File cfgFile)
+	{
+		try (FileReader fReader = new FileReader(new File(cfgFile.getAbsoluteFile().toString()))) {
+			INIConfiguration iniConfig = new INIConfiguration();
+			
+			iniConfig.read(fReader);
+			
+			// publish the new snapshot in a single write, so readers
+			// see either the old or new configuration - never a mix
+			this.snapshot = createSnapshot(iniConfig, this.snapshot.version + 1);
+			this.loadedConfigFile = cfgFile.getAbsoluteFile();
+			isLoaded = true;
+			
+			return true;
+		} catch (ConfigurationException e) {
+			_Logger.log(
+				Level.SEVERE,
+				"Failed to parse existing config file: {0}. Config not set.",
+				cfgFile.getAbsolutePath());
+			
+			_Logger.log(Level.SEVERE, "Configuration exception thrown loading config file.", e);
+		} catch (FileNotFoundException e) {
+			_Logger.log(
+				Level.SEVERE,
+				"Failed to load config file: {0} doesn't exist. Config not set.",
+				cfgFile.getAbsolutePath());
+			
+			_Logger.log(Level.SEVERE, "File exception thrown loading config file.", e);
+		} catch (IOException e) {
+			_Logger.log(
+				Level.SEVERE,
+				"Failed to read config file: {0}. Config not set.",
+				cfgFile.getAbsolutePath());
+			
+			_Logger.log(Level.SEVERE, "IO exception thrown loading config file.", e);
+		}
+		
+		return false;
+	}
+	
+	
+	// private classes
+	
+	/**
+	 * Immutable view of all sections and their values for one load.
+	 * 
+	 */
+	private static final class ConfigSnapshot
+	{
+		static final ConfigSnapshot EMPTY = new ConfigSnapshot(0, Collections.emptyMap());
+		
+		final int version;
+		final Map<String, Map<String, ConfigValue>> sectionMap;
+		
+		ConfigSnapshot(int version, Map<String, Map<String, ConfigValue>> sectionMap)
+		{
+			this.version    = version;
+			this.sectionMap = sectionMap;
+		}
+		
+		ConfigValue getValue(String section, String propName)
+		{
+			Map<String, ConfigValue> valueMap = this.sectionMap.get(section);
+			
+			return (valueMap != null ? valueMap.get(propName) : null);
+		}
+		
+		boolean hasSection(String section)
+		{
+			return this.sectionMap.containsKey(section);
+		}
+	}
+	
+	/**
+	 * Immutable property value, with each typed conversion made once. A null
+	 * typed value indicates the String doesn't convert to that type, and
+	 * the matching getter will throw a {@link ConversionException}.
+	 * 
+	 */
+	private static final class ConfigValue
+	{
+		final String  strVal;
+		final Boolean boolVal;
+		final Integer intVal;
+		final Float   floatVal;
+		
+		ConfigValue(String strVal)
+		{
+			this.strVal   = strVal;
+			this.boolVal  = convert(() -> PropertyConverter.toBoolean(strVal));
+			this.intVal   = convert(() -> PropertyConverter.toInteger(strVal));
+			this.floatVal = convert(() -> PropertyConverter.toFloat(strVal));
+		}
+		
+		private static <T> T convert(Supplier<T> converter)
+		{
+			try {
+				return converter.get();
+			} catch (ConversionException e) {
+				return null;
+			}
+		}
+	}
+	
 }
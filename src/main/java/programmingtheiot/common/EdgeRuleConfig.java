@@ -0,0 +1,192 @@
+/**
+ * This class is part of the Programming the Internet of Things
+ * project, and is available via the MIT License, which can be
+ * found in the LICENSE file at the top level of this repository.
+ * 
+ * Copyright (c) 2020 by Andrew D. King
+ */
+
+package programmingtheiot.common;
+
+/**
+ * Immutable view of a single edge analytics rule section,
+ * {@link ConfigConst#EDGE_RULE}.&lt;ruleName&gt;. The rules to load are
+ * listed by the {@link ConfigConst#EDGE_RULES_KEY} property in the
+ * {@link ConfigConst#GATEWAY_DEVICE} section.
+ * 
+ */
+public class EdgeRuleConfig
+{
+	// private var's
+	
+	private final String ruleName;
+	private final EdgeRuleTypeEnum ruleType;
+	
+	private final String sensorName;
+	private final int    sensorTypeID;
+	
+	private final boolean triggerAbove;
+	private final float   threshold;
+	private final float   onValue;
+	private final float   offValue;
+	private final float   maxRatePerSec;
+	private final int     windowMillis;
+	
+	private final String actuatorName;
+	private final int    actuatorTypeID;
+	private final float  actuatorValue;
+	
+	
+	// constructors
+	
+	/**
+	 * Constructor.
+	 * 
+	 * @param reader The reader for the section.
+	 * @param ruleName The rule name, as listed in the GatewayDevice section.
+	 */
+	EdgeRuleConfig(ConfigSectionReader reader, String ruleName)
+	{
+		super();
+		
+		this.ruleName = ruleName;
+		this.ruleType = reader.getEdgeRuleType(ConfigConst.RULE_TYPE_KEY);
+		
+		this.sensorName   = reader.getString(ConfigConst.SENSOR_NAME_KEY, null);
+		this.sensorTypeID =
+			reader.getInteger(ConfigConst.SENSOR_TYPE_ID_KEY, ConfigConst.DEFAULT_TYPE_ID, 0, Integer.MAX_VALUE);
+		
+		if (this.sensorName == null && this.sensorTypeID == ConfigConst.DEFAULT_TYPE_ID) {
+			reader.addError(ConfigConst.SENSOR_NAME_KEY, "or " + ConfigConst.SENSOR_TYPE_ID_KEY + " must be set");
+		}
+		
+		this.triggerAbove  = reader.getBoolean(ConfigConst.TRIGGER_ABOVE_KEY, true);
+		this.threshold     = reader.getFloat(ConfigConst.THRESHOLD_KEY, 0.0f);
+		this.onValue       = reader.getFloat(ConfigConst.ON_VALUE_KEY, this.threshold);
+		this.offValue      = reader.getFloat(ConfigConst.OFF_VALUE_KEY, this.onValue);
+		this.maxRatePerSec = reader.getFloat(ConfigConst.MAX_RATE_PER_SEC_KEY, 0.0f);
+		this.windowMillis  =
+			reader.getInteger(ConfigConst.WINDOW_MILLIS_KEY, ConfigConst.DEFAULT_RULE_WINDOW_MILLIS, 1, Integer.MAX_VALUE);
+		
+		if (this.ruleType == EdgeRuleTypeEnum.RATE_OF_CHANGE && this.maxRatePerSec <= 0.0f) {
+			reader.addError(ConfigConst.MAX_RATE_PER_SEC_KEY, "must be positive");
+		}
+		
+		// the 'off' value must be on the inactive side of the 'on' value
+		if (this.ruleType == EdgeRuleTypeEnum.HYSTERESIS &&
+			(this.triggerAbove ? this.offValue > this.onValue : this.offValue < this.onValue))
+		{
+			reader.addError(ConfigConst.OFF_VALUE_KEY, "must not be beyond " + ConfigConst.ON_VALUE_KEY);
+		}
+		
+		this.actuatorName   = reader.getString(ConfigConst.ACTUATOR_NAME_KEY, null);
+		this.actuatorTypeID =
+			reader.getInteger(ConfigConst.ACTUATOR_TYPE_ID_KEY, ConfigConst.DEFAULT_ACTUATOR_TYPE, 0, Integer.MAX_VALUE);
+		this.actuatorValue  = reader.getFloat(ConfigConst.ACTUATOR_VALUE_KEY, 0.0f);
+	}
+	
+	
+	// public methods
+	
+	public String getRuleName()
+	{
+		return this.ruleName;
+	}
+	
+	/**
+	 * 
+	 * @return EdgeRuleTypeEnum The rule type, or null if the section is invalid.
+	 */
+	public EdgeRuleTypeEnum getRuleType()
+	{
+		return this.ruleType;
+	}
+	
+	/**
+	 * 
+	 * @return String The name of the sensor the rule applies to, or null to match by type ID only.
+	 */
+	public String getSensorName()
+	{
+		return this.sensorName;
+	}
+	
+	/**
+	 * 
+	 * @return int The type ID of the sensor the rule applies to, or
+	 * {@link ConfigConst#DEFAULT_TYPE_ID} to match by name only.
+	 */
+	public int getSensorTypeID()
+	{
+		return this.sensorTypeID;
+	}
+	
+	/**
+	 * 
+	 * @return boolean True if the rule triggers on high values; false if on low values.
+	 */
+	public boolean isTriggerAbove()
+	{
+		return this.triggerAbove;
+	}
+	
+	public float getThreshold()
+	{
+		return this.threshold;
+	}
+	
+	public float getOnValue()
+	{
+		return this.onValue;
+	}
+	
+	public float getOffValue()
+	{
+		return this.offValue;
+	}
+	
+	public float getMaxRatePerSec()
+	{
+		return this.maxRatePerSec;
+	}
+	
+	public int getWindowMillis()
+	{
+		return this.windowMillis;
+	}
+	
+	public String getActuatorName()
+	{
+		return this.actuatorName;
+	}
+	
+	public int getActuatorTypeID()
+	{
+		return this.actuatorTypeID;
+	}
+	
+	public float getActuatorValue()
+	{
+		return this.actuatorValue;
+	}
+	
+	/**
+	 * Returns a string representation of this instance.
+	 * 
+	 * @return String The string representing this instance, returned in CSV 'key=value' format.
+	 */
+	public String toString()
+	{
+		StringBuilder sb = new StringBuilder(getClass().getSimpleName());
+		
+		sb.append(':').append(ConfigConst.NAME_PROP).append('=').append(this.ruleName);
+		sb.append(',').append(ConfigConst.RULE_TYPE_KEY).append('=').append(this.ruleType);
+		sb.append(',').append(ConfigConst.SENSOR_NAME_KEY).append('=').append(this.sensorName);
+		sb.append(',').append(ConfigConst.SENSOR_TYPE_ID_KEY).append('=').append(this.sensorTypeID);
+		sb.append(',').append(ConfigConst.ACTUATOR_NAME_KEY).append('=').append(this.actuatorName);
+		sb.append(',').append(ConfigConst.ACTUATOR_TYPE_ID_KEY).append('=').append(this.actuatorTypeID);
+		
+		return sb.toString();
+	}
+	
+}
@@ -0,0 +1,85 @@
+/**
+ * This class is part of the Programming the Internet of Things
+ * project, and is available via the MIT License, which can be
+ * found in the LICENSE file at the top level of this repository.
+ * 
+ * Copyright (c) 2020 by Andrew D. King
+ */
+
+package programmingtheiot.common;
+
+import java.util.HashMap;
+
+/**
+ * The types of edge analytics rule the gateway can evaluate locally.
+ * 
+ */
+public enum EdgeRuleTypeEnum
+{
+	// static
+	
+	/** Active while the value is beyond a single threshold. */
+	THRESHOLD("threshold"),
+	
+	/** Active while the value changes faster than a maximum rate. */
+	RATE_OF_CHANGE("rateOfChange"),
+	
+	/** Becomes active beyond an 'on' value, and inactive only beyond a separate 'off' value. */
+	HYSTERESIS("hysteresis");
+	
+	private static final HashMap<String, EdgeRuleTypeEnum> _TypeLookupMap = new HashMap<>();
+	
+	static {
+		for (EdgeRuleTypeEnum rt : EdgeRuleTypeEnum.values()) {
+			_TypeLookupMap.put(rt.getName().toLowerCase(), rt);
+		}
+	}
+	
+	/**
+	 * Convenience method for looking up an enum type based on its name
+	 * (e.g. 'rateOfChange', as used in the config file). The lookup is not
+	 * case sensitive. If the lookup fails, null will be returned.
+	 * 
+	 * @param valStr The name of the enum to lookup.
+	 * @return EdgeRuleTypeEnum The enum instance, or null if not found.
+	 */
+	public static EdgeRuleTypeEnum getEnumFromValue(String valStr)
+	{
+		if (valStr != null && valStr.trim().length() > 0) {
+			return _TypeLookupMap.get(valStr.trim().toLowerCase());
+		}
+		
+		return null;
+	}
+	
+	
+	// private var's
+	
+	private String name = "";
+	
+	
+	// constructor
+	
+	/**
+	 * Constructor.
+	 * 
+	 * @param name
+	 */
+	private EdgeRuleTypeEnum(String name)
+	{
+		this.name = name;
+	}
+	
+	
+	// public methods
+	
+	/**
+	 * 
+	 * @return String The name, as used in the config file.
+	 */
+	public String getName()
+	{
+		return this.name;
+	}
+	
+}
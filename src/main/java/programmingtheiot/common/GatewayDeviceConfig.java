@@ -0,0 +1,455 @@
+/**
+ * This class is part of the Programming the Internet of Things
+ * project, and is available via the MIT License, which can be
+ * found in the LICENSE file at the top level of this repository.
+ * 
+ * Copyright (c) 2020 by Andrew D. King
+ */
+
+package programmingtheiot.common;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable view of the {@link ConfigConst#GATEWAY_DEVICE} configuration section.
+ * 
+ */
+public class GatewayDeviceConfig
+{
+	// static
+	
+	private static final float[] DEFAULT_PERCENTILES = { 50.0f, 95.0f, 99.0f };
+	
+	
+	// private var's
+	
+	private final String  deviceLocationID;
+	private final int     pollCycleSecs;
+	
+	private final boolean enableMqttClient;
+	private final boolean enableCoapServer;
+	private final boolean enableCoapClient;
+	private final boolean enableCloudClient;
+	private final boolean enableSmtpClient;
+	private final boolean enablePersistenceClient;
+	private final boolean enableSystemPerf;
+	private final boolean enableConfigWatch;
+	
+	private final boolean enableDataRecycling;
+	private final int     recyclerPoolSize;
+	private final boolean enableTelemetryHistory;
+	private final int     telemetryHistorySize;
+	
+	private final boolean enableAsyncPipeline;
+	private final boolean enableVirtualThreads;
+	private final int     pipelineQueueSize;
+	private final int     decodeWorkers;
+	private final int     analysisWorkers;
+	private final int     persistenceWorkers;
+	private final int     upstreamWorkers;
+	
+	private final BackpressurePolicyEnum ingestPolicy;
+	private final Map<ResourceNameEnum, BackpressurePolicyEnum> ingestPolicyOverrides;
+	private final int     ingestBufferSize;
+	private final int     ingestBlockTimeoutMillis;
+	
+	private final int     upstreamBatchSize;
+	private final int     upstreamBatchBytes;
+	private final int     upstreamLingerMillis;
+	
+	private final boolean enableOrderedDispatch;
+	private final int     dispatchLanes;
+	private final int     dispatchLaneQueueSize;
+	
+	private final boolean enableEdgeAnalytics;
+	private final List<String> edgeRuleNames;
+	
+	private final boolean enableAggregation;
+	private final int     aggregationWindowMillis;
+	private final int     aggregationSlideMillis;
+	private final float[] aggregationPercentiles;
+	
+	private final boolean enableSensorDedup;
+	private final int     dedupCacheSize;
+	private final float   sensorDeadband;
+	
+	
+	// constructors
+	
+	/**
+	 * Constructor.
+	 * 
+	 * @param reader The reader for the section.
+	 */
+	GatewayDeviceConfig(ConfigSectionReader reader)
+	{
+		super();
+		
+		this.deviceLocationID = reader.getString(ConfigConst.DEVICE_LOCATION_ID_KEY, ConfigConst.NOT_SET);
+		this.pollCycleSecs    =
+			reader.getInteger(ConfigConst.POLL_CYCLES_KEY, ConfigConst.DEFAULT_POLL_CYCLES, 1, Integer.MAX_VALUE);
+		
+		this.enableMqttClient        = reader.getBoolean(ConfigConst.ENABLE_MQTT_CLIENT_KEY, false);
+		this.enableCoapServer        = reader.getBoolean(ConfigConst.ENABLE_COAP_SERVER_KEY, false);
+		this.enableCoapClient        = reader.getBoolean(ConfigConst.ENABLE_COAP_CLIENT_KEY, false);
+		this.enableCloudClient       = reader.getBoolean(ConfigConst.ENABLE_CLOUD_CLIENT_KEY, false);
+		this.enableSmtpClient        = reader.getBoolean(ConfigConst.ENABLE_SMTP_CLIENT_KEY, false);
+		this.enablePersistenceClient = reader.getBoolean(ConfigConst.ENABLE_PERSISTENCE_CLIENT_KEY, false);
+		this.enableSystemPerf        = reader.getBoolean(ConfigConst.ENABLE_SYSTEM_PERF_KEY, false);
+		this.enableConfigWatch       = reader.getBoolean(ConfigConst.ENABLE_CONFIG_WATCH_KEY, false);
+		
+		this.enableDataRecycling    = reader.getBoolean(ConfigConst.ENABLE_DATA_RECYCLING_KEY, false);
+		this.recyclerPoolSize       =
+			reader.getInteger(
+				ConfigConst.RECYCLER_POOL_SIZE_KEY, ConfigConst.DEFAULT_RECYCLER_POOL_SIZE, 1, Integer.MAX_VALUE);
+		this.enableTelemetryHistory = reader.getBoolean(ConfigConst.ENABLE_TELEMETRY_HISTORY_KEY, false);
+		this.telemetryHistorySize   =
+			reader.getInteger(
+				ConfigConst.TELEMETRY_HISTORY_SIZE_KEY, ConfigConst.DEFAULT_TELEMETRY_HISTORY_SIZE, 1, Integer.MAX_VALUE);
+		
+		this.enableAsyncPipeline = reader.getBoolean(ConfigConst.ENABLE_ASYNC_PIPELINE_KEY, false);
+		this.enableVirtualThreads = reader.getBoolean(ConfigConst.ENABLE_VIRTUAL_THREADS_KEY, false);
+		this.pipelineQueueSize   =
+			reader.getInteger(
+				ConfigConst.PIPELINE_QUEUE_SIZE_KEY, ConfigConst.DEFAULT_PIPELINE_QUEUE_SIZE, 1, Integer.MAX_VALUE);
+		this.decodeWorkers       = getWorkerCount(reader, ConfigConst.DECODE_WORKERS_KEY);
+		this.analysisWorkers     = getWorkerCount(reader, ConfigConst.ANALYSIS_WORKERS_KEY);
+		this.persistenceWorkers  = getWorkerCount(reader, ConfigConst.PERSISTENCE_WORKERS_KEY);
+		this.upstreamWorkers     = getWorkerCount(reader, ConfigConst.UPSTREAM_WORKERS_KEY);
+		
+		this.ingestPolicy          =
+			reader.getBackpressurePolicy(ConfigConst.INGEST_POLICY_KEY, BackpressurePolicyEnum.DROP_OLDEST);
+		this.ingestPolicyOverrides = reader.getBackpressurePolicyMap(ConfigConst.INGEST_POLICY_OVERRIDES_KEY);
+		this.ingestBufferSize      =
+			reader.getInteger(
+				ConfigConst.INGEST_BUFFER_SIZE_KEY, ConfigConst.DEFAULT_INGEST_BUFFER_SIZE, 1, Integer.MAX_VALUE);
+		this.ingestBlockTimeoutMillis =
+			reader.getInteger(
+				ConfigConst.INGEST_BLOCK_TIMEOUT_KEY, ConfigConst.DEFAULT_INGEST_BLOCK_TIMEOUT, 0, Integer.MAX_VALUE);
+		
+		this.upstreamBatchSize    =
+			reader.getInteger(
+				ConfigConst.UPSTREAM_BATCH_SIZE_KEY, ConfigConst.DEFAULT_UPSTREAM_BATCH_SIZE, 1, Integer.MAX_VALUE);
+		this.upstreamBatchBytes   =
+			reader.getInteger(
+				ConfigConst.UPSTREAM_BATCH_BYTES_KEY, ConfigConst.DEFAULT_UPSTREAM_BATCH_BYTES, 1, Integer.MAX_VALUE);
+		this.upstreamLingerMillis =
+			reader.getInteger(
+				ConfigConst.UPSTREAM_LINGER_MILLIS_KEY, ConfigConst.DEFAULT_UPSTREAM_LINGER_MILLIS, 0, Integer.MAX_VALUE);
+		
+		this.enableOrderedDispatch = reader.getBoolean(ConfigConst.ENABLE_ORDERED_DISPATCH_KEY, false);
+		this.dispatchLanes         =
+			reader.getInteger(ConfigConst.DISPATCH_LANES_KEY, ConfigConst.DEFAULT_DISPATCH_LANES, 1, 1024);
+		this.dispatchLaneQueueSize =
+			reader.getInteger(
+				ConfigConst.DISPATCH_LANE_QUEUE_SIZE_KEY, ConfigConst.DEFAULT_DISPATCH_LANE_QUEUE_SIZE, 1, Integer.MAX_VALUE);
+		
+		this.enableEdgeAnalytics = reader.getBoolean(ConfigConst.ENABLE_EDGE_ANALYTICS_KEY, false);
+		this.edgeRuleNames       = reader.getList(ConfigConst.EDGE_RULES_KEY);
+		
+		this.enableAggregation       = reader.getBoolean(ConfigConst.ENABLE_AGGREGATION_KEY, false);
+		this.aggregationWindowMillis =
+			reader.getInteger(
+				ConfigConst.AGGREGATION_WINDOW_MILLIS_KEY, ConfigConst.DEFAULT_AGGREGATION_WINDOW_MILLIS, 1, Integer.MAX_VALUE);
+		this.aggregationSlideMillis  =
+			reader.getInteger(
+				ConfigConst.AGGREGATION_SLIDE_MILLIS_KEY, this.aggregationWindowMillis, 1, this.aggregationWindowMillis);
+		this.aggregationPercentiles  =
+			reader.getFloatArray(ConfigConst.AGGREGATION_PERCENTILES_KEY, DEFAULT_PERCENTILES, 0.0f, 100.0f);
+		
+		if (this.aggregationWindowMillis % this.aggregationSlideMillis != 0) {
+			reader.addError(
+				ConfigConst.AGGREGATION_SLIDE_MILLIS_KEY,
+				"must divide " + ConfigConst.AGGREGATION_WINDOW_MILLIS_KEY + " (" + this.aggregationWindowMillis + ")");
+		}
+		
+		this.enableSensorDedup = reader.getBoolean(ConfigConst.ENABLE_SENSOR_DEDUP_KEY, false);
+		this.dedupCacheSize    =
+			reader.getInteger(ConfigConst.DEDUP_CACHE_SIZE_KEY, ConfigConst.DEFAULT_DEDUP_CACHE_SIZE, 1, 1 << 24);
+		this.sensorDeadband    = reader.getFloat(ConfigConst.SENSOR_DEADBAND_KEY, 0.0f);
+		
+		if (this.sensorDeadband < 0.0f) {
+			reader.addError(ConfigConst.SENSOR_DEADBAND_KEY, "must not be negative");
+		}
+	}
+	
+	
+	// public methods
+	
+	public String getDeviceLocationID()
+	{
+		return this.deviceLocationID;
+	}
+	
+	public int getPollCycleSecs()
+	{
+		return this.pollCycleSecs;
+	}
+	
+	public boolean isMqttClientEnabled()
+	{
+		return this.enableMqttClient;
+	}
+	
+	public boolean isCoapServerEnabled()
+	{
+		return this.enableCoapServer;
+	}
+	
+	public boolean isCoapClientEnabled()
+	{
+		return this.enableCoapClient;
+	}
+	
+	public boolean isCloudClientEnabled()
+	{
+		return this.enableCloudClient;
+	}
+	
+	public boolean isSmtpClientEnabled()
+	{
+		return this.enableSmtpClient;
+	}
+	
+	public boolean isPersistenceClientEnabled()
+	{
+		return this.enablePersistenceClient;
+	}
+	
+	public boolean isSystemPerformanceEnabled()
+	{
+		return this.enableSystemPerf;
+	}
+	
+	public boolean isConfigWatchEnabled()
+	{
+		return this.enableConfigWatch;
+	}
+	
+	public boolean isDataRecyclingEnabled()
+	{
+		return this.enableDataRecycling;
+	}
+	
+	public int getRecyclerPoolSize()
+	{
+		return this.recyclerPoolSize;
+	}
+	
+	public boolean isTelemetryHistoryEnabled()
+	{
+		return this.enableTelemetryHistory;
+	}
+	
+	public int getTelemetryHistorySize()
+	{
+		return this.telemetryHistorySize;
+	}
+	
+	public boolean isAsyncPipelineEnabled()
+	{
+		return this.enableAsyncPipeline;
+	}
+	
+	/**
+	 * 
+	 * @return boolean True if listener dispatch, persistence writes and
+	 * outbound requests should run on virtual threads, where supported.
+	 */
+	public boolean isVirtualThreadsEnabled()
+	{
+		return this.enableVirtualThreads;
+	}
+	
+	public int getPipelineQueueSize()
+	{
+		return this.pipelineQueueSize;
+	}
+	
+	public int getDecodeWorkers()
+	{
+		return this.decodeWorkers;
+	}
+	
+	public int getAnalysisWorkers()
+	{
+		return this.analysisWorkers;
+	}
+	
+	public int getPersistenceWorkers()
+	{
+		return this.persistenceWorkers;
+	}
+	
+	public int getUpstreamWorkers()
+	{
+		return this.upstreamWorkers;
+	}
+	
+	/**
+	 * 
+	 * @param resource The resource.
+	 * @return BackpressurePolicyEnum The ingest policy for the resource, which is
+	 * the default policy unless overridden.
+	 */
+	public BackpressurePolicyEnum getIngestPolicy(ResourceNameEnum resource)
+	{
+		return this.ingestPolicyOverrides.getOrDefault(resource, this.ingestPolicy);
+	}
+	
+	/**
+	 * 
+	 * @return BackpressurePolicyEnum The default ingest policy.
+	 */
+	public BackpressurePolicyEnum getIngestPolicy()
+	{
+		return this.ingestPolicy;
+	}
+	
+	/**
+	 * 
+	 * @return Map The per-resource ingest policy overrides (read-only).
+	 */
+	public Map<ResourceNameEnum, BackpressurePolicyEnum> getIngestPolicyOverrides()
+	{
+		return this.ingestPolicyOverrides;
+	}
+	
+	public int getIngestBufferSize()
+	{
+		return this.ingestBufferSize;
+	}
+	
+	public int getIngestBlockTimeoutMillis()
+	{
+		return this.ingestBlockTimeoutMillis;
+	}
+	
+	public int getUpstreamBatchSize()
+	{
+		return this.upstreamBatchSize;
+	}
+	
+	public int getUpstreamBatchBytes()
+	{
+		return this.upstreamBatchBytes;
+	}
+	
+	public int getUpstreamLingerMillis()
+	{
+		return this.upstreamLingerMillis;
+	}
+	
+	public boolean isOrderedDispatchEnabled()
+	{
+		return this.enableOrderedDispatch;
+	}
+	
+	public int getDispatchLanes()
+	{
+		return this.dispatchLanes;
+	}
+	
+	public int getDispatchLaneQueueSize()
+	{
+		return this.dispatchLaneQueueSize;
+	}
+	
+	public boolean isEdgeAnalyticsEnabled()
+	{
+		return this.enableEdgeAnalytics;
+	}
+	
+	/**
+	 * 
+	 * @return List<String> The names of the edge analytics rules to load (read-only).
+	 * Each has its own section, named {@link ConfigConst#EDGE_RULE}.&lt;ruleName&gt;.
+	 */
+	public List<String> getEdgeRuleNames()
+	{
+		return this.edgeRuleNames;
+	}
+	
+	public boolean isAggregationEnabled()
+	{
+		return this.enableAggregation;
+	}
+	
+	public int getAggregationWindowMillis()
+	{
+		return this.aggregationWindowMillis;
+	}
+	
+	/**
+	 * 
+	 * @return int The interval between aggregation windows. If it's
+	 * the same as the window length, windows are tumbling; otherwise,
+	 * they're sliding.
+	 */
+	public int getAggregationSlideMillis()
+	{
+		return this.aggregationSlideMillis;
+	}
+	
+	/**
+	 * 
+	 * @return float[] The percentiles (0 to 100) to include in each aggregation window summary.
+	 */
+	public float[] getAggregationPercentiles()
+	{
+		return this.aggregationPercentiles.clone();
+	}
+	
+	public boolean isSensorDedupEnabled()
+	{
+		return this.enableSensorDedup;
+	}
+	
+	/**
+	 * 
+	 * @return int The number of recent sensor readings remembered for detecting duplicates.
+	 */
+	public int getDedupCacheSize()
+	{
+		return this.dedupCacheSize;
+	}
+	
+	/**
+	 * 
+	 * @return float The minimum change in a sensor's value for a reading to be
+	 * processed, or 0 if every reading is processed.
+	 */
+	public float getSensorDeadband()
+	{
+		return Math.max(0.0f, this.sensorDeadband);
+	}
+	
+	/**
+	 * Returns a string representation of this instance.
+	 * 
+	 * @return String The string representing this instance, returned in CSV 'key=value' format.
+	 */
+	public String toString()
+	{
+		StringBuilder sb = new StringBuilder(getClass().getSimpleName());
+		
+		sb.append(':').append(ConfigConst.DEVICE_LOCATION_ID_KEY).append('=').append(this.deviceLocationID);
+		sb.append(',').append(ConfigConst.POLL_CYCLES_KEY).append('=').append(this.pollCycleSecs);
+		sb.append(',').append(ConfigConst.ENABLE_MQTT_CLIENT_KEY).append('=').append(this.enableMqttClient);
+		sb.append(',').append(ConfigConst.ENABLE_COAP_SERVER_KEY).append('=').append(this.enableCoapServer);
+		sb.append(',').append(ConfigConst.ENABLE_CLOUD_CLIENT_KEY).append('=').append(this.enableCloudClient);
+		sb.append(',').append(ConfigConst.ENABLE_SYSTEM_PERF_KEY).append('=').append(this.enableSystemPerf);
+		
+		return sb.toString();
+	}
+	
+	
+	// private methods
+	
+	private static int getWorkerCount(ConfigSectionReader reader, String propName)
+	{
+		return reader.getInteger(propName, ConfigConst.DEFAULT_PIPELINE_WORKERS, 1, 64);
+	}
+	
+}
@@ -0,0 +1,31 @@
+/**
+ * This class is part of the Programming the Internet of Things
+ * project, and is available via the MIT License, which can be
+ * found in the LICENSE file at the top level of this repository.
+ * 
+ * Copyright (c) 2020 by Andrew D. King
+ */
+
+package programmingtheiot.common;
+
+/**
+ * A simple callback interface for handling configuration
+ * updates from {@link ConfigUtil}.
+ *
+ */
+public interface IConfigUpdateListener
+{
+	/**
+	 * Callback signature invoked after the configuration has been
+	 * successfully reloaded. Implementations should re-read any
+	 * properties they depend on from 'configUtil', and retune
+	 * themselves as needed.
+	 * <p>
+	 * This is invoked on the thread that triggered the reload, which
+	 * will usually be the configuration file watcher thread.
+	 * 
+	 * @param configUtil The ConfigUtil instance, already updated.
+	 */
+	public void onConfigUpdate(ConfigUtil configUtil);
+
+}
@@ -0,0 +1,336 @@
+/**
+ * This class is part of the Programming the Internet of Things
+ * project, and is available via the MIT License, which can be
+ * found in the LICENSE file at the top level of this repository.
+ * 
+ * Copyright (c) 2020 by Andrew D. King
+ */
+
+package programmingtheiot.common;
+
+import java.util.Objects;
+
+import programmingtheiot.data.DataEncodingEnum;
+
+/**
+ * Immutable view of an MQTT connector configuration section,
+ * such as {@link ConfigConst#MQTT_GATEWAY_SERVICE}.
+ * 
+ */
+public class MqttConfig extends ServiceConfig
+{
+	// static
+	
+	// the config file uses 'defaultQoS', while ConfigConst defines 'defaultQos'
+	private static final String DEFAULT_QOS_FILE_KEY = "defaultQoS";
+	
+	public static final int MIN_QOS = 0;
+	public static final int MAX_QOS = 2;
+	
+	
+	// private var's
+	
+	private final int     keepAlive;
+	private final int     defaultQos;
+	private final boolean useAsyncClient;
+	private final int     maxInflight;
+	private final int     publishTimeoutMillis;
+	private final boolean cleanSession;
+	private final String  persistenceDir;
+	private final int     journalSegmentBytes;
+	private final boolean enableOfflineQueue;
+	private final int     offlineQueueSize;
+	private final int     offlineMemoryQueueSize;
+	private final int     offlineDrainRate;
+	private final int     receiveMaximum;
+	private final int     topicAliasMaximum;
+	private final String  sharedSubscriptionGroup;
+	private final DataEncodingEnum dataEncoding;
+	
+	
+	// constructors
+	
+	/**
+	 * Constructor.
+	 * 
+	 * @param reader The reader for the section.
+	 */
+	MqttConfig(ConfigSectionReader reader)
+	{
+		super(reader, ConfigConst.DEFAULT_MQTT_PORT, ConfigConst.DEFAULT_MQTT_SECURE_PORT);
+		
+		this.keepAlive      = reader.getInteger(ConfigConst.KEEP_ALIVE_KEY, ConfigConst.DEFAULT_KEEP_ALIVE, 0, 65535);
+		this.useAsyncClient = reader.getBoolean(ConfigConst.USE_ASYNC_CLIENT_KEY, false);
+		this.dataEncoding   = reader.getDataEncoding(ConfigConst.DATA_ENCODING_KEY, DataEncodingEnum.JSON);
+		
+		// MQTT packet IDs are 16 bits, so no more than 65535 messages can be in flight
+		this.maxInflight =
+			reader.getInteger(ConfigConst.MAX_INFLIGHT_KEY, ConfigConst.DEFAULT_MAX_INFLIGHT, 1, 65535);
+		this.publishTimeoutMillis =
+			reader.getInteger(
+				ConfigConst.PUBLISH_TIMEOUT_MILLIS_KEY, ConfigConst.DEFAULT_PUBLISH_TIMEOUT_MILLIS, 0, Integer.MAX_VALUE);
+		
+		this.cleanSession   = reader.getBoolean(ConfigConst.CLEAN_SESSION_KEY, true);
+		this.persistenceDir = reader.getString(ConfigConst.PERSISTENCE_DIR_KEY, ConfigConst.DEFAULT_MQTT_PERSISTENCE_DIR);
+		
+		this.journalSegmentBytes =
+			reader.getInteger(
+				ConfigConst.JOURNAL_SEGMENT_BYTES_KEY, ConfigConst.DEFAULT_JOURNAL_SEGMENT_BYTES, 4096, 1 << 30);
+		
+		this.enableOfflineQueue = reader.getBoolean(ConfigConst.ENABLE_OFFLINE_QUEUE_KEY, false);
+		this.offlineQueueSize =
+			reader.getInteger(
+				ConfigConst.OFFLINE_QUEUE_SIZE_KEY, ConfigConst.DEFAULT_OFFLINE_QUEUE_SIZE, 1, Integer.MAX_VALUE);
+		this.offlineMemoryQueueSize =
+			reader.getInteger(
+				ConfigConst.OFFLINE_MEMORY_QUEUE_SIZE_KEY, ConfigConst.DEFAULT_OFFLINE_MEMORY_QUEUE_SIZE, 1, Integer.MAX_VALUE);
+		this.offlineDrainRate =
+			reader.getInteger(
+				ConfigConst.OFFLINE_DRAIN_RATE_KEY, ConfigConst.DEFAULT_OFFLINE_DRAIN_RATE, 1, Integer.MAX_VALUE);
+		
+		// MQTT v5 only
+		this.receiveMaximum =
+			reader.getInteger(ConfigConst.RECEIVE_MAXIMUM_KEY, ConfigConst.DEFAULT_RECEIVE_MAXIMUM, 1, 65535);
+		this.topicAliasMaximum =
+			reader.getInteger(ConfigConst.TOPIC_ALIAS_MAXIMUM_KEY, ConfigConst.DEFAULT_TOPIC_ALIAS_MAXIMUM, 0, 65535);
+		
+		String shareGroup = reader.getString(ConfigConst.SHARED_SUBSCRIPTION_GROUP_KEY, "");
+		
+		// the group name is a topic level of its own in the shared subscription filter
+		if (shareGroup.contains("/") || shareGroup.contains("+") || shareGroup.contains("#")) {
+			reader.addError(ConfigConst.SHARED_SUBSCRIPTION_GROUP_KEY, "must not contain '/', '+' or '#'");
+			shareGroup = "";
+		}
+		
+		this.sharedSubscriptionGroup = shareGroup;
+		
+		this.defaultQos =
+			reader.getInteger(
+				reader.resolveKey(DEFAULT_QOS_FILE_KEY, ConfigConst.DEFAULT_QOS_KEY),
+				ConfigConst.DEFAULT_QOS, MIN_QOS, MAX_QOS);
+	}
+	
+	
+	// public methods
+	
+	/**
+	 * 
+	 * @return int The keep alive interval, in seconds.
+	 */
+	public int getKeepAlive()
+	{
+		return this.keepAlive;
+	}
+	
+	public int getDefaultQos()
+	{
+		return this.defaultQos;
+	}
+	
+	public boolean useAsyncClient()
+	{
+		return this.useAsyncClient;
+	}
+	
+	/**
+	 * 
+	 * @return int The maximum number of published messages that may be in
+	 * flight at once: not yet acknowledged by the broker (QoS 1 and 2), or
+	 * not yet written to the network (QoS 0).
+	 */
+	public int getMaxInflight()
+	{
+		return this.maxInflight;
+	}
+	
+	/**
+	 * 
+	 * @return int The maximum time a publish waits, in milliseconds: for the
+	 * broker's acknowledgement with the synchronous client, or for a free
+	 * in-flight slot with the asynchronous client.
+	 */
+	public int getPublishTimeoutMillis()
+	{
+		return this.publishTimeoutMillis;
+	}
+	
+	/**
+	 * 
+	 * @return boolean True if the broker should discard the session on connect;
+	 * false if it should resume it, along with any messages still in flight.
+	 */
+	public boolean isCleanSession()
+	{
+		return this.cleanSession;
+	}
+	
+	/**
+	 * 
+	 * @return String The directory in which in-flight messages are journaled.
+	 */
+	public String getPersistenceDir()
+	{
+		return this.persistenceDir;
+	}
+	
+	/**
+	 * 
+	 * @return int The size of each in-flight message journal segment, in bytes.
+	 */
+	public int getJournalSegmentBytes()
+	{
+		return this.journalSegmentBytes;
+	}
+	
+	/**
+	 * 
+	 * @return boolean True if messages published while the connection is
+	 * lost should be queued, and sent once it's restored.
+	 */
+	public boolean isOfflineQueueEnabled()
+	{
+		return this.enableOfflineQueue;
+	}
+	
+	/**
+	 * 
+	 * @return int The maximum number of messages to queue while the connection is lost.
+	 */
+	public int getOfflineQueueSize()
+	{
+		return this.offlineQueueSize;
+	}
+	
+	/**
+	 * 
+	 * @return int The maximum number of queued messages to keep in memory,
+	 * before spilling the rest to disk.
+	 */
+	public int getOfflineMemoryQueueSize()
+	{
+		return this.offlineMemoryQueueSize;
+	}
+	
+	/**
+	 * 
+	 * @return int The maximum number of queued messages to send per second,
+	 * once the connection is restored.
+	 */
+	public int getOfflineDrainRate()
+	{
+		return this.offlineDrainRate;
+	}
+	
+	/**
+	 * 
+	 * @return int The maximum number of QoS 1 and 2 messages the broker may
+	 * send before they're acknowledged (MQTT v5 only).
+	 */
+	public int getReceiveMaximum()
+	{
+		return this.receiveMaximum;
+	}
+	
+	/**
+	 * 
+	 * @return int The maximum number of topic aliases the broker may use when
+	 * sending messages, or 0 for none (MQTT v5 only).
+	 */
+	public int getTopicAliasMaximum()
+	{
+		return this.topicAliasMaximum;
+	}
+	
+	/**
+	 * 
+	 * @return String The group to subscribe as, so messages are shared
+	 * between the group's clients rather than each getting a copy, or
+	 * an empty string to subscribe alone (MQTT v5 only).
+	 */
+	public String getSharedSubscriptionGroup()
+	{
+		return this.sharedSubscriptionGroup;
+	}
+	
+	/**
+	 * 
+	 * @return boolean True if subscriptions are shared with the group's other clients.
+	 */
+	public boolean isSharedSubscriptionEnabled()
+	{
+		return ! this.sharedSubscriptionGroup.isEmpty();
+	}
+	
+	public DataEncodingEnum getDataEncoding()
+	{
+		return this.dataEncoding;
+	}
+	
+	/**
+	 * Returns the broker URI, using the secure protocol and port
+	 * if encryption is enabled.
+	 * 
+	 * @return String The broker URI, such as 'tcp://localhost:1883'.
+	 */
+	public String getBrokerAddress()
+	{
+		String protocol =
+			(isCryptEnabled() ? ConfigConst.DEFAULT_MQTT_SECURE_PROTOCOL : ConfigConst.DEFAULT_MQTT_PROTOCOL);
+		
+		return protocol + "://" + getHost() + ":" + getActivePort();
+	}
+	
+	/**
+	 * Compares the settings a connector only applies when it's created. Only
+	 * 'publishTimeoutMillis', 'defaultQoS' and 'offlineDrainRate' are
+	 * excluded, as connectors apply those on a configuration reload.
+	 * 
+	 * @param other The configuration to compare with.
+	 * @return boolean True if every setting that requires a restart is the same.
+	 */
+	public boolean hasSameConnectionSettings(MqttConfig other)
+	{
+		return (other != null &&
+			getBrokerAddress().equals(other.getBrokerAddress()) &&
+			isAuthEnabled() == other.isAuthEnabled() &&
+			Objects.equals(getCredFile(), other.getCredFile()) &&
+			Objects.equals(getCertFile(), other.getCertFile()) &&
+			this.keepAlive == other.keepAlive &&
+			this.useAsyncClient == other.useAsyncClient &&
+			this.maxInflight == other.maxInflight &&
+			this.cleanSession == other.cleanSession &&
+			this.persistenceDir.equals(other.persistenceDir) &&
+			this.journalSegmentBytes == other.journalSegmentBytes &&
+			this.enableOfflineQueue == other.enableOfflineQueue &&
+			this.offlineQueueSize == other.offlineQueueSize &&
+			this.offlineMemoryQueueSize == other.offlineMemoryQueueSize &&
+			this.receiveMaximum == other.receiveMaximum &&
+			this.topicAliasMaximum == other.topicAliasMaximum &&
+			this.sharedSubscriptionGroup.equals(other.sharedSubscriptionGroup) &&
+			this.dataEncoding == other.dataEncoding);
+	}
+	
+	/**
+	 * Returns a string representation of this instance. This will invoke the base class
+	 * {@link #toString()} method, then append the output from this call.
+	 * 
+	 * @return String The string representing this instance, returned in CSV 'key=value' format.
+	 */
+	public String toString()
+	{
+		StringBuilder sb = new StringBuilder(super.toString());
+		
+		sb.append(',').append(ConfigConst.KEEP_ALIVE_KEY).append('=').append(this.keepAlive);
+		sb.append(',').append(ConfigConst.DEFAULT_QOS_KEY).append('=').append(this.defaultQos);
+		sb.append(',').append(ConfigConst.USE_ASYNC_CLIENT_KEY).append('=').append(this.useAsyncClient);
+		sb.append(',').append(ConfigConst.MAX_INFLIGHT_KEY).append('=').append(this.maxInflight);
+		sb.append(',').append(ConfigConst.CLEAN_SESSION_KEY).append('=').append(this.cleanSession);
+		sb.append(',').append(ConfigConst.PERSISTENCE_DIR_KEY).append('=').append(this.persistenceDir);
+		sb.append(',').append(ConfigConst.ENABLE_OFFLINE_QUEUE_KEY).append('=').append(this.enableOfflineQueue);
+		sb.append(',').append(ConfigConst.SHARED_SUBSCRIPTION_GROUP_KEY).append('=').append(this.sharedSubscriptionGroup);
+		sb.append(',').append(ConfigConst.DATA_ENCODING_KEY).append('=').append(this.dataEncoding.getName());
+		
+		return sb.toString();
+	}
+	
+}
@@ -0,0 +1,141 @@
+/**
+ * This class is part of the Programming the Internet of Things
+ * project, and is available via the MIT License, which can be
+ * found in the LICENSE file at the top level of this repository.
+ * 
+ * Copyright (c) 2020 by Andrew D. King
+ */
+
+package programmingtheiot.common;
+
+/**
+ * Immutable view of the properties shared by each connector's
+ * configuration section: host, ports, authentication and encryption.
+ * <p>
+ * Instances are created by {@link ConfigBindings}, which reads and
+ * validates each section once per configuration load.
+ * 
+ */
+public class ServiceConfig
+{
+	// static
+	
+	public static final int MIN_PORT = 1;
+	public static final int MAX_PORT = 65535;
+	
+	
+	// private var's
+	
+	private final String  sectionName;
+	private final String  host;
+	private final int     port;
+	private final int     securePort;
+	private final boolean enableAuth;
+	private final boolean enableCrypt;
+	private final String  credFile;
+	private final String  certFile;
+	
+	
+	// constructors
+	
+	/**
+	 * Constructor.
+	 * 
+	 * @param reader The reader for the section.
+	 * @param defaultPort The port to use if not configured.
+	 * @param defaultSecurePort The secure port to use if not configured.
+	 */
+	ServiceConfig(ConfigSectionReader reader, int defaultPort, int defaultSecurePort)
+	{
+		super();
+		
+		this.sectionName = reader.getSectionName();
+		this.host        = reader.getRequiredString(ConfigConst.HOST_KEY, ConfigConst.DEFAULT_HOST);
+		this.port        = reader.getInteger(ConfigConst.PORT_KEY, defaultPort, MIN_PORT, MAX_PORT);
+		this.securePort  = reader.getInteger(ConfigConst.SECURE_PORT_KEY, defaultSecurePort, MIN_PORT, MAX_PORT);
+		this.enableAuth  = reader.getBoolean(ConfigConst.ENABLE_AUTH_KEY, false);
+		this.enableCrypt = reader.getBoolean(ConfigConst.ENABLE_CRYPT_KEY, false);
+		this.credFile    = reader.getString(ConfigConst.CRED_FILE_KEY, null);
+		this.certFile    = reader.getString(ConfigConst.CERT_FILE_KEY, null);
+	}
+	
+	
+	// public methods
+	
+	public String getSectionName()
+	{
+		return this.sectionName;
+	}
+	
+	public String getHost()
+	{
+		return this.host;
+	}
+	
+	public int getPort()
+	{
+		return this.port;
+	}
+	
+	public int getSecurePort()
+	{
+		return this.securePort;
+	}
+	
+	/**
+	 * 
+	 * @return int The secure port if encryption is enabled; the port otherwise.
+	 */
+	public int getActivePort()
+	{
+		return (this.enableCrypt ? this.securePort : this.port);
+	}
+	
+	public boolean isAuthEnabled()
+	{
+		return this.enableAuth;
+	}
+	
+	public boolean isCryptEnabled()
+	{
+		return this.enableCrypt;
+	}
+	
+	/**
+	 * 
+	 * @return String The credential file name, or null if not configured.
+	 */
+	public String getCredFile()
+	{
+		return this.credFile;
+	}
+	
+	/**
+	 * 
+	 * @return String The certificate file name, or null if not configured.
+	 */
+	public String getCertFile()
+	{
+		return this.certFile;
+	}
+	
+	/**
+	 * Returns a string representation of this instance.
+	 * 
+	 * @return String The string representing this instance, returned in CSV 'key=value' format.
+	 */
+	public String toString()
+	{
+		StringBuilder sb = new StringBuilder(getClass().getSimpleName());
+		
+		sb.append(":section=").append(this.sectionName);
+		sb.append(',').append(ConfigConst.HOST_KEY).append('=').append(this.host);
+		sb.append(',').append(ConfigConst.PORT_KEY).append('=').append(this.port);
+		sb.append(',').append(ConfigConst.SECURE_PORT_KEY).append('=').append(this.securePort);
+		sb.append(',').append(ConfigConst.ENABLE_AUTH_KEY).append('=').append(this.enableAuth);
+		sb.append(',').append(ConfigConst.ENABLE_CRYPT_KEY).append('=').append(this.enableCrypt);
+		
+		return sb.toString();
+	}
+	
+}
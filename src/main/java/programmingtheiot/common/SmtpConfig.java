@@ -0,0 +1,82 @@
+/**
+ * This class is part of the Programming the Internet of Things
+ * project, and is available via the MIT License, which can be
+ * found in the LICENSE file at the top level of this repository.
+ * 
+ * Copyright (c) 2020 by Andrew D. King
+ */
+
+package programmingtheiot.common;
+
+/**
+ * Immutable view of the SMTP client configuration section,
+ * {@link ConfigConst#SMTP_GATEWAY_SERVICE}.
+ * 
+ */
+public class SmtpConfig extends ServiceConfig
+{
+	// private var's
+	
+	private final String fromAddr;
+	private final String toAddr;
+	private final String toMediaAddr;
+	private final String toTxtAddr;
+	
+	
+	// constructors
+	
+	/**
+	 * Constructor.
+	 * 
+	 * @param reader The reader for the section.
+	 */
+	SmtpConfig(ConfigSectionReader reader)
+	{
+		super(reader, ConfigConst.DEFAULT_SMTP_PORT, ConfigConst.DEFAULT_SMTP_SECURE_PORT);
+		
+		this.fromAddr    = reader.getString(ConfigConst.FROM_ADDRESS_KEY, null);
+		this.toAddr      = reader.getString(ConfigConst.TO_ADDRESS_KEY, null);
+		this.toMediaAddr = reader.getString(ConfigConst.TO_MEDIA_ADDRESS_KEY, this.toAddr);
+		this.toTxtAddr   = reader.getString(ConfigConst.TO_TXT_ADDRESS_KEY, this.toAddr);
+	}
+	
+	
+	// public methods
+	
+	/**
+	 * 
+	 * @return String The sender address, or null if not configured.
+	 */
+	public String getFromAddress()
+	{
+		return this.fromAddr;
+	}
+	
+	/**
+	 * 
+	 * @return String The recipient address, or null if not configured.
+	 */
+	public String getToAddress()
+	{
+		return this.toAddr;
+	}
+	
+	/**
+	 * 
+	 * @return String The media recipient address, or the recipient address if not configured.
+	 */
+	public String getToMediaAddress()
+	{
+		return this.toMediaAddr;
+	}
+	
+	/**
+	 * 
+	 * @return String The text recipient address, or the recipient address if not configured.
+	 */
+	public String getToTxtAddress()
+	{
+		return this.toTxtAddr;
+	}
+	
+}
@@ -125,4 +125,15 @@ public class ActuatorData extends BaseIotData implements Serializable
 		}
 	}
 	
+	/* (non-Javadoc)
+	 * @see programmingtheiot.data.BaseIotData#handleResetData()
+	 */
+	protected void handleResetData()
+	{
+		this.command    = ConfigConst.DEFAULT_COMMAND;
+		this.value      = ConfigConst.DEFAULT_VAL;
+		this.isResponse = false;
+		this.stateData  = " ";
+	}
+	
 }
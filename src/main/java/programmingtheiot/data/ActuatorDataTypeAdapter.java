@@ -0,0 +1,66 @@
+/**
+ * This class is part of the Programming the Internet of Things
+ * project, and is available via the MIT License, which can be
+ * found in the LICENSE file at the top level of this repository.
+ *
+ * Copyright (c) 2020 by Andrew D. King
+ */
+
+package programmingtheiot.data;
+
+import java.io.IOException;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import programmingtheiot.common.ConfigConst;
+
+/**
+ * Gson type adapter for {@link ActuatorData}.
+ *
+ */
+final class ActuatorDataTypeAdapter extends BaseIotDataTypeAdapter<ActuatorData>
+{
+	// protected methods
+
+	@Override
+	protected ActuatorData createData()
+	{
+		return IotDataRecycler.getInstance().acquireActuatorData();
+	}
+
+	@Override
+	protected void writeFields(JsonWriter out, ActuatorData data) throws IOException
+	{
+		out.name(ConfigConst.COMMAND_PROP).value(data.getCommand());
+		out.name(ConfigConst.VALUE_PROP).value(data.getValue());
+		out.name(ConfigConst.IS_RESPONSE_PROP).value(data.isResponseFlagEnabled());
+		out.name(ConfigConst.STATE_DATA_PROP).value(data.getStateData());
+	}
+
+	@Override
+	protected boolean readField(JsonReader in, String name, ActuatorData data) throws IOException
+	{
+		switch (name) {
+			case ConfigConst.COMMAND_PROP:
+				data.setCommand(in.nextInt()); return true;
+
+			case ConfigConst.VALUE_PROP:
+				data.setValue((float) in.nextDouble()); return true;
+
+			case ConfigConst.IS_RESPONSE_PROP:
+				if (in.nextBoolean()) {
+					data.setAsResponse();
+				}
+
+				return true;
+
+			case ConfigConst.STATE_DATA_PROP:
+				data.setStateData(in.nextString()); return true;
+
+			default:
+				return false;
+		}
+	}
+
+}
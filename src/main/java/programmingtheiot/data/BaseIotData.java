@@ -8,6 +8,8 @@
 
 package programmingtheiot.data;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.time.Instant;
 import java.time.format.DateTimeFormatter;
@@ -32,10 +34,13 @@ public abstract class BaseIotData implements Serializable
 	 */
 	private static final long serialVersionUID = 7388066213262859698L;
 	
+	// the device location ID, cached with the config version it was read from
+	private static volatile CachedLocationID _CachedLocationID = null;
+	
 	// private var's
 	
     private String  name       = ConfigConst.NOT_SET;
-	private String  timeStamp  = "";
+	private String  timeStamp  = null;
     private int     statusCode = ConfigConst.DEFAULT_STATUS;
     private int     typeID     = ConfigConst.DEFAULT_TYPE_ID;
     
@@ -46,6 +51,10 @@ public abstract class BaseIotData implements Serializable
     
 	// NOTE: This is not used by the CDA
     private long    timeStampMillis = 0L;
+    
+	// the full precision instant from the most recent call to updateTimeStamp(),
+	// retained so the ISO 8601 String can be formatted on demand
+    private transient Instant timeStampInstant = null;
 
     
 	// constructors
@@ -60,11 +69,7 @@ public abstract class BaseIotData implements Serializable
 	{
 		super();
 		
-		String locID =
-			ConfigUtil.getInstance().getProperty(
-				ConfigConst.GATEWAY_DEVICE, ConfigConst.DEVICE_LOCATION_ID_KEY);
-		
-		this.setLocationID(locID);
+		this.setLocationID(getDeviceLocationID());
 		
 		updateTimeStamp();
 	}
@@ -139,11 +144,21 @@ public abstract class BaseIotData implements Serializable
 	 * The timestamp is represented as a String in ISO 8601 format, as follows:
 	 * <p>
 	 * e.g. 2020-12-27T10:13:30Z
+	 * <p>
+	 * The String is only formatted on the first call after the timestamp
+	 * has been updated, and cached until the next update.
 	 * 
 	 * @return A stringified timestamp.
 	 */
 	public String getTimeStamp()
 	{
+		if (this.timeStamp == null) {
+			Instant instant =
+				(this.timeStampInstant != null ? this.timeStampInstant : Instant.ofEpochMilli(this.timeStampMillis));
+			
+			this.timeStamp = DateTimeFormatter.ISO_INSTANT.format(instant);
+		}
+		
 		return this.timeStamp;
 	}
 	
@@ -281,7 +296,7 @@ public abstract class BaseIotData implements Serializable
 		
 		sb.append(ConfigConst.NAME_PROP).append('=').append(this.name).append(',');
 		sb.append(ConfigConst.TYPE_ID_PROP).append('=').append(this.typeID).append(',');
-		sb.append(ConfigConst.TIMESTAMP_PROP).append('=').append(this.timeStamp).append(',');
+		sb.append(ConfigConst.TIMESTAMP_PROP).append('=').append(this.getTimeStamp()).append(',');
 		sb.append(ConfigConst.STATUS_CODE_PROP).append('=').append(this.statusCode).append(',');
 		sb.append(ConfigConst.HAS_ERROR_PROP).append('=').append(this.hasError()).append(',');
 		sb.append(ConfigConst.LOCATION_ID_PROP).append('=').append(this.locationID).append(',');
@@ -292,6 +307,31 @@ public abstract class BaseIotData implements Serializable
 		return sb.toString();
 	}
 	
+	/**
+	 * Resets all properties to their default values, as if this instance had
+	 * just been constructed, and updates the timestamp. This allows an instance
+	 * to be reused (e.g. via {@link IotDataRecycler}) rather than discarded.
+	 * <p>
+	 * This will also trigger a call to the template method {@see #handleResetData()},
+	 * which can be overridden by each sub-class to reset its own properties.
+	 */
+	public void resetData()
+	{
+		this.name       = ConfigConst.NOT_SET;
+		this.statusCode = ConfigConst.DEFAULT_STATUS;
+		this.typeID     = ConfigConst.DEFAULT_TYPE_ID;
+		this.locationID = ConfigConst.NOT_SET;
+		this.latitude   = ConfigConst.DEFAULT_LAT;
+		this.longitude  = ConfigConst.DEFAULT_LON;
+		this.elevation  = ConfigConst.DEFAULT_ELEVATION;
+		
+		this.setLocationID(getDeviceLocationID());
+		
+		handleResetData();
+		
+		updateTimeStamp();
+	}
+	
 	/**
 	 * This is used to apply the properties of the 'data' parameter to the internal structure.
 	 * Only basic validation is performed - that is, if the 'data' parameter is null, nothing
@@ -324,6 +364,38 @@ public abstract class BaseIotData implements Serializable
 	}
 	
 	
+	// package-private methods
+	
+	/**
+	 * Sets the ISO 8601 timestamp String directly, without updating
+	 * {@see #timeStampMillis}. This is only intended for use by the
+	 * type adapters within this package when restoring a decoded instance,
+	 * and must be called after {@link #setTimeStampMillis(long)} if both are set.
+	 * 
+	 * @param timeStamp The timestamp String to set.
+	 */
+	void setTimeStamp(String timeStamp)
+	{
+		this.timeStamp = timeStamp;
+		this.timeStampInstant = null;
+	}
+	
+	/**
+	 * Sets the timestamp in milliseconds since the Epoch directly. The ISO 8601
+	 * timestamp String will be derived from 'millis' when next requested, unless
+	 * it's subsequently set via {@link #setTimeStamp(String)}. This is only intended
+	 * for use by the type adapters within this package when restoring a decoded instance.
+	 * 
+	 * @param millis The timestamp in milliseconds since the Epoch.
+	 */
+	void setTimeStampMillis(long millis)
+	{
+		this.timeStampMillis = millis;
+		this.timeStamp = null;
+		this.timeStampInstant = null;
+	}
+	
+	
 	// protected methods
 	
 	/**
@@ -334,21 +406,98 @@ public abstract class BaseIotData implements Serializable
 	 */
 	protected abstract void handleUpdateData(BaseIotData data);
 	
+	/**
+	 * Template method to reset the sub-class properties to their default
+	 * values. Called by {@see #resetData()}. The default implementation
+	 * does nothing.
+	 */
+	protected void handleResetData()
+	{
+	}
+	
 	/**
 	 * Stores the latest timestamp in milliseconds (since the Epoch) within
-	 * {@see #timeStampMillis}, then sets the internal time stamp string
-	 * {@see #timeStamp} to represent a new Date based on {@see #timeStampMillis}
-	 * in ISO 8601 format using {@see DateTimeFormatter.ISO_INSTANT}, as follows:
+	 * {@see #timeStampMillis}, and clears the internal time stamp string
+	 * {@see #timeStamp}. The string will be set on the next call to
+	 * {@see #getTimeStamp()} to represent the same instant in ISO 8601 format
+	 * using {@see DateTimeFormatter.ISO_INSTANT}, as follows:
 	 * <p>
 	 * e.g. 2020-12-27T10:13:30Z
+	 * <p>
+	 * As this is called by most setters, deferring the formatting avoids
+	 * creating a String that will be replaced before it's ever read.
 	 * 
 	 */
 	protected final void updateTimeStamp()
 	{
 		Instant instant = Instant.now();
 		
-		this.timeStampMillis = instant.toEpochMilli();
-		this.timeStamp       = DateTimeFormatter.ISO_INSTANT.format(instant);
+		this.timeStampMillis  = instant.toEpochMilli();
+		this.timeStampInstant = instant;
+		this.timeStamp        = null;
+	}
+	
+	
+	// private methods
+	
+	/**
+	 * Returns the device location ID from the config file. The value is
+	 * cached, and only re-read from {@link ConfigUtil} once the configuration
+	 * has been reloaded, so constructing data instances doesn't repeat
+	 * the section and property lookup.
+	 * 
+	 * @return String The device location ID, or null if not set.
+	 */
+	private static String getDeviceLocationID()
+	{
+		ConfigUtil configUtil = ConfigUtil.getInstance();
+		
+		int configVersion = configUtil.getConfigVersion();
+		CachedLocationID cachedLocID = _CachedLocationID;
+		
+		if (cachedLocID == null || cachedLocID.configVersion != configVersion) {
+			String locID =
+				configUtil.getProperty(ConfigConst.GATEWAY_DEVICE, ConfigConst.DEVICE_LOCATION_ID_KEY);
+			
+			cachedLocID = new CachedLocationID(configVersion, locID);
+			_CachedLocationID = cachedLocID;
+		}
+		
+		return cachedLocID.locationID;
+	}
+	
+	/**
+	 * Formats the timestamp String before default serialization, as the
+	 * instant it's derived from is transient.
+	 * 
+	 * @param out The stream to write to.
+	 * @throws IOException
+	 */
+	private void writeObject(ObjectOutputStream out) throws IOException
+	{
+		getTimeStamp();
+		
+		out.defaultWriteObject();
+	}
+	
+	
+	// private classes
+	
+	/**
+	 * Immutable pairing of the device location ID and the config
+	 * version it was read from, so both can be published atomically.
+	 * 
+	 */
+	private static final class CachedLocationID
+	{
+		private final int    configVersion;
+		private final String locationID;
+		
+		CachedLocationID(int configVersion, String locationID)
+		{
+			this.configVersion = configVersion;
+			this.locationID    = locationID;
+		}
 	}
 	
 }
@@ -0,0 +1,198 @@
+/**
+ * This class is part of the Programming the Internet of Things
+ * project, and is available via the MIT License, which can be
+ * found in the LICENSE file at the top level of this repository.
+ *
+ * Copyright (c) 2020 by Andrew D. King
+ */
+
+package programmingtheiot.data;
+
+import java.io.IOException;
+
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import programmingtheiot.common.ConfigConst;
+
+/**
+ * Base class for the hand-written Gson type adapters used by {@link DataUtil}.
+ * <p>
+ * Writing and reading the properties shared by all {@link BaseIotData}
+ * sub-classes is handled here, and each sub-class adapter implements the
+ * template methods {@link #createData()}, {@link #writeFields(JsonWriter, BaseIotData)}
+ * and {@link #readField(JsonReader, String, BaseIotData)} for its own properties.
+ * <p>
+ * The sub-class properties are written first, followed by the base class
+ * properties, which matches the field order produced by Gson's reflective
+ * adapter - the JSON output is therefore identical to that of a default
+ * {@link com.google.gson.Gson} instance.
+ *
+ */
+abstract class BaseIotDataTypeAdapter<T extends BaseIotData> extends TypeAdapter<T>
+{
+	// constructors
+
+	/**
+	 * Default.
+	 *
+	 */
+	protected BaseIotDataTypeAdapter()
+	{
+		super();
+	}
+
+
+	// public methods
+
+	@Override
+	public void write(JsonWriter out, T data) throws IOException
+	{
+		if (data == null) {
+			out.nullValue();
+			return;
+		}
+
+		out.beginObject();
+
+		writeFields(out, data);
+
+		out.name(ConfigConst.NAME_PROP).value(data.getName());
+		out.name(ConfigConst.TIMESTAMP_PROP).value(data.getTimeStamp());
+		out.name(ConfigConst.STATUS_CODE_PROP).value(data.getStatusCode());
+		out.name(ConfigConst.TYPE_ID_PROP).value(data.getTypeID());
+		out.name(ConfigConst.LOCATION_ID_PROP).value(data.getLocationID());
+		out.name(ConfigConst.LATITUDE_PROP).value(data.getLatitude());
+		out.name(ConfigConst.LONGITUDE_PROP).value(data.getLongitude());
+		out.name(ConfigConst.ELEVATION_PROP).value(data.getElevation());
+		out.name(ConfigConst.TIMESTAMP_MILLIS_PROP).value(data.getTimeStampMillis());
+
+		out.endObject();
+	}
+
+	@Override
+	public T read(JsonReader in) throws IOException
+	{
+		if (in.peek() == JsonToken.NULL) {
+			in.nextNull();
+			return null;
+		}
+
+		T data = createData();
+		boolean isRead = false;
+
+		try {
+			String  timeStamp       = null;
+			long    timeStampMillis = 0L;
+			boolean hasMillis       = false;
+
+			in.beginObject();
+
+			while (in.hasNext()) {
+				String name = in.nextName();
+
+				// primitive fields are left at their defaults, as with the reflective adapter
+				if (in.peek() == JsonToken.NULL) {
+					in.nextNull();
+					continue;
+				}
+
+				switch (name) {
+					case ConfigConst.NAME_PROP:
+						data.setName(in.nextString()); break;
+
+					case ConfigConst.TIMESTAMP_PROP:
+						timeStamp = in.nextString(); break;
+
+					case ConfigConst.STATUS_CODE_PROP:
+						data.setStatusCode(in.nextInt()); break;
+
+					case ConfigConst.TYPE_ID_PROP:
+						data.setTypeID(in.nextInt()); break;
+
+					case ConfigConst.LOCATION_ID_PROP:
+						data.setLocationID(in.nextString()); break;
+
+					case ConfigConst.LATITUDE_PROP:
+						data.setLatitude((float) in.nextDouble()); break;
+
+					case ConfigConst.LONGITUDE_PROP:
+						data.setLongitude((float) in.nextDouble()); break;
+
+					case ConfigConst.ELEVATION_PROP:
+						data.setElevation((float) in.nextDouble()); break;
+
+					case ConfigConst.TIMESTAMP_MILLIS_PROP:
+						timeStampMillis = in.nextLong();
+						hasMillis = true;
+						break;
+
+					default:
+						if (! readField(in, name, data)) {
+							in.skipValue();
+						}
+				}
+			}
+
+			in.endObject();
+
+			// sub-class setters refresh the timestamp, so the decoded
+			// values must be restored after all fields have been read
+			if (hasMillis) {
+				data.setTimeStampMillis(timeStampMillis);
+			}
+
+			if (timeStamp != null) {
+				data.setTimeStamp(timeStamp);
+			}
+
+			isRead = true;
+		} catch (NumberFormatException | IllegalStateException e) {
+			// as with the reflective adapter, a value of the wrong type is a syntax error
+			throw new JsonSyntaxException(e);
+		} finally {
+			// the instance may have come from the recycler, and nothing else holds it
+			if (! isRead) {
+				IotDataRecycler.getInstance().release(data);
+			}
+		}
+
+		return data;
+	}
+
+
+	// protected methods
+
+	/**
+	 * Template method to create a new, empty instance of the sub-class.
+	 *
+	 * @return T
+	 */
+	protected abstract T createData();
+
+	/**
+	 * Template method to write the sub-class specific properties.
+	 *
+	 * @param out The writer to use.
+	 * @param data The non-null data instance.
+	 * @throws IOException
+	 */
+	protected abstract void writeFields(JsonWriter out, T data) throws IOException;
+
+	/**
+	 * Template method to read a sub-class specific property. The value
+	 * for 'name' is guaranteed to be non-null when this is invoked.
+	 *
+	 * @param in The reader to use, positioned at the value for 'name'.
+	 * @param name The property name.
+	 * @param data The data instance to update.
+	 * @return boolean True if the property was consumed; false if it
+	 * should be skipped.
+	 * @throws IOException
+	 */
+	protected abstract boolean readField(JsonReader in, String name, T data) throws IOException;
+
+}
@@ -0,0 +1,141 @@
+/**
+ * This class is part of the Programming the Internet of Things
+ * project, and is available via the MIT License, which can be
+ * found in the LICENSE file at the top level of this repository.
+ * 
+ * Copyright (c) 2020 by Andrew D. King
+ */
+
+package programmingtheiot.data;
+
+import java.util.HashMap;
+
+/**
+ * The wire encodings supported by {@link DataUtil}, along with the
+ * identifiers used to negotiate them: the CoAP Content-Format option
+ * number, and the MIME type used for the MQTT v5 content-type property.
+ * 
+ */
+public enum DataEncodingEnum
+{
+	// static
+	
+	// CoAP Content-Format numbers are as registered with IANA (RFC 7252 / RFC 8949),
+	// and match the Californium MediaTypeRegistry values
+	JSON("json", "application/json", 50, true),
+	CBOR("cbor", "application/cbor", 60, false);
+	
+	private static final HashMap<String, DataEncodingEnum> _EncodingLookupMap = new HashMap<>();
+	
+	static {
+		for (DataEncodingEnum de : DataEncodingEnum.values()) {
+			_EncodingLookupMap.put(de.getName(), de);
+			_EncodingLookupMap.put(de.getContentType(), de);
+		}
+	}
+	
+	/**
+	 * Convenience method for looking up an enum type based on either
+	 * the short name (e.g. 'cbor', as used in the config file) or the
+	 * MIME content type (e.g. 'application/cbor'). The lookup is not
+	 * case sensitive. If the lookup fails, null will be returned.
+	 * 
+	 * @param valStr The name or content type of the enum to lookup.
+	 * @return DataEncodingEnum The enum instance, or null if not found.
+	 */
+	public static DataEncodingEnum getEnumFromValue(String valStr)
+	{
+		if (valStr != null && valStr.trim().length() > 0) {
+			return _EncodingLookupMap.get(valStr.trim().toLowerCase());
+		}
+		
+		return null;
+	}
+	
+	/**
+	 * Convenience method for looking up an enum type based on the
+	 * CoAP Content-Format option number. If the lookup fails, null
+	 * will be returned.
+	 * 
+	 * @param contentFormat The CoAP Content-Format option number.
+	 * @return DataEncodingEnum The enum instance, or null if not found.
+	 */
+	public static DataEncodingEnum getEnumFromContentFormat(int contentFormat)
+	{
+		for (DataEncodingEnum de : DataEncodingEnum.values()) {
+			if (de.getContentFormat() == contentFormat) {
+				return de;
+			}
+		}
+		
+		return null;
+	}
+	
+	
+	// private var's
+	
+	private String  name          = "";
+	private String  contentType   = "";
+	private int     contentFormat = 0;
+	private boolean isText        = false;
+	
+	
+	// constructor
+	
+	/**
+	 * Constructor.
+	 * 
+	 * @param name
+	 * @param contentType
+	 * @param contentFormat
+	 * @param isText
+	 */
+	private DataEncodingEnum(String name, String contentType, int contentFormat, boolean isText)
+	{
+		this.name          = name;
+		this.contentType   = contentType;
+		this.contentFormat = contentFormat;
+		this.isText        = isText;
+	}
+	
+	
+	// public methods
+	
+	/**
+	 * 
+	 * @return String The short name, as used in the config file.
+	 */
+	public String getName()
+	{
+		return this.name;
+	}
+	
+	/**
+	 * 
+	 * @return String The MIME content type.
+	 */
+	public String getContentType()
+	{
+		return this.contentType;
+	}
+	
+	/**
+	 * 
+	 * @return int The CoAP Content-Format option number.
+	 */
+	public int getContentFormat()
+	{
+		return this.contentFormat;
+	}
+	
+	/**
+	 * 
+	 * @return boolean True if the encoding is UTF-8 text (which can be
+	 * flagged using the MQTT v5 payload format indicator); false otherwise.
+	 */
+	public boolean isText()
+	{
+		return this.isText;
+	}
+	
+}
@@ -8,6 +8,18 @@
 
 package programmingtheiot.data;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -17,8 +29,14 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 
 import programmingtheiot.common.ConfigConst;
+import programmingtheiot.common.ConfigUtil;
 
 /**
  * Shell representation of class for student implementation.
@@ -32,6 +50,9 @@ public class DataUtil
 
 	private static final DataUtil _Instance = new DataUtil();
 
+	/** The largest frame, in bytes, written or read as a length-prefixed frame. */
+	public static final int MAX_FRAME_LENGTH = 1 << 20;
+
 
 	/**
 	 * Returns the Singleton instance of this class.
@@ -46,16 +67,46 @@ public class DataUtil
 	
 	// private var's
 	
+	// Gson instances are thread-safe, and the type adapters are stateless,
+	// so a single shared instance can be used for all conversions
+	private Gson gson = null;
+	
+	private IotDataCborCodec cborCodec = null;
+	
 	
 	// constructors
 	
 	/**
 	 * Default (private).
 	 * 
+	 * Creates the shared {@link Gson} instance with the hand-written type
+	 * adapters for each IoT data type registered, and resolves each adapter
+	 * once so the first conversion doesn't pay the lookup cost.
 	 */
 	private DataUtil()
 	{
 		super();
+		
+		SensorDataTypeAdapter sensorDataAdapter = new SensorDataTypeAdapter();
+		SystemPerformanceDataTypeAdapter sysPerfDataAdapter = new SystemPerformanceDataTypeAdapter();
+		
+		this.gson =
+			new GsonBuilder()
+				.registerTypeAdapter(ActuatorData.class, new ActuatorDataTypeAdapter())
+				.registerTypeAdapter(SensorData.class, sensorDataAdapter)
+				.registerTypeAdapter(SystemPerformanceData.class, sysPerfDataAdapter)
+				.registerTypeAdapter(
+					SystemStateData.class, new SystemStateDataTypeAdapter(sensorDataAdapter, sysPerfDataAdapter))
+				.registerTypeAdapter(SensorDataBatch.class, new SensorDataBatchTypeAdapter())
+				.create();
+		
+		this.gson.getAdapter(ActuatorData.class);
+		this.gson.getAdapter(SensorData.class);
+		this.gson.getAdapter(SystemPerformanceData.class);
+		this.gson.getAdapter(SystemStateData.class);
+		this.gson.getAdapter(SensorDataBatch.class);
+		
+		this.cborCodec = new IotDataCborCodec();
 	}
 	
 	
@@ -66,8 +117,7 @@ public class DataUtil
 		String jsonData = null;
 
 		if (actuatorData != null) {
-			Gson gson = new Gson();
-			jsonData = gson.toJson(actuatorData);
+			jsonData = this.gson.toJson(actuatorData);
 		}
 
 		return jsonData;
@@ -78,8 +128,7 @@ public class DataUtil
 		String jsonData = null;
 
 		if (sensorData != null) {
-			Gson gson = new Gson();
-			jsonData = gson.toJson(sensorData);
+			jsonData = this.gson.toJson(sensorData);
 		}
 
 		return jsonData;
@@ -90,8 +139,7 @@ public class DataUtil
 		String jsonData = null;
 
 		if (sysPerfData != null) {
-			Gson gson = new Gson();
-			jsonData = gson.toJson(sysPerfData);
+			jsonData = this.gson.toJson(sysPerfData);
 		}
 
 		return jsonData;
@@ -102,8 +150,7 @@ public class DataUtil
 		String jsonData = null;
 
 		if (sysStateData != null) {
-			Gson gson = new Gson();
-			jsonData = gson.toJson(sysStateData);
+			jsonData = this.gson.toJson(sysStateData);
 		}
 
 		return jsonData;
@@ -114,8 +161,7 @@ public class DataUtil
 		ActuatorData data = null;
 
 		if (jsonData != null && jsonData.trim().length() > 0) {
-			Gson gson = new Gson();
-			data = gson.fromJson(jsonData, ActuatorData.class);
+			data = this.gson.fromJson(jsonData, ActuatorData.class);
 		}
 
 		return data;
@@ -126,8 +172,7 @@ public class DataUtil
 		SensorData data = null;
 
 		if (jsonData != null && jsonData.trim().length() > 0) {
-			Gson gson = new Gson();
-			data = gson.fromJson(jsonData, SensorData.class);
+			data = this.gson.fromJson(jsonData, SensorData.class);
 		}
 
 		return data;
@@ -138,8 +183,7 @@ public class DataUtil
 		SystemPerformanceData data = null;
 
 		if (jsonData != null && jsonData.trim().length() > 0) {
-			Gson gson = new Gson();
-			data = gson.fromJson(jsonData, SystemPerformanceData.class);
+			data = this.gson.fromJson(jsonData, SystemPerformanceData.class);
 		}
 
 		return data;
@@ -150,11 +194,678 @@ public class DataUtil
 		SystemStateData data = null;
 
 		if (jsonData != null && jsonData.trim().length() > 0) {
-			Gson gson = new Gson();
-			data = gson.fromJson(jsonData, SystemStateData.class);
+			data = this.gson.fromJson(jsonData, SystemStateData.class);
 		}
 
 		return data;
 	}
 	
+	
+	/**
+	 * Converts the given SensorData instances into a single JSON array,
+	 * such that a batch of readings can be published or stored at once.
+	 * 
+	 * @param data The SensorData instances to convert.
+	 * @return String The JSON array, or null if 'data' is null.
+	 */
+	public String sensorDataArrayToJson(SensorData ... data)
+	{
+		String jsonData = null;
+		
+		if (data != null) {
+			jsonData = this.gson.toJson(data, SensorData[].class);
+		}
+		
+		return jsonData;
+	}
+	
+	/**
+	 * Converts the given JSON array into SensorData instances.
+	 * 
+	 * @param jsonData The JSON array to convert.
+	 * @return SensorData[] The SensorData instances, or null if 'jsonData'
+	 * is null or empty.
+	 */
+	public SensorData[] jsonToSensorDataArray(String jsonData)
+	{
+		SensorData[] data = null;
+		
+		if (jsonData != null && jsonData.trim().length() > 0) {
+			data = this.gson.fromJson(jsonData, SensorData[].class);
+		}
+		
+		return data;
+	}
+	
+	/**
+	 * Converts the given batch into JSON, in its columnar form.
+	 * 
+	 * @param batch The batch to convert.
+	 * @return String The JSON, or null if 'batch' is null.
+	 */
+	public String sensorDataBatchToJson(SensorDataBatch batch)
+	{
+		String jsonData = null;
+		
+		if (batch != null) {
+			jsonData = this.gson.toJson(batch, SensorDataBatch.class);
+		}
+		
+		return jsonData;
+	}
+	
+	/**
+	 * Converts the given columnar JSON into a SensorDataBatch.
+	 * 
+	 * @param jsonData The JSON to convert.
+	 * @return SensorDataBatch The batch, or null if 'jsonData' is null or empty.
+	 */
+	public SensorDataBatch jsonToSensorDataBatch(String jsonData)
+	{
+		SensorDataBatch batch = null;
+		
+		if (jsonData != null && jsonData.trim().length() > 0) {
+			batch = this.gson.fromJson(jsonData, SensorDataBatch.class);
+		}
+		
+		return batch;
+	}
+	
+	/**
+	 * Writes the given batch to the given stream in its compact binary
+	 * columnar form. The stream is flushed, but not closed.
+	 * 
+	 * @param batch The batch to encode. If null, nothing is written.
+	 * @param out The stream to write to.
+	 * @throws IOException If the stream can't be written to.
+	 */
+	public void encode(SensorDataBatch batch, OutputStream out) throws IOException
+	{
+		if (batch != null && out != null) {
+			DataOutputStream dos = new DataOutputStream(out);
+			
+			batch.writeTo(dos);
+			dos.flush();
+		}
+	}
+	
+	/**
+	 * Encodes the given batch in its compact binary columnar form.
+	 * 
+	 * @param batch The batch to encode.
+	 * @return byte[] The encoded bytes, or null if 'batch' is null or can't be encoded.
+	 */
+	public byte[] encode(SensorDataBatch batch)
+	{
+		byte[] encodedData = null;
+		
+		if (batch != null) {
+			// header, plus 28 bytes per reading in the columns
+			ByteArrayOutputStream out = new ByteArrayOutputStream(64 + batch.size() * 28);
+			
+			try {
+				encode(batch, out);
+				encodedData = out.toByteArray();
+			} catch (IOException e) {
+				_Logger.log(Level.WARNING, "Failed to encode sensor data batch: " + batch, e);
+			}
+		}
+		
+		return encodedData;
+	}
+	
+	/**
+	 * Reads a batch in its compact binary columnar form from the given
+	 * stream. The stream is not closed.
+	 * 
+	 * @param in The stream to read from.
+	 * @return SensorDataBatch The batch, or null if 'in' is null.
+	 * @throws IOException If the stream can't be read or doesn't contain a valid batch.
+	 */
+	public SensorDataBatch decodeSensorDataBatch(InputStream in) throws IOException
+	{
+		SensorDataBatch batch = null;
+		
+		if (in != null) {
+			batch = SensorDataBatch.readFrom(new DataInputStream(in), Long.MAX_VALUE);
+		}
+		
+		return batch;
+	}
+	
+	/**
+	 * Decodes a batch from its compact binary columnar form.
+	 * 
+	 * @param payload The bytes to decode.
+	 * @return SensorDataBatch The batch, or null if 'payload' is null, empty or invalid.
+	 */
+	public SensorDataBatch decodeSensorDataBatch(byte[] payload)
+	{
+		SensorDataBatch batch = null;
+		
+		if (payload != null && payload.length > 0) {
+			try {
+				batch = SensorDataBatch.readFrom(new DataInputStream(new ByteArrayInputStream(payload)), payload.length);
+			} catch (IOException e) {
+				_Logger.log(Level.WARNING, "Failed to decode sensor data batch of " + payload.length + " bytes.", e);
+			}
+		}
+		
+		return batch;
+	}
+	
+	/**
+	 * Encodes each of the given data instances using the given encoding and
+	 * writes them to the given stream as length-prefixed frames - that is,
+	 * a 4 byte big-endian length followed by the encoded bytes of a single
+	 * instance. Null instances are skipped. The stream is flushed, but not closed.
+	 * 
+	 * @param encoding The encoding to use for each frame. If null, JSON is used.
+	 * @param out The stream to write to.
+	 * @param data The data instances to encode.
+	 * @return int The number of frames written.
+	 * @throws IOException If the stream can't be written to, or an instance
+	 * encodes to more than {@link #MAX_FRAME_LENGTH} bytes.
+	 */
+	public int encodeFrames(DataEncodingEnum encoding, OutputStream out, BaseIotData ... data) throws IOException
+	{
+		int frameCount = 0;
+		
+		if (out != null && data != null) {
+			DataOutputStream dos = new DataOutputStream(out);
+			ByteArrayOutputStream frame = new ByteArrayOutputStream(256);
+			
+			for (BaseIotData item : data) {
+				if (item != null) {
+					frame.reset();
+					encode(item, encoding, frame);
+					
+					if (frame.size() > MAX_FRAME_LENGTH) {
+						throw new IOException("Frame exceeds maximum length: " + frame.size());
+					}
+					
+					dos.writeInt(frame.size());
+					frame.writeTo(dos);
+					
+					frameCount++;
+				}
+			}
+			
+			dos.flush();
+		}
+		
+		return frameCount;
+	}
+	
+	/**
+	 * Encodes each of the given data instances using the given encoding as
+	 * length-prefixed frames. See {@link #encodeFrames(DataEncodingEnum, OutputStream, BaseIotData...)}.
+	 * 
+	 * @param encoding The encoding to use for each frame. If null, JSON is used.
+	 * @param data The data instances to encode.
+	 * @return byte[] The framed bytes, or null if 'data' is null or can't be encoded.
+	 */
+	public byte[] encodeFrames(DataEncodingEnum encoding, BaseIotData ... data)
+	{
+		byte[] encodedData = null;
+		
+		if (data != null) {
+			ByteArrayOutputStream out = new ByteArrayOutputStream(256 * Math.max(1, data.length));
+			
+			try {
+				encodeFrames(encoding, out, data);
+				encodedData = out.toByteArray();
+			} catch (IOException e) {
+				_Logger.log(Level.WARNING, "Failed to encode " + data.length + " data frames.", e);
+			}
+		}
+		
+		return encodedData;
+	}
+	
+	/**
+	 * Decodes the length-prefixed frames in the given buffer (from position
+	 * to limit) as instances of 'type' using the given encoding. On return,
+	 * the position will be advanced past the last complete frame, so a
+	 * trailing partial frame remains in the buffer for a subsequent call.
+	 * <p>
+	 * A frame length that's negative or over {@link #MAX_FRAME_LENGTH} can't
+	 * be a partial frame, and there's no way to find where the next frame
+	 * starts, so the rest of the buffer is discarded as corrupt. The frames
+	 * before it are still returned.
+	 * 
+	 * @param buffer The buffer to read from.
+	 * @param type The data type to decode.
+	 * @param encoding The encoding used for each frame. If null, JSON is used.
+	 * @return List<T> The decoded instances, which will be empty if 'buffer'
+	 * is null or contains no complete frames.
+	 */
+	public <T extends BaseIotData> List<T> decodeFrames(ByteBuffer buffer, Class<T> type, DataEncodingEnum encoding)
+	{
+		List<T> dataList = new ArrayList<>();
+		
+		if (buffer != null) {
+			while (buffer.remaining() >= Integer.BYTES) {
+				int frameLen = buffer.getInt(buffer.position());
+				
+				if (frameLen < 0 || frameLen > MAX_FRAME_LENGTH) {
+					_Logger.warning(
+						"Invalid frame length: " + frameLen + ". Discarding " + buffer.remaining() + " corrupt bytes.");
+					
+					buffer.position(buffer.limit());
+					break;
+				}
+				
+				// wait for the rest of the frame
+				if (frameLen > buffer.remaining() - Integer.BYTES) {
+					break;
+				}
+				
+				buffer.position(buffer.position() + Integer.BYTES);
+				
+				ByteBuffer frame = buffer.slice();
+				frame.limit(frameLen);
+				
+				buffer.position(buffer.position() + frameLen);
+				
+				T data = decode(frame, type, encoding);
+				
+				if (data != null) {
+					dataList.add(data);
+				}
+			}
+		}
+		
+		return dataList;
+	}
+	
+	/**
+	 * Encodes the given data instance as UTF-8 JSON and writes it directly
+	 * to the given stream, without creating an intermediate String. The
+	 * bytes written are identical to the UTF-8 encoding of the String
+	 * produced by the matching 'toJson' method.
+	 * <p>
+	 * The stream is flushed, but not closed.
+	 * 
+	 * @param data The data instance to encode. If null, nothing is written.
+	 * @param out The stream to write to.
+	 * @throws IOException If the stream can't be written to.
+	 */
+	public void encode(BaseIotData data, OutputStream out) throws IOException
+	{
+		if (data != null && out != null) {
+			Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+			JsonWriter jsonWriter = this.gson.newJsonWriter(writer);
+			
+			try {
+				this.gson.toJson(data, data.getClass(), jsonWriter);
+			} catch (JsonIOException e) {
+				throw new IOException("Failed to encode data: " + data.getName(), e);
+			}
+			
+			jsonWriter.flush();
+		}
+	}
+	
+	/**
+	 * Encodes the given data instance as UTF-8 JSON and writes it into the
+	 * given buffer, starting at its current position. On return, the position
+	 * will be advanced past the last byte written.
+	 * 
+	 * @param data The data instance to encode. If null, nothing is written.
+	 * @param buffer The buffer to write to.
+	 * @return int The number of bytes written.
+	 * @throws IOException If the encoded data doesn't fit in the
+	 * remaining space within the buffer.
+	 */
+	public int encode(BaseIotData data, ByteBuffer buffer) throws IOException
+	{
+		if (data != null && buffer != null) {
+			int startPos = buffer.position();
+			
+			encode(data, new ByteBufferOutputStream(buffer));
+			
+			return buffer.position() - startPos;
+		}
+		
+		return 0;
+	}
+	
+	/**
+	 * Encodes the given data instance as UTF-8 JSON.
+	 * 
+	 * @param data The data instance to encode.
+	 * @return byte[] The encoded bytes, or null if 'data' is null or can't be encoded.
+	 */
+	public byte[] encode(BaseIotData data)
+	{
+		byte[] encodedData = null;
+		
+		if (data != null) {
+			ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+			
+			try {
+				encode(data, out);
+				encodedData = out.toByteArray();
+			} catch (IOException e) {
+				_Logger.log(Level.WARNING, "Failed to encode data: " + data.getName(), e);
+			}
+		}
+		
+		return encodedData;
+	}
+	
+	/**
+	 * Decodes an instance of 'type' from the UTF-8 JSON in the given stream,
+	 * without creating an intermediate String. The stream is not closed.
+	 * 
+	 * @param in The stream to read from.
+	 * @param type The data type to decode.
+	 * @return T The decoded instance, or null if 'in' is null or contains only 'null'.
+	 * @throws IOException If the stream can't be read or doesn't contain valid JSON for 'type'.
+	 */
+	public <T extends BaseIotData> T decode(InputStream in, Class<T> type) throws IOException
+	{
+		T data = null;
+		
+		if (in != null && type != null) {
+			JsonReader jsonReader = this.gson.newJsonReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+			
+			try {
+				data = this.gson.fromJson(jsonReader, type);
+			} catch (JsonIOException | JsonSyntaxException e) {
+				throw new IOException("Failed to decode data of type: " + type.getSimpleName(), e);
+			}
+		}
+		
+		return data;
+	}
+	
+	/**
+	 * Decodes an instance of 'type' from the UTF-8 JSON in the given buffer.
+	 * All remaining bytes in the buffer (from position to limit) are consumed.
+	 * 
+	 * @param buffer The buffer to read from.
+	 * @param type The data type to decode.
+	 * @return T The decoded instance, or null if 'buffer' is null or empty, or
+	 * can't be decoded.
+	 */
+	public <T extends BaseIotData> T decode(ByteBuffer buffer, Class<T> type)
+	{
+		T data = null;
+		
+		if (buffer != null && buffer.hasRemaining()) {
+			try {
+				data = decode(new ByteBufferInputStream(buffer), type);
+			} catch (IOException e) {
+				_Logger.log(Level.WARNING, "Failed to decode data of type: " + type, e);
+			}
+		}
+		
+		return data;
+	}
+	
+	/**
+	 * Decodes an instance of 'type' from the UTF-8 JSON in the given bytes,
+	 * such as an MQTT or CoAP payload.
+	 * 
+	 * @param payload The bytes to read from.
+	 * @param type The data type to decode.
+	 * @return T The decoded instance, or null if 'payload' is null or empty, or
+	 * can't be decoded.
+	 */
+	public <T extends BaseIotData> T decode(byte[] payload, Class<T> type)
+	{
+		T data = null;
+		
+		if (payload != null && payload.length > 0) {
+			try {
+				data = decode(new ByteArrayInputStream(payload), type);
+			} catch (IOException e) {
+				_Logger.log(Level.WARNING, "Failed to decode data of type: " + type, e);
+			}
+		}
+		
+		return data;
+	}
+	
+	
+	/**
+	 * Returns the wire encoding configured for the given section (such as
+	 * {@link ConfigConst#MQTT_GATEWAY_SERVICE}) via the
+	 * {@link ConfigConst#DATA_ENCODING_KEY} property. If the property
+	 * isn't set, or doesn't map to a known encoding, JSON is returned.
+	 * 
+	 * @param configSectionName The configuration section name.
+	 * @return DataEncodingEnum The configured encoding.
+	 */
+	public DataEncodingEnum getConfiguredEncoding(String configSectionName)
+	{
+		String encodingName =
+			ConfigUtil.getInstance().getProperty(
+				configSectionName, ConfigConst.DATA_ENCODING_KEY, DataEncodingEnum.JSON.getName());
+		
+		DataEncodingEnum encoding = DataEncodingEnum.getEnumFromValue(encodingName);
+		
+		if (encoding == null) {
+			_Logger.warning("Unknown data encoding '" + encodingName + "' for section " + configSectionName + ". Using JSON.");
+			encoding = DataEncodingEnum.JSON;
+		}
+		
+		return encoding;
+	}
+	
+	/**
+	 * Encodes the given data instance using the given encoding and writes it
+	 * directly to the given stream. The stream is flushed, but not closed.
+	 * 
+	 * @param data The data instance to encode. If null, nothing is written.
+	 * @param encoding The encoding to use. If null, JSON is used.
+	 * @param out The stream to write to.
+	 * @throws IOException If the stream can't be written to.
+	 */
+	public void encode(BaseIotData data, DataEncodingEnum encoding, OutputStream out) throws IOException
+	{
+		if (encoding == DataEncodingEnum.CBOR) {
+			if (data != null && out != null) {
+				this.cborCodec.encode(data, out);
+			}
+		} else {
+			encode(data, out);
+		}
+	}
+	
+	/**
+	 * Encodes the given data instance using the given encoding.
+	 * 
+	 * @param data The data instance to encode.
+	 * @param encoding The encoding to use. If null, JSON is used.
+	 * @return byte[] The encoded bytes, or null if 'data' is null or can't be encoded.
+	 */
+	public byte[] encode(BaseIotData data, DataEncodingEnum encoding)
+	{
+		byte[] encodedData = null;
+		
+		if (data != null) {
+			ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+			
+			try {
+				encode(data, encoding, out);
+				encodedData = out.toByteArray();
+			} catch (IOException e) {
+				_Logger.log(Level.WARNING, "Failed to encode data: " + data.getName(), e);
+			}
+		}
+		
+		return encodedData;
+	}
+	
+	/**
+	 * Decodes an instance of 'type' from the given stream using the given encoding.
+	 * The stream is not closed.
+	 * 
+	 * @param in The stream to read from.
+	 * @param type The data type to decode.
+	 * @param encoding The encoding to use. If null, JSON is used.
+	 * @return T The decoded instance, or null if 'in' is null.
+	 * @throws IOException If the stream can't be read or doesn't contain valid data for 'type'.
+	 */
+	public <T extends BaseIotData> T decode(InputStream in, Class<T> type, DataEncodingEnum encoding) throws IOException
+	{
+		if (encoding == DataEncodingEnum.CBOR) {
+			return (in != null && type != null ? this.cborCodec.decode(in, type) : null);
+		}
+		
+		return decode(in, type);
+	}
+	
+	/**
+	 * Decodes an instance of 'type' from the given bytes, such as an MQTT or
+	 * CoAP payload, using the given encoding.
+	 * 
+	 * @param payload The bytes to read from.
+	 * @param type The data type to decode.
+	 * @param encoding The encoding to use. If null, JSON is used.
+	 * @return T The decoded instance, or null if 'payload' is null or empty, or
+	 * can't be decoded.
+	 */
+	public <T extends BaseIotData> T decode(byte[] payload, Class<T> type, DataEncodingEnum encoding)
+	{
+		T data = null;
+		
+		if (payload != null && payload.length > 0) {
+			try {
+				data = decode(new ByteArrayInputStream(payload), type, encoding, payload.length);
+			} catch (IOException e) {
+				_Logger.log(Level.WARNING, "Failed to decode data of type: " + type, e);
+			}
+		}
+		
+		return data;
+	}
+	
+	/**
+	 * Decodes an instance of 'type' from the given buffer using the given encoding.
+	 * 
+	 * @param buffer The buffer to read from.
+	 * @param type The data type to decode.
+	 * @param encoding The encoding to use. If null, JSON is used.
+	 * @return T The decoded instance, or null if 'buffer' is null or empty, or
+	 * can't be decoded.
+	 */
+	public <T extends BaseIotData> T decode(ByteBuffer buffer, Class<T> type, DataEncodingEnum encoding)
+	{
+		T data = null;
+		
+		if (buffer != null && buffer.hasRemaining()) {
+			try {
+				data = decode(new ByteBufferInputStream(buffer), type, encoding, buffer.remaining());
+			} catch (IOException e) {
+				_Logger.log(Level.WARNING, "Failed to decode data of type: " + type, e);
+			}
+		}
+		
+		return data;
+	}
+	
+	
+	// private methods
+	
+	/**
+	 * Decodes an instance of 'type' from no more than 'maxLength' bytes of the
+	 * given stream, so the CBOR codec can reject lengths beyond the input.
+	 */
+	private <T extends BaseIotData> T decode(
+		InputStream in, Class<T> type, DataEncodingEnum encoding, long maxLength) throws IOException
+	{
+		if (encoding == DataEncodingEnum.CBOR) {
+			return (type != null ? this.cborCodec.decode(in, type, maxLength) : null);
+		}
+		
+		return decode(in, type);
+	}
+	
+	
+	// private classes
+	
+	/**
+	 * Minimal {@link InputStream} view over the remaining bytes of a {@link ByteBuffer}.
+	 * 
+	 */
+	private static final class ByteBufferInputStream extends InputStream
+	{
+		private final ByteBuffer buffer;
+		
+		ByteBufferInputStream(ByteBuffer buffer)
+		{
+			this.buffer = buffer;
+		}
+		
+		@Override
+		public int read()
+		{
+			return (this.buffer.hasRemaining() ? (this.buffer.get() & 0xFF) : -1);
+		}
+		
+		@Override
+		public int read(byte[] bytes, int off, int len)
+		{
+			if (len == 0) {
+				return 0;
+			}
+			
+			if (! this.buffer.hasRemaining()) {
+				return -1;
+			}
+			
+			int count = Math.min(len, this.buffer.remaining());
+			this.buffer.get(bytes, off, count);
+			
+			return count;
+		}
+		
+		@Override
+		public int available()
+		{
+			return this.buffer.remaining();
+		}
+	}
+	
+	/**
+	 * Minimal {@link OutputStream} view over a {@link ByteBuffer}. Writes beyond
+	 * the buffer's limit are reported as an {@link IOException}.
+	 * 
+	 */
+	private static final class ByteBufferOutputStream extends OutputStream
+	{
+		private final ByteBuffer buffer;
+		
+		ByteBufferOutputStream(ByteBuffer buffer)
+		{
+			this.buffer = buffer;
+		}
+		
+		@Override
+		public void write(int b) throws IOException
+		{
+			checkRemaining(1);
+			this.buffer.put((byte) b);
+		}
+		
+		@Override
+		public void write(byte[] bytes, int off, int len) throws IOException
+		{
+			checkRemaining(len);
+			this.buffer.put(bytes, off, len);
+		}
+		
+		private void checkRemaining(int len) throws IOException
+		{
+			if (this.buffer.remaining() < len) {
+				throw new IOException(
+					"Insufficient buffer space: " + len + " bytes needed, " + this.buffer.remaining() + " remaining.");
+			}
+		}
+	}
+	
 }
@@ -0,0 +1,735 @@
+/**
+ * This class is part of the Programming the Internet of Things
+ * project, and is available via the MIT License, which can be
+ * found in the LICENSE file at the top level of this repository.
+ *
+ * Copyright (c) 2020 by Andrew D. King
+ */
+
+package programmingtheiot.data;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Compact binary codec for the IoT data types, using CBOR (RFC 8949).
+ * <p>
+ * Each instance is encoded as a CBOR map with small integer keys in place
+ * of the JSON property names, and floats are encoded as single precision.
+ * The ISO 8601 timestamp String is not sent, as it's derived from the
+ * timestamp in millis when decoding. A typical {@link SensorData} instance
+ * encodes to roughly a quarter of the size of its JSON representation.
+ * <p>
+ * Decoding accepts any integer or floating point encoding (half, single
+ * or double precision) for numeric properties, and skips unknown keys, so
+ * that generic CBOR libraries on the CDA side can be used to produce data.
+ *
+ */
+final class IotDataCborCodec
+{
+	// static
+
+	// map keys - all are < 24, so encode as a single byte
+	private static final int NAME_KEY               = 1;
+	private static final int STATUS_CODE_KEY        = 2;
+	private static final int TYPE_ID_KEY            = 3;
+	private static final int LOCATION_ID_KEY        = 4;
+	private static final int LATITUDE_KEY           = 5;
+	private static final int LONGITUDE_KEY          = 6;
+	private static final int ELEVATION_KEY          = 7;
+	private static final int TIMESTAMP_MILLIS_KEY   = 8;
+
+	private static final int VALUE_KEY              = 10;
+	private static final int COMMAND_KEY            = 11;
+	private static final int IS_RESPONSE_KEY        = 12;
+	private static final int STATE_DATA_KEY         = 13;
+	private static final int CPU_UTIL_KEY           = 14;
+	private static final int DISK_UTIL_KEY          = 15;
+	private static final int MEM_UTIL_KEY           = 16;
+	private static final int SENSOR_DATA_LIST_KEY   = 17;
+	private static final int SYS_PERF_DATA_LIST_KEY = 18;
+
+	private static final int BASE_FIELD_COUNT = 8;
+
+	// CBOR major types
+	private static final int MT_UNSIGNED = 0;
+	private static final int MT_NEGATIVE = 1;
+	private static final int MT_BYTES    = 2;
+	private static final int MT_TEXT     = 3;
+	private static final int MT_ARRAY    = 4;
+	private static final int MT_MAP      = 5;
+	private static final int MT_TAG      = 6;
+	private static final int MT_SIMPLE   = 7;
+
+	private static final int FALSE_VAL   = 0xF4;
+	private static final int TRUE_VAL    = 0xF5;
+	private static final int NULL_VAL    = 0xF6;
+	private static final int HALF_VAL    = 0xF9;
+	private static final int FLOAT_VAL   = 0xFA;
+	private static final int DOUBLE_VAL  = 0xFB;
+
+	// caps the length of text and byte strings, as it's read from the wire
+	// before anything is allocated for them
+	static final int MAX_ITEM_LENGTH = 1 << 20;
+
+	// caps how deeply the arrays, maps and tags of a skipped value may nest,
+	// as each level is skipped by recursion
+	static final int MAX_SKIP_DEPTH = 16;
+
+
+	// constructors
+
+	/**
+	 * Default.
+	 *
+	 */
+	IotDataCborCodec()
+	{
+		super();
+	}
+
+
+	// package-private methods
+
+	/**
+	 * Encodes the given data instance as CBOR and writes it to the given stream.
+	 * The stream is flushed, but not closed.
+	 *
+	 * @param data The data instance to encode.
+	 * @param out The stream to write to.
+	 * @throws IOException If 'data' isn't a supported type, or the stream can't be written to.
+	 */
+	void encode(BaseIotData data, OutputStream out) throws IOException
+	{
+		DataOutputStream dos = new DataOutputStream(out);
+
+		writeData(dos, data);
+
+		dos.flush();
+	}
+
+	/**
+	 * Decodes an instance of 'type' from the CBOR in the given stream.
+	 * Only the bytes for a single item are consumed.
+	 *
+	 * @param in The stream to read from.
+	 * @param type The data type to decode.
+	 * @return T The decoded instance, or null if the item is CBOR null.
+	 * @throws IOException If 'type' isn't supported, or the stream doesn't contain
+	 * a valid CBOR map.
+	 */
+	<T extends BaseIotData> T decode(InputStream in, Class<T> type) throws IOException
+	{
+		return decode(in, type, Long.MAX_VALUE);
+	}
+
+	/**
+	 * Decodes an instance of 'type' from the CBOR in the given stream, reading
+	 * no more than 'maxLength' bytes. Any text or byte string longer than the
+	 * bytes left, or than {@link #MAX_ITEM_LENGTH}, is rejected before it's
+	 * allocated, so a corrupt or hostile length can't exhaust the heap.
+	 *
+	 * @param in The stream to read from.
+	 * @param type The data type to decode.
+	 * @param maxLength The number of bytes available, such as a payload's length.
+	 * @return T The decoded instance, or null if the item is CBOR null.
+	 * @throws IOException If 'type' isn't supported, or the stream doesn't contain
+	 * a valid CBOR map within 'maxLength' bytes.
+	 */
+	<T extends BaseIotData> T decode(InputStream in, Class<T> type, long maxLength) throws IOException
+	{
+		return type.cast(readData(new CborInputStream(in, maxLength), type));
+	}
+
+
+	// private methods
+
+	private void writeData(DataOutputStream out, BaseIotData data) throws IOException
+	{
+		if (data == null) {
+			out.writeByte(NULL_VAL);
+			return;
+		}
+
+		if (data instanceof SensorData) {
+			SensorData sd = (SensorData) data;
+
+			writeHeader(out, MT_MAP, BASE_FIELD_COUNT + 1);
+			writeBaseFields(out, data);
+			writeFloat(out, VALUE_KEY, sd.getValue());
+		} else if (data instanceof ActuatorData) {
+			ActuatorData ad = (ActuatorData) data;
+
+			writeHeader(out, MT_MAP, BASE_FIELD_COUNT + 4);
+			writeBaseFields(out, data);
+			writeInt(out, COMMAND_KEY, ad.getCommand());
+			writeFloat(out, VALUE_KEY, ad.getValue());
+			writeHeader(out, MT_UNSIGNED, IS_RESPONSE_KEY);
+			out.writeByte(ad.isResponseFlagEnabled() ? TRUE_VAL : FALSE_VAL);
+			writeText(out, STATE_DATA_KEY, ad.getStateData());
+		} else if (data instanceof SystemPerformanceData) {
+			SystemPerformanceData spd = (SystemPerformanceData) data;
+
+			writeHeader(out, MT_MAP, BASE_FIELD_COUNT + 3);
+			writeBaseFields(out, data);
+			writeFloat(out, CPU_UTIL_KEY, spd.getCpuUtilization());
+			writeFloat(out, DISK_UTIL_KEY, spd.getDiskUtilization());
+			writeFloat(out, MEM_UTIL_KEY, spd.getMemoryUtilization());
+		} else if (data instanceof SystemStateData) {
+			SystemStateData ssd = (SystemStateData) data;
+
+			List<SensorData> sensorDataList = ssd.getSensorDataList();
+			List<SystemPerformanceData> sysPerfDataList = ssd.getSystemPerformanceDataList();
+
+			int fieldCount = BASE_FIELD_COUNT + 1;
+
+			if (sensorDataList != null) fieldCount++;
+			if (sysPerfDataList != null) fieldCount++;
+
+			writeHeader(out, MT_MAP, fieldCount);
+			writeBaseFields(out, data);
+			writeInt(out, COMMAND_KEY, ssd.getCommand());
+
+			if (sensorDataList != null) {
+				writeHeader(out, MT_UNSIGNED, SENSOR_DATA_LIST_KEY);
+				writeHeader(out, MT_ARRAY, sensorDataList.size());
+
+				for (SensorData sd : sensorDataList) {
+					writeData(out, sd);
+				}
+			}
+
+			if (sysPerfDataList != null) {
+				writeHeader(out, MT_UNSIGNED, SYS_PERF_DATA_LIST_KEY);
+				writeHeader(out, MT_ARRAY, sysPerfDataList.size());
+
+				for (SystemPerformanceData spd : sysPerfDataList) {
+					writeData(out, spd);
+				}
+			}
+		} else {
+			throw new IOException("Unsupported data type for CBOR encoding: " + data.getClass().getName());
+		}
+	}
+
+	private void writeBaseFields(DataOutputStream out, BaseIotData data) throws IOException
+	{
+		writeText(out, NAME_KEY, data.getName());
+		writeInt(out, STATUS_CODE_KEY, data.getStatusCode());
+		writeInt(out, TYPE_ID_KEY, data.getTypeID());
+		writeText(out, LOCATION_ID_KEY, data.getLocationID());
+		writeFloat(out, LATITUDE_KEY, data.getLatitude());
+		writeFloat(out, LONGITUDE_KEY, data.getLongitude());
+		writeFloat(out, ELEVATION_KEY, data.getElevation());
+		writeInt(out, TIMESTAMP_MILLIS_KEY, data.getTimeStampMillis());
+	}
+
+	private void writeText(DataOutputStream out, int key, String val) throws IOException
+	{
+		writeHeader(out, MT_UNSIGNED, key);
+
+		if (val == null) {
+			out.writeByte(NULL_VAL);
+		} else {
+			byte[] bytes = val.getBytes(StandardCharsets.UTF_8);
+
+			writeHeader(out, MT_TEXT, bytes.length);
+			out.write(bytes);
+		}
+	}
+
+	private void writeInt(DataOutputStream out, int key, long val) throws IOException
+	{
+		writeHeader(out, MT_UNSIGNED, key);
+
+		if (val >= 0) {
+			writeHeader(out, MT_UNSIGNED, val);
+		} else {
+			writeHeader(out, MT_NEGATIVE, -1L - val);
+		}
+	}
+
+	private void writeFloat(DataOutputStream out, int key, float val) throws IOException
+	{
+		writeHeader(out, MT_UNSIGNED, key);
+		out.writeByte(FLOAT_VAL);
+		out.writeInt(Float.floatToIntBits(val));
+	}
+
+	private void writeHeader(DataOutputStream out, int majorType, long val) throws IOException
+	{
+		int mt = majorType << 5;
+
+		if (val < 24) {
+			out.writeByte(mt | (int) val);
+		} else if (val < 0x100L) {
+			out.writeByte(mt | 24);
+			out.writeByte((int) val);
+		} else if (val < 0x10000L) {
+			out.writeByte(mt | 25);
+			out.writeShort((int) val);
+		} else if (val < 0x100000000L) {
+			out.writeByte(mt | 26);
+			out.writeInt((int) val);
+		} else {
+			out.writeByte(mt | 27);
+			out.writeLong(val);
+		}
+	}
+
+	private BaseIotData readData(CborInputStream in, Class<? extends BaseIotData> type) throws IOException
+	{
+		int initialByte = in.readUnsignedByte();
+
+		if (initialByte == NULL_VAL) {
+			return null;
+		}
+
+		if ((initialByte >>> 5) != MT_MAP) {
+			throw new IOException("Expected CBOR map, but found major type: " + (initialByte >>> 5));
+		}
+
+		BaseIotData data = createData(type);
+
+		long    fieldCount = readLength(in, initialByte);
+		long    millis     = 0L;
+		boolean hasMillis  = false;
+
+		for (long i = 0; i < fieldCount; i++) {
+			int key = (int) readLong(in);
+
+			switch (key) {
+				case NAME_KEY:
+					data.setName(readText(in)); break;
+
+				case STATUS_CODE_KEY:
+					data.setStatusCode((int) readLong(in)); break;
+
+				case TYPE_ID_KEY:
+					data.setTypeID((int) readLong(in)); break;
+
+				case LOCATION_ID_KEY:
+					data.setLocationID(readText(in)); break;
+
+				case LATITUDE_KEY:
+					data.setLatitude(readFloat(in)); break;
+
+				case LONGITUDE_KEY:
+					data.setLongitude(readFloat(in)); break;
+
+				case ELEVATION_KEY:
+					data.setElevation(readFloat(in)); break;
+
+				case TIMESTAMP_MILLIS_KEY:
+					millis = readLong(in);
+					hasMillis = true;
+					break;
+
+				default:
+					if (! readField(in, key, data)) {
+						skipItem(in, 0);
+					}
+			}
+		}
+
+		// sub-class setters refresh the timestamp, so restore it last - the
+		// ISO 8601 String will be derived from millis if it's requested
+		if (hasMillis) {
+			data.setTimeStampMillis(millis);
+		}
+
+		return data;
+	}
+
+	private boolean readField(CborInputStream in, int key, BaseIotData data) throws IOException
+	{
+		if (data instanceof SensorData) {
+			if (key == VALUE_KEY) {
+				((SensorData) data).setValue(readFloat(in));
+				return true;
+			}
+		} else if (data instanceof ActuatorData) {
+			ActuatorData ad = (ActuatorData) data;
+
+			switch (key) {
+				case COMMAND_KEY:
+					ad.setCommand((int) readLong(in)); return true;
+
+				case VALUE_KEY:
+					ad.setValue(readFloat(in)); return true;
+
+				case IS_RESPONSE_KEY:
+					if (readBoolean(in)) {
+						ad.setAsResponse();
+					}
+
+					return true;
+
+				case STATE_DATA_KEY:
+					ad.setStateData(readText(in)); return true;
+			}
+		} else if (data instanceof SystemPerformanceData) {
+			SystemPerformanceData spd = (SystemPerformanceData) data;
+
+			switch (key) {
+				case CPU_UTIL_KEY:
+					spd.setCpuUtilization(readFloat(in)); return true;
+
+				case DISK_UTIL_KEY:
+					spd.setDiskUtilization(readFloat(in)); return true;
+
+				case MEM_UTIL_KEY:
+					spd.setMemoryUtilization(readFloat(in)); return true;
+			}
+		} else if (data instanceof SystemStateData) {
+			SystemStateData ssd = (SystemStateData) data;
+
+			switch (key) {
+				case COMMAND_KEY:
+					ssd.setCommand((int) readLong(in)); return true;
+
+				case SENSOR_DATA_LIST_KEY:
+					long sdCount = readArrayLength(in);
+
+					for (long i = 0; i < sdCount; i++) {
+						ssd.addSensorData((SensorData) readData(in, SensorData.class));
+					}
+
+					return true;
+
+				case SYS_PERF_DATA_LIST_KEY:
+					long spdCount = readArrayLength(in);
+
+					for (long i = 0; i < spdCount; i++) {
+						ssd.addSystemPerformanceData((SystemPerformanceData) readData(in, SystemPerformanceData.class));
+					}
+
+					return true;
+			}
+		}
+
+		return false;
+	}
+
+	private BaseIotData createData(Class<? extends BaseIotData> type) throws IOException
+	{
+		IotDataRecycler recycler = IotDataRecycler.getInstance();
+
+		if (type == SensorData.class) {
+			return recycler.acquireSensorData();
+		} else if (type == ActuatorData.class) {
+			return recycler.acquireActuatorData();
+		} else if (type == SystemPerformanceData.class) {
+			return recycler.acquireSystemPerformanceData();
+		} else if (type == SystemStateData.class) {
+			return new SystemStateData();
+		}
+
+		throw new IOException("Unsupported data type for CBOR decoding: " + type);
+	}
+
+	private long readArrayLength(CborInputStream in) throws IOException
+	{
+		int initialByte = in.readUnsignedByte();
+
+		if ((initialByte >>> 5) != MT_ARRAY) {
+			throw new IOException("Expected CBOR array, but found major type: " + (initialByte >>> 5));
+		}
+
+		return readLength(in, initialByte);
+	}
+
+	private boolean readBoolean(CborInputStream in) throws IOException
+	{
+		int initialByte = in.readUnsignedByte();
+
+		if (initialByte == TRUE_VAL) {
+			return true;
+		} else if (initialByte == FALSE_VAL || initialByte == NULL_VAL) {
+			return false;
+		}
+
+		throw new IOException("Expected CBOR boolean, but found: 0x" + Integer.toHexString(initialByte));
+	}
+
+	private long readLong(CborInputStream in) throws IOException
+	{
+		int initialByte = in.readUnsignedByte();
+		int majorType   = initialByte >>> 5;
+
+		if (majorType == MT_UNSIGNED) {
+			return readLength(in, initialByte);
+		} else if (majorType == MT_NEGATIVE) {
+			return -1L - readLength(in, initialByte);
+		} else if (majorType == MT_SIMPLE && initialByte >= HALF_VAL && initialByte <= DOUBLE_VAL) {
+			return (long) readFloatValue(in, initialByte);
+		}
+
+		throw new IOException("Expected CBOR integer, but found major type: " + majorType);
+	}
+
+	private float readFloat(CborInputStream in) throws IOException
+	{
+		int initialByte = in.readUnsignedByte();
+		int majorType   = initialByte >>> 5;
+
+		if (majorType == MT_UNSIGNED) {
+			return (float) readLength(in, initialByte);
+		} else if (majorType == MT_NEGATIVE) {
+			return (float) (-1L - readLength(in, initialByte));
+		} else if (majorType == MT_SIMPLE) {
+			return (float) readFloatValue(in, initialByte);
+		}
+
+		throw new IOException("Expected CBOR number, but found major type: " + majorType);
+	}
+
+	private double readFloatValue(CborInputStream in, int initialByte) throws IOException
+	{
+		switch (initialByte) {
+			case HALF_VAL:
+				return halfToFloat(in.readUnsignedShort());
+
+			case FLOAT_VAL:
+				return Float.intBitsToFloat(in.readInt());
+
+			case DOUBLE_VAL:
+				return Double.longBitsToDouble(in.readLong());
+
+			default:
+				throw new IOException("Expected CBOR float, but found: 0x" + Integer.toHexString(initialByte));
+		}
+	}
+
+	private String readText(CborInputStream in) throws IOException
+	{
+		int initialByte = in.readUnsignedByte();
+
+		if (initialByte == NULL_VAL) {
+			return null;
+		}
+
+		if ((initialByte >>> 5) != MT_TEXT || (initialByte & 0x1F) == 31) {
+			throw new IOException("Expected definite length CBOR text, but found: 0x" + Integer.toHexString(initialByte));
+		}
+
+		byte[] bytes = new byte[readItemLength(in, initialByte)];
+		in.readFully(bytes);
+
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private long readLength(CborInputStream in, int initialByte) throws IOException
+	{
+		int info = initialByte & 0x1F;
+
+		if (info < 24) {
+			return info;
+		}
+
+		switch (info) {
+			case 24: return in.readUnsignedByte();
+			case 25: return in.readUnsignedShort();
+			case 26: return in.readInt() & 0xFFFFFFFFL;
+			case 27: return in.readLong();
+
+			default:
+				throw new IOException("Unsupported CBOR additional info: " + info);
+		}
+	}
+
+	private void skipItem(CborInputStream in, int depth) throws IOException
+	{
+		if (depth > MAX_SKIP_DEPTH) {
+			throw new IOException("CBOR item nested deeper than " + MAX_SKIP_DEPTH + " levels.");
+		}
+
+		int initialByte = in.readUnsignedByte();
+		int majorType   = initialByte >>> 5;
+
+		if ((initialByte & 0x1F) == 31) {
+			throw new IOException("Indefinite length CBOR items are not supported.");
+		}
+
+		switch (majorType) {
+			case MT_UNSIGNED:
+			case MT_NEGATIVE:
+				readLength(in, initialByte);
+				break;
+
+			case MT_BYTES:
+			case MT_TEXT:
+				in.skipFully(readItemLength(in, initialByte));
+				break;
+
+			case MT_ARRAY:
+				long itemCount = readLength(in, initialByte);
+
+				for (long i = 0; i < itemCount; i++) {
+					skipItem(in, depth + 1);
+				}
+
+				break;
+
+			case MT_MAP:
+				long pairCount = readLength(in, initialByte);
+
+				for (long i = 0; i < pairCount * 2; i++) {
+					skipItem(in, depth + 1);
+				}
+
+				break;
+
+			case MT_TAG:
+				readLength(in, initialByte);
+				skipItem(in, depth + 1);
+				break;
+
+			default:
+				if (initialByte >= HALF_VAL && initialByte <= DOUBLE_VAL) {
+					readFloatValue(in, initialByte);
+				} else if ((initialByte & 0x1F) == 24) {
+					in.readUnsignedByte();
+				}
+		}
+	}
+
+	/**
+	 * Reads the length of a text or byte string, and checks it against both
+	 * the bytes left in the input and {@link #MAX_ITEM_LENGTH}.
+	 */
+	private int readItemLength(CborInputStream in, int initialByte) throws IOException
+	{
+		long len = readLength(in, initialByte);
+
+		if (len < 0 || len > MAX_ITEM_LENGTH || len > in.remaining()) {
+			throw new IOException("CBOR item length out of range: " + len + ", bytes left: " + in.remaining());
+		}
+
+		return (int) len;
+	}
+
+	private float halfToFloat(int half)
+	{
+		int sign     = (half >>> 15) & 0x1;
+		int exponent = (half >>> 10) & 0x1F;
+		int mantissa = half & 0x3FF;
+
+		float val;
+
+		if (exponent == 0) {
+			val = mantissa * 0x1p-24f;
+		} else if (exponent == 31) {
+			val = (mantissa == 0 ? Float.POSITIVE_INFINITY : Float.NaN);
+		} else {
+			val = (mantissa + 1024) * (float) Math.pow(2, exponent - 25);
+		}
+
+		return (sign == 0 ? val : -val);
+	}
+
+
+	// private classes
+
+	/**
+	 * A {@link DataInputStream} that reads no more than a given number of
+	 * bytes, and keeps count of those left, so lengths read from the input
+	 * can be checked against them.
+	 *
+	 */
+	private static final class CborInputStream extends DataInputStream
+	{
+		CborInputStream(InputStream in, long maxLength)
+		{
+			super(new LimitedInputStream(in, maxLength));
+		}
+
+		long remaining()
+		{
+			return ((LimitedInputStream) this.in).remaining;
+		}
+
+		void skipFully(int len) throws IOException
+		{
+			byte[] scratch = new byte[Math.min(len, 512)];
+
+			while (len > 0) {
+				int count = Math.min(len, scratch.length);
+
+				readFully(scratch, 0, count);
+				len -= count;
+			}
+		}
+	}
+
+	/**
+	 * Reports the end of the stream once the given number of bytes is read.
+	 *
+	 */
+	private static final class LimitedInputStream extends FilterInputStream
+	{
+		private long remaining;
+
+		LimitedInputStream(InputStream in, long maxLength)
+		{
+			super(in);
+
+			this.remaining = maxLength;
+		}
+
+		@Override
+		public int read() throws IOException
+		{
+			if (this.remaining <= 0L) {
+				return -1;
+			}
+
+			int b = super.read();
+
+			if (b >= 0) {
+				this.remaining--;
+			}
+
+			return b;
+		}
+
+		@Override
+		public int read(byte[] bytes, int off, int len) throws IOException
+		{
+			if (this.remaining <= 0L) {
+				return -1;
+			}
+
+			int count = super.read(bytes, off, (int) Math.min(len, this.remaining));
+
+			if (count > 0) {
+				this.remaining -= count;
+			}
+
+			return count;
+		}
+
+		@Override
+		public long skip(long len) throws IOException
+		{
+			long count = super.skip(Math.min(len, this.remaining));
+
+			this.remaining -= count;
+
+			return count;
+		}
+
+		@Override
+		public boolean markSupported()
+		{
+			return false;
+		}
+	}
+
+}
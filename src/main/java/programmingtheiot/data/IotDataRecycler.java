@@ -0,0 +1,227 @@
+/**
+ * This class is part of the Programming the Internet of Things
+ * project, and is available via the MIT License, which can be
+ * found in the LICENSE file at the top level of this repository.
+ * 
+ * Copyright (c) 2020 by Andrew D. King
+ */
+
+package programmingtheiot.data;
+
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+import programmingtheiot.common.ConfigBindings;
+import programmingtheiot.common.ConfigConst;
+import programmingtheiot.common.GatewayDeviceConfig;
+
+/**
+ * Opt-in recycler for the frequently allocated IoT data types:
+ * {@link SensorData}, {@link ActuatorData} and {@link SystemPerformanceData}.
+ * <p>
+ * Each type has a single bounded pool, shared by all threads, so an instance
+ * can be released on a different thread than it was acquired on - as it is
+ * when it's decoded on an MQTT callback thread, and released once a pipeline
+ * worker is done with it. The pools are lock-free, and return the most
+ * recently released instance first.
+ * <p>
+ * When recycling is disabled (the default, unless enabled via the
+ * {@link ConfigConst#ENABLE_DATA_RECYCLING_KEY} property in the
+ * {@link ConfigConst#GATEWAY_DEVICE} section), acquire simply creates a new
+ * instance and release does nothing.
+ * <p>
+ * NOTE: Only release an instance once nothing else holds a reference to it -
+ * for example, data passed to an {@link programmingtheiot.common.IDataMessageListener}
+ * may be retained by the listener, and must not be released by the caller
+ * unless the listener rejected it (by returning false).
+ * 
+ */
+public class IotDataRecycler
+{
+	// static
+	
+	private static final Logger _Logger =
+		Logger.getLogger(IotDataRecycler.class.getName());
+	
+	private static final IotDataRecycler _Instance = new IotDataRecycler();
+	
+	/**
+	 * Returns the Singleton instance of this class.
+	 * 
+	 * @return IotDataRecycler
+	 */
+	public static final IotDataRecycler getInstance()
+	{
+		return _Instance;
+	}
+	
+	
+	// private var's
+	
+	private volatile boolean isEnabled = false;
+	
+	private DataPool<SensorData> sensorDataPool = null;
+	private DataPool<ActuatorData> actuatorDataPool = null;
+	private DataPool<SystemPerformanceData> sysPerfDataPool = null;
+	
+	
+	// constructors
+	
+	/**
+	 * Default (private).
+	 * 
+	 */
+	private IotDataRecycler()
+	{
+		super();
+		
+		GatewayDeviceConfig gdaConfig = ConfigBindings.getInstance().getGatewayDeviceConfig();
+		
+		this.isEnabled = gdaConfig.isDataRecyclingEnabled();
+		
+		int poolSize = gdaConfig.getRecyclerPoolSize();
+		
+		this.sensorDataPool   = new DataPool<>(SensorData::new, poolSize);
+		this.actuatorDataPool = new DataPool<>(ActuatorData::new, poolSize);
+		this.sysPerfDataPool  = new DataPool<>(SystemPerformanceData::new, poolSize);
+		
+		_Logger.fine("Data recycling enabled: " + this.isEnabled + ", pool size per type: " + poolSize);
+	}
+	
+	
+	// public methods
+	
+	/**
+	 * Returns a SensorData instance with default values and a new timestamp.
+	 * 
+	 * @return SensorData
+	 */
+	public SensorData acquireSensorData()
+	{
+		return (this.isEnabled ? this.sensorDataPool.acquire() : new SensorData());
+	}
+	
+	/**
+	 * Returns an ActuatorData instance with default values and a new timestamp.
+	 * 
+	 * @return ActuatorData
+	 */
+	public ActuatorData acquireActuatorData()
+	{
+		return (this.isEnabled ? this.actuatorDataPool.acquire() : new ActuatorData());
+	}
+	
+	/**
+	 * Returns a SystemPerformanceData instance with default values and a new timestamp.
+	 * 
+	 * @return SystemPerformanceData
+	 */
+	public SystemPerformanceData acquireSystemPerformanceData()
+	{
+		return (this.isEnabled ? this.sysPerfDataPool.acquire() : new SystemPerformanceData());
+	}
+	
+	/**
+	 * Returns the given instance to the pool for its type,
+	 * after resetting it via {@link BaseIotData#resetData()}. If recycling is
+	 * disabled, the type isn't pooled, or the pool is full, the instance is
+	 * simply left for garbage collection.
+	 * 
+	 * @param data The instance to release. The caller must not use it after this call.
+	 * @return boolean True if the instance was pooled; false otherwise.
+	 */
+	public boolean release(BaseIotData data)
+	{
+		if (! this.isEnabled || data == null) {
+			return false;
+		}
+		
+		if (data.getClass() == SensorData.class) {
+			return this.sensorDataPool.release((SensorData) data);
+		} else if (data.getClass() == ActuatorData.class) {
+			return this.actuatorDataPool.release((ActuatorData) data);
+		} else if (data.getClass() == SystemPerformanceData.class) {
+			return this.sysPerfDataPool.release((SystemPerformanceData) data);
+		}
+		
+		return false;
+	}
+	
+	/**
+	 * 
+	 * @return boolean True if recycling is enabled; false otherwise.
+	 */
+	public boolean isEnabled()
+	{
+		return this.isEnabled;
+	}
+	
+	/**
+	 * Enables or disables recycling. Disabling recycling doesn't clear
+	 * the existing pools, which will be reused if re-enabled.
+	 * 
+	 * @param enable True to enable recycling; false to disable.
+	 */
+	public void setEnabled(boolean enable)
+	{
+		this.isEnabled = enable;
+	}
+	
+	
+	// private classes
+	
+	/**
+	 * Bounded pool for a single data type, shared by all threads.
+	 * 
+	 */
+	private static final class DataPool<T extends BaseIotData>
+	{
+		private final Supplier<T> factory;
+		private final int maxSize;
+		private final ConcurrentLinkedDeque<T> pool = new ConcurrentLinkedDeque<>();
+		
+		// counts the slots taken, including by releases still being added
+		private final AtomicInteger size = new AtomicInteger();
+		
+		DataPool(Supplier<T> factory, int maxSize)
+		{
+			this.factory = factory;
+			this.maxSize = maxSize;
+		}
+		
+		T acquire()
+		{
+			T data = this.pool.pollFirst();
+			
+			if (data == null) {
+				return this.factory.get();
+			}
+			
+			this.size.decrementAndGet();
+			
+			// released instances were reset, so only the timestamp is stale
+			data.updateTimeStamp();
+			
+			return data;
+		}
+		
+		boolean release(T data)
+		{
+			// take a slot first, so concurrent releases can't overfill the pool
+			if (this.size.incrementAndGet() > this.maxSize) {
+				this.size.decrementAndGet();
+				
+				return false;
+			}
+			
+			// reset before adding, as another thread may acquire it straight away
+			data.resetData();
+			this.pool.addFirst(data);
+			
+			return true;
+		}
+	}
+	
+}
@@ -83,4 +83,12 @@ public class SensorData extends BaseIotData implements Serializable
 		}
 	}
 	
+	/* (non-Javadoc)
+	 * @see programmingtheiot.data.BaseIotData#handleResetData()
+	 */
+	protected void handleResetData()
+	{
+		this.value = ConfigConst.DEFAULT_VAL;
+	}
+	
 }
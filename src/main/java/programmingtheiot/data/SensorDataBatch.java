@@ -0,0 +1,500 @@
+/**
+ * This class is part of the Programming the Internet of Things
+ * project, and is available via the MIT License, which can be
+ * found in the LICENSE file at the top level of this repository.
+ * 
+ * Copyright (c) 2020 by Andrew D. King
+ */
+
+package programmingtheiot.data;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Columnar (structure of arrays) container for a batch of sensor readings.
+ * <p>
+ * Each reading is stored as one element in each of a set of primitive
+ * arrays - timestamps as long[], values as float[], type ID's and status
+ * codes as int[] - while the name and location ID of each reading are
+ * interned into a string table shared by the batch and stored as int[]
+ * indexes into that table. A window of readings from a handful of sensors
+ * therefore costs around 24 bytes per reading, rather than a full
+ * {@link SensorData} instance and its String references.
+ * <p>
+ * Latitude, longitude and elevation are not retained; readings converted
+ * back via {@link #toSensorDataArray()} will have the default values for these.
+ * <p>
+ * This class is not thread-safe.
+ * 
+ */
+public class SensorDataBatch
+{
+	// static
+	
+	public static final int DEFAULT_CAPACITY = 64;
+	
+	// first byte of the binary form, incremented if the layout changes
+	private static final int BINARY_FORMAT_VERSION = 1;
+	
+	// the most readings and strings a binary batch may hold when read
+	public static final int MAX_BINARY_SIZE = 1 << 16;
+	
+	// bytes in the binary form: the header, each reading's columns, and the
+	// smallest string table entry (a null)
+	private static final int BINARY_HEADER_BYTES  = 1 + 4 + 4;
+	private static final int BINARY_READING_BYTES = 4 + 4 + 4 + 4 + 8 + 4;
+	private static final int BINARY_MIN_STRING_BYTES = 1;
+	
+	
+	// private var's
+	
+	private int size = 0;
+	
+	private long[]  timeStampMillis = null;
+	private float[] values          = null;
+	private int[]   typeIDs         = null;
+	private int[]   statusCodes     = null;
+	private int[]   nameIndexes     = null;
+	private int[]   locationIndexes = null;
+	
+	private List<String> stringTable = new ArrayList<>();
+	private Map<String, Integer> stringIndexMap = new HashMap<>();
+	
+	
+	// constructors
+	
+	/**
+	 * Default.
+	 * 
+	 */
+	public SensorDataBatch()
+	{
+		this(DEFAULT_CAPACITY);
+	}
+	
+	/**
+	 * Constructor.
+	 * 
+	 * @param initialCapacity The initial number of readings to allocate space for.
+	 */
+	public SensorDataBatch(int initialCapacity)
+	{
+		super();
+		
+		allocate(Math.max(1, initialCapacity));
+	}
+	
+	
+	// public static methods
+	
+	/**
+	 * Creates a new batch containing the given readings, in order.
+	 * Null entries are skipped.
+	 * 
+	 * @param data The readings to add.
+	 * @return SensorDataBatch
+	 */
+	public static SensorDataBatch fromSensorData(SensorData ... data)
+	{
+		SensorDataBatch batch = new SensorDataBatch(data != null ? data.length : DEFAULT_CAPACITY);
+		
+		batch.addSensorData(data);
+		
+		return batch;
+	}
+	
+	
+	// public methods
+	
+	/**
+	 * Appends the given reading to this batch.
+	 * 
+	 * @param data The reading to add. If null, it's ignored.
+	 */
+	public void addSensorData(SensorData data)
+	{
+		if (data != null) {
+			addReading(
+				data.getName(), data.getLocationID(), data.getTypeID(),
+				data.getStatusCode(), data.getTimeStampMillis(), data.getValue());
+		}
+	}
+	
+	/**
+	 * Appends the given readings to this batch, in order.
+	 * Null entries are skipped.
+	 * 
+	 * @param data The readings to add.
+	 */
+	public void addSensorData(SensorData ... data)
+	{
+		if (data != null) {
+			ensureCapacity(this.size + data.length);
+			
+			for (SensorData item : data) {
+				addSensorData(item);
+			}
+		}
+	}
+	
+	/**
+	 * Appends a reading to this batch without requiring a {@link SensorData} instance.
+	 * 
+	 * @param name The sensor name.
+	 * @param locationID The location ID.
+	 * @param typeID The sensor type ID.
+	 * @param statusCode The status code.
+	 * @param timeStampMillis The timestamp, in milliseconds since the Epoch.
+	 * @param value The sensor value.
+	 */
+	public void addReading(String name, String locationID, int typeID, int statusCode, long timeStampMillis, float value)
+	{
+		ensureCapacity(this.size + 1);
+		
+		int i = this.size;
+		
+		this.nameIndexes[i]     = internString(name);
+		this.locationIndexes[i] = internString(locationID);
+		this.typeIDs[i]         = typeID;
+		this.statusCodes[i]     = statusCode;
+		this.timeStampMillis[i] = timeStampMillis;
+		this.values[i]          = value;
+		
+		this.size++;
+	}
+	
+	/**
+	 * Removes all readings and the string table, retaining the allocated arrays.
+	 * 
+	 */
+	public void clear()
+	{
+		this.size = 0;
+		this.stringTable.clear();
+		this.stringIndexMap.clear();
+	}
+	
+	/**
+	 * Ensures this batch can hold at least 'capacity' readings without
+	 * further resizing.
+	 * 
+	 * @param capacity The minimum capacity.
+	 */
+	public void ensureCapacity(int capacity)
+	{
+		if (capacity > this.values.length) {
+			allocate(Math.max(capacity, this.values.length * 2));
+		}
+	}
+	
+	public int size()
+	{
+		return this.size;
+	}
+	
+	public boolean isEmpty()
+	{
+		return (this.size == 0);
+	}
+	
+	public String getName(int index)
+	{
+		return this.stringTable.get(this.nameIndexes[checkIndex(index)]);
+	}
+	
+	public int getNameIndex(int index)
+	{
+		return this.nameIndexes[checkIndex(index)];
+	}
+	
+	public String getLocationID(int index)
+	{
+		return this.stringTable.get(this.locationIndexes[checkIndex(index)]);
+	}
+	
+	public int getLocationIndex(int index)
+	{
+		return this.locationIndexes[checkIndex(index)];
+	}
+	
+	public int getTypeID(int index)
+	{
+		return this.typeIDs[checkIndex(index)];
+	}
+	
+	public int getStatusCode(int index)
+	{
+		return this.statusCodes[checkIndex(index)];
+	}
+	
+	public long getTimeStampMillis(int index)
+	{
+		return this.timeStampMillis[checkIndex(index)];
+	}
+	
+	public float getValue(int index)
+	{
+		return this.values[checkIndex(index)];
+	}
+	
+	/**
+	 * Returns the interned string for the given string table index, as
+	 * returned by {@link #getNameIndex(int)} or {@link #getLocationIndex(int)}.
+	 * 
+	 * @param stringIndex The string table index.
+	 * @return String
+	 */
+	public String getString(int stringIndex)
+	{
+		return this.stringTable.get(stringIndex);
+	}
+	
+	/**
+	 * Returns the string table index for the given string, which can be compared
+	 * against {@link #getNameIndex(int)} or {@link #getLocationIndex(int)} to filter
+	 * readings without string comparisons.
+	 * 
+	 * @param str The string to look up.
+	 * @return int The string table index, or -1 if 'str' isn't in this batch.
+	 */
+	public int getStringIndex(String str)
+	{
+		Integer index = this.stringIndexMap.get(str);
+		
+		return (index != null ? index : -1);
+	}
+	
+	/**
+	 * 
+	 * @return int The number of distinct strings in the string table.
+	 */
+	public int getStringCount()
+	{
+		return this.stringTable.size();
+	}
+	
+	/**
+	 * Returns a copy of the timestamp column, trimmed to {@link #size()}.
+	 * 
+	 * @return long[]
+	 */
+	public long[] getTimeStampMillisColumn()
+	{
+		return Arrays.copyOf(this.timeStampMillis, this.size);
+	}
+	
+	/**
+	 * Returns a copy of the value column, trimmed to {@link #size()}.
+	 * 
+	 * @return float[]
+	 */
+	public float[] getValueColumn()
+	{
+		return Arrays.copyOf(this.values, this.size);
+	}
+	
+	/**
+	 * Creates a new SensorData instance for the reading at the given index.
+	 * 
+	 * @param index The reading index.
+	 * @return SensorData
+	 */
+	public SensorData getSensorData(int index)
+	{
+		checkIndex(index);
+		
+		SensorData data = IotDataRecycler.getInstance().acquireSensorData();
+		
+		data.setName(this.stringTable.get(this.nameIndexes[index]));
+		data.setLocationID(this.stringTable.get(this.locationIndexes[index]));
+		data.setTypeID(this.typeIDs[index]);
+		data.setStatusCode(this.statusCodes[index]);
+		data.setValue(this.values[index]);
+		
+		// the setters refresh the timestamp, so restore it last
+		data.setTimeStampMillis(this.timeStampMillis[index]);
+		
+		return data;
+	}
+	
+	/**
+	 * Creates a new SensorData instance for each reading in this batch, in order.
+	 * 
+	 * @return SensorData[]
+	 */
+	public SensorData[] toSensorDataArray()
+	{
+		SensorData[] data = new SensorData[this.size];
+		
+		for (int i = 0; i < this.size; i++) {
+			data[i] = getSensorData(i);
+		}
+		
+		return data;
+	}
+	
+	/**
+	 * Returns a string representation of this instance.
+	 * 
+	 * @return String
+	 */
+	public String toString()
+	{
+		StringBuilder sb = new StringBuilder(getClass().getSimpleName());
+		
+		sb.append(":size=").append(this.size);
+		sb.append(",strings=").append(this.stringTable.size());
+		
+		return sb.toString();
+	}
+	
+	
+	// package-private methods
+	
+	/**
+	 * Writes this batch in its compact binary form: a version byte, the
+	 * reading and string counts, the string table, then each column in turn.
+	 * 
+	 * @param out The output to write to.
+	 * @throws IOException If the output can't be written to.
+	 */
+	void writeTo(DataOutput out) throws IOException
+	{
+		out.writeByte(BINARY_FORMAT_VERSION);
+		out.writeInt(this.size);
+		out.writeInt(this.stringTable.size());
+		
+		for (String str : this.stringTable) {
+			out.writeBoolean(str != null);
+			
+			if (str != null) {
+				out.writeUTF(str);
+			}
+		}
+		
+		for (int i = 0; i < this.size; i++) out.writeInt(this.nameIndexes[i]);
+		for (int i = 0; i < this.size; i++) out.writeInt(this.locationIndexes[i]);
+		for (int i = 0; i < this.size; i++) out.writeInt(this.typeIDs[i]);
+		for (int i = 0; i < this.size; i++) out.writeInt(this.statusCodes[i]);
+		for (int i = 0; i < this.size; i++) out.writeLong(this.timeStampMillis[i]);
+		for (int i = 0; i < this.size; i++) out.writeFloat(this.values[i]);
+	}
+	
+	/**
+	 * Reads a batch previously written by {@link #writeTo(DataOutput)}.
+	 * The reading and string counts are checked against 'maxLength' and
+	 * {@link #MAX_BINARY_SIZE} before anything is allocated for them, so a
+	 * corrupt or hostile header can't exhaust the heap.
+	 * 
+	 * @param in The input to read from.
+	 * @param maxLength The number of bytes available, such as a payload's length.
+	 * @return SensorDataBatch
+	 * @throws IOException If the input can't be read or isn't a valid batch.
+	 */
+	static SensorDataBatch readFrom(DataInput in, long maxLength) throws IOException
+	{
+		int version = in.readUnsignedByte();
+		
+		if (version != BINARY_FORMAT_VERSION) {
+			throw new IOException("Unsupported sensor data batch format version: " + version);
+		}
+		
+		int size = in.readInt();
+		int stringCount = in.readInt();
+		
+		long minLength =
+			BINARY_HEADER_BYTES + (long) size * BINARY_READING_BYTES + (long) stringCount * BINARY_MIN_STRING_BYTES;
+		
+		if (size < 0 || stringCount < 0 || size > MAX_BINARY_SIZE || stringCount > MAX_BINARY_SIZE ||
+			minLength > maxLength)
+		{
+			throw new IOException(
+				"Invalid sensor data batch header: size=" + size + ", strings=" + stringCount +
+				", bytes available=" + maxLength);
+		}
+		
+		SensorDataBatch batch = new SensorDataBatch(size);
+		
+		for (int i = 0; i < stringCount; i++) {
+			String str = (in.readBoolean() ? in.readUTF() : null);
+			
+			batch.stringIndexMap.put(str, i);
+			batch.stringTable.add(str);
+		}
+		
+		for (int i = 0; i < size; i++) batch.nameIndexes[i] = readStringIndex(in, stringCount);
+		for (int i = 0; i < size; i++) batch.locationIndexes[i] = readStringIndex(in, stringCount);
+		for (int i = 0; i < size; i++) batch.typeIDs[i] = in.readInt();
+		for (int i = 0; i < size; i++) batch.statusCodes[i] = in.readInt();
+		for (int i = 0; i < size; i++) batch.timeStampMillis[i] = in.readLong();
+		for (int i = 0; i < size; i++) batch.values[i] = in.readFloat();
+		
+		batch.size = size;
+		
+		return batch;
+	}
+	
+	
+	// private methods
+	
+	private static int readStringIndex(DataInput in, int stringCount) throws IOException
+	{
+		int index = in.readInt();
+		
+		if (index < 0 || index >= stringCount) {
+			throw new IOException("Invalid sensor data batch string index: " + index);
+		}
+		
+		return index;
+	}
+	
+	private void allocate(int capacity)
+	{
+		if (this.values == null) {
+			this.timeStampMillis = new long[capacity];
+			this.values          = new float[capacity];
+			this.typeIDs         = new int[capacity];
+			this.statusCodes     = new int[capacity];
+			this.nameIndexes     = new int[capacity];
+			this.locationIndexes = new int[capacity];
+		} else {
+			this.timeStampMillis = Arrays.copyOf(this.timeStampMillis, capacity);
+			this.values          = Arrays.copyOf(this.values, capacity);
+			this.typeIDs         = Arrays.copyOf(this.typeIDs, capacity);
+			this.statusCodes     = Arrays.copyOf(this.statusCodes, capacity);
+			this.nameIndexes     = Arrays.copyOf(this.nameIndexes, capacity);
+			this.locationIndexes = Arrays.copyOf(this.locationIndexes, capacity);
+		}
+	}
+	
+	private int checkIndex(int index)
+	{
+		if (index < 0 || index >= this.size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", size: " + this.size);
+		}
+		
+		return index;
+	}
+	
+	private int internString(String str)
+	{
+		Integer index = this.stringIndexMap.get(str);
+		
+		if (index == null) {
+			index = this.stringTable.size();
+			
+			this.stringTable.add(str);
+			this.stringIndexMap.put(str, index);
+		}
+		
+		return index;
+	}
+	
+}
@@ -0,0 +1,221 @@
+/**
+ * This class is part of the Programming the Internet of Things
+ * project, and is available via the MIT License, which can be
+ * found in the LICENSE file at the top level of this repository.
+ *
+ * Copyright (c) 2020 by Andrew D. King
+ */
+
+package programmingtheiot.data;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import programmingtheiot.common.ConfigConst;
+
+/**
+ * Gson type adapter for {@link SensorDataBatch}. The batch is written in
+ * its columnar form - the string table followed by one JSON array per
+ * column - so repeated names and location ID's are only written once.
+ *
+ */
+final class SensorDataBatchTypeAdapter extends TypeAdapter<SensorDataBatch>
+{
+	// static
+
+	static final String STRINGS_PROP          = "strings";
+	static final String NAME_INDEXES_PROP     = "nameIndexes";
+	static final String LOCATION_INDEXES_PROP = "locationIndexes";
+
+
+	// public methods
+
+	@Override
+	public void write(JsonWriter out, SensorDataBatch batch) throws IOException
+	{
+		if (batch == null) {
+			out.nullValue();
+			return;
+		}
+
+		int size = batch.size();
+
+		out.beginObject();
+
+		out.name(STRINGS_PROP).beginArray();
+		for (int i = 0; i < batch.getStringCount(); i++) out.value(batch.getString(i));
+		out.endArray();
+
+		out.name(NAME_INDEXES_PROP).beginArray();
+		for (int i = 0; i < size; i++) out.value(batch.getNameIndex(i));
+		out.endArray();
+
+		out.name(LOCATION_INDEXES_PROP).beginArray();
+		for (int i = 0; i < size; i++) out.value(batch.getLocationIndex(i));
+		out.endArray();
+
+		out.name(ConfigConst.TYPE_ID_PROP).beginArray();
+		for (int i = 0; i < size; i++) out.value(batch.getTypeID(i));
+		out.endArray();
+
+		out.name(ConfigConst.STATUS_CODE_PROP).beginArray();
+		for (int i = 0; i < size; i++) out.value(batch.getStatusCode(i));
+		out.endArray();
+
+		out.name(ConfigConst.TIMESTAMP_MILLIS_PROP).beginArray();
+		for (int i = 0; i < size; i++) out.value(batch.getTimeStampMillis(i));
+		out.endArray();
+
+		out.name(ConfigConst.VALUE_PROP).beginArray();
+		for (int i = 0; i < size; i++) out.value(batch.getValue(i));
+		out.endArray();
+
+		out.endObject();
+	}
+
+	@Override
+	public SensorDataBatch read(JsonReader in) throws IOException
+	{
+		if (in.peek() == JsonToken.NULL) {
+			in.nextNull();
+			return null;
+		}
+
+		String[] strings         = new String[0];
+		long[]   nameIndexes     = new long[0];
+		long[]   locationIndexes = new long[0];
+		long[]   typeIDs         = new long[0];
+		long[]   statusCodes     = new long[0];
+		long[]   timeStamps      = new long[0];
+		float[]  values          = new float[0];
+
+		in.beginObject();
+
+		while (in.hasNext()) {
+			String name = in.nextName();
+
+			if (in.peek() == JsonToken.NULL) {
+				in.nextNull();
+				continue;
+			}
+
+			switch (name) {
+				case STRINGS_PROP:
+					strings = readStrings(in); break;
+
+				case NAME_INDEXES_PROP:
+					nameIndexes = readLongs(in); break;
+
+				case LOCATION_INDEXES_PROP:
+					locationIndexes = readLongs(in); break;
+
+				case ConfigConst.TYPE_ID_PROP:
+					typeIDs = readLongs(in); break;
+
+				case ConfigConst.STATUS_CODE_PROP:
+					statusCodes = readLongs(in); break;
+
+				case ConfigConst.TIMESTAMP_MILLIS_PROP:
+					timeStamps = readLongs(in); break;
+
+				case ConfigConst.VALUE_PROP:
+					values = readFloats(in); break;
+
+				default:
+					in.skipValue();
+			}
+		}
+
+		in.endObject();
+
+		int size = values.length;
+
+		if (nameIndexes.length != size || locationIndexes.length != size || typeIDs.length != size ||
+			statusCodes.length != size || timeStamps.length != size) {
+			throw new JsonParseException("Sensor data batch columns differ in length.");
+		}
+
+		SensorDataBatch batch = new SensorDataBatch(size);
+
+		try {
+			for (int i = 0; i < size; i++) {
+				batch.addReading(
+					strings[(int) nameIndexes[i]], strings[(int) locationIndexes[i]],
+					(int) typeIDs[i], (int) statusCodes[i], timeStamps[i], values[i]);
+			}
+		} catch (IndexOutOfBoundsException e) {
+			throw new JsonParseException("Sensor data batch string index is invalid.", e);
+		}
+
+		return batch;
+	}
+
+
+	// private methods
+
+	private String[] readStrings(JsonReader in) throws IOException
+	{
+		String[] items = new String[8];
+		int count = 0;
+
+		in.beginArray();
+
+		while (in.hasNext()) {
+			if (count == items.length) items = Arrays.copyOf(items, count * 2);
+
+			if (in.peek() == JsonToken.NULL) {
+				in.nextNull();
+				items[count++] = null;
+			} else {
+				items[count++] = in.nextString();
+			}
+		}
+
+		in.endArray();
+
+		return Arrays.copyOf(items, count);
+	}
+
+	private long[] readLongs(JsonReader in) throws IOException
+	{
+		long[] items = new long[64];
+		int count = 0;
+
+		in.beginArray();
+
+		while (in.hasNext()) {
+			if (count == items.length) items = Arrays.copyOf(items, count * 2);
+
+			items[count++] = in.nextLong();
+		}
+
+		in.endArray();
+
+		return Arrays.copyOf(items, count);
+	}
+
+	private float[] readFloats(JsonReader in) throws IOException
+	{
+		float[] items = new float[64];
+		int count = 0;
+
+		in.beginArray();
+
+		while (in.hasNext()) {
+			if (count == items.length) items = Arrays.copyOf(items, count * 2);
+
+			items[count++] = (float) in.nextDouble();
+		}
+
+		in.endArray();
+
+		return Arrays.copyOf(items, count);
+	}
+
+}
@@ -0,0 +1,49 @@
+/**
+ * This class is part of the Programming the Internet of Things
+ * project, and is available via the MIT License, which can be
+ * found in the LICENSE file at the top level of this repository.
+ *
+ * Copyright (c) 2020 by Andrew D. King
+ */
+
+package programmingtheiot.data;
+
+import java.io.IOException;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import programmingtheiot.common.ConfigConst;
+
+/**
+ * Gson type adapter for {@link SensorData}.
+ *
+ */
+final class SensorDataTypeAdapter extends BaseIotDataTypeAdapter<SensorData>
+{
+	// protected methods
+
+	@Override
+	protected SensorData createData()
+	{
+		return IotDataRecycler.getInstance().acquireSensorData();
+	}
+
+	@Override
+	protected void writeFields(JsonWriter out, SensorData data) throws IOException
+	{
+		out.name(ConfigConst.VALUE_PROP).value(data.getValue());
+	}
+
+	@Override
+	protected boolean readField(JsonReader in, String name, SensorData data) throws IOException
+	{
+		if (ConfigConst.VALUE_PROP.equals(name)) {
+			data.setValue((float) in.nextDouble());
+			return true;
+		}
+
+		return false;
+	}
+
+}
@@ -107,4 +107,16 @@ public class SystemPerformanceData extends BaseIotData implements Serializable
 		}
 	}
 	
+	/* (non-Javadoc)
+	 * @see programmingtheiot.data.BaseIotData#handleResetData()
+	 */
+	protected void handleResetData()
+	{
+		super.setName(ConfigConst.SYS_PERF_DATA);
+		
+		this.cpuUtil  = ConfigConst.DEFAULT_VAL;
+		this.diskUtil = ConfigConst.DEFAULT_VAL;
+		this.memUtil  = ConfigConst.DEFAULT_VAL;
+	}
+	
 }
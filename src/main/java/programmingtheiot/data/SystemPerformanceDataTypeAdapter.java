@@ -0,0 +1,58 @@
+/**
+ * This class is part of the Programming the Internet of Things
+ * project, and is available via the MIT License, which can be
+ * found in the LICENSE file at the top level of this repository.
+ *
+ * Copyright (c) 2020 by Andrew D. King
+ */
+
+package programmingtheiot.data;
+
+import java.io.IOException;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import programmingtheiot.common.ConfigConst;
+
+/**
+ * Gson type adapter for {@link SystemPerformanceData}.
+ *
+ */
+final class SystemPerformanceDataTypeAdapter extends BaseIotDataTypeAdapter<SystemPerformanceData>
+{
+	// protected methods
+
+	@Override
+	protected SystemPerformanceData createData()
+	{
+		return IotDataRecycler.getInstance().acquireSystemPerformanceData();
+	}
+
+	@Override
+	protected void writeFields(JsonWriter out, SystemPerformanceData data) throws IOException
+	{
+		out.name(ConfigConst.CPU_UTIL_PROP).value(data.getCpuUtilization());
+		out.name(ConfigConst.DISK_UTIL_PROP).value(data.getDiskUtilization());
+		out.name(ConfigConst.MEM_UTIL_PROP).value(data.getMemoryUtilization());
+	}
+
+	@Override
+	protected boolean readField(JsonReader in, String name, SystemPerformanceData data) throws IOException
+	{
+		switch (name) {
+			case ConfigConst.CPU_UTIL_PROP:
+				data.setCpuUtilization((float) in.nextDouble()); return true;
+
+			case ConfigConst.DISK_UTIL_PROP:
+				data.setDiskUtilization((float) in.nextDouble()); return true;
+
+			case ConfigConst.MEM_UTIL_PROP:
+				data.setMemoryUtilization((float) in.nextDouble()); return true;
+
+			default:
+				return false;
+		}
+	}
+
+}
@@ -122,4 +122,18 @@ public class SystemStateData extends BaseIotData implements Serializable
 		}
 	}
 	
+	/* (non-Javadoc)
+	 * @see programmingtheiot.data.BaseIotData#handleResetData()
+	 */
+	protected void handleResetData()
+	{
+		super.setName(ConfigConst.SYS_STATE_DATA);
+		
+		this.command = ConfigConst.DEFAULT_COMMAND;
+		
+		// the lists may be shared via updateData(), so replace rather than clear them
+		this.sysPerfDataList = new ArrayList<>();
+		this.sensorDataList  = new ArrayList<>();
+	}
+	
 }
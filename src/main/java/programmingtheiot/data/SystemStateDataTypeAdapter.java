@@ -0,0 +1,130 @@
+/**
+ * This class is part of the Programming the Internet of Things
+ * project, and is available via the MIT License, which can be
+ * found in the LICENSE file at the top level of this repository.
+ *
+ * Copyright (c) 2020 by Andrew D. King
+ */
+
+package programmingtheiot.data;
+
+import java.io.IOException;
+import java.util.List;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import programmingtheiot.common.ConfigConst;
+
+/**
+ * Gson type adapter for {@link SystemStateData}. The contained lists
+ * are written and read using the {@link SensorData} and
+ * {@link SystemPerformanceData} adapters.
+ *
+ */
+final class SystemStateDataTypeAdapter extends BaseIotDataTypeAdapter<SystemStateData>
+{
+	// static
+
+	// the reflective adapter uses the field name, which differs
+	// from ConfigConst.SYSTEM_PERF_DATA_LIST_PROP - both are accepted
+	// on read, but the field name is written to remain compatible
+	private static final String SYS_PERF_DATA_LIST_FIELD = "sysPerfDataList";
+
+
+	// private var's
+
+	private SensorDataTypeAdapter sensorDataAdapter = null;
+	private SystemPerformanceDataTypeAdapter sysPerfDataAdapter = null;
+
+
+	// constructors
+
+	/**
+	 * Constructor.
+	 *
+	 * @param sensorDataAdapter The adapter to use for the sensor data list.
+	 * @param sysPerfDataAdapter The adapter to use for the system performance data list.
+	 */
+	SystemStateDataTypeAdapter(
+		SensorDataTypeAdapter sensorDataAdapter, SystemPerformanceDataTypeAdapter sysPerfDataAdapter)
+	{
+		super();
+
+		this.sensorDataAdapter  = sensorDataAdapter;
+		this.sysPerfDataAdapter = sysPerfDataAdapter;
+	}
+
+
+	// protected methods
+
+	@Override
+	protected SystemStateData createData()
+	{
+		return new SystemStateData();
+	}
+
+	@Override
+	protected void writeFields(JsonWriter out, SystemStateData data) throws IOException
+	{
+		out.name(ConfigConst.COMMAND_PROP).value(data.getCommand());
+
+		List<SystemPerformanceData> sysPerfDataList = data.getSystemPerformanceDataList();
+
+		if (sysPerfDataList != null) {
+			out.name(SYS_PERF_DATA_LIST_FIELD).beginArray();
+
+			for (SystemPerformanceData spd : sysPerfDataList) {
+				this.sysPerfDataAdapter.write(out, spd);
+			}
+
+			out.endArray();
+		}
+
+		List<SensorData> sensorDataList = data.getSensorDataList();
+
+		if (sensorDataList != null) {
+			out.name(ConfigConst.SENSOR_DATA_LIST_PROP).beginArray();
+
+			for (SensorData sd : sensorDataList) {
+				this.sensorDataAdapter.write(out, sd);
+			}
+
+			out.endArray();
+		}
+	}
+
+	@Override
+	protected boolean readField(JsonReader in, String name, SystemStateData data) throws IOException
+	{
+		switch (name) {
+			case ConfigConst.COMMAND_PROP:
+				data.setCommand(in.nextInt()); return true;
+
+			case SYS_PERF_DATA_LIST_FIELD:
+			case ConfigConst.SYSTEM_PERF_DATA_LIST_PROP:
+				in.beginArray();
+
+				while (in.hasNext()) {
+					data.addSystemPerformanceData(this.sysPerfDataAdapter.read(in));
+				}
+
+				in.endArray();
+				return true;
+
+			case ConfigConst.SENSOR_DATA_LIST_PROP:
+				in.beginArray();
+
+				while (in.hasNext()) {
+					data.addSensorData(this.sensorDataAdapter.read(in));
+				}
+
+				in.endArray();
+				return true;
+
+			default:
+				return false;
+		}
+	}
+
+}
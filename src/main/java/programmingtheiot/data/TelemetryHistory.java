@@ -0,0 +1,175 @@
+/**
+ * This class is part of the Programming the Internet of Things
+ * project, and is available via the MIT License, which can be
+ * found in the LICENSE file at the top level of this repository.
+ * 
+ * Copyright (c) 2020 by Andrew D. King
+ */
+
+package programmingtheiot.data;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Logger;
+
+import programmingtheiot.common.ConfigConst;
+import programmingtheiot.common.ResourceNameEnum;
+
+/**
+ * Recent telemetry history, with one {@link TelemetryRingBuffer} per
+ * {@link ResourceNameEnum}. Each ring buffer is allocated when the first
+ * reading for its resource is appended.
+ * 
+ */
+public class TelemetryHistory
+{
+	// static
+	
+	private static final Logger _Logger =
+		Logger.getLogger(TelemetryHistory.class.getName());
+	
+	
+	// private var's
+	
+	private final int capacityPerResource;
+	
+	private final ConcurrentMap<ResourceNameEnum, TelemetryRingBuffer> ringBufferMap =
+		new ConcurrentHashMap<>();
+	
+	
+	// constructors
+	
+	/**
+	 * Default.
+	 * 
+	 */
+	public TelemetryHistory()
+	{
+		this(ConfigConst.DEFAULT_TELEMETRY_HISTORY_SIZE);
+	}
+	
+	/**
+	 * Constructor.
+	 * 
+	 * @param capacityPerResource The number of records retained for each resource.
+	 */
+	public TelemetryHistory(int capacityPerResource)
+	{
+		super();
+		
+		if (capacityPerResource <= 0) {
+			capacityPerResource = ConfigConst.DEFAULT_TELEMETRY_HISTORY_SIZE;
+		}
+		
+		this.capacityPerResource = capacityPerResource;
+		
+		_Logger.info("Telemetry history records per resource: " + this.capacityPerResource);
+	}
+	
+	
+	// public methods
+	
+	/**
+	 * Appends the given reading to the history for 'resourceName'.
+	 * 
+	 * @param resourceName The resource the reading was received on.
+	 * @param data The reading to append.
+	 * @return boolean True if appended; false if either parameter is null.
+	 */
+	public boolean append(ResourceNameEnum resourceName, SensorData data)
+	{
+		if (resourceName != null && data != null) {
+			getOrCreateRingBuffer(resourceName).append(data);
+			
+			return true;
+		}
+		
+		return false;
+	}
+	
+	/**
+	 * Appends the given reading to the history for 'resourceName'.
+	 * 
+	 * @param resourceName The resource the reading was received on.
+	 * @param data The reading to append.
+	 * @return boolean True if appended; false if either parameter is null.
+	 */
+	public boolean append(ResourceNameEnum resourceName, SystemPerformanceData data)
+	{
+		if (resourceName != null && data != null) {
+			getOrCreateRingBuffer(resourceName).append(data);
+			
+			return true;
+		}
+		
+		return false;
+	}
+	
+	/**
+	 * Removes all records for all resources. The ring buffers are retained.
+	 * 
+	 */
+	public void clear()
+	{
+		this.ringBufferMap.values().forEach(TelemetryRingBuffer::clear);
+	}
+	
+	public int getCapacityPerResource()
+	{
+		return this.capacityPerResource;
+	}
+	
+	/**
+	 * 
+	 * @param resourceName The resource to look up.
+	 * @return TelemetryRingBuffer The ring buffer, or null if nothing has been
+	 * appended for 'resourceName'.
+	 */
+	public TelemetryRingBuffer getRingBuffer(ResourceNameEnum resourceName)
+	{
+		return (resourceName != null ? this.ringBufferMap.get(resourceName) : null);
+	}
+	
+	/**
+	 * Returns the SensorData records for 'resourceName' with timestamps in the
+	 * given inclusive range, oldest first.
+	 * 
+	 * @param resourceName The resource to query.
+	 * @param fromMillis The earliest timestamp, in milliseconds since the Epoch.
+	 * @param toMillis The latest timestamp, in milliseconds since the Epoch.
+	 * @return List<SensorData> The matching records, which may be empty.
+	 */
+	public List<SensorData> getSensorData(ResourceNameEnum resourceName, long fromMillis, long toMillis)
+	{
+		TelemetryRingBuffer ringBuffer = getRingBuffer(resourceName);
+		
+		return (ringBuffer != null ? ringBuffer.getSensorData(fromMillis, toMillis) : Collections.emptyList());
+	}
+	
+	/**
+	 * Returns the SystemPerformanceData records for 'resourceName' with
+	 * timestamps in the given inclusive range, oldest first.
+	 * 
+	 * @param resourceName The resource to query.
+	 * @param fromMillis The earliest timestamp, in milliseconds since the Epoch.
+	 * @param toMillis The latest timestamp, in milliseconds since the Epoch.
+	 * @return List<SystemPerformanceData> The matching records, which may be empty.
+	 */
+	public List<SystemPerformanceData> getSystemPerformanceData(ResourceNameEnum resourceName, long fromMillis, long toMillis)
+	{
+		TelemetryRingBuffer ringBuffer = getRingBuffer(resourceName);
+		
+		return (ringBuffer != null ? ringBuffer.getSystemPerformanceData(fromMillis, toMillis) : Collections.emptyList());
+	}
+	
+	
+	// private methods
+	
+	private TelemetryRingBuffer getOrCreateRingBuffer(ResourceNameEnum resourceName)
+	{
+		return this.ringBufferMap.computeIfAbsent(resourceName, key -> new TelemetryRingBuffer(this.capacityPerResource));
+	}
+	
+}
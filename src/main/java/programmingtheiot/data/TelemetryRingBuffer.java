@@ -0,0 +1,420 @@
+/**
+ * This class is part of the Programming the Internet of Things
+ * project, and is available via the MIT License, which can be
+ * found in the LICENSE file at the top level of this repository.
+ * 
+ * Copyright (c) 2020 by Andrew D. King
+ */
+
+package programmingtheiot.data;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import programmingtheiot.common.ConfigConst;
+
+/**
+ * Fixed capacity ring buffer of {@link SensorData} and {@link SystemPerformanceData}
+ * readings, stored as fixed-size records in a direct (off-heap) {@link ByteBuffer}.
+ * <p>
+ * Once full, each append overwrites the oldest record, so the heap cost is
+ * constant regardless of capacity - only names and location ID's are kept
+ * on-heap, interned into a small string table. Readings can be retrieved by
+ * timestamp range, which uses a binary search as long as the retained
+ * readings are in timestamp order, and a linear scan otherwise. Once any
+ * out-of-order readings have been overwritten, binary searches resume.
+ * <p>
+ * Reads and appends may be invoked from different threads.
+ * 
+ */
+public class TelemetryRingBuffer
+{
+	// static
+	
+	/** Maximum distinct names and location ID's retained; any beyond are read back as NOT_SET. */
+	public static final int MAX_STRING_COUNT = 4096;
+	
+	// record layout
+	private static final int TIMESTAMP_OFFSET   = 0;
+	private static final int KIND_OFFSET        = 8;
+	private static final int TYPE_ID_OFFSET     = 12;
+	private static final int STATUS_CODE_OFFSET = 16;
+	private static final int NAME_OFFSET        = 20;
+	private static final int LOCATION_OFFSET    = 24;
+	private static final int VALUE_0_OFFSET     = 28;
+	private static final int VALUE_1_OFFSET     = 32;
+	private static final int VALUE_2_OFFSET     = 36;
+	private static final int LATITUDE_OFFSET    = 40;
+	private static final int LONGITUDE_OFFSET   = 44;
+	private static final int ELEVATION_OFFSET   = 48;
+	
+	public static final int RECORD_SIZE = 56;
+	
+	private static final int SENSOR_DATA_KIND   = 1;
+	private static final int SYS_PERF_DATA_KIND = 2;
+	
+	private static final int NO_STRING_INDEX = -1;
+	
+	
+	// private var's
+	
+	private final ByteBuffer records;
+	private final int capacity;
+	
+	// index of the oldest record, and the number of valid records
+	private int head  = 0;
+	private int count = 0;
+	
+	private long newestTimeStampMillis = Long.MIN_VALUE;
+	
+	// the number of retained records older than the record before them
+	private int outOfOrderCount = 0;
+	
+	private final List<String> stringTable = new ArrayList<>();
+	private final Map<String, Integer> stringIndexMap = new HashMap<>();
+	
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	
+	
+	// constructors
+	
+	/**
+	 * Constructor.
+	 * 
+	 * @param capacity The maximum number of records retained. The buffer
+	 * will allocate capacity * {@link #RECORD_SIZE} bytes off-heap.
+	 */
+	public TelemetryRingBuffer(int capacity)
+	{
+		super();
+		
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+		}
+		
+		this.capacity = capacity;
+		this.records  = ByteBuffer.allocateDirect(Math.multiplyExact(capacity, RECORD_SIZE));
+	}
+	
+	
+	// public methods
+	
+	/**
+	 * Appends the given reading, overwriting the oldest record if full.
+	 * 
+	 * @param data The reading to append. If null, it's ignored.
+	 */
+	public void append(SensorData data)
+	{
+		if (data != null) {
+			append(SENSOR_DATA_KIND, data, data.getValue(), 0.0f, 0.0f);
+		}
+	}
+	
+	/**
+	 * Appends the given reading, overwriting the oldest record if full.
+	 * 
+	 * @param data The reading to append. If null, it's ignored.
+	 */
+	public void append(SystemPerformanceData data)
+	{
+		if (data != null) {
+			append(
+				SYS_PERF_DATA_KIND, data,
+				data.getCpuUtilization(), data.getDiskUtilization(), data.getMemoryUtilization());
+		}
+	}
+	
+	/**
+	 * Removes all records.
+	 * 
+	 */
+	public void clear()
+	{
+		this.lock.writeLock().lock();
+		
+		try {
+			this.head  = 0;
+			this.count = 0;
+			this.newestTimeStampMillis = Long.MIN_VALUE;
+			this.outOfOrderCount = 0;
+		} finally {
+			this.lock.writeLock().unlock();
+		}
+	}
+	
+	public int getCapacity()
+	{
+		return this.capacity;
+	}
+	
+	/**
+	 * Returns the SensorData records with timestamps in the given inclusive
+	 * range, oldest first.
+	 * 
+	 * @param fromMillis The earliest timestamp, in milliseconds since the Epoch.
+	 * @param toMillis The latest timestamp, in milliseconds since the Epoch.
+	 * @return List<SensorData> The matching records, which may be empty.
+	 */
+	public List<SensorData> getSensorData(long fromMillis, long toMillis)
+	{
+		List<SensorData> dataList = new ArrayList<>();
+		
+		this.lock.readLock().lock();
+		
+		try {
+			int start = findFirst(fromMillis);
+			
+			for (int i = start; i < this.count; i++) {
+				int offset = recordOffset(i);
+				long millis = this.records.getLong(offset + TIMESTAMP_OFFSET);
+				
+				if (millis > toMillis && this.outOfOrderCount == 0) {
+					break;
+				}
+				
+				if (millis >= fromMillis && millis <= toMillis &&
+					this.records.getInt(offset + KIND_OFFSET) == SENSOR_DATA_KIND) {
+					SensorData data = new SensorData();
+					
+					readBase(offset, data);
+					data.setValue(this.records.getFloat(offset + VALUE_0_OFFSET));
+					data.setTimeStampMillis(millis);
+					
+					dataList.add(data);
+				}
+			}
+		} finally {
+			this.lock.readLock().unlock();
+		}
+		
+		return dataList;
+	}
+	
+	/**
+	 * Returns the SystemPerformanceData records with timestamps in the given
+	 * inclusive range, oldest first.
+	 * 
+	 * @param fromMillis The earliest timestamp, in milliseconds since the Epoch.
+	 * @param toMillis The latest timestamp, in milliseconds since the Epoch.
+	 * @return List<SystemPerformanceData> The matching records, which may be empty.
+	 */
+	public List<SystemPerformanceData> getSystemPerformanceData(long fromMillis, long toMillis)
+	{
+		List<SystemPerformanceData> dataList = new ArrayList<>();
+		
+		this.lock.readLock().lock();
+		
+		try {
+			int start = findFirst(fromMillis);
+			
+			for (int i = start; i < this.count; i++) {
+				int offset = recordOffset(i);
+				long millis = this.records.getLong(offset + TIMESTAMP_OFFSET);
+				
+				if (millis > toMillis && this.outOfOrderCount == 0) {
+					break;
+				}
+				
+				if (millis >= fromMillis && millis <= toMillis &&
+					this.records.getInt(offset + KIND_OFFSET) == SYS_PERF_DATA_KIND) {
+					SystemPerformanceData data = new SystemPerformanceData();
+					
+					readBase(offset, data);
+					data.setCpuUtilization(this.records.getFloat(offset + VALUE_0_OFFSET));
+					data.setDiskUtilization(this.records.getFloat(offset + VALUE_1_OFFSET));
+					data.setMemoryUtilization(this.records.getFloat(offset + VALUE_2_OFFSET));
+					data.setTimeStampMillis(millis);
+					
+					dataList.add(data);
+				}
+			}
+		} finally {
+			this.lock.readLock().unlock();
+		}
+		
+		return dataList;
+	}
+	
+	/**
+	 * 
+	 * @return boolean True if the retained records are in timestamp order,
+	 * so range scans can use a binary search.
+	 */
+	public boolean isOrdered()
+	{
+		this.lock.readLock().lock();
+		
+		try {
+			return (this.outOfOrderCount == 0);
+		} finally {
+			this.lock.readLock().unlock();
+		}
+	}
+	
+	/**
+	 * 
+	 * @return long The oldest record's timestamp, or Long.MIN_VALUE if empty.
+	 */
+	public long getOldestTimeStampMillis()
+	{
+		this.lock.readLock().lock();
+		
+		try {
+			return (this.count > 0 ? this.records.getLong(recordOffset(0) + TIMESTAMP_OFFSET) : Long.MIN_VALUE);
+		} finally {
+			this.lock.readLock().unlock();
+		}
+	}
+	
+	/**
+	 * 
+	 * @return long The newest record's timestamp, or Long.MIN_VALUE if empty.
+	 */
+	public long getNewestTimeStampMillis()
+	{
+		this.lock.readLock().lock();
+		
+		try {
+			return (this.count > 0 ? this.records.getLong(recordOffset(this.count - 1) + TIMESTAMP_OFFSET) : Long.MIN_VALUE);
+		} finally {
+			this.lock.readLock().unlock();
+		}
+	}
+	
+	public int size()
+	{
+		this.lock.readLock().lock();
+		
+		try {
+			return this.count;
+		} finally {
+			this.lock.readLock().unlock();
+		}
+	}
+	
+	
+	// private methods
+	
+	private void append(int kind, BaseIotData data, float val0, float val1, float val2)
+	{
+		long millis = data.getTimeStampMillis();
+		
+		this.lock.writeLock().lock();
+		
+		try {
+			int offset;
+			
+			if (this.count < this.capacity) {
+				offset = recordOffset(this.count);
+				this.count++;
+			} else {
+				// the oldest record is overwritten, so it's no longer out of order with its successor
+				if (this.count > 1 && timeStampMillisAt(1) < timeStampMillisAt(0)) {
+					this.outOfOrderCount--;
+				}
+				
+				offset = this.head * RECORD_SIZE;
+				this.head = (this.head + 1) % this.capacity;
+			}
+			
+			if (this.count > 1 && millis < this.newestTimeStampMillis) {
+				this.outOfOrderCount++;
+			}
+			
+			this.newestTimeStampMillis = millis;
+			
+			this.records.putLong(offset + TIMESTAMP_OFFSET, millis);
+			this.records.putInt(offset + KIND_OFFSET, kind);
+			this.records.putInt(offset + TYPE_ID_OFFSET, data.getTypeID());
+			this.records.putInt(offset + STATUS_CODE_OFFSET, data.getStatusCode());
+			this.records.putInt(offset + NAME_OFFSET, internString(data.getName()));
+			this.records.putInt(offset + LOCATION_OFFSET, internString(data.getLocationID()));
+			this.records.putFloat(offset + VALUE_0_OFFSET, val0);
+			this.records.putFloat(offset + VALUE_1_OFFSET, val1);
+			this.records.putFloat(offset + VALUE_2_OFFSET, val2);
+			this.records.putFloat(offset + LATITUDE_OFFSET, data.getLatitude());
+			this.records.putFloat(offset + LONGITUDE_OFFSET, data.getLongitude());
+			this.records.putFloat(offset + ELEVATION_OFFSET, data.getElevation());
+		} finally {
+			this.lock.writeLock().unlock();
+		}
+	}
+	
+	/**
+	 * Returns the logical index (0 being the oldest) of the first record that
+	 * may have a timestamp of at least 'fromMillis'. Must be called with the
+	 * read lock held.
+	 */
+	private int findFirst(long fromMillis)
+	{
+		if (this.outOfOrderCount > 0) {
+			return 0;
+		}
+		
+		int low  = 0;
+		int high = this.count;
+		
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			
+			if (timeStampMillisAt(mid) < fromMillis) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		
+		return low;
+	}
+	
+	private int internString(String str)
+	{
+		Integer index = this.stringIndexMap.get(str);
+		
+		if (index == null) {
+			if (this.stringTable.size() >= MAX_STRING_COUNT) {
+				return NO_STRING_INDEX;
+			}
+			
+			index = this.stringTable.size();
+			
+			this.stringTable.add(str);
+			this.stringIndexMap.put(str, index);
+		}
+		
+		return index;
+	}
+	
+	private void readBase(int offset, BaseIotData data)
+	{
+		data.setName(lookupString(this.records.getInt(offset + NAME_OFFSET)));
+		data.setLocationID(lookupString(this.records.getInt(offset + LOCATION_OFFSET)));
+		data.setTypeID(this.records.getInt(offset + TYPE_ID_OFFSET));
+		data.setStatusCode(this.records.getInt(offset + STATUS_CODE_OFFSET));
+		data.setLatitude(this.records.getFloat(offset + LATITUDE_OFFSET));
+		data.setLongitude(this.records.getFloat(offset + LONGITUDE_OFFSET));
+		data.setElevation(this.records.getFloat(offset + ELEVATION_OFFSET));
+	}
+	
+	private String lookupString(int index)
+	{
+		return (index == NO_STRING_INDEX ? ConfigConst.NOT_SET : this.stringTable.get(index));
+	}
+	
+	private int recordOffset(int logicalIndex)
+	{
+		return ((this.head + logicalIndex) % this.capacity) * RECORD_SIZE;
+	}
+	
+	private long timeStampMillisAt(int logicalIndex)
+	{
+		return this.records.getLong(recordOffset(logicalIndex) + TIMESTAMP_OFFSET);
+	}
+	
+}
@@ -0,0 +1,228 @@
+/**
+ * This class is part of the Programming the Internet of Things
+ * project, and is available via the MIT License, which can be
+ * found in the LICENSE file at the top level of this repository.
+ * 
+ * Copyright (c) 2020 by Andrew D. King
+ */
+
+package programmingtheiot.gda.analytics;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+import programmingtheiot.common.ConfigConst;
+import programmingtheiot.common.EdgeRuleConfig;
+import programmingtheiot.data.ActuatorData;
+import programmingtheiot.data.BaseIotData;
+
+/**
+ * Base class for the edge analytics rules evaluated by {@link EdgeRuleEngine}.
+ * <p>
+ * A rule is either active or inactive for each device it sees readings from,
+ * and emits an actuator ON command when it becomes active, and an OFF command
+ * when it becomes inactive. Readings that don't change the state emit nothing,
+ * so a steady stream of readings doesn't flood the actuator with commands.
+ * <p>
+ * Sub-classes implement {@link #isActive(RuleState, float, long)} to decide
+ * the new state from a reading, and may override {@link #createState()} if
+ * they need more than the current state to do so.
+ * 
+ */
+public abstract class EdgeRule
+{
+	// private var's
+	
+	private final EdgeRuleConfig config;
+	private final ConcurrentHashMap<String, RuleState> stateMap = new ConcurrentHashMap<>();
+	
+	
+	// constructors
+	
+	/**
+	 * Constructor.
+	 * 
+	 * @param config The rule's configuration.
+	 */
+	protected EdgeRule(EdgeRuleConfig config)
+	{
+		super();
+		
+		if (config == null) {
+			throw new IllegalArgumentException("Rule config must not be null.");
+		}
+		
+		this.config = config;
+	}
+	
+	
+	// public methods
+	
+	/**
+	 * Returns the key the rule tracks state by: the location ID, or the
+	 * name if there's no location ID.
+	 * 
+	 * @param data The data.
+	 * @return String The device key.
+	 */
+	public static String getDeviceKey(BaseIotData data)
+	{
+		String locationID = data.getLocationID();
+		
+		return (locationID != null && ! locationID.isEmpty() ? locationID : data.getName());
+	}
+	
+	public EdgeRuleConfig getConfig()
+	{
+		return this.config;
+	}
+	
+	public String getRuleName()
+	{
+		return this.config.getRuleName();
+	}
+	
+	/**
+	 * Evaluates the reading, and returns the command to send if it changed
+	 * the rule's state for the device.
+	 * 
+	 * @param data The data the reading is from.
+	 * @param value The reading.
+	 * @return ActuatorData The command, or null if the state is unchanged.
+	 */
+	public ActuatorData evaluate(BaseIotData data, float value)
+	{
+		return evaluate(data, value, data.getTimeStampMillis());
+	}
+	
+	/**
+	 * Evaluates the reading, taken at the given time, and returns the command
+	 * to send if it changed the rule's state for the device.
+	 * 
+	 * @param data The data the reading is from.
+	 * @param value The reading.
+	 * @param timeStampMillis The time the reading was taken.
+	 * @return ActuatorData The command, or null if the state is unchanged.
+	 */
+	public ActuatorData evaluate(BaseIotData data, float value, long timeStampMillis)
+	{
+		RuleState state = this.stateMap.computeIfAbsent(getDeviceKey(data), key -> createState());
+		boolean isActive = false;
+		
+		synchronized (state) {
+			isActive = isActive(state, value, timeStampMillis);
+			
+			if (isActive == state.isActive) {
+				return null;
+			}
+			
+			state.isActive = isActive;
+		}
+		
+		return createCommand(data, isActive);
+	}
+	
+	/**
+	 * Returns whether the rule is currently active for the device.
+	 * 
+	 * @param deviceKey The device key.
+	 * @return boolean
+	 */
+	public boolean isActive(String deviceKey)
+	{
+		RuleState state = this.stateMap.get(deviceKey);
+		
+		return (state != null && state.isActive);
+	}
+	
+	/**
+	 * Reverts the state change made by a command that failed, so the next
+	 * reading that calls for the same state sends the command again. The
+	 * rest of the device's state, such as a rate of change rule's readings,
+	 * is kept. If the state has changed again since, it's left as it is.
+	 * 
+	 * @param deviceKey The device key.
+	 * @param isCommandActive True if the failed command was sent on becoming
+	 * active (ON); false if on becoming inactive (OFF).
+	 */
+	public void revert(String deviceKey, boolean isCommandActive)
+	{
+		RuleState state = (deviceKey != null ? this.stateMap.get(deviceKey) : null);
+		
+		if (state != null) {
+			synchronized (state) {
+				if (state.isActive == isCommandActive) {
+					state.isActive = ! isCommandActive;
+				}
+			}
+		}
+	}
+	
+	
+	// protected methods
+	
+	/**
+	 * Template method to create the per-device state.
+	 * 
+	 * @return RuleState
+	 */
+	protected RuleState createState()
+	{
+		return new RuleState();
+	}
+	
+	/**
+	 * Template method to decide the rule's new state for the device. This
+	 * is invoked while holding the state's lock.
+	 * 
+	 * @param state The device's state, holding its current 'isActive' value.
+	 * @param value The reading.
+	 * @param timeStampMillis The reading's timestamp.
+	 * @return boolean True if the rule is now active; false otherwise.
+	 */
+	protected abstract boolean isActive(RuleState state, float value, long timeStampMillis);
+	
+	/**
+	 * Returns true if the value is beyond the limit, on the side the rule
+	 * is configured to trigger on.
+	 * 
+	 * @param value The value.
+	 * @param limit The limit.
+	 * @return boolean
+	 */
+	protected boolean isBeyond(float value, float limit)
+	{
+		return (this.config.isTriggerAbove() ? value > limit : value < limit);
+	}
+	
+	
+	// private methods
+	
+	private ActuatorData createCommand(BaseIotData data, boolean isActive)
+	{
+		String actuatorName = this.config.getActuatorName();
+		ActuatorData command = new ActuatorData();
+		
+		command.setName(actuatorName != null ? actuatorName : this.config.getRuleName());
+		command.setTypeID(this.config.getActuatorTypeID());
+		command.setLocationID(data.getLocationID());
+		command.setCommand(isActive ? ConfigConst.ON_COMMAND : ConfigConst.OFF_COMMAND);
+		command.setValue(this.config.getActuatorValue());
+		command.setStateData(this.config.getRuleName());
+		
+		return command;
+	}
+	
+	
+	// protected classes
+	
+	/**
+	 * The per-device state of a rule.
+	 * 
+	 */
+	protected static class RuleState
+	{
+		/** True if the rule is active for the device. */
+		protected boolean isActive = false;
+	}
+
+}
@@ -0,0 +1,279 @@
+/**
+ * This class is part of the Programming the Internet of Things
+ * project, and is available via the MIT License, which can be
+ * found in the LICENSE file at the top level of this repository.
+ * 
+ * Copyright (c) 2020 by Andrew D. King
+ */
+
+package programmingtheiot.gda.analytics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import programmingtheiot.common.ConfigConst;
+import programmingtheiot.common.EdgeRuleConfig;
+import programmingtheiot.common.IActuatorDataListener;
+import programmingtheiot.data.ActuatorData;
+import programmingtheiot.data.BaseIotData;
+import programmingtheiot.data.SensorData;
+import programmingtheiot.data.SystemPerformanceData;
+import programmingtheiot.data.SystemStateData;
+
+/**
+ * Evaluates the configured edge analytics rules against incoming data, and
+ * sends the resulting actuator commands to an {@link IActuatorDataListener}
+ * on the calling thread, without a round trip to the cloud.
+ * <p>
+ * The rules are indexed by sensor name and type ID when the engine is
+ * created, so each reading is only evaluated against the rules that apply
+ * to it, and all state is held in memory. A rule configured with both a
+ * sensor name and type ID only applies to readings that match both.
+ * <p>
+ * {@link SystemPerformanceData} is evaluated by rules whose sensor type ID
+ * is {@link ConfigConst#CPU_UTIL_TYPE}, {@link ConfigConst#DISK_UTIL_TYPE}
+ * or {@link ConfigConst#MEM_UTIL_TYPE}, against the matching utilization.
+ * 
+ */
+public class EdgeRuleEngine
+{
+	// static
+	
+	private static final Logger _Logger =
+		Logger.getLogger(EdgeRuleEngine.class.getName());
+	
+	
+	// private var's
+	
+	private final List<EdgeRule> rules = new ArrayList<>();
+	private final Map<String, List<EdgeRule>> rulesByName = new HashMap<>();
+	private final Map<Integer, List<EdgeRule>> rulesByTypeID = new HashMap<>();
+	
+	private final IActuatorDataListener listener;
+	
+	
+	// constructors
+	
+	/**
+	 * Constructor.
+	 * 
+	 * @param ruleConfigs The rules to evaluate.
+	 * @param listener The listener to send actuator commands to.
+	 */
+	public EdgeRuleEngine(List<EdgeRuleConfig> ruleConfigs, IActuatorDataListener listener)
+	{
+		super();
+		
+		if (listener == null) {
+			throw new IllegalArgumentException("Listener must not be null.");
+		}
+		
+		this.listener = listener;
+		
+		if (ruleConfigs != null) {
+			for (EdgeRuleConfig config : ruleConfigs) {
+				addRule(config);
+			}
+		}
+		
+		_Logger.info("Edge rule engine created with " + this.rules.size() + " rules.");
+	}
+	
+	
+	// public methods
+	
+	/**
+	 * Returns the rules being evaluated.
+	 * 
+	 * @return List
+	 */
+	public List<EdgeRule> getRules()
+	{
+		return Collections.unmodifiableList(this.rules);
+	}
+	
+	/**
+	 * Evaluates the rules that apply to the sensor reading.
+	 * 
+	 * @param data The sensor data.
+	 * @return int The number of actuator commands sent.
+	 */
+	public int evaluate(SensorData data)
+	{
+		if (data == null) {
+			return 0;
+		}
+		
+		int count = 0;
+		List<EdgeRule> namedRules = this.rulesByName.get(data.getName());
+		List<EdgeRule> typedRules = this.rulesByTypeID.get(data.getTypeID());
+		
+		if (namedRules != null) {
+			for (EdgeRule rule : namedRules) {
+				int typeID = rule.getConfig().getSensorTypeID();
+				
+				if (typeID == ConfigConst.DEFAULT_TYPE_ID || typeID == data.getTypeID()) {
+					count += evaluate(rule, data, data.getValue());
+				}
+			}
+		}
+		
+		if (typedRules != null) {
+			for (EdgeRule rule : typedRules) {
+				count += evaluate(rule, data, data.getValue());
+			}
+		}
+		
+		return count;
+	}
+	
+	/**
+	 * Evaluates the rules that apply to the system performance readings.
+	 * 
+	 * @param data The system performance data.
+	 * @return int The number of actuator commands sent.
+	 */
+	public int evaluate(SystemPerformanceData data)
+	{
+		if (data == null) {
+			return 0;
+		}
+		
+		return
+			evaluate(ConfigConst.CPU_UTIL_TYPE, data, data.getCpuUtilization()) +
+			evaluate(ConfigConst.DISK_UTIL_TYPE, data, data.getDiskUtilization()) +
+			evaluate(ConfigConst.MEM_UTIL_TYPE, data, data.getMemoryUtilization());
+	}
+	
+	/**
+	 * Evaluates the rules that apply to each of the sensor and system
+	 * performance readings in the system state, in the order they're listed.
+	 * 
+	 * @param data The system state data.
+	 * @return int The number of actuator commands sent.
+	 */
+	public int evaluate(SystemStateData data)
+	{
+		if (data == null) {
+			return 0;
+		}
+		
+		int count = 0;
+		
+		for (SensorData sensorData : data.getSensorDataList()) {
+			count += evaluate(sensorData);
+		}
+		
+		for (SystemPerformanceData sysPerfData : data.getSystemPerformanceDataList()) {
+			count += evaluate(sysPerfData);
+		}
+		
+		return count;
+	}
+	
+	/**
+	 * Handles a response to a command sent by a rule. If the actuator reports
+	 * an error, the rule's state change for the device is reverted, so its
+	 * command is sent again on the next reading that calls for it.
+	 * 
+	 * @param data The actuator response.
+	 * @return boolean True if a rule's state was reverted; false otherwise.
+	 */
+	public boolean handleActuatorResponse(ActuatorData data)
+	{
+		if (data == null || ! data.hasError()) {
+			return false;
+		}
+		
+		boolean isReverted = false;
+		
+		for (EdgeRule rule : this.rules) {
+			if (rule.getRuleName().equals(data.getStateData())) {
+				rule.revert(EdgeRule.getDeviceKey(data), data.getCommand() == ConfigConst.ON_COMMAND);
+				isReverted = true;
+			}
+		}
+		
+		return isReverted;
+	}
+	
+	
+	// private methods
+	
+	private void addRule(EdgeRuleConfig config)
+	{
+		EdgeRule rule = null;
+		
+		if (config.getRuleType() == null) {
+			_Logger.warning("No valid type for edge rule. Ignoring: " + config);
+			return;
+		}
+		
+		switch (config.getRuleType()) {
+			case THRESHOLD:
+				rule = new ThresholdRule(config); break;
+			
+			case RATE_OF_CHANGE:
+				rule = new RateOfChangeRule(config); break;
+			
+			case HYSTERESIS:
+				rule = new HysteresisRule(config); break;
+		}
+		
+		this.rules.add(rule);
+		
+		if (config.getSensorName() != null) {
+			this.rulesByName.computeIfAbsent(config.getSensorName(), key -> new ArrayList<>()).add(rule);
+		} else {
+			this.rulesByTypeID.computeIfAbsent(config.getSensorTypeID(), key -> new ArrayList<>()).add(rule);
+		}
+		
+		_Logger.fine("Added edge rule: " + config);
+	}
+	
+	private int evaluate(int typeID, BaseIotData data, float value)
+	{
+		int count = 0;
+		List<EdgeRule> typedRules = this.rulesByTypeID.get(typeID);
+		
+		if (typedRules != null) {
+			for (EdgeRule rule : typedRules) {
+				count += evaluate(rule, data, value);
+			}
+		}
+		
+		return count;
+	}
+	
+	private int evaluate(EdgeRule rule, BaseIotData data, float value)
+	{
+		ActuatorData command = rule.evaluate(data, value);
+		
+		if (command == null) {
+			return 0;
+		}
+		
+		_Logger.fine("Edge rule " + rule.getRuleName() + " triggered command: " + command);
+		
+		boolean isSent = false;
+		
+		try {
+			isSent = this.listener.onActuatorDataUpdate(command);
+		} catch (Exception e) {
+			_Logger.log(Level.WARNING, "Failed to send command for edge rule " + rule.getRuleName(), e);
+		}
+		
+		// undo the state change, so the next reading tries again
+		if (! isSent) {
+			rule.revert(EdgeRule.getDeviceKey(data), command.getCommand() == ConfigConst.ON_COMMAND);
+		}
+		
+		return (isSent ? 1 : 0);
+	}
+
+}
@@ -0,0 +1,50 @@
+/**
+ * This class is part of the Programming the Internet of Things
+ * project, and is available via the MIT License, which can be
+ * found in the LICENSE file at the top level of this repository.
+ * 
+ * Copyright (c) 2020 by Andrew D. King
+ */
+
+package programmingtheiot.gda.analytics;
+
+import programmingtheiot.common.EdgeRuleConfig;
+
+/**
+ * A rule that becomes active once the reading reaches its 'on' value, and
+ * stays active until the reading passes back over its 'off' value. This
+ * keeps the actuator from switching on and off repeatedly while readings
+ * hover around a single threshold.
+ * 
+ */
+public class HysteresisRule extends EdgeRule
+{
+	// constructors
+	
+	/**
+	 * Constructor.
+	 * 
+	 * @param config The rule's configuration.
+	 */
+	public HysteresisRule(EdgeRuleConfig config)
+	{
+		super(config);
+	}
+	
+	
+	// protected methods
+	
+	@Override
+	protected boolean isActive(RuleState state, float value, long timeStampMillis)
+	{
+		EdgeRuleConfig config = getConfig();
+		
+		if (state.isActive) {
+			// stays active until the value gets back to the 'off' value
+			return isBeyond(value, config.getOffValue());
+		} else {
+			return (value == config.getOnValue() || isBeyond(value, config.getOnValue()));
+		}
+	}
+
+}
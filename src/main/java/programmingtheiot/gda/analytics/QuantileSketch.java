@@ -0,0 +1,337 @@
+/**
+ * This class is part of the Programming the Internet of Things
+ * project, and is available via the MIT License, which can be
+ * found in the LICENSE file at the top level of this repository.
+ * 
+ * Copyright (c) 2020 by Andrew D. King
+ */
+
+package programmingtheiot.gda.analytics;
+
+import java.util.Arrays;
+
+/**
+ * A histogram for estimating quantiles of a stream of values, with a
+ * bounded relative error and O(1) updates.
+ * <p>
+ * Values are counted in logarithmically sized buckets, so each bucket's
+ * width is proportional to the magnitude of the values it holds, and any
+ * quantile estimate is within the relative accuracy of a value actually
+ * seen. Positive and negative values are counted separately, and values
+ * too close to zero to bucket are counted as zero.
+ * <p>
+ * The buckets only cover the range of values seen, so memory use depends
+ * on how widely the values vary, and is capped at {@link #MAX_BUCKETS}
+ * per sign; beyond that, the smallest magnitudes are merged together.
+ * Sketches with the same accuracy can be merged, which is how sliding
+ * windows are combined from their panes.
+ * <p>
+ * This class is not thread-safe.
+ * 
+ */
+public class QuantileSketch
+{
+	// static
+	
+	/** The maximum number of buckets for each sign. */
+	public static final int MAX_BUCKETS = 2048;
+	
+	/** The default relative accuracy of the quantile estimates. */
+	public static final double DEFAULT_RELATIVE_ACCURACY = 0.01;
+	
+	// magnitudes below this are counted as zero
+	private static final double MIN_INDEXABLE_VALUE = 1.0e-9;
+	
+	
+	// private var's
+	
+	private final double relativeAccuracy;
+	private final double gamma;
+	private final double logGamma;
+	
+	private final BucketStore positiveStore = new BucketStore();
+	private final BucketStore negativeStore = new BucketStore();
+	
+	private long zeroCount = 0L;
+	
+	
+	// constructors
+	
+	/**
+	 * Default. Uses {@link #DEFAULT_RELATIVE_ACCURACY}.
+	 * 
+	 */
+	public QuantileSketch()
+	{
+		this(DEFAULT_RELATIVE_ACCURACY);
+	}
+	
+	/**
+	 * Constructor.
+	 * 
+	 * @param relativeAccuracy The relative accuracy of the quantile
+	 * estimates, between 0 and 1 (exclusive).
+	 */
+	public QuantileSketch(double relativeAccuracy)
+	{
+		super();
+		
+		if (relativeAccuracy <= 0.0 || relativeAccuracy >= 1.0) {
+			throw new IllegalArgumentException("Relative accuracy must be between 0 and 1: " + relativeAccuracy);
+		}
+		
+		this.relativeAccuracy = relativeAccuracy;
+		this.gamma            = (1.0 + relativeAccuracy) / (1.0 - relativeAccuracy);
+		this.logGamma         = Math.log(this.gamma);
+	}
+	
+	
+	// public methods
+	
+	/**
+	 * Adds a value.
+	 * 
+	 * @param value The value.
+	 */
+	public void add(double value)
+	{
+		if (value > MIN_INDEXABLE_VALUE) {
+			this.positiveStore.add(getIndex(value), 1L);
+		} else if (value < -MIN_INDEXABLE_VALUE) {
+			this.negativeStore.add(getIndex(-value), 1L);
+		} else {
+			this.zeroCount++;
+		}
+	}
+	
+	/**
+	 * Adds the counts from another sketch to this one.
+	 * 
+	 * @param sketch The sketch to merge, which must have the same accuracy.
+	 */
+	public void merge(QuantileSketch sketch)
+	{
+		if (sketch.relativeAccuracy != this.relativeAccuracy) {
+			throw new IllegalArgumentException(
+				"Can't merge sketches of different accuracy: " + sketch.relativeAccuracy);
+		}
+		
+		this.positiveStore.merge(sketch.positiveStore);
+		this.negativeStore.merge(sketch.negativeStore);
+		this.zeroCount += sketch.zeroCount;
+	}
+	
+	/**
+	 * Removes all values, keeping the buckets allocated so far for reuse.
+	 * 
+	 */
+	public void clear()
+	{
+		this.positiveStore.clear();
+		this.negativeStore.clear();
+		this.zeroCount = 0L;
+	}
+	
+	/**
+	 * 
+	 * @return long The number of values added.
+	 */
+	public long getCount()
+	{
+		return this.positiveStore.totalCount + this.negativeStore.totalCount + this.zeroCount;
+	}
+	
+	public double getRelativeAccuracy()
+	{
+		return this.relativeAccuracy;
+	}
+	
+	/**
+	 * Estimates the value at the given quantile.
+	 * 
+	 * @param quantile The quantile, from 0 to 1 (e.g. 0.95 for the 95th percentile).
+	 * @return double The estimate, or NaN if there are no values.
+	 */
+	public double getQuantile(double quantile)
+	{
+		long count = getCount();
+		
+		if (count == 0L) {
+			return Double.NaN;
+		}
+		
+		if (quantile < 0.0 || quantile > 1.0) {
+			throw new IllegalArgumentException("Quantile must be between 0 and 1: " + quantile);
+		}
+		
+		long rank = (long) (quantile * (count - 1));
+		
+		// negative values are ordered from the largest magnitude down
+		if (rank < this.negativeStore.totalCount) {
+			long reverseRank = this.negativeStore.totalCount - 1 - rank;
+			
+			return -getValue(this.negativeStore.getIndexAtRank(reverseRank));
+		}
+		
+		rank -= this.negativeStore.totalCount;
+		
+		if (rank < this.zeroCount) {
+			return 0.0;
+		}
+		
+		return getValue(this.positiveStore.getIndexAtRank(rank - this.zeroCount));
+	}
+	
+	
+	// private methods
+	
+	private int getIndex(double magnitude)
+	{
+		return (int) Math.ceil(Math.log(magnitude) / this.logGamma);
+	}
+	
+	/**
+	 * Returns the value that's within the relative accuracy of every value in the bucket.
+	 */
+	private double getValue(int index)
+	{
+		return 2.0 * Math.pow(this.gamma, index) / (this.gamma + 1.0);
+	}
+	
+	
+	// private classes
+	
+	/**
+	 * The bucket counts for one sign, in an array covering a contiguous
+	 * range of bucket indexes, which grows as values outside it are added.
+	 * 
+	 */
+	private static final class BucketStore
+	{
+		private long[] counts = null;
+		private int  offset     = 0;
+		private int  minIndex   = Integer.MAX_VALUE;
+		private int  maxIndex   = Integer.MIN_VALUE;
+		private long totalCount = 0L;
+		
+		void add(int index, long count)
+		{
+			if (this.counts == null) {
+				this.counts = new long[16];
+				this.offset = index - 8;
+			}
+			
+			// merge the smallest magnitudes rather than exceed the cap
+			if (this.totalCount > 0L) {
+				if (index < this.maxIndex - MAX_BUCKETS + 1) {
+					index = this.maxIndex - MAX_BUCKETS + 1;
+				} else if (index > this.minIndex + MAX_BUCKETS - 1) {
+					collapseBelow(index - MAX_BUCKETS + 1);
+				}
+			}
+			
+			ensureCapacity(index);
+			
+			if (index < this.minIndex) {
+				this.minIndex = index;
+			}
+			
+			if (index > this.maxIndex) {
+				this.maxIndex = index;
+			}
+			
+			this.counts[index - this.offset] += count;
+			this.totalCount += count;
+		}
+		
+		void merge(BucketStore store)
+		{
+			for (int index = store.minIndex; index <= store.maxIndex; index++) {
+				long count = store.counts[index - store.offset];
+				
+				if (count > 0L) {
+					add(index, count);
+				}
+			}
+		}
+		
+		void clear()
+		{
+			if (this.counts != null && this.totalCount > 0L) {
+				Arrays.fill(this.counts, 0L);
+			}
+			
+			this.minIndex   = Integer.MAX_VALUE;
+			this.maxIndex   = Integer.MIN_VALUE;
+			this.totalCount = 0L;
+		}
+		
+		int getIndexAtRank(long rank)
+		{
+			long cumulativeCount = 0L;
+			
+			for (int index = this.minIndex; index <= this.maxIndex; index++) {
+				cumulativeCount += this.counts[index - this.offset];
+				
+				if (cumulativeCount > rank) {
+					return index;
+				}
+			}
+			
+			return this.maxIndex;
+		}
+		
+		/**
+		 * Moves the counts for all indexes below the new minimum into it.
+		 */
+		private void collapseBelow(int newMinIndex)
+		{
+			long count = 0L;
+			
+			for (int index = this.minIndex; index < newMinIndex && index <= this.maxIndex; index++) {
+				count += this.counts[index - this.offset];
+				this.counts[index - this.offset] = 0L;
+			}
+			
+			// if every bucket was collapsed, re-center the (now empty) array on the new minimum
+			if (newMinIndex > this.maxIndex) {
+				this.offset   = newMinIndex - this.counts.length / 2;
+				this.maxIndex = newMinIndex;
+			}
+			
+			this.minIndex = newMinIndex;
+			this.counts[newMinIndex - this.offset] += count;
+		}
+		
+		private void ensureCapacity(int index)
+		{
+			int lowIndex  = Math.min(index, this.minIndex);
+			int highIndex = Math.max(index, this.maxIndex);
+			
+			if (lowIndex >= this.offset && highIndex < this.offset + this.counts.length) {
+				return;
+			}
+			
+			// grow by at least double, so growth is O(1) amortized, and leave
+			// room for further growth in either direction
+			int span      = highIndex - lowIndex + 1;
+			int newLength = Math.min(Math.max(this.counts.length * 2, span * 2), MAX_BUCKETS * 2);
+			
+			newLength = Math.max(newLength, span);
+			
+			long[] newCounts = new long[newLength];
+			int newOffset    = lowIndex - (newLength - span) / 2;
+			
+			if (this.totalCount > 0L) {
+				System.arraycopy(
+					this.counts, this.minIndex - this.offset,
+					newCounts, this.minIndex - newOffset,
+					this.maxIndex - this.minIndex + 1);
+			}
+			
+			this.counts = newCounts;
+			this.offset = newOffset;
+		}
+	}
+
+}
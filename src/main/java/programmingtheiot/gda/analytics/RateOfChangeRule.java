@@ -0,0 +1,124 @@
+/**
+ * This class is part of the Programming the Internet of Things
+ * project, and is available via the MIT License, which can be
+ * found in the LICENSE file at the top level of this repository.
+ * 
+ * Copyright (c) 2020 by Andrew D. King
+ */
+
+package programmingtheiot.gda.analytics;
+
+import programmingtheiot.common.EdgeRuleConfig;
+
+/**
+ * A rule that's active while the reading changes faster than its maximum
+ * rate, measured per second across the readings in its time window. A
+ * rule configured to trigger above is active on a rise; otherwise, it's
+ * active on a fall.
+ * <p>
+ * The rate is taken between the oldest and newest readings in the window,
+ * which is kept in a fixed-size ring per device, so each evaluation is
+ * O(1) on average. If the ring fills before the window elapses, the oldest
+ * reading is dropped and the rate is taken over a shorter span.
+ * 
+ */
+public class RateOfChangeRule extends EdgeRule
+{
+	// static
+	
+	/** The maximum number of readings held in the window for each device. */
+	public static final int MAX_WINDOW_SAMPLES = 64;
+	
+	
+	// constructors
+	
+	/**
+	 * Constructor.
+	 * 
+	 * @param config The rule's configuration.
+	 */
+	public RateOfChangeRule(EdgeRuleConfig config)
+	{
+		super(config);
+	}
+	
+	
+	// protected methods
+	
+	@Override
+	protected RuleState createState()
+	{
+		return new WindowState();
+	}
+	
+	@Override
+	protected boolean isActive(RuleState state, float value, long timeStampMillis)
+	{
+		WindowState window = (WindowState) state;
+		
+		window.add(value, timeStampMillis, getConfig().getWindowMillis());
+		
+		// one reading says nothing about the rate, so keep the current state
+		if (window.count < 2) {
+			return state.isActive;
+		}
+		
+		long elapsedMillis = timeStampMillis - window.getOldestTimeStamp();
+		
+		if (elapsedMillis <= 0L) {
+			return state.isActive;
+		}
+		
+		float ratePerSec = (value - window.getOldestValue()) * 1000.0f / elapsedMillis;
+		float maxRate    = getConfig().getMaxRatePerSec();
+		
+		return isBeyond(ratePerSec, getConfig().isTriggerAbove() ? maxRate : -maxRate);
+	}
+	
+	
+	// private classes
+	
+	/**
+	 * The readings in a device's window, in a ring ordered by arrival.
+	 * 
+	 */
+	private static class WindowState extends RuleState
+	{
+		private final long[]  timeStamps = new long[MAX_WINDOW_SAMPLES];
+		private final float[] values     = new float[MAX_WINDOW_SAMPLES];
+		
+		private int head  = 0;
+		private int count = 0;
+		
+		void add(float value, long timeStampMillis, long windowMillis)
+		{
+			// evict readings that have aged out of the window
+			while (this.count > 0 && timeStampMillis - this.timeStamps[this.head] > windowMillis) {
+				this.head = (this.head + 1) % MAX_WINDOW_SAMPLES;
+				this.count--;
+			}
+			
+			if (this.count == MAX_WINDOW_SAMPLES) {
+				this.head = (this.head + 1) % MAX_WINDOW_SAMPLES;
+				this.count--;
+			}
+			
+			int tail = (this.head + this.count) % MAX_WINDOW_SAMPLES;
+			
+			this.timeStamps[tail] = timeStampMillis;
+			this.values[tail]     = value;
+			this.count++;
+		}
+		
+		long getOldestTimeStamp()
+		{
+			return this.timeStamps[this.head];
+		}
+		
+		float getOldestValue()
+		{
+			return this.values[this.head];
+		}
+	}
+
+}
@@ -0,0 +1,499 @@
+/**
+ * This class is part of the Programming the Internet of Things
+ * project, and is available via the MIT License, which can be
+ * found in the LICENSE file at the top level of this repository.
+ * 
+ * Copyright (c) 2020 by Andrew D. King
+ */
+
+package programmingtheiot.gda.analytics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import programmingtheiot.common.IDataMessageListener;
+import programmingtheiot.common.ResourceNameEnum;
+import programmingtheiot.data.SensorData;
+
+/**
+ * Aggregates SensorData readings per sensor (name and location ID) over
+ * time windows, and sends a summary of each window to a listener's
+ * {@link IDataMessageListener#handleSensorMessage(ResourceNameEnum, SensorData)}
+ * method when the window closes, instead of every reading.
+ * <p>
+ * Each summary is a set of SensorData instances with the sensor's type ID
+ * and location ID, one per statistic, named &lt;sensor name&gt;.&lt;statistic&gt;:
+ * 'count', 'min', 'max', 'mean', and 'p&lt;n&gt;' for each configured percentile
+ * (e.g. 'TempSensor.p95').
+ * <p>
+ * Windows are aligned to multiples of the slide interval, using each
+ * reading's timestamp. If the slide equals the window length, windows are
+ * tumbling (back to back); if it's shorter, they're sliding, and a summary of
+ * the latest full window length is sent every slide interval. Each window is
+ * split into panes of one slide interval, each of which keeps a running
+ * count, sum, min, max and {@link QuantileSketch}, so adding a reading is
+ * O(1), and closing a window merges its panes. Readings older than the
+ * oldest open pane are dropped as late.
+ * <p>
+ * Once started, windows that no more readings have arrived for are closed
+ * on a timer, using the local clock.
+ * 
+ */
+public class SensorDataAggregator
+{
+	// static
+	
+	private static final Logger _Logger =
+		Logger.getLogger(SensorDataAggregator.class.getName());
+	
+	public static final String COUNT_STAT = "count";
+	public static final String MIN_STAT   = "min";
+	public static final String MAX_STAT   = "max";
+	public static final String MEAN_STAT  = "mean";
+	
+	/** Percentile statistics are named with this prefix, followed by the percentile. */
+	public static final String PERCENTILE_STAT_PREFIX = "p";
+	
+	public static final char STAT_SEPARATOR = '.';
+	
+	
+	// private var's
+	
+	private final IDataMessageListener listener;
+	private final long    windowMillis;
+	private final long    slideMillis;
+	private final int     paneCount;
+	private final float[] percentiles;
+	private final String[] percentileStats;
+	
+	private final ConcurrentHashMap<String, SensorWindow> windowMap = new ConcurrentHashMap<>();
+	
+	// guarded by this
+	private ScheduledExecutorService schedExecSvc = null;
+	
+	private final AtomicLong emittedWindowCount = new AtomicLong();
+	private final AtomicLong lateCount          = new AtomicLong();
+	
+	
+	// constructors
+	
+	/**
+	 * Constructor.
+	 * 
+	 * @param listener The listener to send window summaries to.
+	 * @param windowMillis The window length.
+	 * @param slideMillis The interval between windows, which must divide
+	 * the window length. Use the window length for tumbling windows.
+	 * @param percentiles The percentiles to include in each summary, from 0 to 100.
+	 */
+	public SensorDataAggregator(IDataMessageListener listener, long windowMillis, long slideMillis, float[] percentiles)
+	{
+		super();
+		
+		if (listener == null) {
+			throw new IllegalArgumentException("Listener must not be null.");
+		}
+		
+		if (windowMillis <= 0L || slideMillis <= 0L || windowMillis % slideMillis != 0L) {
+			throw new IllegalArgumentException(
+				"Slide must be positive and divide the window length: " + windowMillis + ", " + slideMillis);
+		}
+		
+		this.listener     = listener;
+		this.windowMillis = windowMillis;
+		this.slideMillis  = slideMillis;
+		this.paneCount    = (int) (windowMillis / slideMillis);
+		this.percentiles  = (percentiles != null ? percentiles.clone() : new float[0]);
+		
+		this.percentileStats = new String[this.percentiles.length];
+		
+		for (int i = 0; i < this.percentiles.length; i++) {
+			if (this.percentiles[i] < 0.0f || this.percentiles[i] > 100.0f) {
+				throw new IllegalArgumentException("Percentile must be between 0 and 100: " + this.percentiles[i]);
+			}
+			
+			this.percentileStats[i] = PERCENTILE_STAT_PREFIX + formatPercentile(this.percentiles[i]);
+		}
+	}
+	
+	
+	// public methods
+	
+	/**
+	 * Starts the timer that closes windows no more readings have arrived for.
+	 * 
+	 */
+	public synchronized void start()
+	{
+		if (this.schedExecSvc == null) {
+			this.schedExecSvc = Executors.newSingleThreadScheduledExecutor(runnable -> {
+				Thread thread = new Thread(runnable, "SensorDataAggregator");
+				thread.setDaemon(true);
+				
+				return thread;
+			});
+			
+			this.schedExecSvc.scheduleAtFixedRate(
+				() -> closeExpiredWindows(System.currentTimeMillis()),
+				this.slideMillis, this.slideMillis, TimeUnit.MILLISECONDS);
+		}
+	}
+	
+	/**
+	 * Stops the timer, and sends a summary of each window still open, even
+	 * though it hasn't closed yet.
+	 * 
+	 */
+	public void stop()
+	{
+		synchronized (this) {
+			if (this.schedExecSvc != null) {
+				this.schedExecSvc.shutdownNow();
+				this.schedExecSvc = null;
+			}
+		}
+		
+		flush();
+	}
+	
+	/**
+	 * Adds a reading to its sensor's current window, first sending the
+	 * summary of any windows the reading's timestamp closes.
+	 * 
+	 * @param resource The resource the reading was received on, which the
+	 * summaries are sent with.
+	 * @param data The reading.
+	 * @return boolean True if the reading was added; false if it was late.
+	 */
+	public boolean add(ResourceNameEnum resource, SensorData data)
+	{
+		if (data == null) {
+			return false;
+		}
+		
+		String key = resource + "/" + data.getName() + '/' + data.getLocationID();
+		SensorWindow window = this.windowMap.computeIfAbsent(key, k -> new SensorWindow(resource, data));
+		List<SensorData> summaries = null;
+		boolean isAdded = false;
+		
+		synchronized (window) {
+			long paneIndex = data.getTimeStampMillis() / this.slideMillis;
+			
+			summaries = window.advanceTo(paneIndex);
+			isAdded   = window.add(paneIndex, data.getValue());
+		}
+		
+		if (! isAdded) {
+			this.lateCount.incrementAndGet();
+			
+			_Logger.fine("Dropping late reading for sensor: " + key);
+		}
+		
+		send(window, summaries);
+		
+		return isAdded;
+	}
+	
+	/**
+	 * Sends the summary of each window that closed by the given time.
+	 * 
+	 * @param nowMillis The current time.
+	 */
+	public void closeExpiredWindows(long nowMillis)
+	{
+		long paneIndex = nowMillis / this.slideMillis;
+		
+		for (SensorWindow window : this.windowMap.values()) {
+			List<SensorData> summaries = null;
+			
+			synchronized (window) {
+				summaries = window.advanceTo(paneIndex);
+			}
+			
+			send(window, summaries);
+		}
+	}
+	
+	/**
+	 * Sends a summary of each open window, and clears them.
+	 * 
+	 */
+	public void flush()
+	{
+		for (SensorWindow window : this.windowMap.values()) {
+			List<SensorData> summaries = null;
+			
+			synchronized (window) {
+				summaries = window.flush();
+			}
+			
+			send(window, summaries);
+		}
+	}
+	
+	public long getWindowMillis()
+	{
+		return this.windowMillis;
+	}
+	
+	public long getSlideMillis()
+	{
+		return this.slideMillis;
+	}
+	
+	/**
+	 * 
+	 * @return boolean True if windows overlap; false if they're tumbling.
+	 */
+	public boolean isSliding()
+	{
+		return (this.paneCount > 1);
+	}
+	
+	/**
+	 * 
+	 * @return int The number of sensors being aggregated.
+	 */
+	public int getSensorCount()
+	{
+		return this.windowMap.size();
+	}
+	
+	public long getEmittedWindowCount()
+	{
+		return this.emittedWindowCount.get();
+	}
+	
+	public long getLateCount()
+	{
+		return this.lateCount.get();
+	}
+	
+	
+	// private methods
+	
+	private static String formatPercentile(float percentile)
+	{
+		if (percentile == (int) percentile) {
+			return String.valueOf((int) percentile);
+		}
+		
+		return String.valueOf(percentile);
+	}
+	
+	private void send(SensorWindow window, List<SensorData> summaries)
+	{
+		if (summaries == null) {
+			return;
+		}
+		
+		for (SensorData summary : summaries) {
+			try {
+				this.listener.handleSensorMessage(window.resource, summary);
+			} catch (Exception e) {
+				_Logger.log(Level.WARNING, "Failed to send window summary for sensor: " + window.name, e);
+			}
+		}
+	}
+	
+	
+	// private classes
+	
+	/**
+	 * The running statistics for one slide interval.
+	 * 
+	 */
+	private static final class Pane
+	{
+		final QuantileSketch sketch = new QuantileSketch();
+		
+		long   count = 0L;
+		double sum   = 0.0;
+		float  min   = Float.MAX_VALUE;
+		float  max   = -Float.MAX_VALUE;
+		
+		void add(float value)
+		{
+			this.count++;
+			this.sum += value;
+			this.min  = Math.min(this.min, value);
+			this.max  = Math.max(this.max, value);
+			this.sketch.add(value);
+		}
+		
+		void clear()
+		{
+			if (this.count > 0L) {
+				this.count = 0L;
+				this.sum   = 0.0;
+				this.min   = Float.MAX_VALUE;
+				this.max   = -Float.MAX_VALUE;
+				this.sketch.clear();
+			}
+		}
+	}
+	
+	/**
+	 * The panes of one sensor's window, in a ring indexed by pane number.
+	 * 
+	 */
+	private final class SensorWindow
+	{
+		final ResourceNameEnum resource;
+		final String name;
+		final String locationID;
+		final int    typeID;
+		
+		final Pane[] panes = new Pane[paneCount];
+		final QuantileSketch windowSketch;
+		
+		// the number of the newest pane; the window ends with it
+		long currentPaneIndex = -1L;
+		long readingCount = 0L;
+		
+		SensorWindow(ResourceNameEnum resource, SensorData data)
+		{
+			this.resource   = resource;
+			this.name       = data.getName();
+			this.locationID = data.getLocationID();
+			this.typeID     = data.getTypeID();
+			
+			for (int i = 0; i < this.panes.length; i++) {
+				this.panes[i] = new Pane();
+			}
+			
+			// tumbling windows have one pane, so its sketch can be used directly
+			this.windowSketch = (paneCount > 1 ? new QuantileSketch() : null);
+		}
+		
+		boolean add(long paneIndex, float value)
+		{
+			if (this.currentPaneIndex < 0L) {
+				this.currentPaneIndex = paneIndex;
+			}
+			
+			if (paneIndex <= this.currentPaneIndex - paneCount) {
+				return false;
+			}
+			
+			this.panes[(int) (paneIndex % paneCount)].add(value);
+			this.readingCount++;
+			
+			return true;
+		}
+		
+		/**
+		 * Closes each window that ends before the given pane, returning their summaries.
+		 */
+		List<SensorData> advanceTo(long paneIndex)
+		{
+			List<SensorData> summaries = null;
+			
+			while (this.currentPaneIndex >= 0L && this.currentPaneIndex < paneIndex) {
+				if (this.readingCount > 0L) {
+					if (summaries == null) {
+						summaries = new ArrayList<>();
+					}
+					
+					addSummary(summaries);
+				}
+				
+				// the oldest pane drops out of the window, and its slot becomes the new pane
+				this.currentPaneIndex++;
+				
+				Pane pane = this.panes[(int) (this.currentPaneIndex % paneCount)];
+				
+				this.readingCount -= pane.count;
+				pane.clear();
+				
+				// no need to step through idle intervals one by one
+				if (this.readingCount == 0L) {
+					this.currentPaneIndex = paneIndex;
+				}
+			}
+			
+			return summaries;
+		}
+		
+		List<SensorData> flush()
+		{
+			if (this.readingCount == 0L) {
+				return null;
+			}
+			
+			List<SensorData> summaries = new ArrayList<>();
+			
+			addSummary(summaries);
+			
+			for (Pane pane : this.panes) {
+				pane.clear();
+			}
+			
+			this.readingCount = 0L;
+			
+			return summaries;
+		}
+		
+		private void addSummary(List<SensorData> summaries)
+		{
+			long   count = 0L;
+			double sum   = 0.0;
+			float  min   = Float.MAX_VALUE;
+			float  max   = -Float.MAX_VALUE;
+			QuantileSketch sketch = this.windowSketch;
+			
+			if (sketch != null) {
+				sketch.clear();
+			} else {
+				sketch = this.panes[0].sketch;
+			}
+			
+			for (Pane pane : this.panes) {
+				if (pane.count > 0L) {
+					count += pane.count;
+					sum   += pane.sum;
+					min    = Math.min(min, pane.min);
+					max    = Math.max(max, pane.max);
+					
+					if (sketch != pane.sketch) {
+						sketch.merge(pane.sketch);
+					}
+				}
+			}
+			
+			summaries.add(createSummary(COUNT_STAT, count));
+			summaries.add(createSummary(MIN_STAT, min));
+			summaries.add(createSummary(MAX_STAT, max));
+			summaries.add(createSummary(MEAN_STAT, (float) (sum / count)));
+			
+			for (int i = 0; i < percentiles.length; i++) {
+				float value = (float) sketch.getQuantile(percentiles[i] / 100.0);
+				
+				// the estimate may fall just outside the range of values seen
+				summaries.add(createSummary(percentileStats[i], Math.max(min, Math.min(max, value))));
+			}
+			
+			emittedWindowCount.incrementAndGet();
+		}
+		
+		private SensorData createSummary(String stat, float value)
+		{
+			SensorData data = new SensorData();
+			
+			data.setName(this.name + STAT_SEPARATOR + stat);
+			data.setTypeID(this.typeID);
+			data.setLocationID(this.locationID);
+			data.setValue(value);
+			
+			return data;
+		}
+	}
+
+}
@@ -0,0 +1,40 @@
+/**
+ * This class is part of the Programming the Internet of Things
+ * project, and is available via the MIT License, which can be
+ * found in the LICENSE file at the top level of this repository.
+ * 
+ * Copyright (c) 2020 by Andrew D. King
+ */
+
+package programmingtheiot.gda.analytics;
+
+import programmingtheiot.common.EdgeRuleConfig;
+
+/**
+ * A rule that's active while the reading is beyond its threshold.
+ * 
+ */
+public class ThresholdRule extends EdgeRule
+{
+	// constructors
+	
+	/**
+	 * Constructor.
+	 * 
+	 * @param config The rule's configuration.
+	 */
+	public ThresholdRule(EdgeRuleConfig config)
+	{
+		super(config);
+	}
+	
+	
+	// protected methods
+	
+	@Override
+	protected boolean isActive(RuleState state, float value, long timeStampMillis)
+	{
+		return isBeyond(value, getConfig().getThreshold());
+	}
+
+}
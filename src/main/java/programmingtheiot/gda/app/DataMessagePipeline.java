@@ -0,0 +1,478 @@
+/**
+ * This class is part of the Programming the Internet of Things
+ * project, and is available via the MIT License, which can be
+ * found in the LICENSE file at the top level of this repository.
+ * 
+ * Copyright (c) 2020 by Andrew D. King
+ */
+
+package programmingtheiot.gda.app;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A simple staged message pipeline. Each stage has its own bounded queue
+ * and pool of worker threads, and passes each message it accepts on to
+ * the next stage, so a slow stage only delays the stages behind it - not
+ * the caller submitting messages.
+ * <p>
+ * Each stage handler returns true to pass the message on to the next stage,
+ * or false to stop processing it. Messages are offered to the first stage's
+ * queue; by default this doesn't block, and if the queue is full the message
+ * is rejected. Messages passed between stages block the upstream stage's
+ * worker until the next stage has space, so a slow stage pushes back on the
+ * stages before it.
+ * <p>
+ * The first stage's queue can be replaced with one that applies its own
+ * load shedding policy, such as {@link IngestBuffer}.
+ * <p>
+ * A completion handler can be set to be told when the pipeline is done with
+ * each message, such as to release it for reuse.
+ * <p>
+ * When created in synchronous mode, no threads or queues are used, and each
+ * submitted message is run through every stage on the caller's thread.
+ * <p>
+ * NOTE: A stage with more than one worker may process messages out of order.
+ * 
+ * @param <T> The message type.
+ */
+public class DataMessagePipeline<T>
+{
+	// static
+	
+	private static final Logger _Logger =
+		Logger.getLogger(DataMessagePipeline.class.getName());
+	
+	private static final long POLL_TIMEOUT_MILLIS = 100L;
+	
+	
+	// private var's
+	
+	private final String  name;
+	private final int     queueSize;
+	private final boolean isAsync;
+	private final BlockingQueue<T> ingressQueue;
+	
+	private final List<Stage<T>> stages = new ArrayList<>();
+	
+	private ThreadFactory threadFactory = null;
+	private Consumer<T> completionHandler = null;
+	
+	private volatile boolean isStarted = false;
+	
+	
+	// constructors
+	
+	/**
+	 * Constructor.
+	 * 
+	 * @param name The pipeline name, used for worker thread names and logging.
+	 * @param queueSize The capacity of each stage's queue.
+	 * @param isAsync True to run each stage on its own workers; false to run
+	 * all stages on the submitting thread.
+	 */
+	public DataMessagePipeline(String name, int queueSize, boolean isAsync)
+	{
+		this(name, queueSize, isAsync, null);
+	}
+	
+	/**
+	 * Constructor.
+	 * 
+	 * @param name The pipeline name, used for worker thread names and logging.
+	 * @param queueSize The capacity of each stage's queue, other than the first.
+	 * @param isAsync True to run each stage on its own workers; false to run
+	 * all stages on the submitting thread.
+	 * @param ingressQueue The queue for the first stage, or null to use a
+	 * bounded queue of 'queueSize'. Unused in synchronous mode.
+	 */
+	public DataMessagePipeline(String name, int queueSize, boolean isAsync, BlockingQueue<T> ingressQueue)
+	{
+		super();
+		
+		if (queueSize <= 0) {
+			throw new IllegalArgumentException("Queue size must be positive: " + queueSize);
+		}
+		
+		this.name         = name;
+		this.queueSize    = queueSize;
+		this.isAsync      = isAsync;
+		this.ingressQueue = ingressQueue;
+	}
+	
+	
+	// public methods
+	
+	/**
+	 * Appends a stage to the pipeline. Stages can only be added before
+	 * the pipeline is started.
+	 * 
+	 * @param stageName The stage name.
+	 * @param workerCount The number of worker threads for the stage. Ignored
+	 * in synchronous mode; values less than 1 are treated as 1.
+	 * @param handler The stage handler.
+	 * @return DataMessagePipeline<T> This instance, to allow chaining.
+	 */
+	public synchronized DataMessagePipeline<T> addStage(String stageName, int workerCount, Predicate<T> handler)
+	{
+		if (this.isStarted) {
+			throw new IllegalStateException("Can't add a stage once started: " + stageName);
+		}
+		
+		BlockingQueue<T> queue =
+			(this.stages.isEmpty() && this.ingressQueue != null ?
+				this.ingressQueue : new ArrayBlockingQueue<>(this.queueSize));
+		
+		this.stages.add(new Stage<>(stageName, Math.max(1, workerCount), handler, queue));
+		
+		return this;
+	}
+	
+	/**
+	 * Sets the factory used to create the stage workers, such as one from
+	 * {@link GatewayExecutors}. Can only be set before the pipeline is started.
+	 * By default, each worker is a daemon platform thread.
+	 * 
+	 * @param threadFactory The thread factory.
+	 * @return DataMessagePipeline<T> This instance, to allow chaining.
+	 */
+	public synchronized DataMessagePipeline<T> setThreadFactory(ThreadFactory threadFactory)
+	{
+		if (this.isStarted) {
+			throw new IllegalStateException("Can't set the thread factory once started.");
+		}
+		
+		this.threadFactory = threadFactory;
+		
+		return this;
+	}
+	
+	/**
+	 * Sets the handler invoked once for each message the pipeline is done
+	 * with: after the last stage, or after the stage that stopped processing
+	 * it. It runs on the thread that ran that stage. Messages the first stage
+	 * rejected, or that were discarded when the pipeline stopped, aren't passed
+	 * to it. Can only be set before the pipeline is started.
+	 * 
+	 * @param completionHandler The completion handler.
+	 * @return DataMessagePipeline<T> This instance, to allow chaining.
+	 */
+	public synchronized DataMessagePipeline<T> setCompletionHandler(Consumer<T> completionHandler)
+	{
+		if (this.isStarted) {
+			throw new IllegalStateException("Can't set the completion handler once started.");
+		}
+		
+		this.completionHandler = completionHandler;
+		
+		return this;
+	}
+	
+	/**
+	 * Starts the stage workers. Has no effect in synchronous mode, or if already started.
+	 * 
+	 */
+	public synchronized void start()
+	{
+		if (this.isStarted) {
+			return;
+		}
+		
+		this.isStarted = true;
+		
+		if (this.isAsync) {
+			for (int i = 0; i < this.stages.size(); i++) {
+				Stage<T> nextStage = (i + 1 < this.stages.size() ? this.stages.get(i + 1) : null);
+				
+				this.stages.get(i).start(this.name, nextStage, this.threadFactory, this.completionHandler);
+			}
+			
+			_Logger.info("Pipeline " + this.name + " started with " + this.stages.size() + " stages.");
+		}
+	}
+	
+	/**
+	 * Stops the stage workers, one stage at a time from first to last, so
+	 * messages already accepted are drained through the remaining stages.
+	 * 
+	 * @param timeoutMillis The maximum time to wait for each stage to drain.
+	 */
+	public synchronized void stop(long timeoutMillis)
+	{
+		if (! this.isStarted) {
+			return;
+		}
+		
+		this.isStarted = false;
+		
+		if (this.isAsync) {
+			for (Stage<T> stage : this.stages) {
+				stage.stop(timeoutMillis);
+			}
+			
+			_Logger.info("Pipeline " + this.name + " stopped.");
+		}
+	}
+	
+	/**
+	 * Submits a message to the first stage.
+	 * 
+	 * @param msg The message to submit.
+	 * @return boolean True if the message was accepted; false if it's null, the
+	 * pipeline has no stages or isn't started, or the first stage's queue rejected it.
+	 */
+	public boolean submit(T msg)
+	{
+		if (msg == null || this.stages.isEmpty()) {
+			return false;
+		}
+		
+		if (! this.isAsync) {
+			runAll(msg);
+			
+			return true;
+		}
+		
+		if (! this.isStarted) {
+			return false;
+		}
+		
+		return this.stages.get(0).offer(msg);
+	}
+	
+	public String getName()
+	{
+		return this.name;
+	}
+	
+	public boolean isAsync()
+	{
+		return this.isAsync;
+	}
+	
+	public boolean isStarted()
+	{
+		return this.isStarted;
+	}
+	
+	public List<String> getStageNames()
+	{
+		List<String> names = new ArrayList<>();
+		
+		for (Stage<T> stage : this.stages) {
+			names.add(stage.name);
+		}
+		
+		return names;
+	}
+	
+	/**
+	 * 
+	 * @param stageName The stage name.
+	 * @return int The number of messages waiting in the stage's queue.
+	 */
+	public int getQueueSize(String stageName)
+	{
+		return getStage(stageName).queue.size();
+	}
+	
+	/**
+	 * 
+	 * @param stageName The stage name.
+	 * @return long The number of messages the stage's handler has completed, successfully or not.
+	 */
+	public long getProcessedCount(String stageName)
+	{
+		return getStage(stageName).processedCount.get();
+	}
+	
+	/**
+	 * 
+	 * @param stageName The stage name.
+	 * @return long The number of messages for which the stage's handler threw an exception.
+	 */
+	public long getFailedCount(String stageName)
+	{
+		return getStage(stageName).failedCount.get();
+	}
+	
+	/**
+	 * 
+	 * @return long The number of messages rejected by the first stage's queue.
+	 */
+	public long getRejectedCount()
+	{
+		return (this.stages.isEmpty() ? 0L : this.stages.get(0).rejectedCount.get());
+	}
+	
+	
+	// private methods
+	
+	private Stage<T> getStage(String stageName)
+	{
+		for (Stage<T> stage : this.stages) {
+			if (stage.name.equals(stageName)) {
+				return stage;
+			}
+		}
+		
+		throw new IllegalArgumentException("No such stage: " + stageName);
+	}
+	
+	private void runAll(T msg)
+	{
+		for (Stage<T> stage : this.stages) {
+			if (! stage.process(msg)) {
+				break;
+			}
+		}
+		
+		complete(msg, this.completionHandler);
+	}
+	
+	private static <T> void complete(T msg, Consumer<T> completionHandler)
+	{
+		if (completionHandler != null) {
+			try {
+				completionHandler.accept(msg);
+			} catch (Exception e) {
+				_Logger.log(Level.WARNING, "Pipeline completion handler failed.", e);
+			}
+		}
+	}
+	
+	
+	// private classes
+	
+	/**
+	 * A single pipeline stage: a bounded queue, its handler, and its workers.
+	 * 
+	 */
+	private static final class Stage<T>
+	{
+		final String name;
+		final int workerCount;
+		final Predicate<T> handler;
+		final BlockingQueue<T> queue;
+		
+		final AtomicLong processedCount = new AtomicLong();
+		final AtomicLong failedCount    = new AtomicLong();
+		final AtomicLong rejectedCount  = new AtomicLong();
+		
+		final List<Thread> workers = new ArrayList<>();
+		
+		volatile boolean isRunning = false;
+		
+		Stage(String name, int workerCount, Predicate<T> handler, BlockingQueue<T> queue)
+		{
+			this.name        = name;
+			this.workerCount = workerCount;
+			this.handler     = handler;
+			this.queue       = queue;
+		}
+		
+		boolean offer(T msg)
+		{
+			if (this.queue.offer(msg)) {
+				return true;
+			}
+			
+			this.rejectedCount.incrementAndGet();
+			
+			return false;
+		}
+		
+		boolean process(T msg)
+		{
+			try {
+				return this.handler.test(msg);
+			} catch (Exception e) {
+				this.failedCount.incrementAndGet();
+				_Logger.log(Level.WARNING, "Pipeline stage " + this.name + " failed to process message.", e);
+				
+				return false;
+			} finally {
+				this.processedCount.incrementAndGet();
+			}
+		}
+		
+		void start(String pipelineName, Stage<T> nextStage, ThreadFactory threadFactory, Consumer<T> completionHandler)
+		{
+			this.isRunning = true;
+			
+			for (int i = 0; i < this.workerCount; i++) {
+				Runnable task = () -> runWorker(nextStage, completionHandler);
+				Thread worker = (threadFactory != null ? threadFactory.newThread(task) : new Thread(task));
+				
+				worker.setName(pipelineName + "-" + this.name + "-" + i);
+				
+				if (! worker.isDaemon()) {
+					worker.setDaemon(true);
+				}
+				
+				worker.start();
+				
+				this.workers.add(worker);
+			}
+		}
+		
+		void stop(long timeoutMillis)
+		{
+			this.isRunning = false;
+			
+			long deadline = System.currentTimeMillis() + timeoutMillis;
+			
+			for (Thread worker : this.workers) {
+				try {
+					worker.join(Math.max(1L, deadline - System.currentTimeMillis()));
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				
+				if (worker.isAlive()) {
+					worker.interrupt();
+				}
+			}
+			
+			this.workers.clear();
+			
+			if (! this.queue.isEmpty()) {
+				_Logger.warning("Pipeline stage " + this.name + " stopped with " + this.queue.size() + " messages pending.");
+				this.queue.clear();
+			}
+		}
+		
+		private void runWorker(Stage<T> nextStage, Consumer<T> completionHandler)
+		{
+			try {
+				// keep draining after stop is requested, until the queue is empty
+				while (this.isRunning || ! this.queue.isEmpty()) {
+					T msg = this.queue.poll(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+					
+					if (msg == null) {
+						continue;
+					}
+					
+					if (process(msg) && nextStage != null) {
+						nextStage.queue.put(msg);
+					} else {
+						complete(msg, completionHandler);
+					}
+				}
+			} catch (InterruptedException e) {
+				// stopped before the queue could be drained
+			}
+		}
+	}
+	
+}
@@ -7,18 +7,29 @@
  */
 package programmingtheiot.gda.app;
 
+import java.util.concurrent.ExecutorService;
 import java.util.logging.Logger;
 
+import programmingtheiot.common.ConfigBindings;
 import programmingtheiot.common.ConfigConst;
 import programmingtheiot.common.ConfigUtil;
+import programmingtheiot.common.DefaultDataMessageListener;
+import programmingtheiot.common.GatewayDeviceConfig;
 import programmingtheiot.common.IActuatorDataListener;
 import programmingtheiot.common.IDataMessageListener;
 import programmingtheiot.common.ResourceNameEnum;
 
 import programmingtheiot.data.ActuatorData;
+import programmingtheiot.data.BaseIotData;
+import programmingtheiot.data.DataUtil;
+import programmingtheiot.data.IotDataRecycler;
 import programmingtheiot.data.SensorData;
 import programmingtheiot.data.SystemPerformanceData;
 import programmingtheiot.data.SystemStateData;
+import programmingtheiot.data.TelemetryHistory;
+
+import programmingtheiot.gda.analytics.EdgeRuleEngine;
+import programmingtheiot.gda.analytics.SensorDataAggregator;
 
 // Connection classes (stubs or implementations)
 import programmingtheiot.gda.connection.CloudClientConnector;
@@ -39,6 +50,14 @@ public class DeviceDataManager implements IDataMessageListener
     private static final Logger _Logger =
         Logger.getLogger(DeviceDataManager.class.getName());
     
+    // pipeline stage names
+    private static final String DECODE_STAGE = "decode";
+    private static final String ANALYSIS_STAGE = "analysis";
+    private static final String PERSISTENCE_STAGE = "persistence";
+    private static final String UPSTREAM_STAGE = "upstream";
+    
+    private static final long PIPELINE_STOP_TIMEOUT_MILLIS = 5000L;
+    
     // private variables (flags)
     private boolean enableMqttClient = true;
     private boolean enableCoapServer = false;
@@ -46,36 +65,42 @@ public class DeviceDataManager implements IDataMessageListener
     private boolean enableSmtpClient = false;
     private boolean enablePersistenceClient = false;
     private boolean enableSystemPerf = false;
+    private boolean enableTelemetryHistory = false;
+    private boolean enableEdgeAnalytics = false;
     
     // private variables (connection and manager instances)
-    private IActuatorDataListener actuatorDataListener = null;
+    private volatile IActuatorDataListener actuatorDataListener = null;
     private IPubSubClient mqttClient = null;
     private IPubSubClient cloudClient = null;
     private IPersistenceClient persistenceClient = null;
     private IRequestResponseClient smtpClient = null;
     private CoapServerGateway coapServer = null;
     private SystemPerformanceManager sysPerfMgr = null;
+    private TelemetryHistory telemetryHistory = null;
+    private IngestBuffer<PipelineMessage> ingestBuffer = null;
+    private DataMessagePipeline<PipelineMessage> pipeline = null;
+    private UpstreamBatcher upstreamBatcher = null;
+    private ExecutorService upstreamExecutor = null;
+    private ShardedDataMessageDispatcher dispatcher = null;
+    private EdgeRuleEngine edgeRuleEngine = null;
+    private SensorDataAggregator aggregator = null;
+    private SensorDataFilter sensorFilter = null;
     
     // constructors
     
     /**
-     * Default constructor. Uses ConfigUtil to set flags and initializes the manager.
+     * Default constructor. Uses the GatewayDevice configuration to set flags and initializes the manager.
      */
     public DeviceDataManager()
     {
         super();
         
-        ConfigUtil configUtil = ConfigUtil.getInstance();
-        this.enableMqttClient =
-            configUtil.getBoolean(ConfigConst.GATEWAY_DEVICE, ConfigConst.ENABLE_MQTT_CLIENT_KEY);
-        this.enableCoapServer =
-            configUtil.getBoolean(ConfigConst.GATEWAY_DEVICE, ConfigConst.ENABLE_COAP_SERVER_KEY);
-        this.enableCloudClient =
-            configUtil.getBoolean(ConfigConst.GATEWAY_DEVICE, ConfigConst.ENABLE_CLOUD_CLIENT_KEY);
-        this.enablePersistenceClient =
-            configUtil.getBoolean(ConfigConst.GATEWAY_DEVICE, ConfigConst.ENABLE_PERSISTENCE_CLIENT_KEY);
-        this.enableSystemPerf =
-            configUtil.getBoolean(ConfigConst.GATEWAY_DEVICE, ConfigConst.ENABLE_SYSTEM_PERF_KEY);
+        GatewayDeviceConfig gdaConfig = ConfigBindings.getInstance().getGatewayDeviceConfig();
+        this.enableMqttClient = gdaConfig.isMqttClientEnabled();
+        this.enableCoapServer = gdaConfig.isCoapServerEnabled();
+        this.enableCloudClient = gdaConfig.isCloudClientEnabled();
+        this.enablePersistenceClient = gdaConfig.isPersistenceClientEnabled();
+        this.enableSystemPerf = gdaConfig.isSystemPerformanceEnabled();
         
         initManager();
     }
@@ -98,9 +123,8 @@ public class DeviceDataManager implements IDataMessageListener
         this.enableSmtpClient = enableSmtpClient;
         this.enablePersistenceClient = enablePersistenceClient;
         
-        ConfigUtil configUtil = ConfigUtil.getInstance();
         this.enableSystemPerf =
-            configUtil.getBoolean(ConfigConst.GATEWAY_DEVICE, ConfigConst.ENABLE_SYSTEM_PERF_KEY);
+            ConfigBindings.getInstance().getGatewayDeviceConfig().isSystemPerformanceEnabled();
         
         initManager();
     }
@@ -111,18 +135,7 @@ public class DeviceDataManager implements IDataMessageListener
     @Override
     public boolean handleActuatorCommandResponse(ResourceNameEnum resourceName, ActuatorData data)
     {
-        if (data != null) {
-            _Logger.info("Handling actuator response: " + data.getName());
-            // Optionally perform further analysis
-            handleIncomingDataAnalysis(resourceName, data);
-            
-            if (data.hasError()) {
-                _Logger.warning("Error flag set for ActuatorData instance.");
-            }
-            return true;
-        } else {
-            return false;
-        }
+        return submitMessage(resourceName, data);
     }
 
     @Override
@@ -136,8 +149,7 @@ public class DeviceDataManager implements IDataMessageListener
     public boolean handleIncomingMessage(ResourceNameEnum resourceName, String msg)
     {
         if (msg != null) {
-            _Logger.info("Handling incoming generic message: " + msg);
-            return true;
+            return submitMessage(new PipelineMessage(resourceName, msg));
         } else {
             return false;
         }
@@ -146,31 +158,93 @@ public class DeviceDataManager implements IDataMessageListener
     @Override
     public boolean handleSensorMessage(ResourceNameEnum resourceName, SensorData data)
     {
-        if (data != null) {
-            _Logger.info("Handling sensor message: " + data.getName());
-            
-            if (data.hasError()) {
-                _Logger.warning("Error flag set for SensorData instance.");
-            }
+        // a filtered reading was handled as intended, so isn't a failure
+        if (! isNewReading(data)) {
+            IotDataRecycler.getInstance().release(data);
             return true;
-        } else {
-            return false;
         }
+        
+        return submitMessage(resourceName, data);
     }
 
     @Override
     public boolean handleSystemPerformanceMessage(ResourceNameEnum resourceName, SystemPerformanceData data)
     {
-        if (data != null) {
-            _Logger.info("Handling system performance message: " + data.getName());
-            
-            if (data.hasError()) {
-                _Logger.warning("Error flag set for SystemPerformanceData instance.");
-            }
-            return true;
-        } else {
-            return false;
-        }
+        return submitMessage(resourceName, data);
+    }
+    
+    /**
+     * Returns the recent SensorData and SystemPerformanceData history, which
+     * can be queried by resource and timestamp range.
+     * 
+     * @return TelemetryHistory The history, or null if disabled via the
+     * 'enableTelemetryHistory' property in the GatewayDevice section.
+     */
+    public TelemetryHistory getTelemetryHistory()
+    {
+        return this.telemetryHistory;
+    }
+    
+    /**
+     * Returns the number of inbound messages for the given resource that
+     * were dropped by its backpressure policy.
+     * 
+     * @param resourceName The resource.
+     * @return long The number of messages dropped.
+     */
+    public long getDroppedMessageCount(ResourceNameEnum resourceName)
+    {
+        return this.ingestBuffer.getDroppedCount(resourceName);
+    }
+    
+    /**
+     * Returns the number of inbound messages for the given resource that
+     * were replaced by a later reading from the same sensor.
+     * 
+     * @param resourceName The resource.
+     * @return long The number of messages coalesced.
+     */
+    public long getCoalescedMessageCount(ResourceNameEnum resourceName)
+    {
+        return this.ingestBuffer.getCoalescedCount(resourceName);
+    }
+    
+    /**
+     * Returns the filter that drops duplicate sensor readings, and those
+     * within the configured deadband.
+     * 
+     * @return SensorDataFilter The filter, or null if neither the
+     * 'enableSensorDedup' nor 'sensorDeadband' property in the GatewayDevice
+     * section enables it.
+     */
+    public SensorDataFilter getSensorDataFilter()
+    {
+        return this.sensorFilter;
+    }
+    
+    /**
+     * Returns the listener connections should deliver incoming messages to.
+     * If ordered dispatch is enabled via the 'enableOrderedDispatch' property in
+     * the GatewayDevice section, this is a dispatcher that processes messages
+     * from different devices in parallel, but from each device in order.
+     * Otherwise, it's this instance.
+     * 
+     * @return IDataMessageListener The listener.
+     */
+    public IDataMessageListener getDataMessageListener()
+    {
+        return (this.dispatcher != null ? this.dispatcher : this);
+    }
+    
+    /**
+     * Returns the engine that evaluates edge analytics rules against incoming data.
+     * 
+     * @return EdgeRuleEngine The engine, or null if disabled via the
+     * 'enableEdgeAnalytics' property in the GatewayDevice section.
+     */
+    public EdgeRuleEngine getEdgeRuleEngine()
+    {
+        return this.edgeRuleEngine;
     }
     
     public void setActuatorDataListener(String name, IActuatorDataListener listener)
@@ -184,6 +258,24 @@ public class DeviceDataManager implements IDataMessageListener
     public void startManager()
     {
         _Logger.info("Starting DeviceDataManager...");
+        this.pipeline.start();
+        
+        if (this.dispatcher != null) {
+            this.dispatcher.start();
+        }
+        
+        if (this.mqttClient != null) {
+            this.mqttClient.connectClient();
+        }
+        
+        if (this.upstreamBatcher != null) {
+            this.upstreamBatcher.start();
+        }
+        
+        if (this.aggregator != null) {
+            this.aggregator.start();
+        }
+        
         if (this.sysPerfMgr != null) {
             this.sysPerfMgr.startManager();
         }
@@ -200,6 +292,27 @@ public class DeviceDataManager implements IDataMessageListener
             this.sysPerfMgr.stopManager();
         }
         // TODO: Add calls to stop/disconnect other connection clients/servers as implemented
+        
+        // stop last, so messages already accepted are drained downstream
+        if (this.dispatcher != null) {
+            this.dispatcher.stop(PIPELINE_STOP_TIMEOUT_MILLIS);
+        }
+        
+        this.pipeline.stop(PIPELINE_STOP_TIMEOUT_MILLIS);
+        
+        // sends the open windows' summaries to the batcher, before it's stopped
+        if (this.aggregator != null) {
+            this.aggregator.stop();
+        }
+        
+        if (this.upstreamBatcher != null) {
+            this.upstreamBatcher.stop();
+            this.upstreamExecutor.shutdown();
+        }
+        
+        if (this.mqttClient != null) {
+            this.mqttClient.disconnectClient();
+        }
     }
     
     
@@ -210,19 +323,85 @@ public class DeviceDataManager implements IDataMessageListener
      */
     private void initManager()
     {
-        ConfigUtil configUtil = ConfigUtil.getInstance();
+        GatewayDeviceConfig gdaConfig = ConfigBindings.getInstance().getGatewayDeviceConfig();
         
         // Re-read the system performance enablement flag
-        this.enableSystemPerf =
-            configUtil.getBoolean(ConfigConst.GATEWAY_DEVICE, ConfigConst.ENABLE_SYSTEM_PERF_KEY);
+        this.enableSystemPerf = gdaConfig.isSystemPerformanceEnabled();
+        
+        this.enableTelemetryHistory = gdaConfig.isTelemetryHistoryEnabled();
+        
+        if (this.enableTelemetryHistory) {
+            this.telemetryHistory = new TelemetryHistory(gdaConfig.getTelemetryHistorySize());
+        }
+        
+        this.enableEdgeAnalytics = gdaConfig.isEdgeAnalyticsEnabled();
+        
+        if (this.enableEdgeAnalytics) {
+            this.edgeRuleEngine =
+                new EdgeRuleEngine(ConfigBindings.getInstance().getEdgeRuleConfigs(), this::sendActuatorCommand);
+        }
+        
+        if (gdaConfig.isSensorDedupEnabled() || gdaConfig.getSensorDeadband() > 0.0f) {
+            this.sensorFilter =
+                new SensorDataFilter(
+                    gdaConfig.isSensorDedupEnabled() ? gdaConfig.getDedupCacheSize() : 0,
+                    gdaConfig.getSensorDeadband());
+        }
+        
+        // per-resource buffers in front of the pipeline, so bursts are shed
+        // according to each resource's policy rather than exhausting the heap
+        this.ingestBuffer =
+            new IngestBuffer<PipelineMessage>(
+                gdaConfig.getIngestBufferSize(),
+                gdaConfig.getIngestBlockTimeoutMillis(),
+                gdaConfig::getIngestPolicy,
+                PipelineMessage::getResourceName,
+                this::getCoalesceKey);
+        
+        // with ordered dispatch, each lane runs the pipeline stages itself, as
+        // handing messages on to the pipeline's own workers would reorder them
+        boolean isOrderedDispatch = gdaConfig.isOrderedDispatchEnabled();
+        boolean isAsyncPipeline = gdaConfig.isAsyncPipelineEnabled() && ! isOrderedDispatch;
+        boolean useVirtualThreads = gdaConfig.isVirtualThreadsEnabled();
+        
+        // the ingest buffer is only the async pipeline's first queue, so
+        // otherwise its per-resource policies are silently bypassed
+        if (! isAsyncPipeline && isIngestPolicyConfigured(gdaConfig)) {
+            _Logger.warning(
+                "Ingest policies are configured, but don't apply to a synchronous pipeline or ordered dispatch. "
+                + "Enable the async pipeline, and disable ordered dispatch, for them to take effect.");
+        }
+        
+        if (isOrderedDispatch) {
+            this.dispatcher =
+                new ShardedDataMessageDispatcher(
+                    this,
+                    gdaConfig.getDispatchLanes(),
+                    gdaConfig.getDispatchLaneQueueSize(),
+                    GatewayExecutors.newThreadFactory("DispatcherLane-", useVirtualThreads));
+        }
+        
+        this.pipeline =
+            new DataMessagePipeline<PipelineMessage>(
+                "DeviceDataPipeline",
+                gdaConfig.getPipelineQueueSize(),
+                isAsyncPipeline,
+                this.ingestBuffer)
+            .setThreadFactory(GatewayExecutors.newThreadFactory("DeviceDataPipeline-", useVirtualThreads))
+            .addStage(DECODE_STAGE, gdaConfig.getDecodeWorkers(), this::decodeMessage)
+            .addStage(ANALYSIS_STAGE, gdaConfig.getAnalysisWorkers(), this::analyzeMessage)
+            .addStage(PERSISTENCE_STAGE, gdaConfig.getPersistenceWorkers(), this::persistMessage)
+            .addStage(UPSTREAM_STAGE, gdaConfig.getUpstreamWorkers(), this::transmitMessage)
+            .setCompletionHandler(this::releaseMessage);
         
         if (this.enableSystemPerf) {
             this.sysPerfMgr = new SystemPerformanceManager();
-            this.sysPerfMgr.setDataMessageListener(this);
+            this.sysPerfMgr.setDataMessageListener(getDataMessageListener());
         }
         
         if (this.enableMqttClient) {
-            // TODO: Instantiate the MQTT client (e.g., new MqttClientConnector())
+            this.mqttClient = new MqttClientConnector();
+            this.mqttClient.setDataMessageListener(getDataMessageListener());
         }
         
         if (this.enableCoapServer) {
@@ -236,24 +415,328 @@ public class DeviceDataManager implements IDataMessageListener
         if (this.enablePersistenceClient) {
             // TODO: Instantiate the Persistence client (e.g., new RedisPersistenceAdapter())
         }
+        
+        if (this.enableCloudClient) {
+            // upstream batches are only ever published via the cloud client; the
+            // gateway's MQTT connection shares its topics with the CDA, which would
+            // receive its own readings back as JSON arrays
+            if (this.cloudClient != null) {
+                this.upstreamBatcher =
+                    new UpstreamBatcher(
+                        this.cloudClient,
+                        gdaConfig.getUpstreamBatchSize(),
+                        gdaConfig.getUpstreamBatchBytes(),
+                        gdaConfig.getUpstreamLingerMillis());
+                
+                this.upstreamExecutor =
+                    GatewayExecutors.newTaskExecutor("UpstreamPublisher-", useVirtualThreads);
+                this.upstreamBatcher.setPublishExecutor(this.upstreamExecutor);
+            } else {
+                _Logger.warning("Cloud client enabled, but not available. Upstream transmission disabled.");
+            }
+            
+            // sensor readings are summarized per window, and only the summaries sent upstream
+            if (gdaConfig.isAggregationEnabled()) {
+                IDataMessageListener summaryListener = new DefaultDataMessageListener() {
+                    @Override
+                    public boolean handleSensorMessage(ResourceNameEnum resourceName, SensorData data)
+                    {
+                        return transmitSensorSummary(resourceName, data);
+                    }
+                };
+                
+                this.aggregator =
+                    new SensorDataAggregator(
+                        summaryListener,
+                        gdaConfig.getAggregationWindowMillis(),
+                        gdaConfig.getAggregationSlideMillis(),
+                        gdaConfig.getAggregationPercentiles());
+            }
+        }
     }
 
+    private boolean submitMessage(ResourceNameEnum resourceName, BaseIotData data)
+    {
+        if (data != null) {
+            return submitMessage(new PipelineMessage(resourceName, data));
+        } else {
+            return false;
+        }
+    }
+    
+    private boolean submitMessage(PipelineMessage msg)
+    {
+        if (this.pipeline.submit(msg)) {
+            return true;
+        }
+        
+        // the ingest buffer logs and counts the messages it sheds
+        if (! this.pipeline.isStarted()) {
+            _Logger.warning("Manager not started. Dropping message for resource: " + msg.getResourceName());
+        }
+        
+        return false;
+    }
+    
+    /**
+     * Returns true if an ingest policy is set in the GatewayDevice section,
+     * either as the default or for any resource.
+     */
+    private boolean isIngestPolicyConfigured(GatewayDeviceConfig gdaConfig)
+    {
+        return
+            ConfigUtil.getInstance().hasProperty(ConfigConst.GATEWAY_DEVICE, ConfigConst.INGEST_POLICY_KEY)
+            || ! gdaConfig.getIngestPolicyOverrides().isEmpty();
+    }
+    
+    /**
+     * Returns false if the reading is a duplicate, or within the deadband.
+     */
+    private boolean isNewReading(SensorData data)
+    {
+        return (this.sensorFilter == null || data == null || this.sensorFilter.accept(data));
+    }
+    
+    /**
+     * Identifies the sensor a message came from, so the coalesce-latest
+     * policy can keep only its latest reading. Raw (undecoded) messages
+     * are never coalesced.
+     */
+    private Object getCoalesceKey(PipelineMessage msg)
+    {
+        BaseIotData data = msg.getData();
+        
+        return (data != null ? data.getName() + '/' + data.getLocationID() : null);
+    }
+    
+    /**
+     * Pipeline stage: decodes raw JSON messages into the data type expected
+     * for their resource. Already decoded messages pass straight through.
+     */
+    private boolean decodeMessage(PipelineMessage msg)
+    {
+        if (msg.getData() != null) {
+            return true;
+        }
+        
+        ResourceNameEnum resourceName = msg.getResourceName();
+        String jsonData = msg.getRawMessage();
+        DataUtil dataUtil = DataUtil.getInstance();
+        
+        _Logger.fine("Handling incoming generic message: " + jsonData);
+        
+        if (resourceName == null) {
+            _Logger.warning("No resource for incoming message. Ignoring.");
+            return false;
+        }
+        
+        switch (resourceName) {
+            case CDA_SENSOR_MSG_RESOURCE:
+                SensorData sensorData = dataUtil.jsonToSensorData(jsonData);
+                
+                // readings that arrive as JSON can only be filtered once decoded
+                if (! isNewReading(sensorData)) {
+                    return false;
+                }
+                
+                msg.setData(sensorData); break;
+                
+            case CDA_ACTUATOR_RESPONSE_RESOURCE:
+                msg.setData(dataUtil.jsonToActuatorData(jsonData)); break;
+                
+            case CDA_SYSTEM_PERF_MSG_RESOURCE:
+            case GDA_SYSTEM_PERF_MSG_RESOURCE:
+                msg.setData(dataUtil.jsonToSystemPerformanceData(jsonData)); break;
+                
+            case CDA_MGMT_STATUS_MSG_RESOURCE:
+            case GDA_MGMT_STATUS_MSG_RESOURCE:
+                msg.setData(dataUtil.jsonToSystemStateData(jsonData)); break;
+                
+            default:
+                _Logger.info("No decoder for resource " + resourceName + ". Ignoring message.");
+        }
+        
+        return (msg.getData() != null);
+    }
+    
+    /**
+     * Pipeline stage: records and analyzes the decoded data.
+     */
+    private boolean analyzeMessage(PipelineMessage msg)
+    {
+        ResourceNameEnum resourceName = msg.getResourceName();
+        BaseIotData data = msg.getData();
+        
+        if (data instanceof SensorData) {
+            _Logger.fine("Handling sensor message: " + data.getName());
+            
+            if (this.telemetryHistory != null) {
+                this.telemetryHistory.append(resourceName, (SensorData) data);
+            }
+            
+            handleIncomingDataAnalysis(resourceName, (SensorData) data);
+        } else if (data instanceof SystemPerformanceData) {
+            _Logger.fine("Handling system performance message: " + data.getName());
+            
+            if (this.telemetryHistory != null) {
+                this.telemetryHistory.append(resourceName, (SystemPerformanceData) data);
+            }
+            
+            handleIncomingDataAnalysis(resourceName, (SystemPerformanceData) data);
+        } else if (data instanceof ActuatorData) {
+            _Logger.fine("Handling actuator response: " + data.getName());
+            handleIncomingDataAnalysis(resourceName, (ActuatorData) data);
+        } else if (data instanceof SystemStateData) {
+            handleIncomingDataAnalysis(resourceName, (SystemStateData) data);
+        }
+        
+        if (data.hasError()) {
+            _Logger.warning("Error flag set for " + data.getClass().getSimpleName() + " instance.");
+        }
+        
+        return true;
+    }
+    
+    /**
+     * Pipeline stage: stores the data, if persistence is enabled.
+     */
+    private boolean persistMessage(PipelineMessage msg)
+    {
+        if (this.persistenceClient != null) {
+            String topic = msg.getResourceName().getResourceName();
+            BaseIotData data = msg.getData();
+            
+            if (data instanceof SensorData) {
+                this.persistenceClient.storeData(topic, 0, (SensorData) data);
+            } else if (data instanceof SystemPerformanceData) {
+                this.persistenceClient.storeData(topic, 0, (SystemPerformanceData) data);
+            } else if (data instanceof ActuatorData) {
+                this.persistenceClient.storeData(topic, 0, (ActuatorData) data);
+            }
+        }
+        
+        return true;
+    }
+    
+    /**
+     * Pipeline stage: sends the data upstream, if the cloud client is enabled.
+     */
+    private boolean transmitMessage(PipelineMessage msg)
+    {
+        if (! this.enableCloudClient) {
+            return true;
+        }
+        
+        BaseIotData data = msg.getData();
+        
+        if (this.aggregator != null && data instanceof SensorData) {
+            this.aggregator.add(msg.getResourceName(), (SensorData) data);
+            
+            return true;
+        }
+        
+        DataUtil dataUtil = DataUtil.getInstance();
+        String jsonData = msg.getRawMessage();
+        
+        if (jsonData == null) {
+            if (data instanceof SensorData) {
+                jsonData = dataUtil.sensorDataToJson((SensorData) data);
+            } else if (data instanceof SystemPerformanceData) {
+                jsonData = dataUtil.systemPerformanceDataToJson((SystemPerformanceData) data);
+            } else if (data instanceof ActuatorData) {
+                jsonData = dataUtil.actuatorDataToJson((ActuatorData) data);
+            } else if (data instanceof SystemStateData) {
+                jsonData = dataUtil.systemStateDataToJson((SystemStateData) data);
+            }
+        }
+        
+        int qos = ConfigBindings.getInstance().getCloudConfig().getDefaultQos();
+        
+        return handleUpstreamTransmission(msg.getResourceName(), jsonData, qos);
+    }
+    
+    /**
+     * Pipeline completion: releases the message's data for reuse. None of
+     * the stages keep a reference to it, so the pipeline is its last owner.
+     */
+    private void releaseMessage(PipelineMessage msg)
+    {
+        IotDataRecycler.getInstance().release(msg.getData());
+    }
+    
+    /**
+     * Sends a sensor window summary from the aggregator upstream.
+     */
+    private boolean transmitSensorSummary(ResourceNameEnum resourceName, SensorData data)
+    {
+        String jsonData = DataUtil.getInstance().sensorDataToJson(data);
+        int qos = ConfigBindings.getInstance().getCloudConfig().getDefaultQos();
+        
+        return handleUpstreamTransmission(resourceName, jsonData, qos);
+    }
+    
+    private void handleIncomingDataAnalysis(ResourceNameEnum resourceName, SensorData data)
+    {
+        if (this.edgeRuleEngine != null) {
+            this.edgeRuleEngine.evaluate(data);
+        }
+    }
+    
+    private void handleIncomingDataAnalysis(ResourceNameEnum resourceName, SystemPerformanceData data)
+    {
+        if (this.edgeRuleEngine != null) {
+            this.edgeRuleEngine.evaluate(data);
+        }
+    }
+    
     private void handleIncomingDataAnalysis(ResourceNameEnum resourceName, ActuatorData data)
     {
         _Logger.fine("handleIncomingDataAnalysis (ActuatorData) called for resource: " + resourceName);
-        // TODO: Implement further analysis and potential downstream processing.
+        
+        // a failed command is retried on the next reading that calls for it
+        if (this.edgeRuleEngine != null && this.edgeRuleEngine.handleActuatorResponse(data)) {
+            _Logger.warning("Actuator reported an error for edge rule command: " + data.getStateData());
+        }
     }
 
     private void handleIncomingDataAnalysis(ResourceNameEnum resourceName, SystemStateData data)
     {
         _Logger.fine("handleIncomingDataAnalysis (SystemStateData) called for resource: " + resourceName);
-        // TODO: Implement analysis logic for system state data.
+        
+        if (this.edgeRuleEngine != null) {
+            this.edgeRuleEngine.evaluate(data);
+        }
+    }
+    
+    /**
+     * Sends an actuator command raised by an edge analytics rule to the
+     * actuator data listener, if one is set.
+     */
+    private boolean sendActuatorCommand(ActuatorData data)
+    {
+        IActuatorDataListener listener = this.actuatorDataListener;
+        
+        if (listener == null) {
+            _Logger.fine("No actuator data listener. Ignoring edge rule command: " + data.getStateData());
+            return false;
+        }
+        
+        return listener.onActuatorDataUpdate(data);
     }
 
+    /**
+     * Queues the message for upstream transmission. Messages are batched per
+     * resource and QoS, so the return value only reflects a failure if this
+     * message filled a batch and publishing it failed.
+     */
     private boolean handleUpstreamTransmission(ResourceNameEnum resourceName, String jsonData, int qos)
     {
         _Logger.fine("handleUpstreamTransmission called for resource: " + resourceName + " with QoS: " + qos);
-        // TODO: Implement upstream transmission logic.
-        return false;
+        
+        if (this.upstreamBatcher == null || jsonData == null) {
+            return false;
+        }
+        
+        return this.upstreamBatcher.add(resourceName, jsonData, qos);
     }
 }
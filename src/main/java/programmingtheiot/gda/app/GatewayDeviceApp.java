@@ -14,7 +14,7 @@
  import java.util.logging.Level;
  import java.util.logging.Logger;
  
- import programmingtheiot.common.ConfigConst;
+ import programmingtheiot.common.ConfigBindings;
  import programmingtheiot.common.ConfigUtil;
  
 
@@ -88,10 +88,17 @@ public class GatewayDeviceApp
         _Logger.info("Starting GDA...");
         
         try {
+            // fail fast on invalid host, port, QoS, etc. values
+            ConfigBindings.getInstance().validate();
+            
             if (this.dataMgr != null) {
                 this.dataMgr.startManager();
             }
             
+            if (ConfigBindings.getInstance().getGatewayDeviceConfig().isConfigWatchEnabled()) {
+                ConfigUtil.getInstance().startConfigWatch();
+            }
+            
             _Logger.info("GDA started successfully.");
         } catch (Exception e) {
             _Logger.log(Level.SEVERE, "Failed to start GDA. Exiting.", e);
@@ -109,6 +116,8 @@ public class GatewayDeviceApp
         _Logger.info("Stopping GDA...");
         
         try {
+            ConfigUtil.getInstance().stopConfigWatch();
+            
             if (this.dataMgr != null) {
                 this.dataMgr.stopManager();
             }
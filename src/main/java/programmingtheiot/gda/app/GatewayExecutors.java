@@ -0,0 +1,155 @@
+/**
+ * This class is part of the Programming the Internet of Things
+ * project, and is available via the MIT License, which can be
+ * found in the LICENSE file at the top level of this repository.
+ * 
+ * Copyright (c) 2020 by Andrew D. King
+ */
+
+package programmingtheiot.gda.app;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Creates the threads the gateway uses for listener dispatch, persistence
+ * writes and outbound requests, as either platform threads or - when
+ * enabled and supported by the JVM - virtual threads, which allow many
+ * concurrent blocking operations without a large platform thread pool.
+ * <p>
+ * The project is compiled for Java 11, so the virtual thread API (Java 21+)
+ * is looked up reflectively. On older JVMs, platform threads are used.
+ * 
+ */
+public final class GatewayExecutors
+{
+	// static
+	
+	private static final Logger _Logger =
+		Logger.getLogger(GatewayExecutors.class.getName());
+	
+	// null if virtual threads aren't supported by this JVM
+	private static final Method _OfVirtualMethod;
+	private static final Method _BuilderNameMethod;
+	private static final Method _BuilderFactoryMethod;
+	private static final Method _NewVirtualExecutorMethod;
+	
+	static {
+		Method ofVirtual = null;
+		Method builderName = null;
+		Method builderFactory = null;
+		Method newVirtualExecutor = null;
+		
+		try {
+			Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+			
+			ofVirtual          = Thread.class.getMethod("ofVirtual");
+			builderName        = builderClass.getMethod("name", String.class, long.class);
+			builderFactory     = builderClass.getMethod("factory");
+			newVirtualExecutor = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+		} catch (ReflectiveOperationException e) {
+			ofVirtual = null;
+		}
+		
+		_OfVirtualMethod          = ofVirtual;
+		_BuilderNameMethod        = builderName;
+		_BuilderFactoryMethod     = builderFactory;
+		_NewVirtualExecutorMethod = newVirtualExecutor;
+	}
+	
+	/**
+	 * 
+	 * @return boolean True if this JVM supports virtual threads.
+	 */
+	public static boolean isVirtualThreadSupported()
+	{
+		return _OfVirtualMethod != null;
+	}
+	
+	/**
+	 * Returns a thread factory for long-running worker threads.
+	 * 
+	 * @param namePrefix The thread name prefix. Each thread's name is the
+	 * prefix followed by a sequence number.
+	 * @param useVirtualThreads True to create virtual threads, if supported.
+	 * @return ThreadFactory The factory. Platform threads it creates are daemon threads.
+	 */
+	public static ThreadFactory newThreadFactory(String namePrefix, boolean useVirtualThreads)
+	{
+		if (useVirtualThreads && checkVirtualThreadSupport()) {
+			try {
+				Object builder = _OfVirtualMethod.invoke(null);
+				builder = _BuilderNameMethod.invoke(builder, namePrefix, 0L);
+				
+				return (ThreadFactory) _BuilderFactoryMethod.invoke(builder);
+			} catch (ReflectiveOperationException e) {
+				_Logger.log(Level.WARNING, "Failed to create virtual thread factory. Using platform threads.", e);
+			}
+		}
+		
+		AtomicInteger threadCount = new AtomicInteger();
+		
+		return runnable -> {
+			Thread thread = new Thread(runnable, namePrefix + threadCount.getAndIncrement());
+			thread.setDaemon(true);
+			
+			return thread;
+		};
+	}
+	
+	/**
+	 * Returns an executor for short, possibly blocking tasks, such as
+	 * outbound requests. With virtual threads, each task runs on its own
+	 * thread; otherwise, tasks run on a cached pool of platform threads.
+	 * 
+	 * @param namePrefix The thread name prefix.
+	 * @param useVirtualThreads True to use virtual threads, if supported.
+	 * @return ExecutorService The executor. The caller must shut it down.
+	 */
+	public static ExecutorService newTaskExecutor(String namePrefix, boolean useVirtualThreads)
+	{
+		if (useVirtualThreads && checkVirtualThreadSupport()) {
+			try {
+				return (ExecutorService) _NewVirtualExecutorMethod.invoke(null);
+			} catch (ReflectiveOperationException e) {
+				_Logger.log(Level.WARNING, "Failed to create virtual thread executor. Using platform threads.", e);
+			}
+		}
+		
+		return Executors.newCachedThreadPool(newThreadFactory(namePrefix, false));
+	}
+	
+	
+	// constructors
+	
+	/**
+	 * Default (private), as this class only has static methods.
+	 * 
+	 */
+	private GatewayExecutors()
+	{
+		super();
+	}
+	
+	
+	// private methods
+	
+	private static boolean checkVirtualThreadSupport()
+	{
+		if (! isVirtualThreadSupported()) {
+			_Logger.warning(
+				"Virtual threads requested, but not supported by this JVM (Java " +
+				Runtime.version().feature() + "). Using platform threads.");
+			
+			return false;
+		}
+		
+		return true;
+	}
+	
+}
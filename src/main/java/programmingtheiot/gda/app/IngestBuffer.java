@@ -0,0 +1,553 @@
+/**
+ * This class is part of the Programming the Internet of Things
+ * project, and is available via the MIT License, which can be
+ * found in the LICENSE file at the top level of this repository.
+ * 
+ * Copyright (c) 2020 by Andrew D. King
+ */
+
+package programmingtheiot.gda.app;
+
+import java.util.AbstractQueue;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.logging.Logger;
+
+import programmingtheiot.common.BackpressurePolicyEnum;
+import programmingtheiot.common.ResourceNameEnum;
+
+/**
+ * A bounded queue made up of one buffer per {@link ResourceNameEnum}, each
+ * applying its own {@link BackpressurePolicyEnum} when full. A burst on one
+ * resource therefore can't crowd out the others, and the total memory used
+ * is bounded by the buffer size times the number of resources.
+ * <p>
+ * Consumers take messages from the resource buffers in turn. Messages shed
+ * by the policies are counted per resource.
+ * <p>
+ * NOTE: For resources using {@link BackpressurePolicyEnum#BLOCK_PRODUCER},
+ * {@link #offer(Object)} will block for up to the configured block timeout,
+ * and {@link #put(Object)} until there is room. For all other policies,
+ * neither method blocks.
+ * 
+ * @param <T> The message type.
+ */
+public class IngestBuffer<T> extends AbstractQueue<T> implements BlockingQueue<T>
+{
+	// static
+	
+	private static final Logger _Logger =
+		Logger.getLogger(IngestBuffer.class.getName());
+	
+	
+	// private var's
+	
+	private final int bufferSize;
+	private final long blockTimeoutMillis;
+	private final Function<ResourceNameEnum, BackpressurePolicyEnum> policyLookup;
+	private final Function<T, ResourceNameEnum> resourceLookup;
+	private final Function<T, Object> coalesceKeyLookup;
+	
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition notEmpty = this.lock.newCondition();
+	private final Condition notFull  = this.lock.newCondition();
+	
+	// guarded by lock
+	private final Map<ResourceNameEnum, ResourceBuffer<T>> bufferMap = new HashMap<>();
+	private final ArrayDeque<ResourceBuffer<T>> readyBuffers = new ArrayDeque<>();
+	private int count = 0;
+	
+	
+	// constructors
+	
+	/**
+	 * Constructor.
+	 * 
+	 * @param bufferSize The capacity of each resource's buffer.
+	 * @param blockTimeoutMillis The maximum time {@link #offer(Object)} blocks
+	 * for resources using {@link BackpressurePolicyEnum#BLOCK_PRODUCER}.
+	 * @param policyLookup Returns the policy to use for a resource.
+	 * @param resourceLookup Returns the resource for a message.
+	 * @param coalesceKeyLookup Returns the key identifying the sensor a message
+	 * came from, for {@link BackpressurePolicyEnum#COALESCE_LATEST}. A null key
+	 * means the message is never coalesced.
+	 */
+	public IngestBuffer(
+		int bufferSize,
+		long blockTimeoutMillis,
+		Function<ResourceNameEnum, BackpressurePolicyEnum> policyLookup,
+		Function<T, ResourceNameEnum> resourceLookup,
+		Function<T, Object> coalesceKeyLookup)
+	{
+		super();
+		
+		if (bufferSize <= 0) {
+			throw new IllegalArgumentException("Buffer size must be positive: " + bufferSize);
+		}
+		
+		this.bufferSize         = bufferSize;
+		this.blockTimeoutMillis = Math.max(0L, blockTimeoutMillis);
+		this.policyLookup       = policyLookup;
+		this.resourceLookup     = resourceLookup;
+		this.coalesceKeyLookup  = coalesceKeyLookup;
+	}
+	
+	
+	// public methods
+	
+	@Override
+	public boolean offer(T msg)
+	{
+		try {
+			return offer(msg, this.blockTimeoutMillis, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			
+			return false;
+		}
+	}
+	
+	@Override
+	public boolean offer(T msg, long timeout, TimeUnit unit) throws InterruptedException
+	{
+		return add(msg, unit.toNanos(timeout));
+	}
+	
+	@Override
+	public void put(T msg) throws InterruptedException
+	{
+		add(msg, -1L);
+	}
+	
+	@Override
+	public T poll()
+	{
+		this.lock.lock();
+		
+		try {
+			return (this.count > 0 ? remove0() : null);
+		} finally {
+			this.lock.unlock();
+		}
+	}
+	
+	@Override
+	public T poll(long timeout, TimeUnit unit) throws InterruptedException
+	{
+		long nanos = unit.toNanos(timeout);
+		
+		this.lock.lockInterruptibly();
+		
+		try {
+			while (this.count == 0) {
+				if (nanos <= 0L) {
+					return null;
+				}
+				
+				nanos = this.notEmpty.awaitNanos(nanos);
+			}
+			
+			return remove0();
+		} finally {
+			this.lock.unlock();
+		}
+	}
+	
+	@Override
+	public T take() throws InterruptedException
+	{
+		this.lock.lockInterruptibly();
+		
+		try {
+			while (this.count == 0) {
+				this.notEmpty.await();
+			}
+			
+			return remove0();
+		} finally {
+			this.lock.unlock();
+		}
+	}
+	
+	@Override
+	public T peek()
+	{
+		this.lock.lock();
+		
+		try {
+			ResourceBuffer<T> buffer = this.readyBuffers.peekFirst();
+			
+			return (buffer != null ? buffer.slots.peekFirst().item : null);
+		} finally {
+			this.lock.unlock();
+		}
+	}
+	
+	@Override
+	public int size()
+	{
+		this.lock.lock();
+		
+		try {
+			return this.count;
+		} finally {
+			this.lock.unlock();
+		}
+	}
+	
+	/**
+	 * As the number of resource buffers isn't fixed, this always
+	 * returns Integer.MAX_VALUE. Use {@link #size(ResourceNameEnum)}
+	 * to check the fill level of a single resource.
+	 */
+	@Override
+	public int remainingCapacity()
+	{
+		return Integer.MAX_VALUE;
+	}
+	
+	@Override
+	public int drainTo(Collection<? super T> c)
+	{
+		return drainTo(c, Integer.MAX_VALUE);
+	}
+	
+	@Override
+	public int drainTo(Collection<? super T> c, int maxElements)
+	{
+		if (c == this) {
+			throw new IllegalArgumentException("Can't drain to self.");
+		}
+		
+		this.lock.lock();
+		
+		try {
+			int drained = 0;
+			
+			while (drained < maxElements && this.count > 0) {
+				c.add(remove0());
+				drained++;
+			}
+			
+			return drained;
+		} finally {
+			this.lock.unlock();
+		}
+	}
+	
+	/**
+	 * Returns an iterator over a snapshot of the buffered messages.
+	 * The iterator doesn't support removal.
+	 */
+	@Override
+	public Iterator<T> iterator()
+	{
+		this.lock.lock();
+		
+		try {
+			List<T> snapshot = new ArrayList<>(this.count);
+			
+			for (ResourceBuffer<T> buffer : this.readyBuffers) {
+				for (Slot<T> slot : buffer.slots) {
+					snapshot.add(slot.item);
+				}
+			}
+			
+			return Collections.unmodifiableList(snapshot).iterator();
+		} finally {
+			this.lock.unlock();
+		}
+	}
+	
+	/**
+	 * 
+	 * @param resource The resource.
+	 * @return int The number of messages buffered for the resource.
+	 */
+	public int size(ResourceNameEnum resource)
+	{
+		this.lock.lock();
+		
+		try {
+			ResourceBuffer<T> buffer = this.bufferMap.get(resource);
+			
+			return (buffer != null ? buffer.slots.size() : 0);
+		} finally {
+			this.lock.unlock();
+		}
+	}
+	
+	/**
+	 * 
+	 * @param resource The resource.
+	 * @return long The number of messages for the resource that were dropped,
+	 * either by a drop policy or because a blocked producer timed out.
+	 */
+	public long getDroppedCount(ResourceNameEnum resource)
+	{
+		this.lock.lock();
+		
+		try {
+			ResourceBuffer<T> buffer = this.bufferMap.get(resource);
+			
+			return (buffer != null ? buffer.droppedCount : 0L);
+		} finally {
+			this.lock.unlock();
+		}
+	}
+	
+	/**
+	 * 
+	 * @param resource The resource.
+	 * @return long The number of messages for the resource that were replaced
+	 * by a later message from the same sensor.
+	 */
+	public long getCoalescedCount(ResourceNameEnum resource)
+	{
+		this.lock.lock();
+		
+		try {
+			ResourceBuffer<T> buffer = this.bufferMap.get(resource);
+			
+			return (buffer != null ? buffer.coalescedCount : 0L);
+		} finally {
+			this.lock.unlock();
+		}
+	}
+	
+	/**
+	 * 
+	 * @return long The total number of messages shed, dropped or coalesced, across all resources.
+	 */
+	public long getShedCount()
+	{
+		this.lock.lock();
+		
+		try {
+			long shedCount = 0L;
+			
+			for (ResourceBuffer<T> buffer : this.bufferMap.values()) {
+				shedCount += buffer.droppedCount + buffer.coalescedCount;
+			}
+			
+			return shedCount;
+		} finally {
+			this.lock.unlock();
+		}
+	}
+	
+	
+	// private methods
+	
+	/**
+	 * Adds the message, applying the resource's policy if its buffer is full.
+	 * 
+	 * @param msg The message.
+	 * @param nanos The maximum time to block under the block-producer
+	 * policy, or a negative number to wait indefinitely.
+	 * @return boolean True if the message was buffered; false if it was dropped.
+	 * @throws InterruptedException
+	 */
+	private boolean add(T msg, long nanos) throws InterruptedException
+	{
+		if (msg == null) {
+			throw new NullPointerException();
+		}
+		
+		ResourceNameEnum resource = this.resourceLookup.apply(msg);
+		
+		this.lock.lockInterruptibly();
+		
+		try {
+			ResourceBuffer<T> buffer = this.bufferMap.get(resource);
+			
+			if (buffer == null) {
+				buffer = new ResourceBuffer<>(resource, this.policyLookup.apply(resource));
+				this.bufferMap.put(resource, buffer);
+			}
+			
+			boolean isCoalescing = (buffer.policy == BackpressurePolicyEnum.COALESCE_LATEST);
+			Object key = (isCoalescing ? this.coalesceKeyLookup.apply(msg) : null);
+			
+			switch (buffer.policy) {
+				case COALESCE_LATEST:
+					Slot<T> latest = (key != null ? buffer.latestSlots.get(key) : null);
+					
+					if (latest != null) {
+						latest.item = msg;
+						buffer.coalescedCount++;
+						
+						return true;
+					}
+					
+					if (buffer.isFull(this.bufferSize)) {
+						removeOldest(buffer);
+					}
+					
+					break;
+					
+				case DROP_NEWEST:
+					if (buffer.isFull(this.bufferSize)) {
+						shed(buffer);
+						
+						return false;
+					}
+					
+					break;
+					
+				case BLOCK_PRODUCER:
+					boolean isTimed = (nanos >= 0L);
+					
+					while (buffer.isFull(this.bufferSize)) {
+						if (! isTimed) {
+							this.notFull.await();
+						} else if (nanos > 0L) {
+							nanos = this.notFull.awaitNanos(nanos);
+						} else {
+							shed(buffer);
+							
+							return false;
+						}
+					}
+					
+					break;
+					
+				default:
+					if (buffer.isFull(this.bufferSize)) {
+						removeOldest(buffer);
+					}
+			}
+			
+			Slot<T> slot = new Slot<>(msg, key);
+			
+			buffer.slots.addLast(slot);
+			
+			if (key != null) {
+				buffer.latestSlots.put(key, slot);
+			}
+			
+			if (buffer.slots.size() == 1) {
+				this.readyBuffers.addLast(buffer);
+			}
+			
+			this.count++;
+			this.notEmpty.signal();
+			
+			return true;
+		} finally {
+			this.lock.unlock();
+		}
+	}
+	
+	/**
+	 * Removes the next message, taking one from each non-empty resource
+	 * buffer in turn. Must be called with the lock held and count > 0.
+	 */
+	private T remove0()
+	{
+		ResourceBuffer<T> buffer = this.readyBuffers.pollFirst();
+		Slot<T> slot = buffer.removeFirst();
+		
+		if (! buffer.slots.isEmpty()) {
+			this.readyBuffers.addLast(buffer);
+		}
+		
+		this.count--;
+		this.notFull.signalAll();
+		
+		return slot.item;
+	}
+	
+	private void removeOldest(ResourceBuffer<T> buffer)
+	{
+		buffer.removeFirst();
+		
+		if (buffer.slots.isEmpty()) {
+			this.readyBuffers.remove(buffer);
+		}
+		
+		this.count--;
+		shed(buffer);
+	}
+	
+	private void shed(ResourceBuffer<T> buffer)
+	{
+		long droppedCount = ++buffer.droppedCount;
+		
+		// log on each power of two, to avoid flooding the log during a burst
+		if ((droppedCount & (droppedCount - 1)) == 0) {
+			_Logger.warning(
+				"Ingest buffer full for resource " + buffer.resource + " (policy " + buffer.policy.getName() +
+				"). Total dropped: " + droppedCount);
+		}
+	}
+	
+	
+	// private classes
+	
+	/**
+	 * A buffered message. Coalescing replaces the item in place, so the
+	 * message keeps the position of the first one it replaced.
+	 * 
+	 */
+	private static final class Slot<T>
+	{
+		T item;
+		final Object key;
+		
+		Slot(T item, Object key)
+		{
+			this.item = item;
+			this.key  = key;
+		}
+	}
+	
+	/**
+	 * The buffer and counters for a single resource.
+	 * 
+	 */
+	private static final class ResourceBuffer<T>
+	{
+		final ResourceNameEnum resource;
+		final BackpressurePolicyEnum policy;
+		final ArrayDeque<Slot<T>> slots = new ArrayDeque<>();
+		final Map<Object, Slot<T>> latestSlots = new HashMap<>();
+		
+		long droppedCount = 0L;
+		long coalescedCount = 0L;
+		
+		ResourceBuffer(ResourceNameEnum resource, BackpressurePolicyEnum policy)
+		{
+			this.resource = resource;
+			this.policy   = (policy != null ? policy : BackpressurePolicyEnum.DROP_OLDEST);
+		}
+		
+		boolean isFull(int bufferSize)
+		{
+			return this.slots.size() >= bufferSize;
+		}
+		
+		Slot<T> removeFirst()
+		{
+			Slot<T> slot = this.slots.pollFirst();
+			
+			if (slot.key != null) {
+				this.latestSlots.remove(slot.key, slot);
+			}
+			
+			return slot;
+		}
+	}
+	
+}
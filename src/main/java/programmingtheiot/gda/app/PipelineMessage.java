@@ -0,0 +1,82 @@
+/**
+ * This class is part of the Programming the Internet of Things
+ * project, and is available via the MIT License, which can be
+ * found in the LICENSE file at the top level of this repository.
+ * 
+ * Copyright (c) 2020 by Andrew D. King
+ */
+
+package programmingtheiot.gda.app;
+
+import programmingtheiot.common.ResourceNameEnum;
+import programmingtheiot.data.BaseIotData;
+
+/**
+ * Envelope for a single message passed through the {@link DeviceDataManager}
+ * processing pipeline. Raw messages start with only the JSON payload set, and
+ * the decode stage fills in the typed data.
+ * 
+ */
+class PipelineMessage
+{
+	// private var's
+	
+	private final ResourceNameEnum resourceName;
+	private final String rawMsg;
+	
+	private BaseIotData data = null;
+	
+	
+	// constructors
+	
+	/**
+	 * Constructor for a message that has yet to be decoded.
+	 * 
+	 * @param resourceName The resource the message was received on.
+	 * @param rawMsg The raw (JSON) message.
+	 */
+	PipelineMessage(ResourceNameEnum resourceName, String rawMsg)
+	{
+		super();
+		
+		this.resourceName = resourceName;
+		this.rawMsg       = rawMsg;
+	}
+	
+	/**
+	 * Constructor for an already decoded message.
+	 * 
+	 * @param resourceName The resource the message was received on.
+	 * @param data The typed data.
+	 */
+	PipelineMessage(ResourceNameEnum resourceName, BaseIotData data)
+	{
+		this(resourceName, (String) null);
+		
+		this.data = data;
+	}
+	
+	
+	// package methods
+	
+	ResourceNameEnum getResourceName()
+	{
+		return this.resourceName;
+	}
+	
+	String getRawMessage()
+	{
+		return this.rawMsg;
+	}
+	
+	BaseIotData getData()
+	{
+		return this.data;
+	}
+	
+	void setData(BaseIotData data)
+	{
+		this.data = data;
+	}
+	
+}
@@ -0,0 +1,314 @@
+/**
+ * This class is part of the Programming the Internet of Things
+ * project, and is available via the MIT License, which can be
+ * found in the LICENSE file at the top level of this repository.
+ * 
+ * Copyright (c) 2020 by Andrew D. King
+ */
+
+package programmingtheiot.gda.app;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import programmingtheiot.data.SensorData;
+
+/**
+ * Filters out repeated SensorData readings before they're processed.
+ * <p>
+ * A reading is a duplicate if one with the same name, location ID and
+ * timestamp has been seen recently, as happens when a CDA re-sends a
+ * reading, or a QoS 1 MQTT message is redelivered. Recent readings are
+ * remembered as 64-bit fingerprints in a fixed-size open addressing hash
+ * set, which forgets the oldest once full, so memory use is a few longs
+ * per reading remembered, however many sensors there are.
+ * <p>
+ * Optionally, a reading can also be suppressed if its value differs from
+ * the last value passed for the same sensor by less than a deadband, so
+ * a sensor reporting a steady value doesn't flood the gateway.
+ * 
+ */
+public class SensorDataFilter
+{
+	// static
+	
+	private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME        = 0x100000001b3L;
+	
+	
+	// private var's
+	
+	private final boolean isDedupEnabled;
+	private final float   deadband;
+	
+	// guarded by this
+	private final RecentKeySet recentKeys;
+	private final Map<String, Float> lastValueMap = new HashMap<>();
+	
+	private final AtomicLong duplicateCount  = new AtomicLong();
+	private final AtomicLong suppressedCount = new AtomicLong();
+	
+	
+	// constructors
+	
+	/**
+	 * Constructor.
+	 * 
+	 * @param recentKeyCount The number of recent readings to remember for
+	 * detecting duplicates, or 0 to disable duplicate detection.
+	 * @param deadband The minimum change in value for a reading to be
+	 * passed, or 0 to disable the deadband.
+	 */
+	public SensorDataFilter(int recentKeyCount, float deadband)
+	{
+		super();
+		
+		if (recentKeyCount < 0 || deadband < 0.0f) {
+			throw new IllegalArgumentException(
+				"Recent key count and deadband must not be negative: " + recentKeyCount + ", " + deadband);
+		}
+		
+		this.isDedupEnabled = (recentKeyCount > 0);
+		this.deadband       = deadband;
+		this.recentKeys     = (this.isDedupEnabled ? new RecentKeySet(recentKeyCount) : null);
+	}
+	
+	
+	// public methods
+	
+	/**
+	 * Checks whether the reading should be processed, and if so, remembers it.
+	 * 
+	 * @param data The reading.
+	 * @return boolean True if the reading should be processed; false if it's
+	 * a duplicate or within the deadband.
+	 */
+	public boolean accept(SensorData data)
+	{
+		if (data == null) {
+			return false;
+		}
+		
+		String name       = data.getName();
+		String locationID = data.getLocationID();
+		
+		synchronized (this) {
+			if (this.isDedupEnabled && ! this.recentKeys.add(getFingerprint(name, locationID, data.getTimeStampMillis()))) {
+				this.duplicateCount.incrementAndGet();
+				
+				return false;
+			}
+			
+			if (this.deadband > 0.0f) {
+				String sensorKey = name + '/' + locationID;
+				Float  lastValue = this.lastValueMap.get(sensorKey);
+				
+				if (lastValue != null && Math.abs(data.getValue() - lastValue) < this.deadband) {
+					this.suppressedCount.incrementAndGet();
+					
+					return false;
+				}
+				
+				this.lastValueMap.put(sensorKey, data.getValue());
+			}
+		}
+		
+		return true;
+	}
+	
+	public boolean isDedupEnabled()
+	{
+		return this.isDedupEnabled;
+	}
+	
+	public float getDeadband()
+	{
+		return this.deadband;
+	}
+	
+	/**
+	 * 
+	 * @return long The number of readings rejected as duplicates.
+	 */
+	public long getDuplicateCount()
+	{
+		return this.duplicateCount.get();
+	}
+	
+	/**
+	 * 
+	 * @return long The number of readings suppressed by the deadband.
+	 */
+	public long getSuppressedCount()
+	{
+		return this.suppressedCount.get();
+	}
+	
+	
+	// private methods
+	
+	/**
+	 * Computes a 64-bit FNV-1a hash of the reading's identity. A collision
+	 * would cause a reading to be dropped as a duplicate, so 32-bit hashes,
+	 * such as String.hashCode(), are not enough.
+	 */
+	private static long getFingerprint(String name, String locationID, long timeStampMillis)
+	{
+		long hash = FNV_OFFSET_BASIS;
+		
+		hash = hash(hash, name);
+		hash = hash(hash, locationID);
+		
+		for (int i = 0; i < 8; i++) {
+			hash ^= (timeStampMillis >>> (i * 8)) & 0xFFL;
+			hash *= FNV_PRIME;
+		}
+		
+		return hash;
+	}
+	
+	private static long hash(long hash, String str)
+	{
+		if (str != null) {
+			for (int i = 0; i < str.length(); i++) {
+				char c = str.charAt(i);
+				
+				hash ^= (c & 0xFF);
+				hash *= FNV_PRIME;
+				hash ^= (c >>> 8);
+				hash *= FNV_PRIME;
+			}
+		}
+		
+		// separates the fields, so ("ab", "c") and ("a", "bc") differ
+		hash ^= 0xFFL;
+		hash *= FNV_PRIME;
+		
+		return hash;
+	}
+	
+	
+	// private classes
+	
+	/**
+	 * A fixed-capacity set of non-zero longs, which forgets the oldest key
+	 * when full. Keys are stored in a linear probing hash table, with their
+	 * insertion order kept in a ring for eviction.
+	 * 
+	 */
+	private static final class RecentKeySet
+	{
+		private final long[] table;
+		private final int    mask;
+		private final long[] ring;
+		
+		private int ringHead = 0;
+		private int size     = 0;
+		
+		RecentKeySet(int capacity)
+		{
+			// keep the table at most half full, so probe sequences stay short
+			int tableSize = Integer.highestOneBit(Math.max(capacity, 2) * 2 - 1) << 1;
+			
+			this.table = new long[tableSize];
+			this.mask  = tableSize - 1;
+			this.ring  = new long[capacity];
+		}
+		
+		/**
+		 * Adds the key, evicting the oldest key if full.
+		 * 
+		 * @return boolean True if added; false if already present.
+		 */
+		boolean add(long key)
+		{
+			// zero marks an empty slot
+			if (key == 0L) {
+				key = 1L;
+			}
+			
+			if (indexOf(key) >= 0) {
+				return false;
+			}
+			
+			if (this.size == this.ring.length) {
+				remove(this.ring[this.ringHead]);
+			} else {
+				this.size++;
+			}
+			
+			int index = getHomeIndex(key);
+			
+			while (this.table[index] != 0L) {
+				index = (index + 1) & this.mask;
+			}
+			
+			this.table[index] = key;
+			this.ring[this.ringHead] = key;
+			this.ringHead = (this.ringHead + 1) % this.ring.length;
+			
+			return true;
+		}
+		
+		private int getHomeIndex(long key)
+		{
+			// the key is already a hash, but mix the high bits in as the mask keeps only the low ones
+			return (int) (key ^ (key >>> 32)) & this.mask;
+		}
+		
+		private int indexOf(long key)
+		{
+			int index = getHomeIndex(key);
+			
+			while (this.table[index] != 0L) {
+				if (this.table[index] == key) {
+					return index;
+				}
+				
+				index = (index + 1) & this.mask;
+			}
+			
+			return -1;
+		}
+		
+		/**
+		 * Removes the key, shifting back any later keys in its probe
+		 * sequence so none are left unreachable behind an empty slot.
+		 */
+		private void remove(long key)
+		{
+			int index = indexOf(key);
+			
+			if (index < 0) {
+				return;
+			}
+			
+			int next = index;
+			
+			while (true) {
+				next = (next + 1) & this.mask;
+				
+				long nextKey = this.table[next];
+				
+				if (nextKey == 0L) {
+					break;
+				}
+				
+				int home = getHomeIndex(nextKey);
+				
+				// move the key back if its home isn't cyclically between the gap and its slot
+				boolean canMove =
+					(index <= next) ? (home <= index || home > next) : (home <= index && home > next);
+				
+				if (canMove) {
+					this.table[index] = nextKey;
+					index = next;
+				}
+			}
+			
+			this.table[index] = 0L;
+		}
+	}
+
+}
@@ -0,0 +1,353 @@
+/**
+ * This class is part of the Programming the Internet of Things
+ * project, and is available via the MIT License, which can be
+ * found in the LICENSE file at the top level of this repository.
+ * 
+ * Copyright (c) 2020 by Andrew D. King
+ */
+
+package programmingtheiot.gda.app;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import programmingtheiot.common.ConfigConst;
+import programmingtheiot.common.IActuatorDataListener;
+import programmingtheiot.common.IDataMessageListener;
+import programmingtheiot.common.ResourceNameEnum;
+import programmingtheiot.data.ActuatorData;
+import programmingtheiot.data.BaseIotData;
+import programmingtheiot.data.SensorData;
+import programmingtheiot.data.SystemPerformanceData;
+
+/**
+ * An {@link IDataMessageListener} that hands each message to one of a fixed
+ * number of lanes, each with its own queue and single worker thread, which
+ * then invokes the same method on the wrapped listener.
+ * <p>
+ * Messages are assigned to a lane by hashing their device key - the location
+ * ID, or the name if there's no location ID - so messages from different
+ * devices are handled in parallel, while those from the same device are
+ * handled one at a time, in the order received. Raw messages passed to
+ * {@link #handleIncomingMessage(ResourceNameEnum, String)} are keyed by
+ * resource instead, as their device isn't known until they're decoded.
+ * <p>
+ * The handler methods return immediately: true if the message was queued,
+ * or false if its lane's queue was full or the dispatcher isn't started.
+ * 
+ */
+public class ShardedDataMessageDispatcher implements IDataMessageListener
+{
+	// static
+	
+	private static final Logger _Logger =
+		Logger.getLogger(ShardedDataMessageDispatcher.class.getName());
+	
+	private static final long POLL_TIMEOUT_MILLIS = 100L;
+	
+	
+	// private var's
+	
+	private final IDataMessageListener listener;
+	private final Lane[] lanes;
+	private final ThreadFactory threadFactory;
+	
+	private final AtomicLong rejectedCount = new AtomicLong();
+	private final AtomicLong failedCount   = new AtomicLong();
+	
+	private volatile boolean isStarted = false;
+	
+	
+	// constructors
+	
+	/**
+	 * Constructor.
+	 * 
+	 * @param listener The listener to dispatch messages to.
+	 * @param laneCount The number of lanes (and worker threads).
+	 * @param laneQueueSize The capacity of each lane's queue.
+	 * @param threadFactory The factory for the lane workers, or null for
+	 * daemon platform threads.
+	 */
+	public ShardedDataMessageDispatcher(
+		IDataMessageListener listener, int laneCount, int laneQueueSize, ThreadFactory threadFactory)
+	{
+		super();
+		
+		if (listener == null) {
+			throw new IllegalArgumentException("Listener must not be null.");
+		}
+		
+		if (laneCount <= 0 || laneQueueSize <= 0) {
+			throw new IllegalArgumentException(
+				"Lane count and queue size must be positive: " + laneCount + ", " + laneQueueSize);
+		}
+		
+		this.listener      = listener;
+		this.threadFactory = threadFactory;
+		this.lanes         = new Lane[laneCount];
+		
+		for (int i = 0; i < laneCount; i++) {
+			this.lanes[i] = new Lane(i, laneQueueSize);
+		}
+	}
+	
+	
+	// public methods
+	
+	/**
+	 * Starts the lane workers.
+	 * 
+	 */
+	public synchronized void start()
+	{
+		if (this.isStarted) {
+			return;
+		}
+		
+		this.isStarted = true;
+		
+		for (Lane lane : this.lanes) {
+			lane.start();
+		}
+		
+		_Logger.info("Dispatcher started with " + this.lanes.length + " lanes.");
+	}
+	
+	/**
+	 * Stops the lane workers, once they've handled the messages already queued.
+	 * 
+	 * @param timeoutMillis The maximum time to wait for each lane to drain.
+	 */
+	public synchronized void stop(long timeoutMillis)
+	{
+		if (! this.isStarted) {
+			return;
+		}
+		
+		this.isStarted = false;
+		
+		for (Lane lane : this.lanes) {
+			lane.isRunning = false;
+		}
+		
+		for (Lane lane : this.lanes) {
+			lane.join(timeoutMillis);
+		}
+		
+		_Logger.info("Dispatcher stopped.");
+	}
+	
+	@Override
+	public boolean handleActuatorCommandResponse(ResourceNameEnum resourceName, ActuatorData data)
+	{
+		return dispatch(getDeviceKey(data), () -> this.listener.handleActuatorCommandResponse(resourceName, data));
+	}
+	
+	@Override
+	public boolean handleActuatorCommandRequest(ResourceNameEnum resourceName, ActuatorData data)
+	{
+		return dispatch(getDeviceKey(data), () -> this.listener.handleActuatorCommandRequest(resourceName, data));
+	}
+	
+	@Override
+	public boolean handleIncomingMessage(ResourceNameEnum resourceName, String msg)
+	{
+		return dispatch(resourceName, () -> this.listener.handleIncomingMessage(resourceName, msg));
+	}
+	
+	@Override
+	public boolean handleSensorMessage(ResourceNameEnum resourceName, SensorData data)
+	{
+		return dispatch(getDeviceKey(data), () -> this.listener.handleSensorMessage(resourceName, data));
+	}
+	
+	@Override
+	public boolean handleSystemPerformanceMessage(ResourceNameEnum resourceName, SystemPerformanceData data)
+	{
+		return dispatch(getDeviceKey(data), () -> this.listener.handleSystemPerformanceMessage(resourceName, data));
+	}
+	
+	@Override
+	public void setActuatorDataListener(String name, IActuatorDataListener listener)
+	{
+		this.listener.setActuatorDataListener(name, listener);
+	}
+	
+	/**
+	 * Returns the lane messages with the given device key are dispatched on.
+	 * 
+	 * @param key The device key.
+	 * @return int The lane index.
+	 */
+	public int getLaneIndex(Object key)
+	{
+		int hash = (key != null ? key.hashCode() : 0);
+		
+		// spread the high bits, as with HashMap
+		hash ^= (hash >>> 16);
+		
+		return (hash & Integer.MAX_VALUE) % this.lanes.length;
+	}
+	
+	public int getLaneCount()
+	{
+		return this.lanes.length;
+	}
+	
+	/**
+	 * 
+	 * @param laneIndex The lane index.
+	 * @return long The number of messages the lane has handled.
+	 */
+	public long getDispatchedCount(int laneIndex)
+	{
+		return this.lanes[laneIndex].dispatchedCount.get();
+	}
+	
+	/**
+	 * 
+	 * @return long The number of messages rejected because their lane's queue was full.
+	 */
+	public long getRejectedCount()
+	{
+		return this.rejectedCount.get();
+	}
+	
+	/**
+	 * 
+	 * @return long The number of messages for which the listener threw an exception.
+	 */
+	public long getFailedCount()
+	{
+		return this.failedCount.get();
+	}
+	
+	
+	// private methods
+	
+	private Object getDeviceKey(BaseIotData data)
+	{
+		if (data == null) {
+			return null;
+		}
+		
+		String locationID = data.getLocationID();
+		
+		if (locationID == null || locationID.isEmpty() || ConfigConst.NOT_SET.equals(locationID)) {
+			return data.getName();
+		}
+		
+		return locationID;
+	}
+	
+	private boolean dispatch(Object key, Runnable task)
+	{
+		if (! this.isStarted) {
+			return false;
+		}
+		
+		Lane lane = this.lanes[getLaneIndex(key)];
+		
+		if (lane.queue.offer(task)) {
+			return true;
+		}
+		
+		long count = this.rejectedCount.incrementAndGet();
+		
+		// log on each power of two, to avoid flooding the log during a burst
+		if ((count & (count - 1)) == 0) {
+			_Logger.warning("Dispatcher lane " + lane.index + " full. Total rejected: " + count);
+		}
+		
+		return false;
+	}
+	
+	
+	// private classes
+	
+	/**
+	 * A single lane: a bounded queue and its one worker.
+	 * 
+	 */
+	private final class Lane
+	{
+		final int index;
+		final BlockingQueue<Runnable> queue;
+		final AtomicLong dispatchedCount = new AtomicLong();
+		
+		Thread worker = null;
+		volatile boolean isRunning = false;
+		
+		Lane(int index, int queueSize)
+		{
+			this.index = index;
+			this.queue = new ArrayBlockingQueue<>(queueSize);
+		}
+		
+		void start()
+		{
+			this.isRunning = true;
+			
+			Runnable task = this::runWorker;
+			
+			this.worker = (threadFactory != null ? threadFactory.newThread(task) : new Thread(task));
+			this.worker.setName("DispatcherLane-" + this.index);
+			
+			if (! this.worker.isDaemon()) {
+				this.worker.setDaemon(true);
+			}
+			
+			this.worker.start();
+		}
+		
+		void join(long timeoutMillis)
+		{
+			try {
+				this.worker.join(timeoutMillis);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			
+			if (this.worker.isAlive()) {
+				this.worker.interrupt();
+			}
+			
+			this.worker = null;
+			
+			if (! this.queue.isEmpty()) {
+				_Logger.warning("Dispatcher lane " + this.index + " stopped with " + this.queue.size() + " messages pending.");
+				this.queue.clear();
+			}
+		}
+		
+		private void runWorker()
+		{
+			try {
+				// keep draining after stop is requested, until the queue is empty
+				while (this.isRunning || ! this.queue.isEmpty()) {
+					Runnable task = this.queue.poll(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+					
+					if (task != null) {
+						try {
+							task.run();
+						} catch (Exception e) {
+							failedCount.incrementAndGet();
+							_Logger.log(Level.WARNING, "Dispatcher lane " + this.index + " failed to handle message.", e);
+						} finally {
+							this.dispatchedCount.incrementAndGet();
+						}
+					}
+				}
+			} catch (InterruptedException e) {
+				// stopped before the queue could be drained
+			}
+		}
+	}
+	
+}
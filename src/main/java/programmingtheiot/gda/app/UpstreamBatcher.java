@@ -0,0 +1,380 @@
+/**
+ * This class is part of the Programming the Internet of Things
+ * project, and is available via the MIT License, which can be
+ * found in the LICENSE file at the top level of this repository.
+ * 
+ * Copyright (c) 2020 by Andrew D. King
+ */
+
+package programmingtheiot.gda.app;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import programmingtheiot.common.ResourceNameEnum;
+import programmingtheiot.gda.connection.IPubSubClient;
+
+/**
+ * Accumulates upstream JSON messages per resource and QoS, and publishes
+ * each batch as a single JSON array once it reaches the maximum message
+ * count or size, or once the first message in it has waited for the
+ * linger time - whichever comes first. This trades a bounded delay for
+ * far fewer publishes over slow or metered uplinks.
+ * <p>
+ * With a maximum batch size of 1, each message is published on its own,
+ * unchanged, rather than as an array.
+ * 
+ */
+public class UpstreamBatcher
+{
+	// static
+	
+	private static final Logger _Logger =
+		Logger.getLogger(UpstreamBatcher.class.getName());
+	
+	
+	// private var's
+	
+	private final IPubSubClient pubSubClient;
+	private final int  maxBatchSize;
+	private final int  maxBatchBytes;
+	private final long lingerMillis;
+	
+	// guarded by this
+	private final Map<BatchKey, Batch> batchMap = new HashMap<>();
+	private ScheduledExecutorService schedExecSvc = null;
+	private Executor publishExecutor = null;
+	
+	private final AtomicLong publishedBatchCount = new AtomicLong();
+	private final AtomicLong publishedMsgCount   = new AtomicLong();
+	private final AtomicLong failedBatchCount    = new AtomicLong();
+	
+	
+	// constructors
+	
+	/**
+	 * Constructor.
+	 * 
+	 * @param pubSubClient The client to publish batches with.
+	 * @param maxBatchSize The maximum number of messages per batch.
+	 * @param maxBatchBytes The maximum batch payload size, in characters.
+	 * A message that would take a batch over this size is sent in the next batch.
+	 * @param lingerMillis The maximum time a message waits for its batch to fill.
+	 */
+	public UpstreamBatcher(IPubSubClient pubSubClient, int maxBatchSize, int maxBatchBytes, long lingerMillis)
+	{
+		super();
+		
+		if (pubSubClient == null) {
+			throw new IllegalArgumentException("Pub/sub client must not be null.");
+		}
+		
+		this.pubSubClient  = pubSubClient;
+		this.maxBatchSize  = Math.max(1, maxBatchSize);
+		this.maxBatchBytes = Math.max(1, maxBatchBytes);
+		this.lingerMillis  = Math.max(0L, lingerMillis);
+	}
+	
+	
+	// public methods
+	
+	/**
+	 * Sets the executor that batches sent on linger timeout are published
+	 * on, such as one from {@link GatewayExecutors}. If not set, they are
+	 * published on the linger timer thread, so a slow publish delays the
+	 * other batches' linger flushes.
+	 * 
+	 * @param publishExecutor The executor, or null to publish on the timer thread.
+	 */
+	public synchronized void setPublishExecutor(Executor publishExecutor)
+	{
+		this.publishExecutor = publishExecutor;
+	}
+	
+	/**
+	 * Starts the linger timer. Until started, messages are published as soon
+	 * as a batch is full, but partial batches are only sent by {@link #flush()}.
+	 * 
+	 */
+	public synchronized void start()
+	{
+		if (this.schedExecSvc == null) {
+			this.schedExecSvc = Executors.newSingleThreadScheduledExecutor(runnable -> {
+				Thread thread = new Thread(runnable, "UpstreamBatcher");
+				thread.setDaemon(true);
+				
+				return thread;
+			});
+		}
+	}
+	
+	/**
+	 * Stops the linger timer and publishes any partial batches.
+	 * 
+	 */
+	public void stop()
+	{
+		synchronized (this) {
+			if (this.schedExecSvc != null) {
+				this.schedExecSvc.shutdownNow();
+				this.schedExecSvc = null;
+			}
+		}
+		
+		flush();
+	}
+	
+	/**
+	 * Adds a message to the batch for its resource and QoS, publishing the
+	 * batch if it's now full.
+	 * 
+	 * @param resource The resource (topic) to publish to.
+	 * @param jsonData The JSON message.
+	 * @param qos The QoS level to publish with.
+	 * @return boolean False if a batch was published as a result and failed;
+	 * true otherwise.
+	 */
+	public boolean add(ResourceNameEnum resource, String jsonData, int qos)
+	{
+		if (resource == null || jsonData == null) {
+			return false;
+		}
+		
+		if (this.maxBatchSize == 1) {
+			return publish(resource, qos, jsonData, 1);
+		}
+		
+		BatchKey key = new BatchKey(resource, qos);
+		List<Batch> readyBatches = new ArrayList<>(2);
+		
+		synchronized (this) {
+			Batch batch = this.batchMap.get(key);
+			
+			// the message doesn't fit, so send what's there first
+			if (batch != null && batch.payload.length() + jsonData.length() + 2 > this.maxBatchBytes) {
+				readyBatches.add(this.batchMap.remove(key));
+				batch = null;
+			}
+			
+			if (batch == null) {
+				batch = new Batch(key);
+				this.batchMap.put(key, batch);
+				scheduleLinger(batch);
+			}
+			
+			batch.add(jsonData);
+			
+			if (batch.msgCount >= this.maxBatchSize || batch.payload.length() >= this.maxBatchBytes) {
+				readyBatches.add(this.batchMap.remove(key));
+			}
+		}
+		
+		// publish outside the lock, so other resources aren't held up
+		boolean success = true;
+		
+		for (Batch batch : readyBatches) {
+			success &= publish(batch);
+		}
+		
+		return success;
+	}
+	
+	/**
+	 * Publishes all partial batches.
+	 * 
+	 * @return boolean True if all batches were published successfully.
+	 */
+	public boolean flush()
+	{
+		List<Batch> readyBatches;
+		
+		synchronized (this) {
+			readyBatches = new ArrayList<>(this.batchMap.values());
+			this.batchMap.clear();
+		}
+		
+		boolean success = true;
+		
+		for (Batch batch : readyBatches) {
+			success &= publish(batch);
+		}
+		
+		return success;
+	}
+	
+	/**
+	 * 
+	 * @return int The number of messages waiting in partial batches.
+	 */
+	public synchronized int getPendingMessageCount()
+	{
+		int count = 0;
+		
+		for (Batch batch : this.batchMap.values()) {
+			count += batch.msgCount;
+		}
+		
+		return count;
+	}
+	
+	public long getPublishedBatchCount()
+	{
+		return this.publishedBatchCount.get();
+	}
+	
+	public long getPublishedMessageCount()
+	{
+		return this.publishedMsgCount.get();
+	}
+	
+	public long getFailedBatchCount()
+	{
+		return this.failedBatchCount.get();
+	}
+	
+	
+	// private methods
+	
+	/**
+	 * Schedules the linger flush for a new batch. Must be called while
+	 * holding the lock.
+	 */
+	private void scheduleLinger(Batch batch)
+	{
+		if (this.schedExecSvc != null) {
+			this.schedExecSvc.schedule(() -> flushIfPending(batch), this.lingerMillis, TimeUnit.MILLISECONDS);
+		}
+	}
+	
+	private void flushIfPending(Batch batch)
+	{
+		Executor executor;
+		
+		synchronized (this) {
+			// the batch may have already been sent because it filled up
+			if (! this.batchMap.remove(batch.key, batch)) {
+				return;
+			}
+			
+			executor = this.publishExecutor;
+		}
+		
+		if (executor != null) {
+			try {
+				executor.execute(() -> publish(batch));
+				
+				return;
+			} catch (RejectedExecutionException e) {
+				// shutting down, so publish here instead
+			}
+		}
+		
+		publish(batch);
+	}
+	
+	private boolean publish(Batch batch)
+	{
+		batch.payload.append(']');
+		
+		return publish(batch.key.resource, batch.key.qos, batch.payload.toString(), batch.msgCount);
+	}
+	
+	private boolean publish(ResourceNameEnum resource, int qos, String payload, int msgCount)
+	{
+		boolean success = false;
+		
+		try {
+			success = this.pubSubClient.publishMessage(resource, payload, qos);
+		} catch (Exception e) {
+			_Logger.log(Level.WARNING, "Failed to publish upstream batch for resource: " + resource, e);
+		}
+		
+		if (success) {
+			this.publishedBatchCount.incrementAndGet();
+			this.publishedMsgCount.addAndGet(msgCount);
+			
+			_Logger.fine("Published batch of " + msgCount + " messages for resource: " + resource);
+		} else {
+			this.failedBatchCount.incrementAndGet();
+			
+			_Logger.warning("Failed to publish batch of " + msgCount + " messages for resource: " + resource);
+		}
+		
+		return success;
+	}
+	
+	
+	// private classes
+	
+	/**
+	 * Identifies the batch a message belongs to.
+	 * 
+	 */
+	private static final class BatchKey
+	{
+		final ResourceNameEnum resource;
+		final int qos;
+		
+		BatchKey(ResourceNameEnum resource, int qos)
+		{
+			this.resource = resource;
+			this.qos      = qos;
+		}
+		
+		@Override
+		public boolean equals(Object obj)
+		{
+			if (! (obj instanceof BatchKey)) {
+				return false;
+			}
+			
+			BatchKey key = (BatchKey) obj;
+			
+			return this.resource == key.resource && this.qos == key.qos;
+		}
+		
+		@Override
+		public int hashCode()
+		{
+			return Objects.hash(this.resource, this.qos);
+		}
+	}
+	
+	/**
+	 * A batch under construction, held as a JSON array without its closing bracket.
+	 * 
+	 */
+	private static final class Batch
+	{
+		final BatchKey key;
+		final StringBuilder payload = new StringBuilder(1024).append('[');
+		
+		int msgCount = 0;
+		
+		Batch(BatchKey key)
+		{
+			this.key = key;
+		}
+		
+		void add(String jsonData)
+		{
+			if (this.msgCount++ > 0) {
+				this.payload.append(',');
+			}
+			
+			this.payload.append(jsonData);
+		}
+	}
+	
+}
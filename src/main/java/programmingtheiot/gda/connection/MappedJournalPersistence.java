@@ -0,0 +1,702 @@
+/**
+ * This class is part of the Programming the Internet of Things
+ * project, and is available via the MIT License, which can be
+ * found in the LICENSE file at the top level of this repository.
+ * 
+ * Copyright (c) 2020 by Andrew D. King
+ */
+
+package programmingtheiot.gda.connection;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+import org.eclipse.paho.client.mqttv3.MqttClientPersistence;
+import org.eclipse.paho.client.mqttv3.MqttPersistable;
+import org.eclipse.paho.client.mqttv3.MqttPersistenceException;
+
+/**
+ * An {@link MqttClientPersistence} that keeps the client's in-flight
+ * message state in an append-only journal, so QoS 1 and 2 messages
+ * survive a gateway restart.
+ * <p>
+ * The journal is a series of fixed-size, memory-mapped segment files.
+ * Each put appends a record with the key, header and payload, and each
+ * remove appends a tombstone; an in-memory index maps each key to its
+ * latest record. On open, the segments are replayed in order to rebuild
+ * the index, stopping at the first torn or corrupt record.
+ * <p>
+ * Since in-flight messages are short-lived, most of a segment is dead by
+ * the time the journal moves on to the next one. Whenever a new segment is
+ * started, the oldest segments are compacted: if little enough of one is
+ * still live, its live records are copied to the end of the journal, and
+ * its file is deleted. Segments are only ever deleted oldest first, so a
+ * tombstone is never dropped while the record it cancels still exists.
+ * <p>
+ * Writes go to the page cache via the mapping, so they survive the
+ * process exiting, but are only forced to disk when a segment is filled
+ * or the journal is closed.
+ * 
+ */
+public class MappedJournalPersistence implements MqttClientPersistence
+{
+	// static
+	
+	private static final Logger _Logger =
+		Logger.getLogger(MappedJournalPersistence.class.getName());
+	
+	/** The minimum segment size, in bytes. */
+	public static final int MIN_SEGMENT_BYTES = 4096;
+	
+	/** A segment is compacted once no more than this fraction of it is live. */
+	public static final float COMPACT_LIVE_RATIO = 0.5f;
+	
+	private static final String SEGMENT_PREFIX = "journal-";
+	private static final String SEGMENT_SUFFIX = ".seg";
+	private static final String LOCK_FILE_NAME = ".lck";
+	
+	private static final byte PUT_RECORD    = 1;
+	private static final byte REMOVE_RECORD = 2;
+	
+	// length (int), type (byte), key length (short), header length (int),
+	// payload length (int) and CRC (int)
+	private static final int RECORD_OVERHEAD = 4 + 1 + 2 + 4 + 4 + 4;
+	
+	
+	// private var's
+	
+	private final File baseDir;
+	private final int  segmentBytes;
+	
+	// all guarded by this
+	private File        clientDir = null;
+	private FileChannel lockChannel = null;
+	private FileLock    lock = null;
+	
+	private final Deque<Segment>             segments = new ArrayDeque<>();
+	private final Map<String, RecordLocation> index    = new HashMap<>();
+	
+	private long    nextSegmentID = 0L;
+	private boolean isCompacting  = false;
+	
+	private final CRC32 crc = new CRC32();
+	
+	
+	// constructors
+	
+	/**
+	 * Constructor.
+	 * 
+	 * @param baseDir The directory in which to keep each client's journal.
+	 * @param segmentBytes The size of each segment file, in bytes. Records
+	 * larger than this are written to a segment of their own.
+	 */
+	public MappedJournalPersistence(String baseDir, int segmentBytes)
+	{
+		super();
+		
+		if (baseDir == null || segmentBytes < MIN_SEGMENT_BYTES) {
+			throw new IllegalArgumentException(
+				"Base directory must be set, and segment size at least " + MIN_SEGMENT_BYTES + ": " + segmentBytes);
+		}
+		
+		this.baseDir      = new File(baseDir);
+		this.segmentBytes = segmentBytes;
+	}
+	
+	
+	// public methods
+	
+	@Override
+	public synchronized void open(String clientId, String serverURI) throws MqttPersistenceException
+	{
+		if (this.clientDir != null) {
+			throw new MqttPersistenceException(MqttPersistenceException.REASON_CODE_PERSISTENCE_IN_USE);
+		}
+		
+		File dir = new File(this.baseDir, getClientDirName(clientId, serverURI));
+		
+		try {
+			Files.createDirectories(dir.toPath());
+			
+			// only one client may use the journal at a time
+			this.lockChannel =
+				FileChannel.open(
+					new File(dir, LOCK_FILE_NAME).toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+			
+			try {
+				this.lock = this.lockChannel.tryLock();
+			} catch (OverlappingFileLockException e) {
+				// already locked by another client in this process
+				this.lock = null;
+			}
+			
+			if (this.lock == null) {
+				closeQuietly(this.lockChannel);
+				this.lockChannel = null;
+				
+				throw new MqttPersistenceException(MqttPersistenceException.REASON_CODE_PERSISTENCE_IN_USE);
+			}
+			
+			this.clientDir = dir;
+			
+			recover();
+		} catch (IOException e) {
+			close();
+			
+			throw new MqttPersistenceException(e);
+		}
+		
+		_Logger.info(
+			"Opened MQTT journal in " + dir + " with " + this.index.size() + " in-flight records in " +
+			this.segments.size() + " segment(s).");
+	}
+	
+	@Override
+	public synchronized void close() throws MqttPersistenceException
+	{
+		for (Segment segment : this.segments) {
+			segment.close();
+		}
+		
+		this.segments.clear();
+		this.index.clear();
+		
+		try {
+			if (this.lock != null) {
+				this.lock.release();
+			}
+		} catch (IOException e) {
+			_Logger.log(Level.WARNING, "Failed to release MQTT journal lock.", e);
+		}
+		
+		closeQuietly(this.lockChannel);
+		
+		this.lock        = null;
+		this.lockChannel = null;
+		this.clientDir   = null;
+	}
+	
+	@Override
+	public synchronized void put(String key, MqttPersistable persistable) throws MqttPersistenceException
+	{
+		checkIsOpen();
+		
+		byte[] header  = persistable.getHeaderBytes();
+		byte[] payload = persistable.getPayloadBytes();
+		
+		append(
+			PUT_RECORD, key,
+			header, persistable.getHeaderOffset(), (header != null ? persistable.getHeaderLength() : 0),
+			payload, persistable.getPayloadOffset(), (payload != null ? persistable.getPayloadLength() : 0));
+	}
+	
+	@Override
+	public synchronized MqttPersistable get(String key) throws MqttPersistenceException
+	{
+		checkIsOpen();
+		
+		RecordLocation location = this.index.get(key);
+		
+		if (location == null) {
+			return null;
+		}
+		
+		ByteBuffer record = location.segment.buffer.duplicate();
+		record.position(location.offset + 4 + 1);
+		
+		int keyLength = record.getShort() & 0xFFFF;
+		record.position(record.position() + keyLength);
+		
+		byte[] header = new byte[record.getInt()];
+		record.get(header);
+		
+		byte[] payload = new byte[record.getInt()];
+		record.get(payload);
+		
+		return new JournalPersistable(header, payload);
+	}
+	
+	@Override
+	public synchronized void remove(String key) throws MqttPersistenceException
+	{
+		checkIsOpen();
+		
+		if (this.index.containsKey(key)) {
+			append(REMOVE_RECORD, key, null, 0, 0, null, 0, 0);
+		}
+	}
+	
+	@Override
+	public synchronized Enumeration<String> keys() throws MqttPersistenceException
+	{
+		checkIsOpen();
+		
+		return Collections.enumeration(new ArrayList<>(this.index.keySet()));
+	}
+	
+	@Override
+	public synchronized void clear() throws MqttPersistenceException
+	{
+		checkIsOpen();
+		
+		while (! this.segments.isEmpty()) {
+			deleteSegment(this.segments.removeFirst());
+		}
+		
+		this.index.clear();
+	}
+	
+	@Override
+	public synchronized boolean containsKey(String key) throws MqttPersistenceException
+	{
+		checkIsOpen();
+		
+		return this.index.containsKey(key);
+	}
+	
+	/**
+	 * Compacts the oldest segments, as described above. This is called each
+	 * time a new segment is started, so there's usually no need to call it
+	 * directly.
+	 * 
+	 * @return int The number of segments deleted.
+	 * @throws MqttPersistenceException If copying a live record fails.
+	 */
+	public synchronized int compact() throws MqttPersistenceException
+	{
+		checkIsOpen();
+		
+		if (this.isCompacting) {
+			return 0;
+		}
+		
+		this.isCompacting = true;
+		
+		int deletedCount = 0;
+		
+		try {
+			// the newest segment is still being written, so is never compacted
+			while (this.segments.size() > 1) {
+				Segment oldest = this.segments.peekFirst();
+				
+				if (oldest.liveBytes > oldest.capacity * COMPACT_LIVE_RATIO) {
+					break;
+				}
+				
+				// re-append the oldest segment's live records, which moves them to the newest
+				List<String> liveKeys = new ArrayList<>();
+				
+				for (Map.Entry<String, RecordLocation> entry : this.index.entrySet()) {
+					if (entry.getValue().segment == oldest) {
+						liveKeys.add(entry.getKey());
+					}
+				}
+				
+				for (String key : liveKeys) {
+					put(key, get(key));
+				}
+				
+				this.segments.removeFirst();
+				deleteSegment(oldest);
+				
+				deletedCount++;
+			}
+		} finally {
+			this.isCompacting = false;
+		}
+		
+		return deletedCount;
+	}
+	
+	/**
+	 * 
+	 * @return int The number of segment files in the journal.
+	 */
+	public synchronized int getSegmentCount()
+	{
+		return this.segments.size();
+	}
+	
+	
+	// private methods
+	
+	private void checkIsOpen() throws MqttPersistenceException
+	{
+		if (this.clientDir == null) {
+			throw new MqttPersistenceException(MqttPersistenceException.REASON_CODE_CLIENT_EXCEPTION);
+		}
+	}
+	
+	private void append(
+		byte type, String key, byte[] header, int headerOffset, int headerLength,
+		byte[] payload, int payloadOffset, int payloadLength)
+		throws MqttPersistenceException
+	{
+		byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+		
+		if (keyBytes.length > 0xFFFF) {
+			throw new MqttPersistenceException(MqttPersistenceException.REASON_CODE_CLIENT_EXCEPTION);
+		}
+		
+		int length = RECORD_OVERHEAD + keyBytes.length + headerLength + payloadLength;
+		
+		Segment segment = getSegmentFor(length);
+		ByteBuffer buffer = segment.buffer;
+		int offset = segment.writePos;
+		
+		buffer.position(offset + 4);
+		buffer.put(type);
+		buffer.putShort((short) keyBytes.length);
+		buffer.put(keyBytes);
+		buffer.putInt(headerLength);
+		
+		if (headerLength > 0) {
+			buffer.put(header, headerOffset, headerLength);
+		}
+		
+		buffer.putInt(payloadLength);
+		
+		if (payloadLength > 0) {
+			buffer.put(payload, payloadOffset, payloadLength);
+		}
+		
+		buffer.putInt(getChecksum(buffer, offset, length));
+		
+		// the length is written last, so a torn record reads as the end of the journal
+		buffer.putInt(offset, length);
+		
+		segment.writePos += length;
+		
+		applyRecord(type, key, segment, offset, length);
+		
+		if (segment.writePos + RECORD_OVERHEAD > segment.capacity) {
+			segment.buffer.force();
+		}
+	}
+	
+	/**
+	 * Updates the index for a record appended or replayed, and the live
+	 * byte counts of the segments involved.
+	 */
+	private void applyRecord(byte type, String key, Segment segment, int offset, int length)
+	{
+		RecordLocation previous =
+			(type == PUT_RECORD ? this.index.put(key, new RecordLocation(segment, offset, length)) : this.index.remove(key));
+		
+		if (previous != null) {
+			previous.segment.liveBytes -= previous.length;
+		}
+		
+		if (type == PUT_RECORD) {
+			segment.liveBytes += length;
+		}
+	}
+	
+	/**
+	 * Returns the segment to append a record of the given length to,
+	 * starting a new segment if the newest is too full.
+	 */
+	private Segment getSegmentFor(int length) throws MqttPersistenceException
+	{
+		Segment segment = this.segments.peekLast();
+		
+		// leave room for the zero length that marks the end of the segment
+		if (segment != null && segment.writePos + length + 4 <= segment.capacity) {
+			return segment;
+		}
+		
+		if (segment != null) {
+			segment.buffer.force();
+		}
+		
+		try {
+			segment = createSegment(Math.max(this.segmentBytes, length + 4));
+		} catch (IOException e) {
+			throw new MqttPersistenceException(e);
+		}
+		
+		this.segments.addLast(segment);
+		
+		// the new segment must be in place first, as compacting appends to it,
+		// which may use up the room for this record
+		if (compact() > 0) {
+			return getSegmentFor(length);
+		}
+		
+		return segment;
+	}
+	
+	private Segment createSegment(int capacity) throws IOException
+	{
+		long segmentID = this.nextSegmentID++;
+		Path path = new File(this.clientDir, String.format("%s%016d%s", SEGMENT_PREFIX, segmentID, SEGMENT_SUFFIX)).toPath();
+		
+		Files.deleteIfExists(path);
+		
+		return new Segment(segmentID, path, capacity);
+	}
+	
+	private void deleteSegment(Segment segment)
+	{
+		segment.close();
+		
+		try {
+			Files.deleteIfExists(segment.path);
+		} catch (IOException e) {
+			_Logger.log(Level.WARNING, "Failed to delete MQTT journal segment: " + segment.path, e);
+		}
+	}
+	
+	/**
+	 * Replays the segment files in order, rebuilding the index.
+	 */
+	private void recover() throws IOException
+	{
+		File[] files = this.clientDir.listFiles((dir, name) -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX));
+		
+		List<File> segmentFiles = new ArrayList<>();
+		
+		if (files != null) {
+			Collections.addAll(segmentFiles, files);
+		}
+		
+		// the IDs are zero-padded, so the names sort in order
+		Collections.sort(segmentFiles);
+		
+		for (File file : segmentFiles) {
+			String name = file.getName();
+			long segmentID = Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+			
+			Segment segment = new Segment(segmentID, file.toPath(), (int) Math.max(file.length(), MIN_SEGMENT_BYTES));
+			
+			this.segments.addLast(segment);
+			this.nextSegmentID = segmentID + 1;
+			
+			replay(segment);
+		}
+		
+		// nothing more should be written to a segment that didn't end cleanly,
+		// so it's not compacted, but a new one is started on the next write
+		Segment newest = this.segments.peekLast();
+		
+		if (newest != null) {
+			ByteBuffer buffer = newest.buffer;
+			
+			if (newest.writePos + 4 <= newest.capacity && buffer.getInt(newest.writePos) != 0) {
+				newest.writePos = newest.capacity;
+			}
+		}
+		
+		// drop any leading segments with nothing live in them
+		while (this.segments.size() > 1 && this.segments.peekFirst().liveBytes == 0) {
+			deleteSegment(this.segments.removeFirst());
+		}
+	}
+	
+	private void replay(Segment segment)
+	{
+		ByteBuffer buffer = segment.buffer.duplicate();
+		int offset = 0;
+		
+		while (offset + RECORD_OVERHEAD <= segment.capacity) {
+			int length = buffer.getInt(offset);
+			
+			if (length < RECORD_OVERHEAD || offset + length > segment.capacity) {
+				break;
+			}
+			
+			int checksum = buffer.getInt(offset + length - 4);
+			
+			if (checksum != getChecksum(buffer, offset, length)) {
+				_Logger.warning("Corrupt record in MQTT journal segment " + segment.path + " at offset " + offset);
+				break;
+			}
+			
+			byte type = buffer.get(offset + 4);
+			int keyLength = buffer.getShort(offset + 5) & 0xFFFF;
+			
+			byte[] keyBytes = new byte[keyLength];
+			buffer.position(offset + 7);
+			buffer.get(keyBytes);
+			
+			applyRecord(type, new String(keyBytes, StandardCharsets.UTF_8), segment, offset, length);
+			
+			offset += length;
+		}
+		
+		segment.writePos = offset;
+	}
+	
+	/**
+	 * Returns the CRC of the record's content, from the type to the end of the payload.
+	 */
+	private int getChecksum(ByteBuffer buffer, int offset, int length)
+	{
+		ByteBuffer content = buffer.duplicate();
+		content.limit(offset + length - 4);
+		content.position(offset + 4);
+		
+		this.crc.reset();
+		this.crc.update(content);
+		
+		return (int) this.crc.getValue();
+	}
+	
+	private static String getClientDirName(String clientId, String serverURI)
+	{
+		StringBuilder sb = new StringBuilder();
+		
+		// as with Paho's file persistence, keep only characters that are safe in a file name
+		for (char c : (clientId + "-" + serverURI).toCharArray()) {
+			if (Character.isLetterOrDigit(c) || c == '-') {
+				sb.append(c);
+			}
+		}
+		
+		return sb.toString();
+	}
+	
+	private static void closeQuietly(FileChannel channel)
+	{
+		try {
+			if (channel != null) {
+				channel.close();
+			}
+		} catch (IOException e) {
+			// ignore
+		}
+	}
+	
+	
+	// private classes
+	
+	/**
+	 * A memory-mapped segment file.
+	 * 
+	 */
+	private static final class Segment
+	{
+		final long segmentID;
+		final Path path;
+		final int  capacity;
+		final FileChannel      channel;
+		final MappedByteBuffer buffer;
+		
+		int writePos  = 0;
+		int liveBytes = 0;
+		
+		Segment(long segmentID, Path path, int capacity) throws IOException
+		{
+			this.segmentID = segmentID;
+			this.path      = path;
+			this.capacity  = capacity;
+			this.channel   =
+				FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+			
+			// mapping beyond the end of the file extends it, and the new bytes read as zero
+			this.buffer = this.channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+		}
+		
+		void close()
+		{
+			try {
+				this.buffer.force();
+			} catch (Exception e) {
+				_Logger.log(Level.FINE, "Failed to force MQTT journal segment " + this.segmentID, e);
+			}
+			
+			closeQuietly(this.channel);
+		}
+	}
+	
+	/**
+	 * The location of a key's latest record.
+	 * 
+	 */
+	private static final class RecordLocation
+	{
+		final Segment segment;
+		final int     offset;
+		final int     length;
+		
+		RecordLocation(Segment segment, int offset, int length)
+		{
+			this.segment = segment;
+			this.offset  = offset;
+			this.length  = length;
+		}
+	}
+	
+	/**
+	 * A persisted message, as read back from the journal.
+	 * 
+	 */
+	private static final class JournalPersistable implements MqttPersistable
+	{
+		private final byte[] header;
+		private final byte[] payload;
+		
+		JournalPersistable(byte[] header, byte[] payload)
+		{
+			this.header  = header;
+			this.payload = payload;
+		}
+		
+		@Override
+		public byte[] getHeaderBytes()
+		{
+			return this.header;
+		}
+		
+		@Override
+		public int getHeaderLength()
+		{
+			return this.header.length;
+		}
+		
+		@Override
+		public int getHeaderOffset()
+		{
+			return 0;
+		}
+		
+		@Override
+		public byte[] getPayloadBytes()
+		{
+			return this.payload;
+		}
+		
+		@Override
+		public int getPayloadLength()
+		{
+			return this.payload.length;
+		}
+		
+		@Override
+		public int getPayloadOffset()
+		{
+			return 0;
+		}
+	}
+}
@@ -4,41 +4,134 @@
  * It is provided as a simple shell to guide the student and assist with
  * implementation for the Programming the Internet of Things exercises,
  * and designed to be modified by the student as needed.
- */ 
+ */
 
 package programmingtheiot.gda.connection;
 
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import javax.net.ssl.SSLSocketFactory;
+
+import org.eclipse.paho.client.mqttv3.IMqttActionListener;
 import org.eclipse.paho.client.mqttv3.IMqttDeliveryToken;
+import org.eclipse.paho.client.mqttv3.IMqttToken;
+import org.eclipse.paho.client.mqttv3.MqttAsyncClient;
 import org.eclipse.paho.client.mqttv3.MqttCallbackExtended;
-import org.eclipse.paho.client.mqttv3.MqttClient;
+import org.eclipse.paho.client.mqttv3.MqttClientPersistence;
 import org.eclipse.paho.client.mqttv3.MqttConnectOptions;
 import org.eclipse.paho.client.mqttv3.MqttException;
 import org.eclipse.paho.client.mqttv3.MqttMessage;
-import org.eclipse.paho.client.mqttv3.MqttPersistenceException;
-import org.eclipse.paho.client.mqttv3.MqttSecurityException;
-import org.eclipse.paho.client.mqttv3.persist.MemoryPersistence;
 
+import programmingtheiot.common.ConfigBindings;
 import programmingtheiot.common.ConfigConst;
 import programmingtheiot.common.ConfigUtil;
+import programmingtheiot.common.IConfigUpdateListener;
 import programmingtheiot.common.IDataMessageListener;
+import programmingtheiot.common.MqttConfig;
 import programmingtheiot.common.ResourceNameEnum;
+import programmingtheiot.common.SimpleCertManagementUtil;
+import programmingtheiot.gda.connection.handlers.MqttTopicRouter;
 
 /**
- * Shell representation of class for student implementation.
+ * MQTT client connector, built on the Paho {@link MqttAsyncClient}.
+ * <p>
+ * If 'useAsyncClient' is enabled in the MQTT configuration section,
+ * {@link #publishMessage(ResourceNameEnum, String, int)} returns as soon
+ * as the message is queued, so QoS 1 and 2 publishes are pipelined rather
+ * than each waiting for the broker's acknowledgement. The number of
+ * messages in flight is capped at 'maxInflight'; once the window is full,
+ * publishing waits up to 'publishTimeoutMillis' for a slot to free up.
+ * Use {@link #publishMessageAsync(ResourceNameEnum, byte[], int)} to be
+ * notified when each publish completes.
+ * <p>
+ * Otherwise, each publish waits for the broker's acknowledgement, as with
+ * the Paho synchronous client. As with that client, the synchronous mode
+ * must not be used to publish from within a message callback.
+ * <p>
+ * In-flight messages are journaled to 'persistenceDir' by a
+ * {@link MappedJournalPersistence}, so if 'cleanSession' is disabled,
+ * any not yet acknowledged are resent after the gateway restarts.
+ * <p>
+ * If 'enableOfflineQueue' is enabled, messages published while the
+ * connection is lost are queued in an {@link OfflinePublishQueue}. Once
+ * the client reconnects, they're sent in order, at no more than
+ * 'offlineDrainRate' messages per second, so the broker isn't flooded;
+ * until the queue is empty, new messages are queued behind them.
+ * <p>
+ * While connected, it's notified of configuration reloads, and applies
+ * any change to 'publishTimeoutMillis', 'defaultQoS' or 'offlineDrainRate'.
+ * Other settings, such as the broker address, 'maxInflight' and
+ * 'cleanSession', only apply once the connector is recreated.
  * 
  */
-public class MqttClientConnector implements IPubSubClient, MqttCallbackExtended
+public class MqttClientConnector implements IPubSubClient, MqttCallbackExtended, IConfigUpdateListener
 {
 	// static
 	
 	private static final Logger _Logger =
 		Logger.getLogger(MqttClientConnector.class.getName());
 	
-	// params
+	private static final long DRAIN_INTERVAL_MILLIS = 100L;
+	
+	
+	// private var's
+	
+	private final MqttConfig mqttConfig;
+	private final String     persistenceDir;
+	private final String     clientID;
+	private final String     brokerAddr;
+	private final boolean    useAsyncClient;
+	private final int        maxInflight;
+	
+	// updated on a configuration reload
+	private volatile long publishTimeoutMillis;
+	private volatile int  defaultQos;
+	
+	private MqttConnectOptions    connOpts    = null;
+	private MqttClientPersistence persistence = null;
+	
+	// guarded by this; volatile for publishing outside of the lock
+	private volatile MqttAsyncClient mqttClient = null;
+	
+	private volatile MqttTopicRouter     topicRouter  = null;
+	private volatile IConnectionListener connListener = null;
+	
+	// one permit per in-flight slot, released when the publish completes
+	private final Semaphore inflightPermits;
+	private final Set<CompletableFuture<Boolean>> pendingPublishes = ConcurrentHashMap.newKeySet();
+	
+	private final Map<ResourceNameEnum, Integer> subscriptionMap = new ConcurrentHashMap<>();
+	
+	private final AtomicLong publishedCount     = new AtomicLong();
+	private final AtomicLong failedPublishCount = new AtomicLong();
+	
+	private final IMqttActionListener publishActionListener = new PublishActionListener();
+	
+	// null if disabled
+	private final OfflinePublishQueue offlineQueue;
+	private volatile int offlineDrainRate;
+	
+	// true from a successful connect until disconnectClient, even while the connection is lost
+	private volatile boolean isSessionActive = false;
+	
+	// guarded by this
+	private ScheduledExecutorService drainExecSvc = null;
+	
+	// only used by the drain thread
+	private double drainCredit = 0.0;
 	
 	
 	// constructors
@@ -46,87 +139,623 @@ public class MqttClientConnector implements IPubSubClient, MqttCallbackExtended
 	/**
 	 * Default.
 	 * 
+	 * All config data will be loaded from the config file.
 	 */
 	public MqttClientConnector()
+	{
+		this(ConfigBindings.getInstance().getMqttConfig().getPersistenceDir());
+	}
+	
+	/**
+	 * Constructor.
+	 * 
+	 * All other config data will be loaded from the config file.
+	 * 
+	 * @param persistenceDir The directory for the in-flight message journal
+	 * and the offline spill file, in place of 'persistenceDir'.
+	 */
+	public MqttClientConnector(String persistenceDir)
 	{
 		super();
+		
+		this.mqttConfig           = ConfigBindings.getInstance().getMqttConfig();
+		this.persistenceDir       = persistenceDir;
+		this.clientID             = ConfigBindings.getInstance().getGatewayDeviceConfig().getDeviceLocationID();
+		this.brokerAddr           = this.mqttConfig.getBrokerAddress();
+		this.useAsyncClient       = this.mqttConfig.useAsyncClient();
+		this.maxInflight          = this.mqttConfig.getMaxInflight();
+		this.publishTimeoutMillis = this.mqttConfig.getPublishTimeoutMillis();
+		this.defaultQos           = this.mqttConfig.getDefaultQos();
+		this.inflightPermits      = new Semaphore(this.maxInflight);
+		this.offlineDrainRate     = this.mqttConfig.getOfflineDrainRate();
+		
+		if (this.mqttConfig.isOfflineQueueEnabled()) {
+			this.offlineQueue =
+				new OfflinePublishQueue(
+					new File(this.persistenceDir, "offline-" + this.clientID + ".spill"),
+					this.mqttConfig.getOfflineQueueSize(),
+					this.mqttConfig.getOfflineMemoryQueueSize());
+		} else {
+			this.offlineQueue = null;
+		}
+		
+		initClientParameters(ConfigConst.MQTT_GATEWAY_SERVICE);
 	}
 	
 	
 	// public methods
 	
 	@Override
-	public boolean connectClient()
+	public synchronized boolean connectClient()
 	{
+		if (isConnected()) {
+			_Logger.warning("MQTT client already connected to broker: " + this.brokerAddr);
+			return false;
+		}
+		
+		try {
+			if (this.mqttClient == null) {
+				this.mqttClient = new MqttAsyncClient(this.brokerAddr, this.clientID, this.persistence);
+				this.mqttClient.setCallback(this);
+			}
+			
+			_Logger.info("Connecting MQTT client to broker: " + this.brokerAddr);
+			
+			this.mqttClient.connect(this.connOpts).waitForCompletion();
+			
+			this.isSessionActive = true;
+			
+			ConfigUtil.getInstance().addConfigUpdateListener(this);
+			
+			if (this.offlineQueue != null && this.drainExecSvc == null) {
+				this.drainExecSvc = Executors.newSingleThreadScheduledExecutor(runnable -> {
+					Thread thread = new Thread(runnable, "MqttOfflineQueueDrain");
+					thread.setDaemon(true);
+					
+					return thread;
+				});
+				
+				this.drainExecSvc.scheduleAtFixedRate(
+					this::drainOfflineQueue, DRAIN_INTERVAL_MILLIS, DRAIN_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+			}
+			
+			return true;
+		} catch (MqttException e) {
+			_Logger.log(Level.SEVERE, "Failed to connect MQTT client to broker: " + this.brokerAddr, e);
+		}
+		
 		return false;
 	}
-
+	
 	@Override
-	public boolean disconnectClient()
+	public synchronized boolean disconnectClient()
 	{
+		// the connection may have been lost, but the client, and the rest, still need tearing down
+		if (this.mqttClient == null) {
+			_Logger.warning("MQTT client already disconnected from broker: " + this.brokerAddr);
+			return false;
+		}
+		
+		this.isSessionActive = false;
+		
+		ConfigUtil.getInstance().removeConfigUpdateListener(this);
+		
+		if (this.drainExecSvc != null) {
+			this.drainExecSvc.shutdownNow();
+			this.drainExecSvc = null;
+		}
+		
+		if (this.offlineQueue != null && ! this.offlineQueue.isEmpty()) {
+			_Logger.warning("Disconnecting. Discarding queued offline messages: " + this.offlineQueue.size());
+			
+			this.offlineQueue.clear();
+		}
+		
+		try {
+			if (this.mqttClient.isConnected()) {
+				_Logger.info("Disconnecting MQTT client from broker: " + this.brokerAddr);
+				
+				this.mqttClient.disconnect().waitForCompletion();
+			} else {
+				_Logger.info("Connection already lost. Closing MQTT client for broker: " + this.brokerAddr);
+				
+				// stops any reconnect in progress, without sending a DISCONNECT
+				this.mqttClient.disconnectForcibly(0L, 0L, false);
+			}
+			
+			// closing the client closes its persistence, which a new client can then reopen
+			this.mqttClient.close();
+			this.mqttClient = null;
+			
+			return true;
+		} catch (MqttException e) {
+			_Logger.log(Level.SEVERE, "Failed to disconnect MQTT client from broker: " + this.brokerAddr, e);
+		} finally {
+			// anything still pending won't be acknowledged now
+			for (CompletableFuture<Boolean> future : this.pendingPublishes) {
+				completePublish(future, new MqttException(MqttException.REASON_CODE_CLIENT_NOT_CONNECTED));
+			}
+			
+			IConnectionListener listener = this.connListener;
+			
+			if (listener != null) {
+				listener.onDisconnect();
+			}
+		}
+		
 		return false;
 	}
-
+	
 	public boolean isConnected()
 	{
-		return false;
+		MqttAsyncClient client = this.mqttClient;
+		
+		return (client != null && client.isConnected());
 	}
 	
+	/**
+	 * Publishes the message. With the asynchronous client, this returns once
+	 * the message is queued, and a failure to deliver it is only logged and
+	 * counted; with the synchronous client, this returns once the broker has
+	 * acknowledged the message.
+	 * <p>
+	 * If the connection has been lost, or messages queued while it was lost
+	 * are still being sent, the message is added to the offline queue, if
+	 * enabled, and this returns once it's queued.
+	 * 
+	 * @param topicName The topic to publish to.
+	 * @param msg The message to publish.
+	 * @param qos The QoS level, 0 - 2.
+	 * @return boolean True if the message was queued (asynchronous client) or
+	 * delivered (synchronous client); false otherwise.
+	 */
 	@Override
 	public boolean publishMessage(ResourceNameEnum topicName, String msg, int qos)
 	{
+		if (topicName == null || msg == null) {
+			_Logger.warning("Topic or message is null. Ignoring publish request for topic: " + topicName);
+			return false;
+		}
+		
+		byte[] payload = msg.getBytes(StandardCharsets.UTF_8);
+		
+		if (this.offlineQueue != null && this.isSessionActive) {
+			// checked under the queue's lock, so the drain can't empty it in between
+			synchronized (this.offlineQueue) {
+				if (! isConnected() || ! this.offlineQueue.isEmpty()) {
+					return this.offlineQueue.add(topicName, payload, validateQos(qos));
+				}
+			}
+		}
+		
+		CompletableFuture<Boolean> future = publishMessageAsync(topicName, payload, qos);
+		
+		if (this.useAsyncClient) {
+			return ! future.isCompletedExceptionally();
+		}
+		
+		try {
+			return future.get(this.publishTimeoutMillis, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (Exception e) {
+			_Logger.log(Level.WARNING, "Failed to publish message to topic: " + topicName, e);
+		}
+		
 		return false;
 	}
-
+	
+	/**
+	 * Publishes the message without waiting for it to be delivered, unless
+	 * the in-flight window is full, in which case this waits up to
+	 * 'publishTimeoutMillis' for a slot.
+	 * 
+	 * @param topicName The topic to publish to.
+	 * @param payload The message payload.
+	 * @param qos The QoS level, 0 - 2.
+	 * @return CompletableFuture The future, completed with true once the
+	 * broker acknowledges the message (QoS 1 and 2) or it's written to the
+	 * network (QoS 0), or exceptionally if it couldn't be delivered.
+	 */
+	public CompletableFuture<Boolean> publishMessageAsync(ResourceNameEnum topicName, byte[] payload, int qos)
+	{
+		CompletableFuture<Boolean> future = new CompletableFuture<>();
+		
+		if (topicName == null || payload == null) {
+			future.completeExceptionally(new IllegalArgumentException("Topic and payload must not be null."));
+			return future;
+		}
+		
+		if (! isConnected()) {
+			future.completeExceptionally(new MqttException(MqttException.REASON_CODE_CLIENT_NOT_CONNECTED));
+			return future;
+		}
+		
+		try {
+			if (! this.inflightPermits.tryAcquire(this.publishTimeoutMillis, TimeUnit.MILLISECONDS)) {
+				_Logger.warning("In-flight window full. Failed to publish message to topic: " + topicName);
+				
+				this.failedPublishCount.incrementAndGet();
+				future.completeExceptionally(new MqttException(MqttException.REASON_CODE_MAX_INFLIGHT));
+				
+				return future;
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			future.completeExceptionally(e);
+			
+			return future;
+		}
+		
+		return publishWithPermit(topicName, payload, qos);
+	}
+	
 	@Override
 	public boolean subscribeToTopic(ResourceNameEnum topicName, int qos)
 	{
+		if (topicName == null) {
+			_Logger.warning("Topic is null. Ignoring subscribe request.");
+			return false;
+		}
+		
+		MqttAsyncClient client = this.mqttClient;
+		
+		if (client == null || ! client.isConnected()) {
+			_Logger.warning("MQTT client not connected. Failed to subscribe to topic: " + topicName);
+			return false;
+		}
+		
+		qos = validateQos(qos);
+		
+		try {
+			client.subscribe(topicName.getResourceName(), qos).waitForCompletion(this.publishTimeoutMillis);
+			
+			// remembered, so the subscription can be restored after an automatic reconnect
+			this.subscriptionMap.put(topicName, qos);
+			
+			_Logger.info("Subscribed to topic: " + topicName.getResourceName());
+			
+			return true;
+		} catch (MqttException e) {
+			_Logger.log(Level.WARNING, "Failed to subscribe to topic: " + topicName, e);
+		}
+		
 		return false;
 	}
-
+	
 	@Override
 	public boolean unsubscribeFromTopic(ResourceNameEnum topicName)
 	{
+		if (topicName == null) {
+			_Logger.warning("Topic is null. Ignoring unsubscribe request.");
+			return false;
+		}
+		
+		this.subscriptionMap.remove(topicName);
+		
+		MqttAsyncClient client = this.mqttClient;
+		
+		if (client == null || ! client.isConnected()) {
+			_Logger.warning("MQTT client not connected. Failed to unsubscribe from topic: " + topicName);
+			return false;
+		}
+		
+		try {
+			client.unsubscribe(topicName.getResourceName()).waitForCompletion(this.publishTimeoutMillis);
+			
+			_Logger.info("Unsubscribed from topic: " + topicName.getResourceName());
+			
+			return true;
+		} catch (MqttException e) {
+			_Logger.log(Level.WARNING, "Failed to unsubscribe from topic: " + topicName, e);
+		}
+		
 		return false;
 	}
-
+	
 	@Override
 	public boolean setConnectionListener(IConnectionListener listener)
 	{
+		if (listener != null) {
+			this.connListener = listener;
+			return true;
+		}
+		
 		return false;
 	}
 	
 	@Override
 	public boolean setDataMessageListener(IDataMessageListener listener)
 	{
+		if (listener != null) {
+			this.topicRouter = MqttTopicRouter.createDataMessageRouter(listener, this.mqttConfig.getDataEncoding());
+			return true;
+		}
+		
 		return false;
 	}
 	
+	/**
+	 * Returns the router for incoming messages, which can be given routes
+	 * of its own, such as for a subtree of topics.
+	 * 
+	 * @return MqttTopicRouter The router, or null if no data message
+	 * listener has been set.
+	 */
+	public MqttTopicRouter getTopicRouter()
+	{
+		return this.topicRouter;
+	}
+	
+	public boolean isAsyncClient()
+	{
+		return this.useAsyncClient;
+	}
+	
+	public int getMaxInflight()
+	{
+		return this.maxInflight;
+	}
+	
+	/**
+	 * 
+	 * @return int The number of published messages not yet completed.
+	 */
+	public int getInflightCount()
+	{
+		return this.maxInflight - this.inflightPermits.availablePermits();
+	}
+	
+	/**
+	 * 
+	 * @return int The number of messages waiting in the offline queue.
+	 */
+	public int getOfflineQueueSize()
+	{
+		return (this.offlineQueue != null ? this.offlineQueue.size() : 0);
+	}
+	
+	/**
+	 * 
+	 * @return long The number of messages delivered.
+	 */
+	public long getPublishedCount()
+	{
+		return this.publishedCount.get();
+	}
+	
+	/**
+	 * 
+	 * @return long The number of messages that failed to be published.
+	 */
+	public long getFailedPublishCount()
+	{
+		return this.failedPublishCount.get();
+	}
+	
 	// callbacks
 	
+	/**
+	 * Applies the reloaded publish timeout, default QoS and offline drain
+	 * rate. A change to any other MQTT setting is logged, as it only
+	 * applies once the connector is recreated.
+	 * 
+	 * @param configUtil The updated ConfigUtil instance.
+	 */
+	@Override
+	public void onConfigUpdate(ConfigUtil configUtil)
+	{
+		MqttConfig newConfig = ConfigBindings.getInstance().getMqttConfig();
+		
+		if (! newConfig.hasSameConnectionSettings(this.mqttConfig)) {
+			_Logger.warning(
+				"MQTT connection settings changed. Only 'publishTimeoutMillis', 'defaultQoS' and " +
+				"'offlineDrainRate' apply until the connector is recreated.");
+		}
+		
+		this.publishTimeoutMillis = newConfig.getPublishTimeoutMillis();
+		this.defaultQos           = newConfig.getDefaultQos();
+		this.offlineDrainRate     = newConfig.getOfflineDrainRate();
+	}
+	
 	@Override
 	public void connectComplete(boolean reconnect, String serverURI)
 	{
+		_Logger.info("MQTT connection complete. Reconnect: " + reconnect + ", broker: " + serverURI);
+		
+		MqttAsyncClient client = this.mqttClient;
+		
+		// a clean session loses its subscriptions; restore them without waiting,
+		// since blocking the callback thread would stall the client
+		if (reconnect && client != null && this.connOpts.isCleanSession()) {
+			for (Map.Entry<ResourceNameEnum, Integer> entry : this.subscriptionMap.entrySet()) {
+				try {
+					client.subscribe(entry.getKey().getResourceName(), entry.getValue());
+				} catch (MqttException e) {
+					_Logger.log(Level.WARNING, "Failed to restore subscription to topic: " + entry.getKey(), e);
+				}
+			}
+		}
+		
+		if (reconnect && this.offlineQueue != null && ! this.offlineQueue.isEmpty()) {
+			_Logger.info(
+				"Sending " + this.offlineQueue.size() + " queued offline messages at up to " +
+				this.offlineDrainRate + " per second.");
+		}
+		
+		IConnectionListener listener = this.connListener;
+		
+		if (listener != null) {
+			listener.onConnect();
+		}
 	}
-
+	
 	@Override
 	public void connectionLost(Throwable t)
 	{
+		_Logger.log(Level.WARNING, "Lost connection to MQTT broker: " + this.brokerAddr, t);
+		
+		if (this.offlineQueue != null) {
+			_Logger.info("Queueing messages until the connection is restored.");
+		}
 	}
 	
 	@Override
 	public void deliveryComplete(IMqttDeliveryToken token)
 	{
+		if (token.getUserContext() instanceof CompletableFuture) {
+			@SuppressWarnings("unchecked")
+			CompletableFuture<Boolean> future = (CompletableFuture<Boolean>) token.getUserContext();
+			
+			completePublish(future, token.getException());
+		}
 	}
 	
 	@Override
 	public void messageArrived(String topic, MqttMessage msg) throws Exception
 	{
+		MqttTopicRouter router = this.topicRouter;
+		
+		if (router == null) {
+			_Logger.fine("No data message listener set. Ignoring message: " + topic);
+			return;
+		}
+		
+		if (! router.route(topic, msg.getPayload())) {
+			_Logger.fine("Message not handled for topic: " + topic);
+		}
 	}
-
+	
 	
 	// private methods
 	
+	/**
+	 * Completes the publish, and frees its in-flight slot. Only the first
+	 * call for a given future has any effect, as a failed publish may be
+	 * reported both to the action listener and to deliveryComplete.
+	 */
+	private void completePublish(CompletableFuture<Boolean> future, Throwable t)
+	{
+		boolean isCompleted =
+			(t == null ? future.complete(Boolean.TRUE) : future.completeExceptionally(t));
+		
+		if (isCompleted) {
+			this.pendingPublishes.remove(future);
+			this.inflightPermits.release();
+			
+			if (t == null) {
+				this.publishedCount.incrementAndGet();
+			} else {
+				this.failedPublishCount.incrementAndGet();
+				
+				_Logger.fine("Failed to deliver message: " + t.getMessage());
+			}
+		}
+	}
+	
+	/**
+	 * Hands the message to the client, using an in-flight slot the caller
+	 * has already acquired. The slot is freed when the returned future
+	 * completes, so this never blocks.
+	 */
+	private CompletableFuture<Boolean> publishWithPermit(ResourceNameEnum topicName, byte[] payload, int qos)
+	{
+		CompletableFuture<Boolean> future = new CompletableFuture<>();
+		MqttAsyncClient client = this.mqttClient;
+		
+		this.pendingPublishes.add(future);
+		
+		try {
+			if (client == null || ! client.isConnected()) {
+				throw new MqttException(MqttException.REASON_CODE_CLIENT_NOT_CONNECTED);
+			}
+			
+			MqttMessage msg = new MqttMessage(payload);
+			msg.setQos(validateQos(qos));
+			
+			// the future is the token's user context, so deliveryComplete can complete it
+			client.publish(topicName.getResourceName(), msg, future, this.publishActionListener);
+		} catch (MqttException e) {
+			_Logger.log(Level.WARNING, "Failed to publish message to topic: " + topicName, e);
+			
+			completePublish(future, e);
+		}
+		
+		return future;
+	}
+	
+	/**
+	 * Called by the drain thread to send messages from the offline queue,
+	 * at no more than the drain rate. The in-flight slot is acquired
+	 * outside the queue's lock, so a full window never stalls publishers
+	 * that are queueing behind the drain.
+	 */
+	private void drainOfflineQueue()
+	{
+		if (! isConnected()) {
+			this.drainCredit = 0.0;
+			return;
+		}
+		
+		// allow up to one interval's worth at a time, so the rate holds after idle intervals
+		double maxCredit = Math.max(1.0, this.offlineDrainRate * DRAIN_INTERVAL_MILLIS / 1000.0);
+		
+		this.drainCredit = Math.min(this.drainCredit + this.offlineDrainRate * DRAIN_INTERVAL_MILLIS / 1000.0, maxCredit);
+		
+		while (this.drainCredit >= 1.0) {
+			OfflinePublishQueue.QueuedMessage msg = this.offlineQueue.peek();
+			
+			if (msg == null) {
+				return;
+			}
+			
+			try {
+				// a full window just means trying again on the next interval
+				if (! this.inflightPermits.tryAcquire(this.publishTimeoutMillis, TimeUnit.MILLISECONDS)) {
+					return;
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+			
+			// the message is only removed once it's been handed to the client, so
+			// nothing is lost if the connection drops again
+			synchronized (this.offlineQueue) {
+				if (this.offlineQueue.peek() != msg) {
+					// the queue was cleared while waiting for the slot
+					this.inflightPermits.release();
+					continue;
+				}
+				
+				CompletableFuture<Boolean> future = publishWithPermit(msg.getTopic(), msg.getPayload(), msg.getQos());
+				
+				if (future.isCompletedExceptionally()) {
+					if (! isConnected()) {
+						return;
+					}
+					
+					// a message that fails while connected, with a slot in hand, would block the rest
+					_Logger.warning("Failed to send queued offline message. Dropping it. Topic: " + msg.getTopic());
+				}
+				
+				this.offlineQueue.poll();
+			}
+			
+			this.drainCredit -= 1.0;
+		}
+	}
+	
+	private int validateQos(int qos)
+	{
+		if (qos < MqttConfig.MIN_QOS || qos > MqttConfig.MAX_QOS) {
+			_Logger.warning("Invalid QoS: " + qos + ". Using default: " + this.defaultQos);
+			return this.defaultQos;
+		}
+		
+		return qos;
+	}
+	
 	/**
 	 * Called by the constructor to set the MQTT client parameters to be used for the connection.
 	 * 
@@ -135,7 +764,24 @@ public class MqttClientConnector implements IPubSubClient, MqttCallbackExtended
 	 */
 	private void initClientParameters(String configSectionName)
 	{
-		// TODO: implement this
+		// in-flight QoS 1 and 2 messages are journaled, so they can be resent
+		// after a restart if the broker resumes the session
+		this.persistence =
+			new MappedJournalPersistence(this.persistenceDir, this.mqttConfig.getJournalSegmentBytes());
+		this.connOpts = new MqttConnectOptions();
+		
+		this.connOpts.setKeepAliveInterval(this.mqttConfig.getKeepAlive());
+		this.connOpts.setCleanSession(this.mqttConfig.isCleanSession());
+		this.connOpts.setAutomaticReconnect(true);
+		this.connOpts.setMaxInflight(this.maxInflight);
+		
+		if (this.mqttConfig.isAuthEnabled()) {
+			initCredentialConnectionParameters(configSectionName);
+		}
+		
+		if (this.mqttConfig.isCryptEnabled()) {
+			initSecureConnectionParameters(configSectionName);
+		}
 	}
 	
 	/**
@@ -146,7 +792,17 @@ public class MqttClientConnector implements IPubSubClient, MqttCallbackExtended
 	 */
 	private void initCredentialConnectionParameters(String configSectionName)
 	{
-		// TODO: implement this
+		Properties props = ConfigUtil.getInstance().getCredentials(configSectionName);
+		
+		if (props != null) {
+			String userName = props.getProperty(ConfigConst.USER_NAME_TOKEN_KEY, "");
+			String password = props.getProperty(ConfigConst.USER_AUTH_TOKEN_KEY, "");
+			
+			this.connOpts.setUserName(userName);
+			this.connOpts.setPassword(password.toCharArray());
+		} else {
+			_Logger.warning("Authentication enabled, but no credentials found for section: " + configSectionName);
+		}
 	}
 	
 	/**
@@ -157,6 +813,39 @@ public class MqttClientConnector implements IPubSubClient, MqttCallbackExtended
 	 */
 	private void initSecureConnectionParameters(String configSectionName)
 	{
-		// TODO: implement this
+		SSLSocketFactory socketFactory =
+			SimpleCertManagementUtil.getInstance().loadCertificate(this.mqttConfig.getCertFile());
+		
+		if (socketFactory != null) {
+			this.connOpts.setSocketFactory(socketFactory);
+		} else {
+			_Logger.warning("Encryption enabled, but failed to load certificate: " + this.mqttConfig.getCertFile());
+		}
+	}
+	
+	
+	// private classes
+	
+	/**
+	 * Fails the publish if the client reports an error before it's delivered.
+	 * Successful publishes are completed in {@link #deliveryComplete(IMqttDeliveryToken)}.
+	 * 
+	 */
+	private class PublishActionListener implements IMqttActionListener
+	{
+		@Override
+		public void onSuccess(IMqttToken token)
+		{
+			// completed in deliveryComplete
+		}
+		
+		@Override
+		@SuppressWarnings("unchecked")
+		public void onFailure(IMqttToken token, Throwable t)
+		{
+			if (token.getUserContext() instanceof CompletableFuture) {
+				completePublish((CompletableFuture<Boolean>) token.getUserContext(), t);
+			}
+		}
 	}
 }
@@ -4,44 +4,139 @@
  * It is provided as a simple shell to guide the student and assist with
  * implementation for the Programming the Internet of Things exercises,
  * and designed to be modified by the student as needed.
- */ 
+ */
 
 package programmingtheiot.gda.connection;
 
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import org.eclipse.paho.mqttv5.client.IMqttDeliveryToken;
+import javax.net.ssl.SSLSocketFactory;
+
 import org.eclipse.paho.mqttv5.client.IMqttToken;
+import org.eclipse.paho.mqttv5.client.MqttActionListener;
+import org.eclipse.paho.mqttv5.client.MqttAsyncClient;
 import org.eclipse.paho.mqttv5.client.MqttCallback;
-import org.eclipse.paho.mqttv5.client.MqttClient;
+import org.eclipse.paho.mqttv5.client.MqttClientException;
 import org.eclipse.paho.mqttv5.client.MqttConnectionOptions;
 import org.eclipse.paho.mqttv5.client.MqttDisconnectResponse;
 import org.eclipse.paho.mqttv5.client.persist.MemoryPersistence;
 import org.eclipse.paho.mqttv5.common.MqttException;
 import org.eclipse.paho.mqttv5.common.MqttMessage;
-import org.eclipse.paho.mqttv5.common.MqttPersistenceException;
-import org.eclipse.paho.mqttv5.common.MqttSecurityException;
 import org.eclipse.paho.mqttv5.common.packet.MqttProperties;
 
+import programmingtheiot.common.ConfigBindings;
 import programmingtheiot.common.ConfigConst;
 import programmingtheiot.common.ConfigUtil;
+import programmingtheiot.common.IConfigUpdateListener;
 import programmingtheiot.common.IDataMessageListener;
+import programmingtheiot.common.MqttConfig;
 import programmingtheiot.common.ResourceNameEnum;
+import programmingtheiot.common.SimpleCertManagementUtil;
+import programmingtheiot.data.DataEncodingEnum;
+import programmingtheiot.gda.connection.handlers.MqttTopicRouter;
 
 /**
- * Shell representation of class for student implementation.
+ * MQTT v5 client connector, built on the Paho v5 {@link MqttAsyncClient}.
+ * It uses the same configuration section as {@link MqttClientConnector},
+ * but connects with its own client ID, so both can be connected at once.
+ * <p>
+ * It makes use of these MQTT v5 features:
+ * <ul>
+ * <li>Topic aliases: the broker may alias up to 'topicAliasMaximum' topics
+ * in the messages it sends, and if the broker allows it, the client aliases
+ * the topics it publishes to, so long topic names such as
+ * 'PIOT/ConstrainedDevice/SensorMsg' are only sent in full once per
+ * connection.</li>
+ * <li>Shared subscriptions: if 'sharedSubscriptionGroup' is set, topics are
+ * subscribed to as '$share/{group}/{topic}', so the broker spreads CDA
+ * messages across the gateways in the group rather than sending each a
+ * copy.</li>
+ * <li>Receive maximum: the broker may send no more than 'receiveMaximum'
+ * unacknowledged QoS 1 and 2 messages; in turn, the number of messages
+ * published and not yet completed is capped at the lesser of 'maxInflight'
+ * and the broker's own receive maximum, so publishing waits up to
+ * 'publishTimeoutMillis' for the broker to catch up rather than failing.</li>
+ * <li>Payload format and content type: each message published is tagged
+ * with its encoding, and each message received is decoded according to
+ * its content type, falling back to the configured 'dataEncoding'.</li>
+ * </ul>
+ * <p>
+ * As with {@link MqttClientConnector}, publishes are pipelined if
+ * 'useAsyncClient' is enabled; otherwise each waits for the broker's
+ * acknowledgement.
+ * <p>
+ * While connected, it's notified of configuration reloads, and applies
+ * any change to 'publishTimeoutMillis' or 'defaultQoS'. Other settings
+ * only apply once the connector is recreated.
  * 
  */
-public class Mqttv5ClientConnector implements IPubSubClient, MqttCallback
+public class Mqttv5ClientConnector implements IPubSubClient, MqttCallback, IConfigUpdateListener
 {
 	// static
 	
 	private static final Logger _Logger =
 		Logger.getLogger(Mqttv5ClientConnector.class.getName());
 	
-	// params
+	// appended to the device location ID, so the ID doesn't clash with the v3 connector's
+	public static final String CLIENT_ID_SUFFIX = "-v5";
+	
+	public static final String SHARED_SUBSCRIPTION_PREFIX = "$share/";
+	
+	// how long the broker keeps the session once disconnected, if not clean
+	private static final long SESSION_EXPIRY_SECS = 3600L;
+	
+	// as per the MQTT v5 spec, the receive maximum if the broker doesn't send one
+	private static final int DEFAULT_SERVER_RECEIVE_MAXIMUM = 65535;
+	
+	// PUBACK and PUBREC reason codes from this value on are failures
+	private static final int MIN_FAILURE_REASON_CODE = 0x80;
+	
+	
+	// private var's
+	
+	private final MqttConfig mqttConfig;
+	private final String     clientID;
+	private final String     brokerAddr;
+	private final boolean    useAsyncClient;
+	private final int        maxInflight;
+	
+	// updated on a configuration reload
+	private volatile long publishTimeoutMillis;
+	private volatile int  defaultQos;
+	
+	private MqttConnectionOptions connOpts = null;
+	
+	// guarded by this; volatile for publishing outside of the lock
+	private volatile MqttAsyncClient mqttClient = null;
+	
+	// one router per encoding, so each message is decoded according to its content type
+	private volatile Map<DataEncodingEnum, MqttTopicRouter> topicRouterMap = null;
+	private volatile IConnectionListener connListener = null;
+	
+	// the send quota and in-flight count are guarded by quotaLock
+	private final Object quotaLock = new Object();
+	
+	private int sendQuota     = 0;
+	private int inflightCount = 0;
+	
+	private final Set<CompletableFuture<Boolean>> pendingPublishes = ConcurrentHashMap.newKeySet();
+	
+	private final Map<ResourceNameEnum, Integer> subscriptionMap = new ConcurrentHashMap<>();
+	
+	private final AtomicLong publishedCount     = new AtomicLong();
+	private final AtomicLong failedPublishCount = new AtomicLong();
+	
+	private final MqttActionListener publishActionListener = new PublishActionListener();
 	
 	
 	// constructors
@@ -49,103 +144,624 @@ public class Mqttv5ClientConnector implements IPubSubClient, MqttCallback
 	/**
 	 * Default.
 	 * 
+	 * All config data will be loaded from the config file.
 	 */
 	public Mqttv5ClientConnector()
 	{
 		super();
+		
+		this.mqttConfig           = ConfigBindings.getInstance().getMqttConfig();
+		this.clientID             =
+			ConfigBindings.getInstance().getGatewayDeviceConfig().getDeviceLocationID() + CLIENT_ID_SUFFIX;
+		this.brokerAddr           = this.mqttConfig.getBrokerAddress();
+		this.useAsyncClient       = this.mqttConfig.useAsyncClient();
+		this.maxInflight          = this.mqttConfig.getMaxInflight();
+		this.publishTimeoutMillis = this.mqttConfig.getPublishTimeoutMillis();
+		this.defaultQos           = this.mqttConfig.getDefaultQos();
+		this.sendQuota            = this.maxInflight;
+		
+		initClientParameters(ConfigConst.MQTT_GATEWAY_SERVICE);
 	}
 	
 	
 	// public methods
 	
 	@Override
-	public boolean connectClient()
+	public synchronized boolean connectClient()
 	{
+		if (isConnected()) {
+			_Logger.warning("MQTT v5 client already connected to broker: " + this.brokerAddr);
+			return false;
+		}
+		
+		try {
+			if (this.mqttClient == null) {
+				this.mqttClient = new MqttAsyncClient(this.brokerAddr, this.clientID, new MemoryPersistence());
+				this.mqttClient.setCallback(this);
+			}
+			
+			_Logger.info("Connecting MQTT v5 client to broker: " + this.brokerAddr);
+			
+			IMqttToken token = this.mqttClient.connect(this.connOpts);
+			token.waitForCompletion();
+			
+			updateSendQuota(token.getResponseProperties());
+			
+			ConfigUtil.getInstance().addConfigUpdateListener(this);
+			
+			return true;
+		} catch (MqttException e) {
+			_Logger.log(Level.SEVERE, "Failed to connect MQTT v5 client to broker: " + this.brokerAddr, e);
+		}
+		
 		return false;
 	}
-
+	
 	@Override
-	public boolean disconnectClient()
+	public synchronized boolean disconnectClient()
 	{
+		// the connection may have been lost, but the client still needs closing
+		if (this.mqttClient == null) {
+			_Logger.warning("MQTT v5 client already disconnected from broker: " + this.brokerAddr);
+			return false;
+		}
+		
+		ConfigUtil.getInstance().removeConfigUpdateListener(this);
+		
+		try {
+			if (this.mqttClient.isConnected()) {
+				_Logger.info("Disconnecting MQTT v5 client from broker: " + this.brokerAddr);
+				
+				this.mqttClient.disconnect().waitForCompletion();
+			} else {
+				_Logger.info("Connection already lost. Closing MQTT v5 client for broker: " + this.brokerAddr);
+				
+				// stops any reconnect in progress, without sending a DISCONNECT
+				this.mqttClient.disconnectForcibly(0L, 0L, false);
+			}
+			
+			this.mqttClient.close();
+			this.mqttClient = null;
+			
+			return true;
+		} catch (MqttException e) {
+			_Logger.log(Level.SEVERE, "Failed to disconnect MQTT v5 client from broker: " + this.brokerAddr, e);
+		} finally {
+			// anything still pending won't be acknowledged now
+			for (CompletableFuture<Boolean> future : this.pendingPublishes) {
+				completePublish(future, new MqttException(MqttClientException.REASON_CODE_CLIENT_NOT_CONNECTED));
+			}
+			
+			IConnectionListener listener = this.connListener;
+			
+			if (listener != null) {
+				listener.onDisconnect();
+			}
+		}
+		
 		return false;
 	}
-
+	
 	public boolean isConnected()
 	{
-		return false;
+		MqttAsyncClient client = this.mqttClient;
+		
+		return (client != null && client.isConnected());
 	}
 	
+	/**
+	 * Publishes the message, tagged as UTF-8 encoded JSON. With the
+	 * asynchronous client, this returns once the message is queued; with
+	 * the synchronous client, this returns once the broker has acknowledged
+	 * the message.
+	 * 
+	 * @param topicName The topic to publish to.
+	 * @param msg The message to publish.
+	 * @param qos The QoS level, 0 - 2.
+	 * @return boolean True if the message was queued (asynchronous client) or
+	 * delivered (synchronous client); false otherwise.
+	 */
 	@Override
 	public boolean publishMessage(ResourceNameEnum topicName, String msg, int qos)
 	{
+		if (topicName == null || msg == null) {
+			_Logger.warning("Topic or message is null. Ignoring publish request for topic: " + topicName);
+			return false;
+		}
+		
+		CompletableFuture<Boolean> future =
+			publishMessageAsync(topicName, msg.getBytes(StandardCharsets.UTF_8), qos, DataEncodingEnum.JSON);
+		
+		if (this.useAsyncClient) {
+			return ! future.isCompletedExceptionally();
+		}
+		
+		try {
+			return future.get(this.publishTimeoutMillis, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (Exception e) {
+			_Logger.log(Level.WARNING, "Failed to publish message to topic: " + topicName, e);
+		}
+		
 		return false;
 	}
-
+	
+	/**
+	 * Publishes the message without waiting for it to be delivered, unless
+	 * the send quota is used up, in which case this waits up to
+	 * 'publishTimeoutMillis' for the broker to complete an earlier message.
+	 * 
+	 * @param topicName The topic to publish to.
+	 * @param payload The message payload.
+	 * @param qos The QoS level, 0 - 2.
+	 * @param encoding The payload encoding, which sets the message's content
+	 * type and payload format. If null, the configured encoding is used.
+	 * @return CompletableFuture The future, completed with true once the
+	 * broker acknowledges the message (QoS 1 and 2) or it's written to the
+	 * network (QoS 0), or exceptionally if it couldn't be delivered.
+	 */
+	public CompletableFuture<Boolean> publishMessageAsync(
+		ResourceNameEnum topicName, byte[] payload, int qos, DataEncodingEnum encoding)
+	{
+		CompletableFuture<Boolean> future = new CompletableFuture<>();
+		
+		if (topicName == null || payload == null) {
+			future.completeExceptionally(new IllegalArgumentException("Topic and payload must not be null."));
+			return future;
+		}
+		
+		MqttAsyncClient client = this.mqttClient;
+		
+		if (client == null || ! client.isConnected()) {
+			future.completeExceptionally(new MqttException(MqttClientException.REASON_CODE_CLIENT_NOT_CONNECTED));
+			return future;
+		}
+		
+		try {
+			if (! acquireSendQuota()) {
+				_Logger.warning("Send quota used up. Failed to publish message to topic: " + topicName);
+				
+				this.failedPublishCount.incrementAndGet();
+				future.completeExceptionally(new MqttException(MqttClientException.REASON_CODE_MAX_INFLIGHT));
+				
+				return future;
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			future.completeExceptionally(e);
+			
+			return future;
+		}
+		
+		this.pendingPublishes.add(future);
+		
+		if (encoding == null) {
+			encoding = this.mqttConfig.getDataEncoding();
+		}
+		
+		MqttProperties props = new MqttProperties();
+		props.setPayloadFormat(encoding.isText());
+		props.setContentType(encoding.getContentType());
+		
+		try {
+			MqttMessage msg = new MqttMessage(payload);
+			msg.setQos(validateQos(qos));
+			msg.setProperties(props);
+			
+			// the client assigns a topic alias itself, if the broker allows them
+			client.publish(topicName.getResourceName(), msg, future, this.publishActionListener);
+		} catch (MqttException e) {
+			_Logger.log(Level.WARNING, "Failed to publish message to topic: " + topicName, e);
+			
+			completePublish(future, e);
+		}
+		
+		return future;
+	}
+	
 	@Override
 	public boolean subscribeToTopic(ResourceNameEnum topicName, int qos)
 	{
+		if (topicName == null) {
+			_Logger.warning("Topic is null. Ignoring subscribe request.");
+			return false;
+		}
+		
+		MqttAsyncClient client = this.mqttClient;
+		
+		if (client == null || ! client.isConnected()) {
+			_Logger.warning("MQTT v5 client not connected. Failed to subscribe to topic: " + topicName);
+			return false;
+		}
+		
+		qos = validateQos(qos);
+		
+		String topicFilter = getTopicFilter(topicName);
+		
+		try {
+			client.subscribe(topicFilter, qos).waitForCompletion(this.publishTimeoutMillis);
+			
+			// remembered, so the subscription can be restored after an automatic reconnect
+			this.subscriptionMap.put(topicName, qos);
+			
+			_Logger.info("Subscribed to topic: " + topicFilter);
+			
+			return true;
+		} catch (MqttException e) {
+			_Logger.log(Level.WARNING, "Failed to subscribe to topic: " + topicFilter, e);
+		}
+		
 		return false;
 	}
-
+	
 	@Override
 	public boolean unsubscribeFromTopic(ResourceNameEnum topicName)
 	{
+		if (topicName == null) {
+			_Logger.warning("Topic is null. Ignoring unsubscribe request.");
+			return false;
+		}
+		
+		this.subscriptionMap.remove(topicName);
+		
+		MqttAsyncClient client = this.mqttClient;
+		
+		if (client == null || ! client.isConnected()) {
+			_Logger.warning("MQTT v5 client not connected. Failed to unsubscribe from topic: " + topicName);
+			return false;
+		}
+		
+		String topicFilter = getTopicFilter(topicName);
+		
+		try {
+			client.unsubscribe(topicFilter).waitForCompletion(this.publishTimeoutMillis);
+			
+			_Logger.info("Unsubscribed from topic: " + topicFilter);
+			
+			return true;
+		} catch (MqttException e) {
+			_Logger.log(Level.WARNING, "Failed to unsubscribe from topic: " + topicFilter, e);
+		}
+		
 		return false;
 	}
-
+	
 	@Override
 	public boolean setConnectionListener(IConnectionListener listener)
 	{
+		if (listener != null) {
+			this.connListener = listener;
+			return true;
+		}
+		
 		return false;
 	}
 	
 	@Override
 	public boolean setDataMessageListener(IDataMessageListener listener)
 	{
+		if (listener != null) {
+			Map<DataEncodingEnum, MqttTopicRouter> routerMap = new EnumMap<>(DataEncodingEnum.class);
+			
+			for (DataEncodingEnum encoding : DataEncodingEnum.values()) {
+				routerMap.put(encoding, MqttTopicRouter.createDataMessageRouter(listener, encoding));
+			}
+			
+			this.topicRouterMap = routerMap;
+			
+			return true;
+		}
+		
 		return false;
 	}
 	
+	/**
+	 * Returns the router for incoming messages with the given encoding, which
+	 * can be given routes of its own, such as for a subtree of topics.
+	 * 
+	 * @param encoding The encoding.
+	 * @return MqttTopicRouter The router, or null if no data message
+	 * listener has been set.
+	 */
+	public MqttTopicRouter getTopicRouter(DataEncodingEnum encoding)
+	{
+		Map<DataEncodingEnum, MqttTopicRouter> routerMap = this.topicRouterMap;
+		
+		return (routerMap != null ? routerMap.get(encoding) : null);
+	}
+	
+	/**
+	 * Returns the topic filter used to subscribe to the topic: the topic
+	 * itself, or, if subscriptions are shared, '$share/{group}/{topic}'.
+	 * 
+	 * @param topicName The topic.
+	 * @return String The topic filter.
+	 */
+	public String getTopicFilter(ResourceNameEnum topicName)
+	{
+		if (this.mqttConfig.isSharedSubscriptionEnabled()) {
+			return SHARED_SUBSCRIPTION_PREFIX +
+				this.mqttConfig.getSharedSubscriptionGroup() + MqttTopicRouter.LEVEL_SEPARATOR +
+				topicName.getResourceName();
+		}
+		
+		return topicName.getResourceName();
+	}
+	
+	public String getClientID()
+	{
+		return this.clientID;
+	}
+	
+	public boolean isAsyncClient()
+	{
+		return this.useAsyncClient;
+	}
+	
+	/**
+	 * 
+	 * @return int The maximum number of published messages not yet completed:
+	 * the lesser of 'maxInflight' and the broker's receive maximum.
+	 */
+	public int getSendQuota()
+	{
+		synchronized (this.quotaLock) {
+			return this.sendQuota;
+		}
+	}
+	
+	/**
+	 * 
+	 * @return int The number of published messages not yet completed.
+	 */
+	public int getInflightCount()
+	{
+		synchronized (this.quotaLock) {
+			return this.inflightCount;
+		}
+	}
+	
+	/**
+	 * 
+	 * @return long The number of messages delivered.
+	 */
+	public long getPublishedCount()
+	{
+		return this.publishedCount.get();
+	}
+	
+	/**
+	 * 
+	 * @return long The number of messages that failed to be published.
+	 */
+	public long getFailedPublishCount()
+	{
+		return this.failedPublishCount.get();
+	}
+	
 	// callbacks
 	
+	/**
+	 * Applies the reloaded publish timeout and default QoS. A change to any
+	 * other MQTT setting is logged, as it only applies once the connector
+	 * is recreated.
+	 * 
+	 * @param configUtil The updated ConfigUtil instance.
+	 */
+	@Override
+	public void onConfigUpdate(ConfigUtil configUtil)
+	{
+		MqttConfig newConfig = ConfigBindings.getInstance().getMqttConfig();
+		
+		if (! newConfig.hasSameConnectionSettings(this.mqttConfig)) {
+			_Logger.warning(
+				"MQTT v5 connection settings changed. Only 'publishTimeoutMillis' and 'defaultQoS' " +
+				"apply until the connector is recreated.");
+		}
+		
+		this.publishTimeoutMillis = newConfig.getPublishTimeoutMillis();
+		this.defaultQos           = newConfig.getDefaultQos();
+	}
+	
 	@Override
 	public void authPacketArrived(int reasonCode, MqttProperties properties)
 	{
-		// TODO: implement this callback
+		// enhanced authentication isn't used
+		_Logger.fine("AUTH packet arrived. Ignoring. Reason code: " + reasonCode);
 	}
-
+	
 	@Override
 	public void connectComplete(boolean reconnect, String serverURI)
 	{
-		// TODO: implement this callback
+		_Logger.info("MQTT v5 connection complete. Reconnect: " + reconnect + ", broker: " + serverURI);
+		
+		MqttAsyncClient client = this.mqttClient;
+		
+		// a clean start loses the subscriptions; restore them without waiting,
+		// since blocking the callback thread would stall the client
+		if (reconnect && client != null && this.connOpts.isCleanStart()) {
+			for (Map.Entry<ResourceNameEnum, Integer> entry : this.subscriptionMap.entrySet()) {
+				try {
+					client.subscribe(getTopicFilter(entry.getKey()), entry.getValue());
+				} catch (MqttException e) {
+					_Logger.log(Level.WARNING, "Failed to restore subscription to topic: " + entry.getKey(), e);
+				}
+			}
+		}
+		
+		IConnectionListener listener = this.connListener;
+		
+		if (listener != null) {
+			listener.onConnect();
+		}
 	}
-
+	
 	@Override
 	public void deliveryComplete(IMqttToken token)
 	{
-		// TODO: implement this callback
+		if (token.getUserContext() instanceof CompletableFuture) {
+			@SuppressWarnings("unchecked")
+			CompletableFuture<Boolean> future = (CompletableFuture<Boolean>) token.getUserContext();
+			
+			Throwable t = token.getException();
+			
+			// in MQTT v5, the broker may reject a message in its acknowledgement
+			if (t == null && isFailure(token.getReasonCodes())) {
+				t = new MqttException(token.getReasonCodes()[0]);
+			}
+			
+			completePublish(future, t);
+		}
 	}
-
+	
 	@Override
 	public void disconnected(MqttDisconnectResponse disconnectResponse)
 	{
-		// TODO: implement this callback
+		_Logger.warning("Disconnected from MQTT v5 broker: " + this.brokerAddr + ". " + disconnectResponse);
 	}
-
+	
 	@Override
 	public void mqttErrorOccurred(MqttException exception)
 	{
-		// TODO: implement this callback
+		_Logger.log(Level.WARNING, "MQTT v5 client error.", exception);
 	}
-
+	
 	@Override
 	public void messageArrived(String topic, MqttMessage msg) throws Exception
 	{
-		// TODO: implement this callback
+		Map<DataEncodingEnum, MqttTopicRouter> routerMap = this.topicRouterMap;
+		
+		if (routerMap == null) {
+			_Logger.fine("No data message listener set. Ignoring message: " + topic);
+			return;
+		}
+		
+		DataEncodingEnum encoding = null;
+		MqttProperties props = msg.getProperties();
+		
+		if (props != null && props.getContentType() != null) {
+			encoding = DataEncodingEnum.getEnumFromValue(props.getContentType());
+			
+			if (encoding == null) {
+				_Logger.fine("Unknown content type: " + props.getContentType() + ". Using the configured encoding.");
+			}
+		}
+		
+		if (encoding == null) {
+			encoding = this.mqttConfig.getDataEncoding();
+		}
+		
+		if (! routerMap.get(encoding).route(topic, msg.getPayload())) {
+			_Logger.fine("Message not handled for topic: " + topic);
+		}
 	}
-
+	
 	
 	// private methods
 	
+	/**
+	 * Waits up to 'publishTimeoutMillis' for the number of messages in flight
+	 * to drop below the send quota, then counts one more.
+	 */
+	private boolean acquireSendQuota() throws InterruptedException
+	{
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(this.publishTimeoutMillis);
+		
+		synchronized (this.quotaLock) {
+			while (this.inflightCount >= this.sendQuota) {
+				long remainingNanos = deadline - System.nanoTime();
+				
+				if (remainingNanos <= 0L) {
+					return false;
+				}
+				
+				TimeUnit.NANOSECONDS.timedWait(this.quotaLock, remainingNanos);
+			}
+			
+			this.inflightCount++;
+			
+			return true;
+		}
+	}
+	
+	private void releaseSendQuota()
+	{
+		synchronized (this.quotaLock) {
+			this.inflightCount--;
+			this.quotaLock.notifyAll();
+		}
+	}
+	
+	/**
+	 * Caps the send quota at the broker's receive maximum, from its CONNACK.
+	 * The client enforces the same limit, failing publishes beyond it, so
+	 * waiting here instead lets publishers slow to the broker's pace.
+	 */
+	private void updateSendQuota(MqttProperties connAckProps)
+	{
+		Integer serverReceiveMax = (connAckProps != null ? connAckProps.getReceiveMaximum() : null);
+		int quota = Math.min(this.maxInflight, (serverReceiveMax != null ? serverReceiveMax : DEFAULT_SERVER_RECEIVE_MAXIMUM));
+		
+		synchronized (this.quotaLock) {
+			this.sendQuota = quota;
+			this.quotaLock.notifyAll();
+		}
+		
+		Integer serverTopicAliasMax = (connAckProps != null ? connAckProps.getTopicAliasMaximum() : null);
+		
+		_Logger.info(
+			"Send quota: " + quota + ". Broker topic alias maximum: " +
+			(serverTopicAliasMax != null ? serverTopicAliasMax : 0));
+	}
+	
+	/**
+	 * Completes the publish, and frees its share of the send quota. Only
+	 * the first call for a given future has any effect, as a failed publish
+	 * may be reported both to the action listener and to deliveryComplete.
+	 */
+	private void completePublish(CompletableFuture<Boolean> future, Throwable t)
+	{
+		boolean isCompleted =
+			(t == null ? future.complete(Boolean.TRUE) : future.completeExceptionally(t));
+		
+		if (isCompleted) {
+			this.pendingPublishes.remove(future);
+			releaseSendQuota();
+			
+			if (t == null) {
+				this.publishedCount.incrementAndGet();
+			} else {
+				this.failedPublishCount.incrementAndGet();
+				
+				_Logger.fine("Failed to deliver message: " + t.getMessage());
+			}
+		}
+	}
+	
+	private boolean isFailure(int[] reasonCodes)
+	{
+		if (reasonCodes != null) {
+			for (int reasonCode : reasonCodes) {
+				if (reasonCode >= MIN_FAILURE_REASON_CODE) {
+					return true;
+				}
+			}
+		}
+		
+		return false;
+	}
+	
+	private int validateQos(int qos)
+	{
+		if (qos < MqttConfig.MIN_QOS || qos > MqttConfig.MAX_QOS) {
+			_Logger.warning("Invalid QoS: " + qos + ". Using default: " + this.defaultQos);
+			return this.defaultQos;
+		}
+		
+		return qos;
+	}
+	
 	/**
 	 * Called by the constructor to set the MQTT client parameters to be used for the connection.
 	 * 
@@ -154,7 +770,27 @@ public class Mqttv5ClientConnector implements IPubSubClient, MqttCallback
 	 */
 	private void initClientParameters(String configSectionName)
 	{
-		// TODO: implement this
+		this.connOpts = new MqttConnectionOptions();
+		
+		this.connOpts.setKeepAliveInterval(this.mqttConfig.getKeepAlive());
+		this.connOpts.setCleanStart(this.mqttConfig.isCleanSession());
+		this.connOpts.setAutomaticReconnect(true);
+		
+		// in MQTT v5, the session ends on disconnect unless given an expiry interval
+		if (! this.mqttConfig.isCleanSession()) {
+			this.connOpts.setSessionExpiryInterval(SESSION_EXPIRY_SECS);
+		}
+		
+		this.connOpts.setReceiveMaximum(this.mqttConfig.getReceiveMaximum());
+		this.connOpts.setTopicAliasMaximum(this.mqttConfig.getTopicAliasMaximum());
+		
+		if (this.mqttConfig.isAuthEnabled()) {
+			initCredentialConnectionParameters(configSectionName);
+		}
+		
+		if (this.mqttConfig.isCryptEnabled()) {
+			initSecureConnectionParameters(configSectionName);
+		}
 	}
 	
 	/**
@@ -165,7 +801,17 @@ public class Mqttv5ClientConnector implements IPubSubClient, MqttCallback
 	 */
 	private void initCredentialConnectionParameters(String configSectionName)
 	{
-		// TODO: implement this
+		Properties props = ConfigUtil.getInstance().getCredentials(configSectionName);
+		
+		if (props != null) {
+			String userName = props.getProperty(ConfigConst.USER_NAME_TOKEN_KEY, "");
+			String password = props.getProperty(ConfigConst.USER_AUTH_TOKEN_KEY, "");
+			
+			this.connOpts.setUserName(userName);
+			this.connOpts.setPassword(password.getBytes(StandardCharsets.UTF_8));
+		} else {
+			_Logger.warning("Authentication enabled, but no credentials found for section: " + configSectionName);
+		}
 	}
 	
 	/**
@@ -176,7 +822,39 @@ public class Mqttv5ClientConnector implements IPubSubClient, MqttCallback
 	 */
 	private void initSecureConnectionParameters(String configSectionName)
 	{
-		// TODO: implement this
+		SSLSocketFactory socketFactory =
+			SimpleCertManagementUtil.getInstance().loadCertificate(this.mqttConfig.getCertFile());
+		
+		if (socketFactory != null) {
+			this.connOpts.setSocketFactory(socketFactory);
+		} else {
+			_Logger.warning("Encryption enabled, but failed to load certificate: " + this.mqttConfig.getCertFile());
+		}
+	}
+	
+	
+	// private classes
+	
+	/**
+	 * Fails the publish if the client reports an error before it's delivered.
+	 * Successful publishes are completed in {@link #deliveryComplete(IMqttToken)}.
+	 * 
+	 */
+	private class PublishActionListener implements MqttActionListener
+	{
+		@Override
+		public void onSuccess(IMqttToken token)
+		{
+			// completed in deliveryComplete
+		}
+		
+		@Override
+		@SuppressWarnings("unchecked")
+		public void onFailure(IMqttToken token, Throwable t)
+		{
+			if (token.getUserContext() instanceof CompletableFuture) {
+				completePublish((CompletableFuture<Boolean>) token.getUserContext(), t);
+			}
+		}
 	}
-
 }
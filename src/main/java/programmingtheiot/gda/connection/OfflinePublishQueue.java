@@ -0,0 +1,372 @@
+/**
+ * This class is part of the Programming the Internet of Things
+ * project, and is available via the MIT License, which can be
+ * found in the LICENSE file at the top level of this repository.
+ * 
+ * Copyright (c) 2020 by Andrew D. King
+ */
+
+package programmingtheiot.gda.connection;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import programmingtheiot.common.ResourceNameEnum;
+
+/**
+ * A bounded FIFO queue of messages to publish once the MQTT connection
+ * is restored.
+ * <p>
+ * The oldest messages are kept in memory, up to the memory capacity;
+ * beyond that, messages are appended to a spill file, and read back into
+ * memory in order as the queue drains. Once the spill file has been read
+ * back completely, it's deleted; until then, once the part already read
+ * back is both larger than the rest and than {@link #COMPACT_MIN_BYTES},
+ * the rest is moved to the start of the file, so the file stays bounded
+ * under sustained traffic that never lets it drain. Messages are always
+ * taken in the order they were added, so their order per topic is preserved.
+ * <p>
+ * If the queue is full, the oldest message is dropped to make room, as
+ * recent telemetry is the more useful after a long outage.
+ * <p>
+ * This class is thread-safe.
+ * 
+ */
+public class OfflinePublishQueue
+{
+	// static
+	
+	private static final Logger _Logger =
+		Logger.getLogger(OfflinePublishQueue.class.getName());
+	
+	// length (int), QoS (byte), topic length (short) and payload length (int)
+	private static final int RECORD_OVERHEAD = 4 + 1 + 2 + 4;
+	
+	/** The least number of bytes read back from the spill file before it's compacted. */
+	public static final long COMPACT_MIN_BYTES = 64 * 1024L;
+	
+	private static final int COPY_BUFFER_SIZE = 8192;
+	
+	
+	// private var's
+	
+	private final File spillFile;
+	private final int  capacity;
+	private final int  memoryCapacity;
+	
+	// all guarded by this
+	private final Deque<QueuedMessage> memoryQueue = new ArrayDeque<>();
+	
+	private RandomAccessFile spill = null;
+	private long spillReadPos  = 0L;
+	private long spillWritePos = 0L;
+	private int  spillCount    = 0;
+	
+	private long droppedCount = 0L;
+	
+	
+	// constructors
+	
+	/**
+	 * Constructor.
+	 * 
+	 * @param spillFile The file to spill messages to once the memory capacity is reached.
+	 * @param capacity The maximum number of messages to queue.
+	 * @param memoryCapacity The maximum number of messages to keep in memory.
+	 */
+	public OfflinePublishQueue(File spillFile, int capacity, int memoryCapacity)
+	{
+		super();
+		
+		if (spillFile == null || capacity < 1 || memoryCapacity < 1) {
+			throw new IllegalArgumentException(
+				"Spill file must be set, and capacities must be positive: " + capacity + ", " + memoryCapacity);
+		}
+		
+		this.spillFile      = spillFile;
+		this.capacity       = capacity;
+		this.memoryCapacity = Math.min(memoryCapacity, capacity);
+	}
+	
+	
+	// public methods
+	
+	/**
+	 * Adds a message to the end of the queue, dropping the oldest message
+	 * if the queue is full.
+	 * 
+	 * @param topic The topic to publish to.
+	 * @param payload The message payload.
+	 * @param qos The QoS level.
+	 * @return boolean True if the message was queued; false if it couldn't
+	 * be written to the spill file.
+	 */
+	public synchronized boolean add(ResourceNameEnum topic, byte[] payload, int qos)
+	{
+		if (size() >= this.capacity) {
+			poll();
+			this.droppedCount++;
+		}
+		
+		QueuedMessage msg = new QueuedMessage(topic, payload, qos);
+		
+		// once anything has been spilled, later messages must be too, to keep them in order
+		if (this.spillCount == 0 && this.memoryQueue.size() < this.memoryCapacity) {
+			this.memoryQueue.addLast(msg);
+			
+			return true;
+		}
+		
+		try {
+			writeSpill(msg);
+			
+			return true;
+		} catch (IOException e) {
+			_Logger.log(Level.WARNING, "Failed to spill offline message for topic: " + topic, e);
+			
+			this.droppedCount++;
+		}
+		
+		return false;
+	}
+	
+	/**
+	 * 
+	 * @return QueuedMessage The oldest message, without removing it, or null if empty.
+	 */
+	public synchronized QueuedMessage peek()
+	{
+		if (this.memoryQueue.isEmpty()) {
+			refill();
+		}
+		
+		return this.memoryQueue.peekFirst();
+	}
+	
+	/**
+	 * 
+	 * @return QueuedMessage The oldest message, which is removed, or null if empty.
+	 */
+	public synchronized QueuedMessage poll()
+	{
+		if (this.memoryQueue.isEmpty()) {
+			refill();
+		}
+		
+		return this.memoryQueue.pollFirst();
+	}
+	
+	/**
+	 * Removes all messages, and deletes the spill file.
+	 * 
+	 */
+	public synchronized void clear()
+	{
+		this.memoryQueue.clear();
+		
+		resetSpill();
+	}
+	
+	public synchronized boolean isEmpty()
+	{
+		return size() == 0;
+	}
+	
+	public synchronized int size()
+	{
+		return this.memoryQueue.size() + this.spillCount;
+	}
+	
+	/**
+	 * 
+	 * @return int The number of messages in the spill file.
+	 */
+	public synchronized int getSpillCount()
+	{
+		return this.spillCount;
+	}
+	
+	/**
+	 * 
+	 * @return long The number of messages dropped because the queue was full,
+	 * or the spill file couldn't be written or read.
+	 */
+	public synchronized long getDroppedCount()
+	{
+		return this.droppedCount;
+	}
+	
+	
+	// private methods
+	
+	private void writeSpill(QueuedMessage msg) throws IOException
+	{
+		if (this.spill == null) {
+			File dir = this.spillFile.getAbsoluteFile().getParentFile();
+			
+			if (dir != null) {
+				Files.createDirectories(dir.toPath());
+			}
+			
+			// anything left from a previous run was for a session that's gone
+			this.spill = new RandomAccessFile(this.spillFile, "rw");
+			this.spill.setLength(0L);
+		}
+		
+		byte[] topicBytes = msg.topic.name().getBytes(StandardCharsets.UTF_8);
+		int length = RECORD_OVERHEAD + topicBytes.length + msg.payload.length;
+		
+		ByteBuffer record = ByteBuffer.allocate(length);
+		record.putInt(length);
+		record.put((byte) msg.qos);
+		record.putShort((short) topicBytes.length);
+		record.put(topicBytes);
+		record.putInt(msg.payload.length);
+		record.put(msg.payload);
+		
+		this.spill.seek(this.spillWritePos);
+		this.spill.write(record.array());
+		
+		this.spillWritePos += length;
+		this.spillCount++;
+	}
+	
+	/**
+	 * Reads spilled messages back into memory, in order, up to the memory capacity.
+	 */
+	private void refill()
+	{
+		try {
+			while (this.spillCount > 0 && this.memoryQueue.size() < this.memoryCapacity) {
+				this.spill.seek(this.spillReadPos);
+				
+				int length = this.spill.readInt();
+				byte[] record = new byte[length - 4];
+				
+				this.spill.readFully(record);
+				
+				ByteBuffer buffer = ByteBuffer.wrap(record);
+				int qos = buffer.get();
+				
+				byte[] topicBytes = new byte[buffer.getShort()];
+				buffer.get(topicBytes);
+				
+				byte[] payload = new byte[buffer.getInt()];
+				buffer.get(payload);
+				
+				this.memoryQueue.addLast(
+					new QueuedMessage(
+						ResourceNameEnum.valueOf(new String(topicBytes, StandardCharsets.UTF_8)), payload, qos));
+				
+				this.spillReadPos += length;
+				this.spillCount--;
+			}
+			
+			long unreadLength = this.spillWritePos - this.spillReadPos;
+			
+			if (this.spillCount > 0 && this.spillReadPos >= Math.max(COMPACT_MIN_BYTES, unreadLength)) {
+				compactSpill();
+			}
+		} catch (IOException | RuntimeException e) {
+			_Logger.log(Level.WARNING, "Failed to read offline messages from spill file. Dropping the rest.", e);
+			
+			this.droppedCount += this.spillCount;
+			this.spillCount = 0;
+		}
+		
+		if (this.spillCount == 0) {
+			resetSpill();
+		}
+	}
+	
+	/**
+	 * Moves the messages not yet read back to the start of the spill file,
+	 * and truncates it. The copy is always to a lower offset, so it can be
+	 * done in place, a buffer at a time.
+	 */
+	private void compactSpill() throws IOException
+	{
+		byte[] buffer = new byte[COPY_BUFFER_SIZE];
+		long unreadLength = this.spillWritePos - this.spillReadPos;
+		long copied = 0L;
+		
+		while (copied < unreadLength) {
+			int count = (int) Math.min(buffer.length, unreadLength - copied);
+			
+			this.spill.seek(this.spillReadPos + copied);
+			this.spill.readFully(buffer, 0, count);
+			this.spill.seek(copied);
+			this.spill.write(buffer, 0, count);
+			
+			copied += count;
+		}
+		
+		this.spill.setLength(unreadLength);
+		
+		_Logger.fine("Compacted spill file from " + this.spillWritePos + " to " + unreadLength + " bytes.");
+		
+		this.spillReadPos  = 0L;
+		this.spillWritePos = unreadLength;
+	}
+	
+	private void resetSpill()
+	{
+		if (this.spill != null) {
+			try {
+				this.spill.close();
+				Files.deleteIfExists(this.spillFile.toPath());
+			} catch (IOException e) {
+				_Logger.log(Level.WARNING, "Failed to delete spill file: " + this.spillFile, e);
+			}
+		}
+		
+		this.spill         = null;
+		this.spillReadPos  = 0L;
+		this.spillWritePos = 0L;
+		this.spillCount    = 0;
+	}
+	
+	
+	// public classes
+	
+	/**
+	 * A message waiting to be published.
+	 * 
+	 */
+	public static final class QueuedMessage
+	{
+		private final ResourceNameEnum topic;
+		private final byte[] payload;
+		private final int    qos;
+		
+		QueuedMessage(ResourceNameEnum topic, byte[] payload, int qos)
+		{
+			this.topic   = topic;
+			this.payload = payload;
+			this.qos     = qos;
+		}
+		
+		public ResourceNameEnum getTopic()
+		{
+			return this.topic;
+		}
+		
+		public byte[] getPayload()
+		{
+			return this.payload;
+		}
+		
+		public int getQos()
+		{
+			return this.qos;
+		}
+	}
+}
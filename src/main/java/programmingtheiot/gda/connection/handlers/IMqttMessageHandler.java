@@ -0,0 +1,31 @@
+/**
+ * This class is part of the Programming the Internet of Things
+ * project, and is available via the MIT License, which can be
+ * found in the LICENSE file at the top level of this repository.
+ * 
+ * Copyright (c) 2020 by Andrew D. King
+ */
+
+package programmingtheiot.gda.connection.handlers;
+
+import programmingtheiot.common.ResourceNameEnum;
+
+/**
+ * Interface contract for handling the messages routed to a topic
+ * filter by {@link MqttTopicRouter}.
+ * 
+ */
+public interface IMqttMessageHandler
+{
+	/**
+	 * Handles a message that arrived on a topic matching the handler's filter.
+	 * 
+	 * @param resource The resource the topic names, or null if the topic
+	 * isn't one of the {@link ResourceNameEnum} resources.
+	 * @param topic The topic the message arrived on.
+	 * @param payload The message payload.
+	 * @return boolean True if the message was handled; false otherwise.
+	 */
+	public boolean handleMessage(ResourceNameEnum resource, String topic, byte[] payload);
+
+}
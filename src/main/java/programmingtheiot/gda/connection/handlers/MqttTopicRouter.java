@@ -0,0 +1,374 @@
+/**
+ * This class is part of the Programming the Internet of Things
+ * project, and is available via the MIT License, which can be
+ * found in the LICENSE file at the top level of this repository.
+ * 
+ * Copyright (c) 2020 by Andrew D. King
+ */
+
+package programmingtheiot.gda.connection.handlers;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import programmingtheiot.common.ConfigConst;
+import programmingtheiot.common.IDataMessageListener;
+import programmingtheiot.common.ResourceNameEnum;
+import programmingtheiot.data.ActuatorData;
+import programmingtheiot.data.BaseIotData;
+import programmingtheiot.data.DataEncodingEnum;
+import programmingtheiot.data.DataUtil;
+import programmingtheiot.data.IotDataRecycler;
+import programmingtheiot.data.SensorData;
+import programmingtheiot.data.SystemPerformanceData;
+
+/**
+ * Routes MQTT messages to handlers by topic, using a trie of topic levels.
+ * <p>
+ * Each route is a topic filter, which may use the MQTT wildcards: '+'
+ * matches any one level, and '#', as the last level, matches any number
+ * of levels, including none. Each {@link ResourceNameEnum} resource is
+ * also indexed in the trie, so a topic is mapped back to its resource in
+ * the same way, with one map lookup per level, rather than by comparing
+ * the whole topic with each resource name or filter in turn.
+ * <p>
+ * If more than one filter matches a topic, the most specific wins: at each
+ * level, an exact match is preferred over '+', and '+' over '#'. So a
+ * handler can be added for a whole subtree, such as 'PIOT/#', and
+ * overridden for the topics within it that need different handling.
+ * <p>
+ * As in MQTT, wildcards at the first level don't match topics that start
+ * with '$', which are reserved for the broker.
+ * <p>
+ * Routes should be added before messages are routed, though adding a route
+ * while messages are being routed is safe.
+ * <p>
+ * Anything a handler throws is logged and counted, and the message treated
+ * as not handled, so a malformed payload or a failing listener can't
+ * propagate into the MQTT client's callback, which would drop the connection.
+ * 
+ */
+public class MqttTopicRouter
+{
+	// static
+	
+	private static final Logger _Logger =
+		Logger.getLogger(MqttTopicRouter.class.getName());
+	
+	public static final String LEVEL_SEPARATOR       = "/";
+	public static final String SINGLE_LEVEL_WILDCARD = "+";
+	public static final String MULTI_LEVEL_WILDCARD  = "#";
+	
+	/**
+	 * Creates a router that decodes the payload of each message for which
+	 * {@link IDataMessageListener} has a typed handler, and passes it to that
+	 * handler. Messages for the other resources are passed on undecoded, to
+	 * {@link IDataMessageListener#handleIncomingMessage(ResourceNameEnum, String)}.
+	 * <p>
+	 * A listener that accepts decoded data (by returning true) takes ownership
+	 * of it; if it rejects the data, the router is the last owner, and releases
+	 * it to {@link IotDataRecycler} for reuse.
+	 * 
+	 * @param listener The listener to route messages to.
+	 * @param encoding The payload encoding.
+	 * @return MqttTopicRouter The router.
+	 */
+	public static MqttTopicRouter createDataMessageRouter(IDataMessageListener listener, DataEncodingEnum encoding)
+	{
+		MqttTopicRouter router = new MqttTopicRouter();
+		DataUtil dataUtil = DataUtil.getInstance();
+		
+		router.addRoute(ConfigConst.PRODUCT_NAME + LEVEL_SEPARATOR + MULTI_LEVEL_WILDCARD,
+			(resource, topic, payload) ->
+				(resource != null && listener.handleIncomingMessage(resource, new String(payload, StandardCharsets.UTF_8))));
+		
+		router.addRoute(ResourceNameEnum.CDA_SENSOR_MSG_RESOURCE, (resource, topic, payload) -> {
+			SensorData data = dataUtil.decode(payload, SensorData.class, encoding);
+			
+			return (data != null && releaseIfRejected(data, listener.handleSensorMessage(resource, data)));
+		});
+		
+		router.addRoute(ResourceNameEnum.CDA_ACTUATOR_RESPONSE_RESOURCE, (resource, topic, payload) -> {
+			ActuatorData data = dataUtil.decode(payload, ActuatorData.class, encoding);
+			
+			return (data != null && releaseIfRejected(data, listener.handleActuatorCommandResponse(resource, data)));
+		});
+		
+		IMqttMessageHandler sysPerfHandler = (resource, topic, payload) -> {
+			SystemPerformanceData data = dataUtil.decode(payload, SystemPerformanceData.class, encoding);
+			
+			return (data != null && releaseIfRejected(data, listener.handleSystemPerformanceMessage(resource, data)));
+		};
+		
+		router.addRoute(ResourceNameEnum.CDA_SYSTEM_PERF_MSG_RESOURCE, sysPerfHandler);
+		router.addRoute(ResourceNameEnum.GDA_SYSTEM_PERF_MSG_RESOURCE, sysPerfHandler);
+		
+		return router;
+	}
+	
+	
+	// private var's
+	
+	private final TopicNode root = new TopicNode();
+	private final AtomicLong failedCount = new AtomicLong();
+	
+	
+	// constructors
+	
+	/**
+	 * Default. Indexes each {@link ResourceNameEnum} resource, with no routes.
+	 * 
+	 */
+	public MqttTopicRouter()
+	{
+		super();
+		
+		for (ResourceNameEnum resource : ResourceNameEnum.values()) {
+			getOrCreateNode(splitTopic(resource.getResourceName())).resource = resource;
+		}
+	}
+	
+	
+	// public methods
+	
+	/**
+	 * Adds a route, replacing any existing route for the same filter.
+	 * 
+	 * @param topicFilter The topic filter, which may contain wildcards.
+	 * @param handler The handler for messages on matching topics.
+	 */
+	public void addRoute(String topicFilter, IMqttMessageHandler handler)
+	{
+		if (handler == null) {
+			throw new IllegalArgumentException("Handler must not be null.");
+		}
+		
+		List<String> levels = splitTopic(topicFilter);
+		
+		for (int i = 0; i < levels.size(); i++) {
+			String level = levels.get(i);
+			
+			boolean isValid =
+				(level.equals(MULTI_LEVEL_WILDCARD) && i == levels.size() - 1) ||
+				level.equals(SINGLE_LEVEL_WILDCARD) ||
+				(! level.contains(MULTI_LEVEL_WILDCARD) && ! level.contains(SINGLE_LEVEL_WILDCARD));
+			
+			if (! isValid) {
+				throw new IllegalArgumentException("Invalid topic filter: " + topicFilter);
+			}
+		}
+		
+		getOrCreateNode(levels).handler = handler;
+	}
+	
+	/**
+	 * Adds a route for the resource's topic.
+	 * 
+	 * @param resource The resource.
+	 * @param handler The handler for messages on the resource's topic.
+	 */
+	public void addRoute(ResourceNameEnum resource, IMqttMessageHandler handler)
+	{
+		addRoute(resource.getResourceName(), handler);
+	}
+	
+	/**
+	 * Returns the resource the topic names.
+	 * 
+	 * @param topic The topic, which must not contain wildcards.
+	 * @return ResourceNameEnum The resource, or null if the topic isn't one
+	 * of the {@link ResourceNameEnum} resources.
+	 */
+	public ResourceNameEnum getResource(String topic)
+	{
+		TopicNode node = this.root;
+		
+		for (String level : splitTopic(topic)) {
+			node = node.children.get(level);
+			
+			if (node == null) {
+				return null;
+			}
+		}
+		
+		return node.resource;
+	}
+	
+	/**
+	 * Returns the handler for the most specific filter matching the topic.
+	 * 
+	 * @param topic The topic, which must not contain wildcards.
+	 * @return IMqttMessageHandler The handler, or null if no filter matches.
+	 */
+	public IMqttMessageHandler getHandler(String topic)
+	{
+		List<String> levels = splitTopic(topic);
+		boolean isReserved = topic.startsWith("$");
+		
+		TopicNode node = match(this.root, levels, 0, isReserved);
+		
+		return (node != null ? node.handler : null);
+	}
+	
+	/**
+	 * Passes the message to the handler for the most specific filter
+	 * matching its topic.
+	 * 
+	 * @param topic The topic the message arrived on.
+	 * @param payload The message payload.
+	 * @return boolean True if a handler was found, and handled the message;
+	 * false otherwise, including if the handler threw.
+	 */
+	public boolean route(String topic, byte[] payload)
+	{
+		if (topic == null) {
+			return false;
+		}
+		
+		IMqttMessageHandler handler = getHandler(topic);
+		
+		if (handler == null) {
+			_Logger.fine("No route for topic. Ignoring message: " + topic);
+			return false;
+		}
+		
+		try {
+			return handler.handleMessage(getResource(topic), topic, (payload != null ? payload : new byte[0]));
+		} catch (RuntimeException | Error e) {
+			this.failedCount.incrementAndGet();
+			
+			_Logger.log(Level.WARNING, "Failed to handle message. Ignoring message on topic: " + topic, e);
+		}
+		
+		return false;
+	}
+	
+	/**
+	 * 
+	 * @return long The number of messages whose handler threw.
+	 */
+	public long getFailedCount()
+	{
+		return this.failedCount.get();
+	}
+	
+	
+	// private methods
+	
+	/**
+	 * Finds the node with a handler for the most specific filter matching the
+	 * levels from 'index' on, trying an exact match first, then '+', then '#'.
+	 */
+	private TopicNode match(TopicNode node, List<String> levels, int index, boolean isReserved)
+	{
+		// wildcards at the first level don't match topics reserved for the broker
+		boolean isWildcardAllowed = (index > 0 || ! isReserved);
+		
+		if (index == levels.size()) {
+			if (node.handler != null) {
+				return node;
+			}
+			
+			// 'a/#' also matches 'a'
+			TopicNode multiLevelNode = node.children.get(MULTI_LEVEL_WILDCARD);
+			
+			return (multiLevelNode != null && multiLevelNode.handler != null ? multiLevelNode : null);
+		}
+		
+		TopicNode child = node.children.get(levels.get(index));
+		
+		if (child != null) {
+			TopicNode matched = match(child, levels, index + 1, isReserved);
+			
+			if (matched != null) {
+				return matched;
+			}
+		}
+		
+		if (isWildcardAllowed) {
+			child = node.children.get(SINGLE_LEVEL_WILDCARD);
+			
+			if (child != null) {
+				TopicNode matched = match(child, levels, index + 1, isReserved);
+				
+				if (matched != null) {
+					return matched;
+				}
+			}
+			
+			child = node.children.get(MULTI_LEVEL_WILDCARD);
+			
+			if (child != null && child.handler != null) {
+				return child;
+			}
+		}
+		
+		return null;
+	}
+	
+	/**
+	 * Releases the decoded data if the listener rejected it, as nothing else
+	 * holds a reference to it then. If accepted, the listener owns it.
+	 */
+	private static boolean releaseIfRejected(BaseIotData data, boolean isAccepted)
+	{
+		if (! isAccepted) {
+			IotDataRecycler.getInstance().release(data);
+		}
+		
+		return isAccepted;
+	}
+	
+	private TopicNode getOrCreateNode(List<String> levels)
+	{
+		TopicNode node = this.root;
+		
+		for (String level : levels) {
+			node = node.children.computeIfAbsent(level, key -> new TopicNode());
+		}
+		
+		return node;
+	}
+	
+	/**
+	 * Splits the topic into its levels. Empty levels are kept, as they're
+	 * significant in MQTT (e.g. 'a//b' has three levels).
+	 */
+	private static List<String> splitTopic(String topic)
+	{
+		List<String> levels = new ArrayList<>();
+		int start = 0;
+		int end;
+		
+		while ((end = topic.indexOf(LEVEL_SEPARATOR, start)) >= 0) {
+			levels.add(topic.substring(start, end));
+			start = end + 1;
+		}
+		
+		levels.add(topic.substring(start));
+		
+		return levels;
+	}
+	
+	
+	// private classes
+	
+	/**
+	 * A topic level, and the route and resource, if any, for the topic or
+	 * filter that ends at it.
+	 * 
+	 */
+	private static final class TopicNode
+	{
+		final Map<String, TopicNode> children = new ConcurrentHashMap<>();
+		
+		volatile IMqttMessageHandler handler  = null;
+		volatile ResourceNameEnum    resource = null;
+	}
+}
@@ -16,8 +16,11 @@ import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
+import programmingtheiot.common.ConfigBindings;
 import programmingtheiot.common.ConfigConst;
 import programmingtheiot.common.ConfigUtil;
+import programmingtheiot.common.GatewayDeviceConfig;
+import programmingtheiot.common.IConfigUpdateListener;
 import programmingtheiot.common.IDataMessageListener;
 import programmingtheiot.common.ResourceNameEnum;
 import programmingtheiot.data.SystemPerformanceData;
@@ -26,7 +29,7 @@ import programmingtheiot.data.SystemPerformanceData;
  * Shell representation of class for student implementation.
  * 
  */
-public class SystemPerformanceManager
+public class SystemPerformanceManager implements IConfigUpdateListener
 {
 	// private var's
 	private static final Logger _Logger = Logger.getLogger(SystemPerformanceManager.class.getName());
@@ -38,6 +41,7 @@ public class SystemPerformanceManager
 	private SystemMemUtilTask sysMemUtilTask = null;
 
 	private Runnable taskRunner = null;
+	private ScheduledFuture<?> futureTask = null;
 	private boolean isStarted = false;
 
 	private String locationID = ConfigConst.NOT_SET;
@@ -52,13 +56,9 @@ public class SystemPerformanceManager
 	// public methods
 
 	public SystemPerformanceManager() {
-		this.pollRate =
-			ConfigUtil.getInstance().getInteger(
-				ConfigConst.GATEWAY_DEVICE, ConfigConst.POLL_CYCLES_KEY, ConfigConst.DEFAULT_POLL_CYCLES);
-
-		if (this.pollRate <= 0) {
-			this.pollRate = ConfigConst.DEFAULT_POLL_CYCLES;
-		}
+		GatewayDeviceConfig gdaConfig = ConfigBindings.getInstance().getGatewayDeviceConfig();
+		
+		this.pollRate = gdaConfig.getPollCycleSecs();
 
 		this.schedExecSvc   = Executors.newScheduledThreadPool(1);
 		this.sysCpuUtilTask = new SystemCpuUtilTask();
@@ -68,7 +68,7 @@ public class SystemPerformanceManager
 			this.handleTelemetry();
 		};
 
-		this.locationID = ConfigUtil.getInstance().getProperty(ConfigConst.GATEWAY_DEVICE, ConfigConst.LOCATION_ID_PROP, ConfigConst.NOT_SET);
+		this.locationID = gdaConfig.getDeviceLocationID();
 	}
 	
 	public void handleTelemetry() {
@@ -89,6 +89,34 @@ public class SystemPerformanceManager
 		}
 	}
 	
+	/**
+	 * Re-reads the poll rate and location ID, and if the poll rate has
+	 * changed while started, reschedules telemetry collection at the new rate.
+	 * 
+	 * @param configUtil The updated ConfigUtil instance.
+	 */
+	@Override
+	public synchronized void onConfigUpdate(ConfigUtil configUtil)
+	{
+		GatewayDeviceConfig gdaConfig = ConfigBindings.getInstance().getGatewayDeviceConfig();
+		
+		int newPollRate = gdaConfig.getPollCycleSecs();
+		
+		this.locationID = gdaConfig.getDeviceLocationID();
+		
+		if (newPollRate != this.pollRate) {
+			_Logger.info("SystemPerformanceManager poll rate changed from " + this.pollRate + " to " + newPollRate + " secs.");
+			
+			this.pollRate = newPollRate;
+			
+			if (this.isStarted) {
+				this.futureTask.cancel(false);
+				this.futureTask =
+					this.schedExecSvc.scheduleAtFixedRate(this.taskRunner, this.pollRate, this.pollRate, TimeUnit.SECONDS);
+			}
+		}
+	}
+	
 	public void setDataMessageListener(IDataMessageListener listener)
 	{
 		if (listener != null) {
@@ -96,14 +124,16 @@ public class SystemPerformanceManager
 		}
 	}
 	
-	public boolean startManager() {
+	public synchronized boolean startManager() {
 		if (! this.isStarted) {
 			_Logger.info("SystemPerformanceManager is starting...");
 	
-			ScheduledFuture<?> futureTask =
+			this.futureTask =
 				this.schedExecSvc.scheduleAtFixedRate(this.taskRunner, 1L, this.pollRate, TimeUnit.SECONDS);
 	
 			this.isStarted = true;
+			
+			ConfigUtil.getInstance().addConfigUpdateListener(this);
 		} else {
 			_Logger.info("SystemPerformanceManager is already started.");
 		}
@@ -111,7 +141,9 @@ public class SystemPerformanceManager
 		return this.isStarted;
 	}
 	
-	public boolean stopManager() {
+	public synchronized boolean stopManager() {
+		ConfigUtil.getInstance().removeConfigUpdateListener(this);
+		
 		this.schedExecSvc.shutdown();
 		this.isStarted = false;
 	
@@ -0,0 +1,117 @@
+/**
+ * This class is part of the Programming the Internet of Things
+ * project, and is available via the MIT License, which can be
+ * found in the LICENSE file at the top level of this repository.
+ * 
+ * Copyright (c) 2020 by Andrew D. King
+ */ 
+
+package programmingtheiot.part01.unit.common;
+
+import static org.junit.Assert.*;
+
+import java.util.logging.Logger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import programmingtheiot.common.*;
+import programmingtheiot.data.DataEncodingEnum;
+
+/**
+ * This test case class contains very basic unit tests for
+ * ConfigBindings. It should not be considered complete,
+ * but serve as a starting point for the student implementing
+ * additional functionality within their Programming the IoT
+ * environment.
+ *
+ */
+public class ConfigBindingsTest
+{
+	// static
+	
+	private static final Logger _Logger =
+		Logger.getLogger(ConfigBindingsTest.class.getName());
+	
+	
+	// member var's
+	
+	private ConfigBindings configBindings = null;
+	
+	
+	// test setup methods
+	
+	@Before
+	public void setUp() throws Exception
+	{
+		this.configBindings = ConfigBindings.getInstance();
+	}
+	
+	
+	// test methods
+	
+	@Test
+	public void testValidate()
+	{
+		_Logger.info("Validation errors: " + this.configBindings.getValidationErrors());
+		
+		this.configBindings.validate();
+		
+		assertTrue(this.configBindings.getValidationErrors().isEmpty());
+	}
+	
+	@Test
+	public void testMqttConfig()
+	{
+		ConfigUtil  configUtil = ConfigUtil.getInstance();
+		MqttConfig  mqttConfig = this.configBindings.getMqttConfig();
+		
+		_Logger.info("MQTT config: " + mqttConfig);
+		
+		assertEquals(ConfigConst.MQTT_GATEWAY_SERVICE, mqttConfig.getSectionName());
+		assertEquals(
+			configUtil.getProperty(ConfigConst.MQTT_GATEWAY_SERVICE, ConfigConst.HOST_KEY), mqttConfig.getHost());
+		assertEquals(
+			configUtil.getInteger(ConfigConst.MQTT_GATEWAY_SERVICE, ConfigConst.PORT_KEY), mqttConfig.getPort());
+		assertTrue(mqttConfig.getDefaultQos() >= MqttConfig.MIN_QOS && mqttConfig.getDefaultQos() <= MqttConfig.MAX_QOS);
+		assertNotNull(mqttConfig.getDataEncoding());
+		assertTrue(mqttConfig.getMaxInflight() >= 1);
+		assertTrue(mqttConfig.getPublishTimeoutMillis() >= 0);
+		assertTrue(mqttConfig.getBrokerAddress().endsWith(":" + mqttConfig.getActivePort()));
+	}
+	
+	@Test
+	public void testCoapConfig()
+	{
+		CoapConfig coapConfig = this.configBindings.getCoapConfig();
+		
+		_Logger.info("CoAP config: " + coapConfig);
+		
+		assertEquals(DataEncodingEnum.JSON, coapConfig.getDataEncoding());
+		assertTrue(coapConfig.getServerAddress().startsWith(ConfigConst.DEFAULT_COAP_PROTOCOL));
+	}
+	
+	@Test
+	public void testGatewayDeviceConfig()
+	{
+		GatewayDeviceConfig gdaConfig = this.configBindings.getGatewayDeviceConfig();
+		
+		_Logger.info("GDA config: " + gdaConfig);
+		
+		assertTrue(gdaConfig.getPollCycleSecs() > 0);
+		assertEquals(
+			ConfigUtil.getInstance().getProperty(
+				ConfigConst.GATEWAY_DEVICE, ConfigConst.DEVICE_LOCATION_ID_KEY, ConfigConst.NOT_SET),
+			gdaConfig.getDeviceLocationID());
+		
+		for (ResourceNameEnum resource : gdaConfig.getIngestPolicyOverrides().keySet()) {
+			assertEquals(gdaConfig.getIngestPolicyOverrides().get(resource), gdaConfig.getIngestPolicy(resource));
+		}
+		
+		assertNotNull(gdaConfig.getIngestPolicy(ResourceNameEnum.GDA_MEDIA_MSG_RESOURCE));
+		
+		// bindings are only rebuilt when the configuration changes
+		assertSame(gdaConfig, this.configBindings.getGatewayDeviceConfig());
+	}
+	
+}
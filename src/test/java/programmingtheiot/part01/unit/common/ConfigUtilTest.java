@@ -12,6 +12,7 @@ import static org.junit.Assert.*;
 
 import java.io.File;
 import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
 
 import org.junit.Before;
@@ -132,6 +133,20 @@ public class ConfigUtilTest
 		assertNotNull(credFile);
 	}
 	
+	/**
+	 * Test method for {@link ConfigUtil#getInteger(String, String, int)}.
+	 */
+	@Test
+	public void testGetTypedProperties()
+	{
+		ConfigUtil configUtil = ConfigUtil.getInstance();
+		
+		assertEquals(PORT_VAL, configUtil.getInteger(ConfigConst.MQTT_GATEWAY_SERVICE, ConfigConst.PORT_KEY));
+		assertEquals(-1, configUtil.getInteger(ConfigConst.MQTT_GATEWAY_SERVICE, "noSuchKey", -1));
+		assertFalse(configUtil.getBoolean(ConfigConst.MQTT_GATEWAY_SERVICE, ConfigConst.ENABLE_CRYPT_KEY));
+		assertTrue(configUtil.getFloat(ConfigConst.MQTT_GATEWAY_SERVICE, ConfigConst.PORT_KEY) == PORT_VAL);
+	}
+	
 	/**
 	 * Test method for {@link com.labbenchstudios.edu.connecteddevices.common.ConfigUtil#hasProperty(java.lang.String, java.lang.String)}.
 	 */
@@ -150,6 +165,65 @@ public class ConfigUtilTest
 		assertTrue(ConfigUtil.getInstance().hasSection(ConfigConst.MQTT_GATEWAY_SERVICE));
 	}
 	
+	@Test
+	public void testHasMissingSection()
+	{
+		assertFalse(ConfigUtil.getInstance().hasSection("No.Such.Section"));
+		assertNull(ConfigUtil.getInstance().getProperty("No.Such.Section", ConfigConst.HOST_KEY));
+	}
+	
+	/**
+	 * Test method for {@link ConfigUtil#reloadConfig()}.
+	 */
+	@Test
+	public void testReloadConfig()
+	{
+		ConfigUtil configUtil = ConfigUtil.getInstance();
+		AtomicInteger updateCount = new AtomicInteger(0);
+		IConfigUpdateListener listener = (cfgUtil) -> updateCount.incrementAndGet();
+		
+		int prevVersion = configUtil.getConfigVersion();
+		
+		configUtil.addConfigUpdateListener(listener);
+		
+		try {
+			assertTrue(configUtil.reloadConfig());
+		} finally {
+			configUtil.removeConfigUpdateListener(listener);
+		}
+		
+		assertEquals(1, updateCount.get());
+		assertEquals(prevVersion + 1, configUtil.getConfigVersion());
+		assertTrue(configUtil.hasSection(ConfigConst.MQTT_GATEWAY_SERVICE));
+	}
+	
+	/**
+	 * Test method for {@link ConfigUtil#reloadConfig()}, while the loaded
+	 * file is missing.
+	 */
+	@Test
+	public void testReloadConfigWhileFileMissing()
+	{
+		ConfigUtil configUtil = ConfigUtil.getInstance();
+		File movedFile = new File(TEST_VALID_CFG_FILE + ".moved");
+		
+		int prevVersion = configUtil.getConfigVersion();
+		String prevHost = configUtil.getProperty(ConfigConst.MQTT_GATEWAY_SERVICE, ConfigConst.HOST_KEY);
+		
+		assertTrue(this.validTestFile.renameTo(movedFile));
+		
+		try {
+			// the default config file isn't loaded in its place
+			assertFalse(configUtil.reloadConfig());
+		} finally {
+			assertTrue(movedFile.renameTo(this.validTestFile));
+		}
+		
+		assertEquals(prevVersion, configUtil.getConfigVersion());
+		assertEquals(prevHost, configUtil.getProperty(ConfigConst.MQTT_GATEWAY_SERVICE, ConfigConst.HOST_KEY));
+		assertTrue(configUtil.reloadConfig());
+	}
+	
 	/**
 	 * Test method for {@link com.labbenchstudios.edu.connecteddevices.common.ConfigUtil#isConfigDataLoaded()}.
 	 */
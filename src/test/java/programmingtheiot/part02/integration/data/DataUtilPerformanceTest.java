@@ -0,0 +1,163 @@
+/**
+ * This class is part of the Programming the Internet of Things
+ * project, and is available via the MIT License, which can be
+ * found in the LICENSE file at the top level of this repository.
+ * 
+ * Copyright (c) 2020 by Andrew D. King
+ */ 
+
+package programmingtheiot.part02.integration.data;
+
+import static org.junit.Assert.*;
+
+import java.util.logging.Logger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.gson.Gson;
+
+import programmingtheiot.data.DataUtil;
+import programmingtheiot.data.SensorData;
+
+/**
+ * This test case class contains very basic performance tests for
+ * DataUtil, comparing the shared Gson instance and type adapters
+ * against a newly created reflective Gson instance per conversion.
+ * It should not be considered complete, but serve as a starting
+ * point for the student implementing additional functionality
+ * within their Programming the IoT environment.
+ *
+ */
+public class DataUtilPerformanceTest
+{
+	// static
+	
+	private static final Logger _Logger =
+		Logger.getLogger(DataUtilPerformanceTest.class.getName());
+	
+	public static final int MAX_TEST_RUNS  = 10000;
+	public static final int WARM_UP_RUNS   = 1000;
+	
+	public static final String DEFAULT_NAME = "DataUtilPerfTestName";
+	public static final float  DEFAULT_VAL  = 12.5f;
+	
+	// member var's
+	
+	private SensorData sensorData = null;
+	
+	
+	// test setup methods
+	
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception
+	{
+		this.sensorData = new SensorData();
+		this.sensorData.setName(DEFAULT_NAME);
+		this.sensorData.setValue(DEFAULT_VAL);
+	}
+	
+	
+	// test methods
+	
+	/**
+	 * Test method for {@link programmingtheiot.data.DataUtil#sensorDataToJson(SensorData)}.
+	 */
+	@Test
+	public void testSensorDataToJson()
+	{
+		DataUtil dataUtil = DataUtil.getInstance();
+		
+		execReflectiveToJson(WARM_UP_RUNS);
+		execDataUtilToJson(WARM_UP_RUNS);
+		
+		long reflectiveMillis = execReflectiveToJson(MAX_TEST_RUNS);
+		long dataUtilMillis   = execDataUtilToJson(MAX_TEST_RUNS);
+		
+		assertEquals(new Gson().toJson(this.sensorData), dataUtil.sensorDataToJson(this.sensorData));
+		
+		logResults("SensorData to JSON", reflectiveMillis, dataUtilMillis);
+	}
+	
+	/**
+	 * Test method for {@link programmingtheiot.data.DataUtil#jsonToSensorData(String)}.
+	 */
+	@Test
+	public void testJsonToSensorData()
+	{
+		String jsonData = DataUtil.getInstance().sensorDataToJson(this.sensorData);
+		
+		execReflectiveFromJson(jsonData, WARM_UP_RUNS);
+		execDataUtilFromJson(jsonData, WARM_UP_RUNS);
+		
+		long reflectiveMillis = execReflectiveFromJson(jsonData, MAX_TEST_RUNS);
+		long dataUtilMillis   = execDataUtilFromJson(jsonData, MAX_TEST_RUNS);
+		
+		logResults("JSON to SensorData", reflectiveMillis, dataUtilMillis);
+	}
+	
+	
+	// private methods
+	
+	private long execReflectiveToJson(int maxTestRuns)
+	{
+		long startMillis = System.currentTimeMillis();
+		
+		for (int i = 0; i < maxTestRuns; i++) {
+			assertNotNull(new Gson().toJson(this.sensorData));
+		}
+		
+		return System.currentTimeMillis() - startMillis;
+	}
+	
+	private long execDataUtilToJson(int maxTestRuns)
+	{
+		DataUtil dataUtil = DataUtil.getInstance();
+		
+		long startMillis = System.currentTimeMillis();
+		
+		for (int i = 0; i < maxTestRuns; i++) {
+			assertNotNull(dataUtil.sensorDataToJson(this.sensorData));
+		}
+		
+		return System.currentTimeMillis() - startMillis;
+	}
+	
+	private long execReflectiveFromJson(String jsonData, int maxTestRuns)
+	{
+		long startMillis = System.currentTimeMillis();
+		
+		for (int i = 0; i < maxTestRuns; i++) {
+			assertNotNull(new Gson().fromJson(jsonData, SensorData.class));
+		}
+		
+		return System.currentTimeMillis() - startMillis;
+	}
+	
+	private long execDataUtilFromJson(String jsonData, int maxTestRuns)
+	{
+		DataUtil dataUtil = DataUtil.getInstance();
+		
+		long startMillis = System.currentTimeMillis();
+		
+		for (int i = 0; i < maxTestRuns; i++) {
+			assertNotNull(dataUtil.jsonToSensorData(jsonData));
+		}
+		
+		return System.currentTimeMillis() - startMillis;
+	}
+	
+	private void logResults(String testName, long reflectiveMillis, long dataUtilMillis)
+	{
+		String msg =
+			String.format(
+				"\n\tTesting %s: msgs = %s | new Gson per call = %s ms | shared DataUtil = %s ms",
+				testName, MAX_TEST_RUNS, reflectiveMillis, dataUtilMillis);
+		
+		_Logger.info(msg);
+	}
+	
+}
@@ -0,0 +1,147 @@
+/**
+ * This class is part of the Programming the Internet of Things
+ * project, and is available via the MIT License, which can be
+ * found in the LICENSE file at the top level of this repository.
+ * 
+ * Copyright (c) 2020 by Andrew D. King
+ */ 
+
+package programmingtheiot.part02.integration.data;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Logger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import programmingtheiot.common.ConfigConst;
+import programmingtheiot.common.ConfigUtil;
+import programmingtheiot.data.SensorData;
+
+/**
+ * This test case class contains very basic performance tests for
+ * multi-threaded SensorData construction, comparing construction
+ * with a per-instance {@link ConfigUtil} location ID lookup (as done
+ * previously by the BaseIotData constructor) against construction
+ * using the cached location ID. It should not be considered complete,
+ * but serve as a starting point for the student implementing
+ * additional functionality within their Programming the IoT
+ * environment.
+ *
+ */
+public class SensorDataPerformanceTest
+{
+	// static
+	
+	private static final Logger _Logger =
+		Logger.getLogger(SensorDataPerformanceTest.class.getName());
+	
+	public static final int MAX_TEST_RUNS = 100000;
+	public static final int THREAD_COUNT  = 4;
+	
+	// member var's
+	
+	private ExecutorService execSvc = null;
+	
+	
+	// test setup methods
+	
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception
+	{
+		this.execSvc = Executors.newFixedThreadPool(THREAD_COUNT);
+	}
+	
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@After
+	public void tearDown() throws Exception
+	{
+		this.execSvc.shutdownNow();
+	}
+	
+	
+	// test methods
+	
+	/**
+	 * Test method for {@link programmingtheiot.data.SensorData#SensorData()}.
+	 */
+	@Test
+	public void testMultiThreadedConstruction() throws Exception
+	{
+		// warm up both paths
+		execConstruction(MAX_TEST_RUNS / 10, true);
+		execConstruction(MAX_TEST_RUNS / 10, false);
+		
+		long lookupMillis = execConstruction(MAX_TEST_RUNS, true);
+		long cachedMillis = execConstruction(MAX_TEST_RUNS, false);
+		
+		String msg =
+			String.format(
+				"\n\tTesting SensorData construction: threads = %s | objs per thread = %s | with ConfigUtil lookup = %s ms (%s objs/s) | cached = %s ms (%s objs/s)",
+				THREAD_COUNT, MAX_TEST_RUNS,
+				lookupMillis, toThroughput(lookupMillis), cachedMillis, toThroughput(cachedMillis));
+		
+		_Logger.info(msg);
+	}
+	
+	
+	// private methods
+	
+	private long execConstruction(int maxTestRuns, boolean useConfigLookup) throws Exception
+	{
+		Callable<Integer> task = () -> {
+			ConfigUtil configUtil = ConfigUtil.getInstance();
+			int count = 0;
+			
+			for (int i = 0; i < maxTestRuns; i++) {
+				SensorData data = new SensorData();
+				
+				if (useConfigLookup) {
+					data.setLocationID(
+						configUtil.getProperty(ConfigConst.GATEWAY_DEVICE, ConfigConst.DEVICE_LOCATION_ID_KEY));
+				}
+				
+				if (data.getLocationID() != null) {
+					count++;
+				}
+			}
+			
+			return count;
+		};
+		
+		List<Callable<Integer>> tasks = new ArrayList<>();
+		
+		for (int i = 0; i < THREAD_COUNT; i++) {
+			tasks.add(task);
+		}
+		
+		long startMillis = System.currentTimeMillis();
+		
+		for (Future<Integer> result : this.execSvc.invokeAll(tasks)) {
+			assertEquals(maxTestRuns, result.get().intValue());
+		}
+		
+		long elapsedMillis = System.currentTimeMillis() - startMillis;
+		
+		return elapsedMillis;
+	}
+	
+	private long toThroughput(long elapsedMillis)
+	{
+		return ((long) THREAD_COUNT * MAX_TEST_RUNS * 1000L) / Math.max(1L, elapsedMillis);
+	}
+	
+}
@@ -0,0 +1,240 @@
+/**
+ * This class is part of the Programming the Internet of Things
+ * project, and is available via the MIT License, which can be
+ * found in the LICENSE file at the top level of this repository.
+ * 
+ * Copyright (c) 2020 by Andrew D. King
+ */
+
+package programmingtheiot.part02.unit.analytics;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import programmingtheiot.common.ConfigBindings;
+import programmingtheiot.common.ConfigConst;
+import programmingtheiot.common.EdgeRuleConfig;
+import programmingtheiot.data.ActuatorData;
+import programmingtheiot.data.SensorData;
+import programmingtheiot.data.SystemStateData;
+import programmingtheiot.gda.analytics.EdgeRule;
+import programmingtheiot.gda.analytics.EdgeRuleEngine;
+import programmingtheiot.gda.analytics.RateOfChangeRule;
+
+/**
+ * This test case class contains very basic unit tests for
+ * EdgeRuleEngine, using the edge rules in the configuration file. It
+ * should not be considered complete, but serve as a starting point for
+ * the student implementing additional functionality within their
+ * Programming the IoT environment.
+ * 
+ */
+public class EdgeRuleEngineTest
+{
+	// static
+	
+	private static final Logger _Logger =
+		Logger.getLogger(EdgeRuleEngineTest.class.getName());
+	
+	public static final String HVAC_ACTUATOR_NAME       = "HvacActuator";
+	public static final String HUMIDIFIER_ACTUATOR_NAME = "HumidifierActuator";
+	public static final String RATE_RULE_NAME           = "TempRiseRule";
+	public static final String LOCATION_ID              = "constraineddevice001";
+	
+	
+	// member var's
+	
+	private List<ActuatorData> commands = null;
+	private EdgeRuleEngine engine = null;
+	
+	
+	// test setup methods
+	
+	@Before
+	public void setUp() throws Exception
+	{
+		this.commands = new ArrayList<>();
+		this.engine =
+			new EdgeRuleEngine(ConfigBindings.getInstance().getEdgeRuleConfigs(), data -> this.commands.add(data));
+	}
+	
+	
+	// test methods
+	
+	/**
+	 * 
+	 */
+	@Test
+	public void testHysteresisRule()
+	{
+		float[] values   = { 20.0f, 25.0f, 23.0f, 22.0f, 24.0f };
+		int[]   expected = { -1, ConfigConst.ON_COMMAND, -1, ConfigConst.OFF_COMMAND, -1 };
+		
+		for (int i = 0; i < values.length; i++) {
+			this.commands.clear();
+			this.engine.evaluate(createSensorData(ConfigConst.TEMP_SENSOR_TYPE, values[i]));
+			
+			ActuatorData command = findCommand(HVAC_ACTUATOR_NAME);
+			
+			_Logger.info("Temperature " + values[i] + " gave command: " + command);
+			
+			if (expected[i] < 0) {
+				assertNull(command);
+			} else {
+				assertNotNull(command);
+				assertEquals(expected[i], command.getCommand());
+				assertEquals(LOCATION_ID, command.getLocationID());
+			}
+		}
+	}
+	
+	/**
+	 * 
+	 */
+	@Test
+	public void testThresholdRuleFromSystemState()
+	{
+		SystemStateData ssd = new SystemStateData();
+		
+		ssd.addSensorData(createSensorData(ConfigConst.HUMIDITY_SENSOR_TYPE, 40.0f));
+		ssd.addSensorData(createSensorData(ConfigConst.HUMIDITY_SENSOR_TYPE, 25.0f));
+		ssd.addSensorData(createSensorData(ConfigConst.HUMIDITY_SENSOR_TYPE, 20.0f));
+		
+		assertEquals(1, this.engine.evaluate(ssd));
+		
+		ActuatorData command = findCommand(HUMIDIFIER_ACTUATOR_NAME);
+		
+		assertNotNull(command);
+		assertEquals(ConfigConst.ON_COMMAND, command.getCommand());
+		assertEquals(ConfigConst.HUMIDIFIER_ACTUATOR_TYPE, command.getTypeID());
+		assertEquals("HumidityRule", command.getStateData());
+	}
+	
+	/**
+	 * 
+	 */
+	@Test
+	public void testRateOfChangeRule()
+	{
+		EdgeRuleConfig rateConfig = null;
+		
+		for (EdgeRule rule : this.engine.getRules()) {
+			if (rule.getRuleName().equals(RATE_RULE_NAME)) {
+				rateConfig = rule.getConfig();
+			}
+		}
+		
+		assertNotNull(rateConfig);
+		
+		RateOfChangeRule rule = new RateOfChangeRule(rateConfig);
+		SensorData data = createSensorData(ConfigConst.TEMP_SENSOR_TYPE, 0.0f);
+		long windowMillis = rateConfig.getWindowMillis();
+		
+		assertNull(rule.evaluate(data, 20.0f, 0L));
+		assertNull(rule.evaluate(data, 20.2f, 1000L));
+		
+		// 1.5 degrees over 2 seconds exceeds the maximum rate
+		ActuatorData command = rule.evaluate(data, 21.5f, 2000L);
+		
+		assertNotNull(command);
+		assertEquals(ConfigConst.ON_COMMAND, command.getCommand());
+		
+		// the earlier readings have left the window, and one reading gives no rate
+		assertNull(rule.evaluate(data, 21.5f, 2000L + windowMillis * 2));
+		
+		command = rule.evaluate(data, 21.5f, 3000L + windowMillis * 2);
+		
+		assertNotNull(command);
+		assertEquals(ConfigConst.OFF_COMMAND, command.getCommand());
+	}
+	
+	/**
+	 * 
+	 */
+	@Test
+	public void testFailedCommandIsResent()
+	{
+		assertEquals(1, this.engine.evaluate(createSensorData(ConfigConst.HUMIDITY_SENSOR_TYPE, 25.0f)));
+		assertEquals(0, this.engine.evaluate(createSensorData(ConfigConst.HUMIDITY_SENSOR_TYPE, 24.0f)));
+		
+		ActuatorData response = findCommand(HUMIDIFIER_ACTUATOR_NAME);
+		
+		response.setAsResponse();
+		response.setStatusCode(-1);
+		
+		assertTrue(this.engine.handleActuatorResponse(response));
+		assertEquals(1, this.engine.evaluate(createSensorData(ConfigConst.HUMIDITY_SENSOR_TYPE, 24.0f)));
+	}
+	
+	/**
+	 * 
+	 */
+	@Test
+	public void testFailedOffCommandIsResent()
+	{
+		// fails the first OFF command sent
+		boolean[] isOffFailed = { false };
+		
+		this.engine =
+			new EdgeRuleEngine(ConfigBindings.getInstance().getEdgeRuleConfigs(), data -> {
+				if (data.getCommand() == ConfigConst.OFF_COMMAND && ! isOffFailed[0]) {
+					isOffFailed[0] = true;
+					return false;
+				}
+				
+				return this.commands.add(data);
+			});
+		
+		assertEquals(1, this.engine.evaluate(createSensorData(ConfigConst.HUMIDITY_SENSOR_TYPE, 25.0f)));
+		
+		// the OFF command fails to send, so the next reading sends it again
+		assertEquals(0, this.engine.evaluate(createSensorData(ConfigConst.HUMIDITY_SENSOR_TYPE, 40.0f)));
+		assertTrue(isOffFailed[0]);
+		assertEquals(1, this.engine.evaluate(createSensorData(ConfigConst.HUMIDITY_SENSOR_TYPE, 40.0f)));
+		
+		ActuatorData response = this.commands.get(this.commands.size() - 1);
+		
+		assertEquals(ConfigConst.OFF_COMMAND, response.getCommand());
+		
+		// the actuator then reports the OFF command failed, so it's sent again
+		response.setAsResponse();
+		response.setStatusCode(-1);
+		
+		assertTrue(this.engine.handleActuatorResponse(response));
+		assertEquals(1, this.engine.evaluate(createSensorData(ConfigConst.HUMIDITY_SENSOR_TYPE, 40.0f)));
+		assertEquals(0, this.engine.evaluate(createSensorData(ConfigConst.HUMIDITY_SENSOR_TYPE, 40.0f)));
+	}
+	
+	
+	// private methods
+	
+	private SensorData createSensorData(int typeID, float value)
+	{
+		SensorData data = new SensorData(typeID);
+		
+		data.setName("Sensor" + typeID);
+		data.setTypeID(typeID);
+		data.setLocationID(LOCATION_ID);
+		data.setValue(value);
+		
+		return data;
+	}
+	
+	private ActuatorData findCommand(String actuatorName)
+	{
+		for (ActuatorData command : this.commands) {
+			if (actuatorName.equals(command.getName())) {
+				return command;
+			}
+		}
+		
+		return null;
+	}
+
+}
@@ -0,0 +1,202 @@
+/**
+ * This class is part of the Programming the Internet of Things
+ * project, and is available via the MIT License, which can be
+ * found in the LICENSE file at the top level of this repository.
+ * 
+ * Copyright (c) 2020 by Andrew D. King
+ */
+
+package programmingtheiot.part02.unit.analytics;
+
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import org.junit.Test;
+
+import programmingtheiot.common.ConfigConst;
+import programmingtheiot.common.DefaultDataMessageListener;
+import programmingtheiot.common.ResourceNameEnum;
+import programmingtheiot.data.SensorData;
+import programmingtheiot.gda.analytics.QuantileSketch;
+import programmingtheiot.gda.analytics.SensorDataAggregator;
+
+/**
+ * This test case class contains very basic unit tests for
+ * SensorDataAggregator and QuantileSketch. It should not be considered
+ * complete, but serve as a starting point for the student implementing
+ * additional functionality within their Programming the IoT
+ * environment.
+ * 
+ */
+public class SensorDataAggregatorTest
+{
+	// static
+	
+	private static final Logger _Logger =
+		Logger.getLogger(SensorDataAggregatorTest.class.getName());
+	
+	// long enough that the test's readings almost certainly fall in one window
+	public static final long WINDOW_MILLIS = 3600000L;
+	public static final long SLIDE_MILLIS  = WINDOW_MILLIS / 3;
+	
+	public static final int    READING_COUNT = 1000;
+	public static final String SENSOR_NAME   = "TempSensor";
+	
+	public static final ResourceNameEnum SENSOR_RESOURCE = ResourceNameEnum.CDA_SENSOR_MSG_RESOURCE;
+	
+	
+	// test methods
+	
+	/**
+	 * 
+	 */
+	@Test
+	public void testTumblingWindowSummary()
+	{
+		Map<String, Float> statMap = new HashMap<>();
+		
+		DefaultDataMessageListener listener = new DefaultDataMessageListener() {
+			@Override
+			public boolean handleSensorMessage(ResourceNameEnum resourceName, SensorData data)
+			{
+				assertEquals(SENSOR_RESOURCE, resourceName);
+				assertEquals(ConfigConst.TEMP_SENSOR_TYPE, data.getTypeID());
+				
+				statMap.put(data.getName(), data.getValue());
+				
+				return true;
+			}
+		};
+		
+		SensorDataAggregator aggregator =
+			new SensorDataAggregator(listener, WINDOW_MILLIS, WINDOW_MILLIS, new float[] { 50.0f, 95.0f });
+		
+		long startMillis = System.currentTimeMillis();
+		
+		for (int i = 1; i <= READING_COUNT; i++) {
+			assertTrue(aggregator.add(SENSOR_RESOURCE, createSensorData(i)));
+		}
+		
+		assertFalse(aggregator.isSliding());
+		assertTrue(statMap.isEmpty());
+		
+		aggregator.closeExpiredWindows(startMillis + WINDOW_MILLIS * 2);
+		
+		_Logger.info("Window summary: " + statMap);
+		
+		assertEquals(1, aggregator.getEmittedWindowCount());
+		assertEquals(READING_COUNT, getStat(statMap, SensorDataAggregator.COUNT_STAT), 0.0f);
+		assertEquals(1.0f, getStat(statMap, SensorDataAggregator.MIN_STAT), 0.0f);
+		assertEquals(READING_COUNT, getStat(statMap, SensorDataAggregator.MAX_STAT), 0.0f);
+		assertEquals((READING_COUNT + 1) / 2.0f, getStat(statMap, SensorDataAggregator.MEAN_STAT), 0.001f);
+		assertEquals(500.0f, getStat(statMap, "p50"), 500.0f * 0.02f);
+		assertEquals(950.0f, getStat(statMap, "p95"), 950.0f * 0.02f);
+		
+		// the window is closed, so there's nothing more to send
+		aggregator.flush();
+		
+		assertEquals(1, aggregator.getEmittedWindowCount());
+	}
+	
+	/**
+	 * 
+	 */
+	@Test
+	public void testSlidingWindows()
+	{
+		AtomicInteger countStatCount = new AtomicInteger();
+		
+		DefaultDataMessageListener listener = new DefaultDataMessageListener() {
+			@Override
+			public boolean handleSensorMessage(ResourceNameEnum resourceName, SensorData data)
+			{
+				if (data.getName().endsWith(SensorDataAggregator.COUNT_STAT)) {
+					assertEquals(READING_COUNT, data.getValue(), 0.0f);
+					countStatCount.incrementAndGet();
+				}
+				
+				return true;
+			}
+		};
+		
+		SensorDataAggregator aggregator =
+			new SensorDataAggregator(listener, WINDOW_MILLIS, SLIDE_MILLIS, null);
+		
+		long startMillis = System.currentTimeMillis();
+		
+		for (int i = 1; i <= READING_COUNT; i++) {
+			aggregator.add(SENSOR_RESOURCE, createSensorData(i));
+		}
+		
+		assertTrue(aggregator.isSliding());
+		
+		// each of the three windows that overlap the readings' pane includes them all
+		for (int i = 1; i <= 4; i++) {
+			aggregator.closeExpiredWindows(startMillis + SLIDE_MILLIS * i);
+		}
+		
+		assertEquals(3, countStatCount.get());
+		assertEquals(3, aggregator.getEmittedWindowCount());
+	}
+	
+	/**
+	 * 
+	 */
+	@Test
+	public void testQuantileSketch()
+	{
+		QuantileSketch sketch = new QuantileSketch();
+		QuantileSketch negSketch = new QuantileSketch();
+		
+		for (int i = 1; i <= 10000; i++) {
+			sketch.add(i);
+			negSketch.add(-i);
+		}
+		
+		for (double q : new double[] { 0.01, 0.5, 0.9, 0.99 }) {
+			double expected = q * 10000;
+			
+			assertEquals(expected, sketch.getQuantile(q), expected * 0.03);
+			assertEquals(-expected, negSketch.getQuantile(1.0 - q), expected * 0.03);
+		}
+		
+		sketch.merge(negSketch);
+		
+		assertEquals(20000, sketch.getCount());
+		assertEquals(0.0, sketch.getQuantile(0.5), 2.0);
+		
+		sketch.clear();
+		
+		assertEquals(0, sketch.getCount());
+		assertTrue(Double.isNaN(sketch.getQuantile(0.5)));
+	}
+	
+	
+	// private methods
+	
+	private SensorData createSensorData(float value)
+	{
+		SensorData data = new SensorData();
+		
+		data.setName(SENSOR_NAME);
+		data.setTypeID(ConfigConst.TEMP_SENSOR_TYPE);
+		data.setLocationID("constraineddevice001");
+		data.setValue(value);
+		
+		return data;
+	}
+	
+	private float getStat(Map<String, Float> statMap, String stat)
+	{
+		Float val = statMap.get(SENSOR_NAME + SensorDataAggregator.STAT_SEPARATOR + stat);
+		
+		assertNotNull("Missing statistic: " + stat, val);
+		
+		return val;
+	}
+
+}
@@ -0,0 +1,176 @@
+/**
+ * This class is part of the Programming the Internet of Things
+ * project, and is available via the MIT License, which can be
+ * found in the LICENSE file at the top level of this repository.
+ * 
+ * Copyright (c) 2020 by Andrew D. King
+ */ 
+
+package programmingtheiot.part02.unit.app;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import org.junit.Test;
+
+import programmingtheiot.gda.app.DataMessagePipeline;
+
+/**
+ * This test case class contains very basic unit tests for
+ * DataMessagePipeline. It should not be considered complete,
+ * but serve as a starting point for the student implementing
+ * additional functionality within their Programming the IoT
+ * environment.
+ *
+ */
+public class DataMessagePipelineTest
+{
+	// static
+	
+	private static final Logger _Logger =
+		Logger.getLogger(DataMessagePipelineTest.class.getName());
+	
+	public static final long STOP_TIMEOUT_MILLIS = 5000L;
+	
+	
+	// test methods
+	
+	/**
+	 * 
+	 */
+	@Test
+	public void testSyncPipelineRunsStagesInOrder()
+	{
+		List<String> calls = new CopyOnWriteArrayList<>();
+		
+		DataMessagePipeline<String> pipeline =
+			new DataMessagePipeline<String>("SyncTest", 8, false)
+				.addStage("first", 1, msg -> calls.add("first:" + msg))
+				.addStage("filter", 1, msg -> ! msg.startsWith("drop"))
+				.addStage("last", 1, msg -> calls.add("last:" + msg))
+				.setCompletionHandler(msg -> calls.add("done:" + msg));
+		
+		assertTrue(pipeline.submit("a"));
+		assertTrue(pipeline.submit("drop-b"));
+		
+		// messages stopped by a stage are completed too
+		assertEquals(List.of("first:a", "last:a", "done:a", "first:drop-b", "done:drop-b"), calls);
+		assertEquals(2, pipeline.getProcessedCount("filter"));
+		assertEquals(1, pipeline.getProcessedCount("last"));
+	}
+	
+	/**
+	 * 
+	 */
+	@Test
+	public void testAsyncPipelineReturnsImmediately() throws Exception
+	{
+		CountDownLatch release = new CountDownLatch(1);
+		CountDownLatch done    = new CountDownLatch(3);
+		List<Integer> completed = new CopyOnWriteArrayList<>();
+		
+		DataMessagePipeline<Integer> pipeline =
+			new DataMessagePipeline<Integer>("AsyncTest", 8, true)
+				.addStage("slow", 1, msg -> await(release))
+				.addStage("count", 2, msg -> { done.countDown(); return true; })
+				.setCompletionHandler(completed::add);
+		
+		pipeline.start();
+		
+		// the slow stage is blocked, so these only succeed if submit doesn't wait on it
+		for (int i = 0; i < 3; i++) {
+			assertTrue(pipeline.submit(i));
+		}
+		
+		assertEquals(3, done.getCount());
+		
+		release.countDown();
+		
+		assertTrue(done.await(STOP_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+		
+		pipeline.stop(STOP_TIMEOUT_MILLIS);
+		
+		assertEquals(3, pipeline.getProcessedCount("count"));
+		assertEquals(3, completed.size());
+		assertEquals(List.of("slow", "count"), pipeline.getStageNames());
+	}
+	
+	/**
+	 * 
+	 */
+	@Test
+	public void testRejectWhenFull()
+	{
+		CountDownLatch release = new CountDownLatch(1);
+		CountDownLatch started = new CountDownLatch(1);
+		
+		DataMessagePipeline<Integer> pipeline =
+			new DataMessagePipeline<Integer>("RejectTest", 2, true)
+				.addStage("blocked", 1, msg -> { started.countDown(); return await(release); });
+		
+		assertFalse(pipeline.submit(0));
+		
+		pipeline.start();
+		
+		assertTrue(pipeline.submit(0));
+		assertTrue(await(started));
+		
+		// one message is held by the worker, so the queue takes two more
+		assertTrue(pipeline.submit(1));
+		assertTrue(pipeline.submit(2));
+		assertFalse(pipeline.submit(3));
+		assertEquals(1, pipeline.getRejectedCount());
+		
+		release.countDown();
+		pipeline.stop(STOP_TIMEOUT_MILLIS);
+		
+		assertEquals(3, pipeline.getProcessedCount("blocked"));
+	}
+	
+	/**
+	 * 
+	 */
+	@Test
+	public void testStopDrainsAllStages()
+	{
+		List<Integer> results = new CopyOnWriteArrayList<>();
+		
+		DataMessagePipeline<Integer> pipeline =
+			new DataMessagePipeline<Integer>("DrainTest", 128, true)
+				.addStage("fail", 1, msg -> { if (msg == 5) throw new IllegalStateException("Test"); return true; })
+				.addStage("collect", 1, msg -> results.add(msg));
+		
+		pipeline.start();
+		
+		for (int i = 0; i < 100; i++) {
+			assertTrue(pipeline.submit(i));
+		}
+		
+		pipeline.stop(STOP_TIMEOUT_MILLIS);
+		
+		_Logger.info("Collected " + results.size() + " messages after stop.");
+		
+		assertEquals(99, results.size());
+		assertEquals(1, pipeline.getFailedCount("fail"));
+		assertEquals(0, pipeline.getQueueSize("collect"));
+		assertFalse(pipeline.submit(100));
+	}
+	
+	
+	// private methods
+	
+	private static boolean await(CountDownLatch latch)
+	{
+		try {
+			return latch.await(STOP_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			return false;
+		}
+	}
+	
+}
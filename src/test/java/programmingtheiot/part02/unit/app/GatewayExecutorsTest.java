@@ -0,0 +1,95 @@
+/**
+ * This class is part of the Programming the Internet of Things
+ * project, and is available via the MIT License, which can be
+ * found in the LICENSE file at the top level of this repository.
+ * 
+ * Copyright (c) 2020 by Andrew D. King
+ */ 
+
+package programmingtheiot.part02.unit.app;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import org.junit.Test;
+
+import programmingtheiot.gda.app.GatewayExecutors;
+
+/**
+ * This test case class contains very basic unit tests for
+ * GatewayExecutors. It should not be considered complete,
+ * but serve as a starting point for the student implementing
+ * additional functionality within their Programming the IoT
+ * environment.
+ *
+ */
+public class GatewayExecutorsTest
+{
+	// static
+	
+	private static final Logger _Logger =
+		Logger.getLogger(GatewayExecutorsTest.class.getName());
+	
+	
+	// test methods
+	
+	/**
+	 * 
+	 */
+	@Test
+	public void testVirtualThreadSupport()
+	{
+		_Logger.info("Virtual threads supported: " + GatewayExecutors.isVirtualThreadSupported());
+		
+		assertEquals(Runtime.version().feature() >= 21, GatewayExecutors.isVirtualThreadSupported());
+	}
+	
+	/**
+	 * 
+	 */
+	@Test
+	public void testThreadFactory() throws Exception
+	{
+		for (boolean useVirtualThreads : new boolean[] { false, true }) {
+			ThreadFactory threadFactory = GatewayExecutors.newThreadFactory("TestWorker-", useVirtualThreads);
+			
+			boolean[] hasRun = new boolean[1];
+			Thread thread = threadFactory.newThread(() -> hasRun[0] = true);
+			
+			assertTrue(thread.isDaemon());
+			assertTrue(thread.getName().startsWith("TestWorker-"));
+			
+			thread.start();
+			thread.join(5000L);
+			
+			assertTrue(hasRun[0]);
+		}
+	}
+	
+	/**
+	 * 
+	 */
+	@Test
+	public void testTaskExecutor() throws Exception
+	{
+		for (boolean useVirtualThreads : new boolean[] { false, true }) {
+			ExecutorService executor = GatewayExecutors.newTaskExecutor("TestTask-", useVirtualThreads);
+			
+			try {
+				Future<String> result = executor.submit(() -> Thread.currentThread().getName());
+				
+				assertNotNull(result.get(5, TimeUnit.SECONDS));
+			} finally {
+				executor.shutdown();
+			}
+			
+			assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+		}
+	}
+	
+}
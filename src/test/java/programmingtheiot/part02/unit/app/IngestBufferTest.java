@@ -0,0 +1,206 @@
+/**
+ * This class is part of the Programming the Internet of Things
+ * project, and is available via the MIT License, which can be
+ * found in the LICENSE file at the top level of this repository.
+ * 
+ * Copyright (c) 2020 by Andrew D. King
+ */ 
+
+package programmingtheiot.part02.unit.app;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import org.junit.Test;
+
+import programmingtheiot.common.BackpressurePolicyEnum;
+import programmingtheiot.common.ResourceNameEnum;
+import programmingtheiot.gda.app.IngestBuffer;
+
+/**
+ * This test case class contains very basic unit tests for
+ * IngestBuffer. It should not be considered complete,
+ * but serve as a starting point for the student implementing
+ * additional functionality within their Programming the IoT
+ * environment.
+ *
+ */
+public class IngestBufferTest
+{
+	// static
+	
+	private static final Logger _Logger =
+		Logger.getLogger(IngestBufferTest.class.getName());
+	
+	public static final int BUFFER_SIZE = 3;
+	
+	public static final ResourceNameEnum SENSOR_RESOURCE   = ResourceNameEnum.CDA_SENSOR_MSG_RESOURCE;
+	public static final ResourceNameEnum SYS_PERF_RESOURCE = ResourceNameEnum.CDA_SYSTEM_PERF_MSG_RESOURCE;
+	
+	
+	// test methods
+	
+	/**
+	 * 
+	 */
+	@Test
+	public void testPolicyLookup()
+	{
+		assertEquals(BackpressurePolicyEnum.DROP_OLDEST, BackpressurePolicyEnum.getEnumFromValue("dropOldest"));
+		assertEquals(BackpressurePolicyEnum.BLOCK_PRODUCER, BackpressurePolicyEnum.getEnumFromValue(" BLOCK_PRODUCER "));
+		assertNull(BackpressurePolicyEnum.getEnumFromValue("dropAll"));
+	}
+	
+	/**
+	 * 
+	 */
+	@Test
+	public void testDropOldest()
+	{
+		IngestBuffer<Reading> buffer = createBuffer(BackpressurePolicyEnum.DROP_OLDEST, 0L);
+		
+		for (int i = 0; i < 5; i++) {
+			assertTrue(buffer.offer(new Reading(SENSOR_RESOURCE, "Temp", i)));
+		}
+		
+		assertEquals(BUFFER_SIZE, buffer.size(SENSOR_RESOURCE));
+		assertEquals(2, buffer.getDroppedCount(SENSOR_RESOURCE));
+		assertEquals(2, buffer.poll().value);
+	}
+	
+	/**
+	 * 
+	 */
+	@Test
+	public void testDropNewest()
+	{
+		IngestBuffer<Reading> buffer = createBuffer(BackpressurePolicyEnum.DROP_NEWEST, 0L);
+		
+		for (int i = 0; i < 5; i++) {
+			assertEquals(i < BUFFER_SIZE, buffer.offer(new Reading(SENSOR_RESOURCE, "Temp", i)));
+		}
+		
+		assertEquals(2, buffer.getDroppedCount(SENSOR_RESOURCE));
+		assertEquals(0, buffer.poll().value);
+	}
+	
+	/**
+	 * 
+	 */
+	@Test
+	public void testCoalesceLatest()
+	{
+		IngestBuffer<Reading> buffer = createBuffer(BackpressurePolicyEnum.COALESCE_LATEST, 0L);
+		
+		buffer.offer(new Reading(SENSOR_RESOURCE, "Temp", 1));
+		buffer.offer(new Reading(SENSOR_RESOURCE, "Humidity", 2));
+		buffer.offer(new Reading(SENSOR_RESOURCE, "Temp", 3));
+		
+		assertEquals(2, buffer.size());
+		assertEquals(1, buffer.getCoalescedCount(SENSOR_RESOURCE));
+		
+		// the latest reading keeps the position of the one it replaced
+		assertEquals(3, buffer.poll().value);
+		assertEquals(2, buffer.poll().value);
+		
+		// once taken, a reading can no longer be replaced
+		buffer.offer(new Reading(SENSOR_RESOURCE, "Temp", 4));
+		
+		assertEquals(4, buffer.poll().value);
+		assertEquals(1, buffer.getShedCount());
+	}
+	
+	/**
+	 * 
+	 */
+	@Test
+	public void testBlockProducer() throws Exception
+	{
+		IngestBuffer<Reading> buffer = createBuffer(BackpressurePolicyEnum.BLOCK_PRODUCER, 50L);
+		
+		for (int i = 0; i < BUFFER_SIZE; i++) {
+			assertTrue(buffer.offer(new Reading(SENSOR_RESOURCE, "Temp", i)));
+		}
+		
+		long startMillis = System.currentTimeMillis();
+		
+		assertFalse(buffer.offer(new Reading(SENSOR_RESOURCE, "Temp", 99)));
+		assertTrue(System.currentTimeMillis() - startMillis >= 40L);
+		assertEquals(1, buffer.getDroppedCount(SENSOR_RESOURCE));
+		
+		Thread consumer = new Thread(() -> {
+			try {
+				Thread.sleep(50L);
+				buffer.take();
+			} catch (InterruptedException e) {
+				// ignore
+			}
+		});
+		
+		consumer.start();
+		
+		assertTrue(buffer.offer(new Reading(SENSOR_RESOURCE, "Temp", 100), 5, TimeUnit.SECONDS));
+		
+		consumer.join();
+	}
+	
+	/**
+	 * 
+	 */
+	@Test
+	public void testResourcesAreIsolatedAndInterleaved()
+	{
+		IngestBuffer<Reading> buffer = createBuffer(BackpressurePolicyEnum.DROP_NEWEST, 0L);
+		
+		for (int i = 0; i < 10; i++) {
+			buffer.offer(new Reading(SENSOR_RESOURCE, "Temp", i));
+		}
+		
+		// a burst on one resource doesn't stop the other from buffering
+		assertTrue(buffer.offer(new Reading(SYS_PERF_RESOURCE, "SysPerf", 100)));
+		assertTrue(buffer.offer(new Reading(SYS_PERF_RESOURCE, "SysPerf", 101)));
+		
+		List<Reading> readings = new ArrayList<>();
+		buffer.drainTo(readings);
+		
+		_Logger.info("Drained " + readings.size() + " readings.");
+		
+		assertEquals(5, readings.size());
+		assertEquals(0, readings.get(0).value);
+		assertEquals(100, readings.get(1).value);
+		assertEquals(1, readings.get(2).value);
+		assertEquals(0, buffer.getDroppedCount(SYS_PERF_RESOURCE));
+		assertEquals(7, buffer.getDroppedCount(SENSOR_RESOURCE));
+	}
+	
+	
+	// private methods
+	
+	private IngestBuffer<Reading> createBuffer(BackpressurePolicyEnum policy, long blockTimeoutMillis)
+	{
+		return new IngestBuffer<Reading>(
+			BUFFER_SIZE, blockTimeoutMillis, resource -> policy, r -> r.resource, r -> r.name);
+	}
+	
+	
+	// private classes
+	
+	private static final class Reading
+	{
+		final ResourceNameEnum resource;
+		final String name;
+		final int value;
+		
+		Reading(ResourceNameEnum resource, String name, int value)
+		{
+			this.resource = resource;
+			this.name     = name;
+			this.value    = value;
+		}
+	}
+	
+}
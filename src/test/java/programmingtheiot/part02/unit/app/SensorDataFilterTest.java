@@ -0,0 +1,117 @@
+/**
+ * This class is part of the Programming the Internet of Things
+ * project, and is available via the MIT License, which can be
+ * found in the LICENSE file at the top level of this repository.
+ * 
+ * Copyright (c) 2020 by Andrew D. King
+ */
+
+package programmingtheiot.part02.unit.app;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import programmingtheiot.data.SensorData;
+import programmingtheiot.gda.app.SensorDataFilter;
+
+/**
+ * This test case class contains very basic unit tests for
+ * SensorDataFilter. It should not be considered complete,
+ * but serve as a starting point for the student implementing
+ * additional functionality within their Programming the IoT
+ * environment.
+ * 
+ */
+public class SensorDataFilterTest
+{
+	// static
+	
+	public static final int   RECENT_KEY_COUNT = 64;
+	public static final float DEADBAND         = 0.5f;
+	
+	
+	// test methods
+	
+	/**
+	 * 
+	 */
+	@Test
+	public void testDuplicatesAreDropped()
+	{
+		SensorDataFilter filter = new SensorDataFilter(RECENT_KEY_COUNT, 0.0f);
+		SensorData[] readings = new SensorData[RECENT_KEY_COUNT];
+		
+		for (int i = 0; i < readings.length; i++) {
+			readings[i] = createSensorData("Sensor" + i, i);
+			
+			assertTrue(filter.accept(readings[i]));
+		}
+		
+		// redelivered readings have the same name, location ID and timestamp
+		for (SensorData data : readings) {
+			assertFalse(filter.accept(data));
+		}
+		
+		assertEquals(RECENT_KEY_COUNT, filter.getDuplicateCount());
+		assertEquals(0, filter.getSuppressedCount());
+	}
+	
+	/**
+	 * 
+	 */
+	@Test
+	public void testOldestKeysAreForgotten()
+	{
+		SensorDataFilter filter = new SensorDataFilter(RECENT_KEY_COUNT, 0.0f);
+		SensorData[] readings = new SensorData[RECENT_KEY_COUNT * 4];
+		
+		for (int i = 0; i < readings.length; i++) {
+			readings[i] = createSensorData("Sensor" + i, i);
+			
+			assertTrue(filter.accept(readings[i]));
+		}
+		
+		// only the most recent are remembered
+		for (int i = readings.length - 1; i >= readings.length - RECENT_KEY_COUNT; i--) {
+			assertFalse(filter.accept(readings[i]));
+		}
+		
+		assertTrue(filter.accept(readings[0]));
+	}
+	
+	/**
+	 * 
+	 */
+	@Test
+	public void testDeadband()
+	{
+		SensorDataFilter filter = new SensorDataFilter(0, DEADBAND);
+		
+		float[]   values   = { 20.0f, 20.2f, 20.4f, 20.6f, 20.7f, 19.9f };
+		boolean[] expected = { true, false, false, true, false, true };
+		
+		for (int i = 0; i < values.length; i++) {
+			assertEquals("Value " + values[i], expected[i], filter.accept(createSensorData("TempSensor", values[i])));
+		}
+		
+		// the deadband applies per sensor
+		assertTrue(filter.accept(createSensorData("HumiditySensor", 20.0f)));
+		assertEquals(3, filter.getSuppressedCount());
+	}
+	
+	
+	// private methods
+	
+	private SensorData createSensorData(String name, float value)
+	{
+		SensorData data = new SensorData();
+		
+		data.setName(name);
+		data.setLocationID("constraineddevice001");
+		data.setValue(value);
+		
+		return data;
+	}
+
+}
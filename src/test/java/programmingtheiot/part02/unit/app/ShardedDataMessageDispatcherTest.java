@@ -0,0 +1,174 @@
+/**
+ * This class is part of the Programming the Internet of Things
+ * project, and is available via the MIT License, which can be
+ * found in the LICENSE file at the top level of this repository.
+ * 
+ * Copyright (c) 2020 by Andrew D. King
+ */ 
+
+package programmingtheiot.part02.unit.app;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import org.junit.Test;
+
+import programmingtheiot.common.DefaultDataMessageListener;
+import programmingtheiot.common.ResourceNameEnum;
+import programmingtheiot.data.SensorData;
+import programmingtheiot.gda.app.ShardedDataMessageDispatcher;
+
+/**
+ * This test case class contains very basic unit tests for
+ * ShardedDataMessageDispatcher. It should not be considered complete,
+ * but serve as a starting point for the student implementing
+ * additional functionality within their Programming the IoT
+ * environment.
+ *
+ */
+public class ShardedDataMessageDispatcherTest
+{
+	// static
+	
+	private static final Logger _Logger =
+		Logger.getLogger(ShardedDataMessageDispatcherTest.class.getName());
+	
+	public static final int  LANE_COUNT     = 4;
+	public static final int  DEVICE_COUNT   = 8;
+	public static final int  MSGS_PER_DEVICE = 200;
+	public static final long TIMEOUT_MILLIS = 5000L;
+	
+	public static final ResourceNameEnum SENSOR_RESOURCE = ResourceNameEnum.CDA_SENSOR_MSG_RESOURCE;
+	
+	
+	// test methods
+	
+	/**
+	 * 
+	 */
+	@Test
+	public void testOrderPerDevice()
+	{
+		Map<String, List<Float>> receivedMap = new ConcurrentHashMap<>();
+		
+		DefaultDataMessageListener listener = new DefaultDataMessageListener() {
+			@Override
+			public boolean handleSensorMessage(ResourceNameEnum resourceName, SensorData data)
+			{
+				// each device is only handled on one lane, so its list needs no locking
+				receivedMap.computeIfAbsent(data.getLocationID(), key -> new ArrayList<>()).add(data.getValue());
+				
+				return true;
+			}
+		};
+		
+		ShardedDataMessageDispatcher dispatcher =
+			new ShardedDataMessageDispatcher(listener, LANE_COUNT, DEVICE_COUNT * MSGS_PER_DEVICE, null);
+		
+		dispatcher.start();
+		
+		for (int i = 0; i < MSGS_PER_DEVICE; i++) {
+			for (int j = 0; j < DEVICE_COUNT; j++) {
+				assertTrue(dispatcher.handleSensorMessage(SENSOR_RESOURCE, createSensorData("Device" + j, i)));
+			}
+		}
+		
+		dispatcher.stop(TIMEOUT_MILLIS);
+		
+		assertEquals(DEVICE_COUNT, receivedMap.size());
+		
+		for (List<Float> values : receivedMap.values()) {
+			assertEquals(MSGS_PER_DEVICE, values.size());
+			
+			for (int i = 0; i < MSGS_PER_DEVICE; i++) {
+				assertEquals(i, values.get(i), 0.001f);
+			}
+		}
+		
+		long total = 0L;
+		
+		for (int i = 0; i < LANE_COUNT; i++) {
+			total += dispatcher.getDispatchedCount(i);
+		}
+		
+		assertEquals(DEVICE_COUNT * MSGS_PER_DEVICE, total);
+	}
+	
+	/**
+	 * 
+	 */
+	@Test
+	public void testBlockedLaneDoesNotBlockOthers() throws Exception
+	{
+		CountDownLatch release = new CountDownLatch(1);
+		CountDownLatch handled = new CountDownLatch(1);
+		
+		DefaultDataMessageListener listener = new DefaultDataMessageListener() {
+			@Override
+			public boolean handleSensorMessage(ResourceNameEnum resourceName, SensorData data)
+			{
+				try {
+					if (data.getLocationID().equals("SlowDevice")) {
+						release.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+					} else {
+						handled.countDown();
+					}
+				} catch (InterruptedException e) {
+					// ignore
+				}
+				
+				return true;
+			}
+		};
+		
+		ShardedDataMessageDispatcher dispatcher = new ShardedDataMessageDispatcher(listener, LANE_COUNT, 1, null);
+		
+		String fastDevice = "FastDevice";
+		
+		// find a device that's on a different lane to the slow one
+		for (int i = 0; dispatcher.getLaneIndex(fastDevice) == dispatcher.getLaneIndex("SlowDevice"); i++) {
+			fastDevice = "FastDevice" + i;
+		}
+		
+		assertFalse(dispatcher.handleSensorMessage(SENSOR_RESOURCE, createSensorData(fastDevice, 0)));
+		
+		dispatcher.start();
+		
+		assertTrue(dispatcher.handleSensorMessage(SENSOR_RESOURCE, createSensorData("SlowDevice", 0)));
+		assertTrue(dispatcher.handleSensorMessage(SENSOR_RESOURCE, createSensorData(fastDevice, 0)));
+		assertTrue(handled.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+		
+		// the slow lane is busy and its queue (of 1) fills, so the next is rejected
+		Thread.sleep(50L);
+		
+		assertTrue(dispatcher.handleSensorMessage(SENSOR_RESOURCE, createSensorData("SlowDevice", 1)));
+		assertFalse(dispatcher.handleSensorMessage(SENSOR_RESOURCE, createSensorData("SlowDevice", 2)));
+		assertEquals(1, dispatcher.getRejectedCount());
+		
+		release.countDown();
+		dispatcher.stop(TIMEOUT_MILLIS);
+		
+		_Logger.info("Rejected messages: " + dispatcher.getRejectedCount());
+	}
+	
+	
+	// private methods
+	
+	private SensorData createSensorData(String locationID, float val)
+	{
+		SensorData data = new SensorData();
+		data.setName("TestSensor");
+		data.setLocationID(locationID);
+		data.setValue(val);
+		
+		return data;
+	}
+	
+}
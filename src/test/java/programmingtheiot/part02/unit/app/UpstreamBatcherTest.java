@@ -0,0 +1,238 @@
+/**
+ * This class is part of the Programming the Internet of Things
+ * project, and is available via the MIT License, which can be
+ * found in the LICENSE file at the top level of this repository.
+ * 
+ * Copyright (c) 2020 by Andrew D. King
+ */ 
+
+package programmingtheiot.part02.unit.app;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Logger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import programmingtheiot.common.IDataMessageListener;
+import programmingtheiot.common.ResourceNameEnum;
+import programmingtheiot.data.DataUtil;
+import programmingtheiot.data.SensorData;
+import programmingtheiot.gda.app.UpstreamBatcher;
+import programmingtheiot.gda.connection.IConnectionListener;
+import programmingtheiot.gda.connection.IPubSubClient;
+
+/**
+ * This test case class contains very basic unit tests for
+ * UpstreamBatcher. It should not be considered complete,
+ * but serve as a starting point for the student implementing
+ * additional functionality within their Programming the IoT
+ * environment.
+ *
+ */
+public class UpstreamBatcherTest
+{
+	// static
+	
+	private static final Logger _Logger =
+		Logger.getLogger(UpstreamBatcherTest.class.getName());
+	
+	public static final ResourceNameEnum SENSOR_RESOURCE = ResourceNameEnum.CDA_SENSOR_MSG_RESOURCE;
+	
+	
+	// member var's
+	
+	private TestPubSubClient pubSubClient = null;
+	
+	
+	// test setup methods
+	
+	@Before
+	public void setUp() throws Exception
+	{
+		this.pubSubClient = new TestPubSubClient();
+	}
+	
+	
+	// test methods
+	
+	/**
+	 * 
+	 */
+	@Test
+	public void testFlushOnBatchSize()
+	{
+		UpstreamBatcher batcher = new UpstreamBatcher(this.pubSubClient, 3, 65536, 60000L);
+		
+		for (int i = 0; i < 7; i++) {
+			assertTrue(batcher.add(SENSOR_RESOURCE, createSensorJson(i), 1));
+		}
+		
+		assertEquals(2, this.pubSubClient.payloads.size());
+		assertEquals(1, batcher.getPendingMessageCount());
+		
+		// each batch is a JSON array of the original messages
+		SensorData[] dataArray = DataUtil.getInstance().jsonToSensorDataArray(this.pubSubClient.payloads.get(1));
+		
+		assertEquals(3, dataArray.length);
+		assertEquals(5.0f, dataArray[2].getValue(), 0.001f);
+		
+		assertTrue(batcher.flush());
+		assertEquals(3, this.pubSubClient.payloads.size());
+		assertEquals(7, batcher.getPublishedMessageCount());
+	}
+	
+	/**
+	 * 
+	 */
+	@Test
+	public void testBatchPerQos()
+	{
+		UpstreamBatcher batcher = new UpstreamBatcher(this.pubSubClient, 2, 65536, 60000L);
+		
+		batcher.add(SENSOR_RESOURCE, createSensorJson(0), 0);
+		batcher.add(SENSOR_RESOURCE, createSensorJson(1), 1);
+		
+		assertEquals(0, this.pubSubClient.payloads.size());
+		
+		batcher.add(SENSOR_RESOURCE, createSensorJson(2), 1);
+		
+		assertEquals(1, this.pubSubClient.payloads.size());
+		assertEquals(Integer.valueOf(1), this.pubSubClient.qosLevels.get(0));
+	}
+	
+	/**
+	 * 
+	 */
+	@Test
+	public void testFlushOnBatchBytes()
+	{
+		String jsonData = createSensorJson(0);
+		
+		// room for two messages, but not three
+		UpstreamBatcher batcher = new UpstreamBatcher(this.pubSubClient, 100, jsonData.length() * 3, 60000L);
+		
+		for (int i = 0; i < 3; i++) {
+			batcher.add(SENSOR_RESOURCE, jsonData, 0);
+		}
+		
+		assertEquals(1, this.pubSubClient.payloads.size());
+		assertTrue(this.pubSubClient.payloads.get(0).length() <= jsonData.length() * 3);
+		assertEquals(1, batcher.getPendingMessageCount());
+	}
+	
+	/**
+	 * 
+	 */
+	@Test
+	public void testFlushOnLinger() throws Exception
+	{
+		UpstreamBatcher batcher = new UpstreamBatcher(this.pubSubClient, 100, 65536, 50L);
+		
+		batcher.start();
+		batcher.add(SENSOR_RESOURCE, createSensorJson(0), 0);
+		
+		assertEquals(0, this.pubSubClient.payloads.size());
+		
+		long deadline = System.currentTimeMillis() + 5000L;
+		
+		while (this.pubSubClient.payloads.isEmpty() && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10L);
+		}
+		
+		_Logger.info("Linger flush published: " + this.pubSubClient.payloads);
+		
+		assertEquals(1, this.pubSubClient.payloads.size());
+		assertEquals(0, batcher.getPendingMessageCount());
+		
+		batcher.stop();
+	}
+	
+	/**
+	 * 
+	 */
+	@Test
+	public void testFailedPublish()
+	{
+		UpstreamBatcher batcher = new UpstreamBatcher(this.pubSubClient, 1, 65536, 0L);
+		
+		this.pubSubClient.isConnected = false;
+		
+		assertFalse(batcher.add(SENSOR_RESOURCE, createSensorJson(0), 0));
+		assertEquals(1, batcher.getFailedBatchCount());
+	}
+	
+	
+	// private methods
+	
+	private String createSensorJson(int val)
+	{
+		SensorData data = new SensorData();
+		data.setName("TestSensor");
+		data.setValue(val);
+		
+		return DataUtil.getInstance().sensorDataToJson(data);
+	}
+	
+	
+	// private classes
+	
+	private static final class TestPubSubClient implements IPubSubClient
+	{
+		final List<String>  payloads  = new CopyOnWriteArrayList<>();
+		final List<Integer> qosLevels = new CopyOnWriteArrayList<>();
+		
+		volatile boolean isConnected = true;
+		
+		@Override
+		public boolean connectClient()
+		{
+			return true;
+		}
+		
+		@Override
+		public boolean disconnectClient()
+		{
+			return true;
+		}
+		
+		@Override
+		public boolean publishMessage(ResourceNameEnum topicName, String msg, int qos)
+		{
+			if (this.isConnected) {
+				this.payloads.add(msg);
+				this.qosLevels.add(qos);
+			}
+			
+			return this.isConnected;
+		}
+		
+		@Override
+		public boolean subscribeToTopic(ResourceNameEnum topicName, int qos)
+		{
+			return false;
+		}
+		
+		@Override
+		public boolean unsubscribeFromTopic(ResourceNameEnum topicName)
+		{
+			return false;
+		}
+		
+		@Override
+		public boolean setDataMessageListener(IDataMessageListener listener)
+		{
+			return false;
+		}
+		
+		@Override
+		public boolean setConnectionListener(IConnectionListener listener)
+		{
+			return false;
+		}
+	}
+	
+}
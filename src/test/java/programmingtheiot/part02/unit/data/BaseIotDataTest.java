@@ -10,6 +10,7 @@ package programmingtheiot.part02.unit.data;
 
 import static org.junit.Assert.*;
 
+import java.time.Instant;
 import java.util.logging.Logger;
 
 import org.junit.After;
@@ -108,6 +109,19 @@ public class BaseIotDataTest
 	}
 	
 	
+	@Test
+	public void testTimeStamp()
+	{
+		TestIotData td = createTestData();
+		
+		String timeStamp = td.getTimeStamp();
+		
+		assertNotNull(timeStamp);
+		assertSame(timeStamp, td.getTimeStamp());
+		assertEquals(Instant.parse(timeStamp).toEpochMilli(), td.getTimeStampMillis());
+	}
+	
+	
 	// private
 	
 	private class TestIotData extends BaseIotData
@@ -10,10 +10,18 @@ package programmingtheiot.part02.unit.data;
 
 import static org.junit.Assert.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
 import java.util.logging.Logger;
 
 import org.junit.Test;
 
+import com.google.gson.Gson;
+
 import programmingtheiot.data.*;
 
 /**
@@ -114,6 +122,291 @@ public class DataUtilTest
 		assertTrue(data.getMemoryUtilization() == data2.getMemoryUtilization());
 	}
 	
+	@Test
+	public void testJsonMatchesReflectiveGson()
+	{
+		DataUtil dataUtil = DataUtil.getInstance();
+		Gson gson = new Gson();
+		
+		ActuatorData ad = new ActuatorData();
+		ad.setName(DEFAULT_NAME);
+		ad.setCommand(DEFAULT_CMD);
+		ad.setValue(DEFAULT_VAL);
+		ad.setAsResponse();
+		
+		SensorData sd = new SensorData();
+		sd.setName(DEFAULT_NAME);
+		sd.setLocationID(DEFAULT_LOCATION);
+		sd.setValue(DEFAULT_VAL);
+		
+		SystemPerformanceData spd = new SystemPerformanceData();
+		spd.setCpuUtilization(DEFAULT_VAL);
+		spd.setMemoryUtilization(DEFAULT_VAL);
+		
+		SystemStateData ssd = new SystemStateData();
+		ssd.setCommand(DEFAULT_CMD);
+		ssd.addSensorData(sd);
+		ssd.addSystemPerformanceData(spd);
+		
+		// the reflective adapter reads the timestamp field directly, which
+		// is only set once formatted, so convert using DataUtil first
+		String adJson  = dataUtil.actuatorDataToJson(ad);
+		String sdJson  = dataUtil.sensorDataToJson(sd);
+		String spdJson = dataUtil.systemPerformanceDataToJson(spd);
+		String ssdJson = dataUtil.systemStateDataToJson(ssd);
+		
+		assertEquals(gson.toJson(ad), adJson);
+		assertEquals(gson.toJson(sd), sdJson);
+		assertEquals(gson.toJson(spd), spdJson);
+		assertEquals(gson.toJson(ssd), ssdJson);
+		
+		SensorData sd2 = dataUtil.jsonToSensorData(gson.toJson(sd));
+		
+		assertEquals(sd.getTimeStamp(), sd2.getTimeStamp());
+		assertEquals(sd.getTimeStampMillis(), sd2.getTimeStampMillis());
+		assertEquals(sd.getLocationID(), sd2.getLocationID());
+		
+		SystemStateData ssd2 = dataUtil.jsonToSystemStateData(gson.toJson(ssd));
+		
+		assertEquals(1, ssd2.getSensorDataList().size());
+		assertEquals(1, ssd2.getSystemPerformanceDataList().size());
+		assertTrue(ssd2.getSensorDataList().get(0).getValue() == DEFAULT_VAL);
+	}
+	
+	@Test
+	public void testSensorDataToBytesAndBack() throws Exception
+	{
+		DataUtil dataUtil = DataUtil.getInstance();
+		
+		SensorData data = new SensorData();
+		data.setName(DEFAULT_NAME);
+		data.setStatusCode(DEFAULT_STATUS);
+		data.setValue(DEFAULT_VAL);
+		
+		byte[] payload = dataUtil.encode(data);
+		
+		assertNotNull(payload);
+		assertArrayEquals(dataUtil.sensorDataToJson(data).getBytes(StandardCharsets.UTF_8), payload);
+		
+		ByteBuffer buffer = ByteBuffer.allocate(payload.length);
+		
+		assertEquals(payload.length, dataUtil.encode(data, buffer));
+		
+		buffer.flip();
+		
+		SensorData data2 = dataUtil.decode(buffer, SensorData.class);
+		
+		assertEquals(data.getName(), data2.getName());
+		assertEquals(data.getTimeStamp(), data2.getTimeStamp());
+		assertTrue(data.getStatusCode() == data2.getStatusCode());
+		assertTrue(data.getValue() == data2.getValue());
+		
+		assertNull(dataUtil.decode(new byte[0], SensorData.class));
+	}
+	
+	@Test
+	public void testCborEncodingAndBack()
+	{
+		DataUtil dataUtil = DataUtil.getInstance();
+		
+		SensorData sd = new SensorData();
+		sd.setName(DEFAULT_NAME);
+		sd.setLocationID(DEFAULT_LOCATION);
+		sd.setStatusCode(DEFAULT_STATUS);
+		sd.setValue(DEFAULT_VAL);
+		
+		byte[] cborData = dataUtil.encode(sd, DataEncodingEnum.CBOR);
+		byte[] jsonData = dataUtil.encode(sd, DataEncodingEnum.JSON);
+		
+		assertNotNull(cborData);
+		assertTrue(cborData.length < jsonData.length / 2);
+		
+		SensorData sd2 = dataUtil.decode(cborData, SensorData.class, DataEncodingEnum.CBOR);
+		
+		assertEquals(sd.getName(), sd2.getName());
+		assertEquals(sd.getLocationID(), sd2.getLocationID());
+		assertEquals(sd.getTimeStampMillis(), sd2.getTimeStampMillis());
+		assertTrue(sd.getStatusCode() == sd2.getStatusCode());
+		assertTrue(sd.getValue() == sd2.getValue());
+		
+		ActuatorData ad = new ActuatorData();
+		ad.setName(DEFAULT_NAME);
+		ad.setCommand(DEFAULT_CMD);
+		ad.setValue(DEFAULT_VAL);
+		ad.setAsResponse();
+		
+		ActuatorData ad2 =
+			dataUtil.decode(dataUtil.encode(ad, DataEncodingEnum.CBOR), ActuatorData.class, DataEncodingEnum.CBOR);
+		
+		assertEquals(ad.getName(), ad2.getName());
+		assertTrue(ad.getCommand() == ad2.getCommand());
+		assertTrue(ad.getValue() == ad2.getValue());
+		assertTrue(ad2.isResponseFlagEnabled());
+		
+		SystemStateData ssd = new SystemStateData();
+		ssd.setCommand(DEFAULT_CMD);
+		ssd.addSensorData(sd);
+		ssd.addSystemPerformanceData(new SystemPerformanceData());
+		
+		SystemStateData ssd2 =
+			dataUtil.decode(dataUtil.encode(ssd, DataEncodingEnum.CBOR), SystemStateData.class, DataEncodingEnum.CBOR);
+		
+		assertTrue(ssd.getCommand() == ssd2.getCommand());
+		assertEquals(1, ssd2.getSensorDataList().size());
+		assertEquals(1, ssd2.getSystemPerformanceDataList().size());
+		assertEquals(DEFAULT_NAME, ssd2.getSensorDataList().get(0).getName());
+	}
+	
+	@Test
+	public void testCborRejectsOversizedLengths() throws Exception
+	{
+		DataUtil dataUtil = DataUtil.getInstance();
+		
+		// a map whose name is text claiming to be 2 GB long
+		byte[] hugeText = { (byte) 0xA1, 0x01, 0x7A, 0x7F, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x41 };
+		
+		// a map with an unknown key, whose value is a byte string claiming to be 2 GB long
+		byte[] hugeBytes = { (byte) 0xA1, 0x13, 0x5A, 0x7F, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x41 };
+		
+		assertNull(dataUtil.decode(hugeText, SensorData.class, DataEncodingEnum.CBOR));
+		assertNull(dataUtil.decode(hugeBytes, SensorData.class, DataEncodingEnum.CBOR));
+		assertNull(dataUtil.decode(ByteBuffer.wrap(hugeText), SensorData.class, DataEncodingEnum.CBOR));
+		
+		// with no known length, a stream is still capped by the maximum item length
+		try {
+			dataUtil.decode(new ByteArrayInputStream(hugeText), SensorData.class, DataEncodingEnum.CBOR);
+			fail("Oversized CBOR text was accepted.");
+		} catch (IOException e) {
+			// expected
+		}
+	}
+	
+	@Test
+	public void testCborRejectsDeepNesting()
+	{
+		// a map with an unknown key, whose value is nested arrays, 200 KB deep
+		byte[] deepArrays = new byte[200 * 1024];
+		
+		deepArrays[0] = (byte) 0xA1;
+		deepArrays[1] = 0x13;
+		Arrays.fill(deepArrays, 2, deepArrays.length, (byte) 0x81);
+		
+		assertNull(DataUtil.getInstance().decode(deepArrays, SensorData.class, DataEncodingEnum.CBOR));
+	}
+	
+	@Test
+	public void testMalformedNumericFieldIsRejected()
+	{
+		DataUtil dataUtil = DataUtil.getInstance();
+		
+		byte[] badValue  = "{\"value\":\"x\"}".getBytes(StandardCharsets.UTF_8);
+		byte[] badTypeID = "{\"typeID\":[1]}".getBytes(StandardCharsets.UTF_8);
+		
+		assertNull(dataUtil.decode(badValue, SensorData.class, DataEncodingEnum.JSON));
+		assertNull(dataUtil.decode(badTypeID, SensorData.class, DataEncodingEnum.JSON));
+		assertNull(dataUtil.decode(badValue, ActuatorData.class, DataEncodingEnum.JSON));
+		assertNull(
+			dataUtil.decode(
+				"{\"cpuUtil\":\"x\"}".getBytes(StandardCharsets.UTF_8), SystemPerformanceData.class, DataEncodingEnum.JSON));
+	}
+	
+	@Test
+	public void testSensorDataArrayToJsonAndBack()
+	{
+		DataUtil dataUtil = DataUtil.getInstance();
+		
+		SensorData[] data = new SensorData[3];
+		
+		for (int i = 0; i < data.length; i++) {
+			data[i] = new SensorData();
+			data[i].setName(DEFAULT_NAME + i);
+			data[i].setValue(DEFAULT_VAL + i);
+		}
+		
+		String jsonData = dataUtil.sensorDataArrayToJson(data);
+		
+		assertTrue(jsonData.startsWith("["));
+		
+		SensorData[] data2 = dataUtil.jsonToSensorDataArray(jsonData);
+		
+		assertEquals(data.length, data2.length);
+		
+		for (int i = 0; i < data.length; i++) {
+			assertEquals(data[i].getName(), data2[i].getName());
+			assertTrue(data[i].getValue() == data2[i].getValue());
+		}
+	}
+	
+	@Test
+	public void testSensorDataFramesAndBack()
+	{
+		DataUtil dataUtil = DataUtil.getInstance();
+		
+		SensorData[] data = new SensorData[3];
+		
+		for (int i = 0; i < data.length; i++) {
+			data[i] = new SensorData();
+			data[i].setName(DEFAULT_NAME + i);
+			data[i].setValue(DEFAULT_VAL + i);
+		}
+		
+		for (DataEncodingEnum encoding : DataEncodingEnum.values()) {
+			byte[] framedData = dataUtil.encodeFrames(encoding, data);
+			
+			// append a partial frame, which should be left in the buffer
+			ByteBuffer buffer = ByteBuffer.allocate(framedData.length + 6);
+			buffer.put(framedData).putInt(100).putShort((short) 0).flip();
+			
+			List<SensorData> dataList = dataUtil.decodeFrames(buffer, SensorData.class, encoding);
+			
+			assertEquals(data.length, dataList.size());
+			assertEquals(6, buffer.remaining());
+			
+			for (int i = 0; i < data.length; i++) {
+				assertEquals(data[i].getName(), dataList.get(i).getName());
+				assertTrue(data[i].getValue() == dataList.get(i).getValue());
+			}
+		}
+	}
+	
+	@Test
+	public void testCorruptFrameLengthIsDiscarded()
+	{
+		DataUtil dataUtil = DataUtil.getInstance();
+		
+		SensorData data = new SensorData();
+		data.setName(DEFAULT_NAME);
+		
+		byte[] framedData = dataUtil.encodeFrames(DataEncodingEnum.JSON, data);
+		
+		for (int frameLen : new int[] { -1, DataUtil.MAX_FRAME_LENGTH + 1 }) {
+			// a corrupt length, followed by what would otherwise be a valid frame
+			ByteBuffer buffer = ByteBuffer.allocate(framedData.length * 2 + 4);
+			buffer.put(framedData).putInt(frameLen).put(framedData).flip();
+			
+			List<SensorData> dataList = dataUtil.decodeFrames(buffer, SensorData.class, DataEncodingEnum.JSON);
+			
+			assertEquals(1, dataList.size());
+			assertEquals(DEFAULT_NAME, dataList.get(0).getName());
+			assertFalse(buffer.hasRemaining());
+		}
+	}
+	
+	@Test
+	public void testDataEncodingLookup()
+	{
+		assertEquals(DataEncodingEnum.CBOR, DataEncodingEnum.getEnumFromValue("CBOR"));
+		assertEquals(DataEncodingEnum.CBOR, DataEncodingEnum.getEnumFromValue("application/cbor"));
+		assertEquals(DataEncodingEnum.JSON, DataEncodingEnum.getEnumFromContentFormat(50));
+		assertNull(DataEncodingEnum.getEnumFromValue("xml"));
+	}
+	
+	@Test(expected = java.io.IOException.class)
+	public void testEncodeToFullBuffer() throws Exception
+	{
+		DataUtil.getInstance().encode(new SensorData(), ByteBuffer.allocate(16));
+	}
+	
 	/**
 	 * NOTE: SystemStateData is not required for the exercises in Programming the IoT.
 	 * The test case below is disabled by default, but can easily be re-enabled by
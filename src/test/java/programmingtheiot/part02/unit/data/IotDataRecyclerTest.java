@@ -0,0 +1,142 @@
+/**
+ * This class is part of the Programming the Internet of Things
+ * project, and is available via the MIT License, which can be
+ * found in the LICENSE file at the top level of this repository.
+ * 
+ * Copyright (c) 2020 by Andrew D. King
+ */ 
+
+package programmingtheiot.part02.unit.data;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Logger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import programmingtheiot.common.ConfigConst;
+import programmingtheiot.data.ActuatorData;
+import programmingtheiot.data.DataUtil;
+import programmingtheiot.data.IotDataRecycler;
+import programmingtheiot.data.SensorData;
+import programmingtheiot.data.SystemStateData;
+
+/**
+ * This test case class contains very basic unit tests for
+ * IotDataRecycler. It should not be considered complete,
+ * but serve as a starting point for the student implementing
+ * additional functionality within their Programming the IoT
+ * environment.
+ *
+ */
+public class IotDataRecyclerTest
+{
+	// static
+	
+	private static final Logger _Logger =
+		Logger.getLogger(IotDataRecyclerTest.class.getName());
+	
+	public static final String DEFAULT_NAME = "RecyclerTestName";
+	public static final float  DEFAULT_VAL  = 12.5f;
+	
+	
+	// member var's
+	
+	private boolean wasEnabled = false;
+	
+	
+	// test setup methods
+	
+	@Before
+	public void setUp() throws Exception
+	{
+		this.wasEnabled = IotDataRecycler.getInstance().isEnabled();
+	}
+	
+	@After
+	public void tearDown() throws Exception
+	{
+		IotDataRecycler.getInstance().setEnabled(this.wasEnabled);
+	}
+	
+	
+	// test methods
+	
+	@Test
+	public void testReleaseAndAcquire()
+	{
+		IotDataRecycler recycler = IotDataRecycler.getInstance();
+		recycler.setEnabled(true);
+		
+		SensorData sd = recycler.acquireSensorData();
+		sd.setName(DEFAULT_NAME);
+		sd.setValue(DEFAULT_VAL);
+		sd.setStatusCode(-1);
+		
+		assertTrue(recycler.release(sd));
+		
+		SensorData sd2 = recycler.acquireSensorData();
+		
+		assertSame(sd, sd2);
+		assertEquals(ConfigConst.NOT_SET, sd2.getName());
+		assertEquals(ConfigConst.DEFAULT_STATUS, sd2.getStatusCode());
+		assertTrue(sd2.getValue() == ConfigConst.DEFAULT_VAL);
+		assertEquals(new SensorData().getLocationID(), sd2.getLocationID());
+	}
+	
+	@Test
+	public void testReleaseOnAnotherThread() throws Exception
+	{
+		IotDataRecycler recycler = IotDataRecycler.getInstance();
+		recycler.setEnabled(true);
+		
+		SensorData sd = recycler.acquireSensorData();
+		AtomicBoolean isReleased = new AtomicBoolean(false);
+		
+		// as when a pipeline worker releases data decoded on a callback thread
+		Thread releaser = new Thread(() -> isReleased.set(recycler.release(sd)));
+		releaser.start();
+		releaser.join();
+		
+		assertTrue(isReleased.get());
+		assertSame(sd, recycler.acquireSensorData());
+	}
+	
+	@Test
+	public void testDecodeUsesPool()
+	{
+		IotDataRecycler recycler = IotDataRecycler.getInstance();
+		recycler.setEnabled(true);
+		
+		ActuatorData ad = new ActuatorData();
+		ad.setName(DEFAULT_NAME);
+		ad.setValue(DEFAULT_VAL);
+		
+		String jsonData = DataUtil.getInstance().actuatorDataToJson(ad);
+		
+		assertTrue(recycler.release(ad));
+		
+		ActuatorData ad2 = DataUtil.getInstance().jsonToActuatorData(jsonData);
+		
+		assertSame(ad, ad2);
+		assertEquals(DEFAULT_NAME, ad2.getName());
+		assertTrue(ad2.getValue() == DEFAULT_VAL);
+	}
+	
+	@Test
+	public void testDisabled()
+	{
+		IotDataRecycler recycler = IotDataRecycler.getInstance();
+		recycler.setEnabled(false);
+		
+		SensorData sd = recycler.acquireSensorData();
+		
+		assertFalse(recycler.release(sd));
+		assertNotSame(sd, recycler.acquireSensorData());
+		assertFalse(recycler.release(new SystemStateData()));
+	}
+	
+}
@@ -0,0 +1,158 @@
+/**
+ * This class is part of the Programming the Internet of Things
+ * project, and is available via the MIT License, which can be
+ * found in the LICENSE file at the top level of this repository.
+ * 
+ * Copyright (c) 2020 by Andrew D. King
+ */ 
+
+package programmingtheiot.part02.unit.data;
+
+import static org.junit.Assert.*;
+
+import java.nio.ByteBuffer;
+import java.util.logging.Logger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import programmingtheiot.data.DataUtil;
+import programmingtheiot.data.SensorData;
+import programmingtheiot.data.SensorDataBatch;
+
+/**
+ * This test case class contains very basic unit tests for
+ * SensorDataBatch. It should not be considered complete,
+ * but serve as a starting point for the student implementing
+ * additional functionality within their Programming the IoT
+ * environment.
+ *
+ */
+public class SensorDataBatchTest
+{
+	// static
+	
+	private static final Logger _Logger =
+		Logger.getLogger(SensorDataBatchTest.class.getName());
+	
+	public static final String[] SENSOR_NAMES = { "TempSensor", "HumiditySensor" };
+	public static final String   LOCATION_ID  = "constraineddevice001";
+	public static final int      READINGS     = 100;
+	
+	
+	// member var's
+	
+	
+	// test setup methods
+	
+	@Before
+	public void setUp() throws Exception
+	{
+	}
+	
+	@After
+	public void tearDown() throws Exception
+	{
+	}
+	
+	
+	// test methods
+	
+	@Test
+	public void testFromAndToSensorData()
+	{
+		SensorData[] data = createTestData();
+		SensorDataBatch batch = SensorDataBatch.fromSensorData(data);
+		
+		assertEquals(READINGS, batch.size());
+		
+		// two sensor names and one location ID
+		assertEquals(3, batch.getStringCount());
+		assertEquals(batch.getStringIndex(SENSOR_NAMES[0]), batch.getNameIndex(0));
+		assertEquals(-1, batch.getStringIndex("NotInBatch"));
+		
+		assertEqualData(data, batch.toSensorDataArray());
+	}
+	
+	@Test
+	public void testJsonAndBack()
+	{
+		SensorData[] data = createTestData();
+		
+		String jsonData = DataUtil.getInstance().sensorDataBatchToJson(SensorDataBatch.fromSensorData(data));
+		
+		_Logger.info("Columnar JSON length: " + jsonData.length());
+		
+		SensorDataBatch batch = DataUtil.getInstance().jsonToSensorDataBatch(jsonData);
+		
+		assertEqualData(data, batch.toSensorDataArray());
+	}
+	
+	@Test
+	public void testBytesAndBack()
+	{
+		SensorData[] data = createTestData();
+		
+		byte[] encodedData = DataUtil.getInstance().encode(SensorDataBatch.fromSensorData(data));
+		
+		_Logger.info("Columnar binary length: " + encodedData.length);
+		
+		SensorDataBatch batch = DataUtil.getInstance().decodeSensorDataBatch(encodedData);
+		
+		assertEqualData(data, batch.toSensorDataArray());
+		assertNull(DataUtil.getInstance().decodeSensorDataBatch(new byte[] { 99 }));
+	}
+	
+	@Test
+	public void testHostileHeaderIsRejected()
+	{
+		byte[] encodedData = DataUtil.getInstance().encode(SensorDataBatch.fromSensorData(createTestData()));
+		
+		// claims far more readings and strings than the payload holds
+		ByteBuffer.wrap(encodedData).put(encodedData[0]).putInt(Integer.MAX_VALUE).putInt(2);
+		assertNull(DataUtil.getInstance().decodeSensorDataBatch(encodedData));
+		
+		ByteBuffer.wrap(encodedData).put(encodedData[0]).putInt(READINGS).putInt(Integer.MAX_VALUE);
+		assertNull(DataUtil.getInstance().decodeSensorDataBatch(encodedData));
+		
+		// within the maximum, but still more than the payload holds
+		ByteBuffer.wrap(encodedData).put(encodedData[0]).putInt(READINGS * 2).putInt(2);
+		assertNull(DataUtil.getInstance().decodeSensorDataBatch(encodedData));
+	}
+	
+	
+	// private methods
+	
+	private SensorData[] createTestData()
+	{
+		SensorData[] data = new SensorData[READINGS];
+		for (int i = 0; i < READINGS; i++) {
+			SensorData sd = new SensorData();
+			
+			sd.setName(SENSOR_NAMES[i % SENSOR_NAMES.length]);
+			sd.setLocationID(LOCATION_ID);
+			sd.setTypeID(i % SENSOR_NAMES.length);
+			sd.setValue(i * 0.5f);
+			
+			data[i] = sd;
+		}
+		
+		return data;
+	}
+	
+	private void assertEqualData(SensorData[] expected, SensorData[] actual)
+	{
+		assertEquals(expected.length, actual.length);
+		
+		for (int i = 0; i < expected.length; i++) {
+			assertEquals(expected[i].getName(), actual[i].getName());
+			assertEquals(expected[i].getLocationID(), actual[i].getLocationID());
+			assertEquals(expected[i].getTypeID(), actual[i].getTypeID());
+			assertEquals(expected[i].getStatusCode(), actual[i].getStatusCode());
+			assertEquals(expected[i].getTimeStampMillis(), actual[i].getTimeStampMillis());
+			assertTrue(expected[i].getValue() == actual[i].getValue());
+		}
+	}
+	
+}
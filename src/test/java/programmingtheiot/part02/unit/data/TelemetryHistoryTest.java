@@ -0,0 +1,168 @@
+/**
+ * This class is part of the Programming the Internet of Things
+ * project, and is available via the MIT License, which can be
+ * found in the LICENSE file at the top level of this repository.
+ * 
+ * Copyright (c) 2020 by Andrew D. King
+ */ 
+
+package programmingtheiot.part02.unit.data;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.logging.Logger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import programmingtheiot.common.ResourceNameEnum;
+import programmingtheiot.data.DataUtil;
+import programmingtheiot.data.SensorData;
+import programmingtheiot.data.SystemPerformanceData;
+import programmingtheiot.data.TelemetryHistory;
+import programmingtheiot.data.TelemetryRingBuffer;
+
+/**
+ * This test case class contains very basic unit tests for
+ * TelemetryHistory and TelemetryRingBuffer. It should not be
+ * considered complete, but serve as a starting point for the
+ * student implementing additional functionality within their
+ * Programming the IoT environment.
+ *
+ */
+public class TelemetryHistoryTest
+{
+	// static
+	
+	private static final Logger _Logger =
+		Logger.getLogger(TelemetryHistoryTest.class.getName());
+	
+	public static final String DEFAULT_NAME = "TempSensor";
+	public static final int    CAPACITY     = 16;
+	public static final long   START_MILLIS = 1600000000000L;
+	
+	
+	// member var's
+	
+	
+	// test setup methods
+	
+	@Before
+	public void setUp() throws Exception
+	{
+	}
+	
+	@After
+	public void tearDown() throws Exception
+	{
+	}
+	
+	
+	// test methods
+	
+	@Test
+	public void testWrapAndRangeScan()
+	{
+		TelemetryRingBuffer ringBuffer = new TelemetryRingBuffer(CAPACITY);
+		
+		// 40 readings, one second apart - only the last 16 are retained
+		for (int i = 0; i < 40; i++) {
+			ringBuffer.append(createSensorData(i));
+		}
+		
+		assertEquals(CAPACITY, ringBuffer.size());
+		assertEquals(START_MILLIS + 24000L, ringBuffer.getOldestTimeStampMillis());
+		assertEquals(START_MILLIS + 39000L, ringBuffer.getNewestTimeStampMillis());
+		
+		List<SensorData> dataList = ringBuffer.getSensorData(START_MILLIS + 30000L, START_MILLIS + 34000L);
+		
+		assertEquals(5, dataList.size());
+		
+		SensorData sd = dataList.get(0);
+		
+		assertEquals(DEFAULT_NAME, sd.getName());
+		assertEquals(START_MILLIS + 30000L, sd.getTimeStampMillis());
+		assertTrue(sd.getValue() == 30.0f);
+		
+		assertTrue(ringBuffer.getSystemPerformanceData(0L, Long.MAX_VALUE).isEmpty());
+	}
+	
+	@Test
+	public void testOutOfOrderRangeScan()
+	{
+		TelemetryRingBuffer ringBuffer = new TelemetryRingBuffer(CAPACITY);
+		
+		ringBuffer.append(createSensorData(5));
+		ringBuffer.append(createSensorData(1));
+		ringBuffer.append(createSensorData(9));
+		ringBuffer.append(createSensorData(3));
+		
+		assertEquals(2, ringBuffer.getSensorData(START_MILLIS, START_MILLIS + 4000L).size());
+	}
+	
+	@Test
+	public void testOrderRecoversOnceOverwritten()
+	{
+		TelemetryRingBuffer ringBuffer = new TelemetryRingBuffer(CAPACITY);
+		
+		ringBuffer.append(createSensorData(5));
+		ringBuffer.append(createSensorData(1));
+		
+		assertFalse(ringBuffer.isOrdered());
+		
+		// fills the buffer
+		for (int i = 10; i < 10 + CAPACITY - 2; i++) {
+			ringBuffer.append(createSensorData(i));
+		}
+		
+		assertFalse(ringBuffer.isOrdered());
+		
+		// overwrites the reading the second one was out of order with
+		ringBuffer.append(createSensorData(10 + CAPACITY - 2));
+		
+		assertTrue(ringBuffer.isOrdered());
+		assertEquals(START_MILLIS + 1000L, ringBuffer.getOldestTimeStampMillis());
+		assertEquals(3, ringBuffer.getSensorData(START_MILLIS + 12000L, START_MILLIS + 14000L).size());
+	}
+	
+	@Test
+	public void testHistoryByResource()
+	{
+		TelemetryHistory history = new TelemetryHistory(CAPACITY);
+		
+		SystemPerformanceData spd = new SystemPerformanceData();
+		spd.setCpuUtilization(10.0f);
+		spd.setDiskUtilization(20.0f);
+		spd.setMemoryUtilization(30.0f);
+		
+		assertTrue(history.append(ResourceNameEnum.GDA_SYSTEM_PERF_MSG_RESOURCE, spd));
+		assertTrue(history.append(ResourceNameEnum.CDA_SENSOR_MSG_RESOURCE, createSensorData(1)));
+		
+		List<SystemPerformanceData> spdList =
+			history.getSystemPerformanceData(ResourceNameEnum.GDA_SYSTEM_PERF_MSG_RESOURCE, 0L, Long.MAX_VALUE);
+		
+		assertEquals(1, spdList.size());
+		assertEquals(spd.getName(), spdList.get(0).getName());
+		assertEquals(spd.getTimeStampMillis(), spdList.get(0).getTimeStampMillis());
+		assertTrue(spdList.get(0).getMemoryUtilization() == 30.0f);
+		
+		assertEquals(1, history.getSensorData(ResourceNameEnum.CDA_SENSOR_MSG_RESOURCE, 0L, Long.MAX_VALUE).size());
+		assertTrue(history.getSensorData(ResourceNameEnum.CDA_MEDIA_MSG_RESOURCE, 0L, Long.MAX_VALUE).isEmpty());
+	}
+	
+	
+	// private methods
+	
+	private SensorData createSensorData(int second)
+	{
+		// the timestamp can only be set explicitly when decoding
+		String jsonData =
+			"{\"name\":\"" + DEFAULT_NAME + "\",\"value\":" + second +
+			",\"timeStampMillis\":" + (START_MILLIS + second * 1000L) + "}";
+		
+		return DataUtil.getInstance().jsonToSensorData(jsonData);
+	}
+	
+}
@@ -0,0 +1,257 @@
+/**
+ * This class is part of the Programming the Internet of Things
+ * project, and is available via the MIT License, which can be
+ * found in the LICENSE file at the top level of this repository.
+ * 
+ * Copyright (c) 2020 by Andrew D. King
+ */
+
+package programmingtheiot.part03.unit.connection;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Logger;
+
+import org.eclipse.paho.client.mqttv3.MqttPersistable;
+import org.eclipse.paho.client.mqttv3.MqttPersistenceException;
+import org.eclipse.paho.client.mqttv3.internal.MqttPersistentData;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import programmingtheiot.gda.connection.MappedJournalPersistence;
+
+/**
+ * This test case class contains very basic unit tests for
+ * MappedJournalPersistence. It should not be considered complete,
+ * but serve as a starting point for the student implementing
+ * additional functionality within their Programming the IoT
+ * environment.
+ * 
+ */
+public class MappedJournalPersistenceTest
+{
+	// static
+	
+	private static final Logger _Logger =
+		Logger.getLogger(MappedJournalPersistenceTest.class.getName());
+	
+	public static final String CLIENT_ID  = "gatewaydevice001";
+	public static final String SERVER_URI = "tcp://localhost:1883";
+	
+	public static final int SEGMENT_BYTES = MappedJournalPersistence.MIN_SEGMENT_BYTES;
+	
+	
+	// member var's
+	
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+	
+	private MappedJournalPersistence persistence = null;
+	
+	
+	// test setup methods
+	
+	@Before
+	public void setUp() throws Exception
+	{
+		this.persistence = createPersistence();
+	}
+	
+	@After
+	public void tearDown() throws Exception
+	{
+		this.persistence.close();
+	}
+	
+	
+	// test methods
+	
+	/**
+	 * 
+	 */
+	@Test
+	public void testPutGetRemove() throws Exception
+	{
+		this.persistence.put("s-1", createPersistable("header1", "payload1"));
+		this.persistence.put("s-2", createPersistable("header2", null));
+		
+		assertTrue(this.persistence.containsKey("s-1"));
+		assertPersistable(this.persistence.get("s-1"), "header1", "payload1");
+		assertPersistable(this.persistence.get("s-2"), "header2", "");
+		
+		// a second put for the same key replaces the first
+		this.persistence.put("s-1", createPersistable("header1b", "payload1b"));
+		assertPersistable(this.persistence.get("s-1"), "header1b", "payload1b");
+		
+		this.persistence.remove("s-2");
+		
+		assertFalse(this.persistence.containsKey("s-2"));
+		assertNull(this.persistence.get("s-2"));
+		assertEquals(Collections.singletonList("s-1"), Collections.list(this.persistence.keys()));
+		
+		this.persistence.clear();
+		
+		assertFalse(this.persistence.keys().hasMoreElements());
+	}
+	
+	/**
+	 * 
+	 */
+	@Test
+	public void testRecoverAfterReopen() throws Exception
+	{
+		for (int i = 0; i < 100; i++) {
+			this.persistence.put("s-" + i, createPersistable("header" + i, "payload" + i));
+		}
+		
+		for (int i = 0; i < 100; i += 2) {
+			this.persistence.remove("s-" + i);
+		}
+		
+		this.persistence.close();
+		this.persistence = createPersistence();
+		
+		List<String> keys = Collections.list(this.persistence.keys());
+		
+		assertEquals(50, keys.size());
+		
+		for (int i = 1; i < 100; i += 2) {
+			assertPersistable(this.persistence.get("s-" + i), "header" + i, "payload" + i);
+		}
+		
+		assertFalse(this.persistence.containsKey("s-0"));
+	}
+	
+	/**
+	 * 
+	 */
+	@Test
+	public void testCompaction() throws Exception
+	{
+		String payload = new String(new char[100]).replace('\0', 'x');
+		
+		// one long-lived message, and many short-lived ones, as with a slow QoS 2 exchange
+		this.persistence.put("s-long", createPersistable("header", payload));
+		
+		for (int i = 0; i < 1000; i++) {
+			this.persistence.put("s-" + i, createPersistable("header", payload));
+			this.persistence.remove("s-" + i);
+		}
+		
+		_Logger.info("Segments after 1000 short-lived messages: " + this.persistence.getSegmentCount());
+		
+		// well over 100 KB was written, but only a couple of segments are kept
+		assertTrue(this.persistence.getSegmentCount() <= 2);
+		assertPersistable(this.persistence.get("s-long"), "header", payload);
+		
+		this.persistence.close();
+		this.persistence = createPersistence();
+		
+		assertEquals(Collections.singletonList("s-long"), Collections.list(this.persistence.keys()));
+	}
+	
+	/**
+	 * 
+	 */
+	@Test
+	public void testTornRecordIsIgnored() throws Exception
+	{
+		this.persistence.put("s-1", createPersistable("header1", "payload1"));
+		this.persistence.put("s-2", createPersistable("header2", "payload2"));
+		this.persistence.close();
+		
+		// corrupt the last byte of the second record's payload
+		File segmentFile = getSegmentFiles()[0];
+		
+		try (RandomAccessFile file = new RandomAccessFile(segmentFile, "rw")) {
+			long offset = 0L;
+			
+			for (int i = 0; i < 2; i++) {
+				file.seek(offset);
+				offset += file.readInt();
+			}
+			
+			file.seek(offset - 5);
+			file.write(~file.readByte());
+		}
+		
+		this.persistence = createPersistence();
+		
+		assertTrue(this.persistence.containsKey("s-1"));
+		assertFalse(this.persistence.containsKey("s-2"));
+		
+		// the journal is still writable
+		this.persistence.put("s-3", createPersistable("header3", "payload3"));
+		assertPersistable(this.persistence.get("s-3"), "header3", "payload3");
+	}
+	
+	/**
+	 * 
+	 */
+	@Test
+	public void testOnlyOneClientAtATime() throws Exception
+	{
+		MappedJournalPersistence other = new MappedJournalPersistence(getBaseDir(), SEGMENT_BYTES);
+		
+		try {
+			other.open(CLIENT_ID, SERVER_URI);
+			fail("Opened a journal that's already in use.");
+		} catch (MqttPersistenceException e) {
+			assertEquals(MqttPersistenceException.REASON_CODE_PERSISTENCE_IN_USE, e.getReasonCode());
+		}
+	}
+	
+	
+	// private methods
+	
+	private MappedJournalPersistence createPersistence() throws Exception
+	{
+		MappedJournalPersistence persistence = new MappedJournalPersistence(getBaseDir(), SEGMENT_BYTES);
+		persistence.open(CLIENT_ID, SERVER_URI);
+		
+		return persistence;
+	}
+	
+	private String getBaseDir()
+	{
+		return this.tempFolder.getRoot().getPath();
+	}
+	
+	private File[] getSegmentFiles()
+	{
+		File[] clientDirs = this.tempFolder.getRoot().listFiles(File::isDirectory);
+		
+		assertEquals(1, clientDirs.length);
+		
+		return clientDirs[0].listFiles((dir, name) -> name.endsWith(".seg"));
+	}
+	
+	private MqttPersistable createPersistable(String header, String payload)
+	{
+		byte[] headerBytes  = header.getBytes();
+		byte[] payloadBytes = (payload != null ? payload.getBytes() : null);
+		
+		return new MqttPersistentData(
+			"key", headerBytes, 0, headerBytes.length,
+			payloadBytes, 0, (payloadBytes != null ? payloadBytes.length : 0));
+	}
+	
+	private void assertPersistable(MqttPersistable persistable, String header, String payload) throws Exception
+	{
+		assertNotNull(persistable);
+		assertEquals(
+			header,
+			new String(persistable.getHeaderBytes(), persistable.getHeaderOffset(), persistable.getHeaderLength()));
+		assertEquals(
+			payload,
+			new String(persistable.getPayloadBytes(), persistable.getPayloadOffset(), persistable.getPayloadLength()));
+	}
+
+}
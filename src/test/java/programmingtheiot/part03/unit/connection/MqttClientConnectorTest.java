@@ -0,0 +1,146 @@
+/**
+ * This class is part of the Programming the Internet of Things
+ * project, and is available via the MIT License, which can be
+ * found in the LICENSE file at the top level of this repository.
+ * 
+ * Copyright (c) 2020 by Andrew D. King
+ */
+
+package programmingtheiot.part03.unit.connection;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import org.eclipse.paho.client.mqttv3.MqttException;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import programmingtheiot.common.ConfigBindings;
+import programmingtheiot.common.ConfigConst;
+import programmingtheiot.common.ConfigUtil;
+import programmingtheiot.common.MqttConfig;
+import programmingtheiot.common.ResourceNameEnum;
+import programmingtheiot.gda.connection.MqttClientConnector;
+import programmingtheiot.part01.unit.common.ConfigUtilTest;
+
+/**
+ * This test case class contains very basic unit tests for
+ * MqttClientConnector that don't require a broker. It should not
+ * be considered complete, but serve as a starting point for the
+ * student implementing additional functionality within their
+ * Programming the IoT environment.
+ * 
+ */
+public class MqttClientConnectorTest
+{
+	// member var's
+	
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+	
+	private MqttClientConnector mqttClient = null;
+	
+	
+	// test setup methods
+	
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception
+	{
+		// the connector loads ConfigUtil, which reads the config file only once
+		// per JRE instance, so use the same file as ConfigUtilTest
+		System.setProperty(ConfigConst.CONFIG_FILE_KEY, ConfigUtilTest.TEST_VALID_CFG_FILE);
+	}
+	
+	@Before
+	public void setUp() throws Exception
+	{
+		// keeps the journal's lock files out of the source tree
+		this.mqttClient = new MqttClientConnector(this.tempFolder.getRoot().getPath());
+	}
+	
+	
+	// test methods
+	
+	/**
+	 * 
+	 */
+	@Test
+	public void testConfig()
+	{
+		MqttConfig mqttConfig = ConfigBindings.getInstance().getMqttConfig();
+		
+		assertEquals(mqttConfig.useAsyncClient(), this.mqttClient.isAsyncClient());
+		assertEquals(mqttConfig.getMaxInflight(), this.mqttClient.getMaxInflight());
+		assertEquals(0, this.mqttClient.getInflightCount());
+	}
+	
+	/**
+	 * 
+	 */
+	@Test
+	public void testConfigUpdate()
+	{
+		MqttConfig mqttConfig = ConfigBindings.getInstance().getMqttConfig();
+		
+		assertTrue(mqttConfig.hasSameConnectionSettings(mqttConfig));
+		assertFalse(mqttConfig.hasSameConnectionSettings(null));
+		
+		// the in-flight window is only sized when the connector is created
+		this.mqttClient.onConfigUpdate(ConfigUtil.getInstance());
+		
+		assertEquals(mqttConfig.getMaxInflight(), this.mqttClient.getMaxInflight());
+		assertFalse(this.mqttClient.publishMessage(ResourceNameEnum.GDA_MGMT_STATUS_MSG_RESOURCE, "TEST", -1));
+	}
+	
+	/**
+	 * 
+	 */
+	@Test
+	public void testPublishWhenDisconnected()
+	{
+		assertFalse(this.mqttClient.isConnected());
+		assertFalse(this.mqttClient.disconnectClient());
+		assertFalse(this.mqttClient.publishMessage(ResourceNameEnum.GDA_MGMT_STATUS_MSG_RESOURCE, "TEST", 1));
+		assertFalse(this.mqttClient.subscribeToTopic(ResourceNameEnum.GDA_MGMT_STATUS_CMD_RESOURCE, 1));
+		
+		CompletableFuture<Boolean> future =
+			this.mqttClient.publishMessageAsync(ResourceNameEnum.GDA_MGMT_STATUS_MSG_RESOURCE, new byte[] { 1 }, 1);
+		
+		assertTrue(future.isCompletedExceptionally());
+		
+		try {
+			future.get();
+			fail("Publish succeeded while disconnected.");
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof MqttException);
+			assertEquals(
+				MqttException.REASON_CODE_CLIENT_NOT_CONNECTED, ((MqttException) e.getCause()).getReasonCode());
+		} catch (InterruptedException e) {
+			fail("Interrupted.");
+		}
+		
+		// nothing was sent, so no in-flight slot is held
+		assertEquals(0, this.mqttClient.getInflightCount());
+	}
+	
+	/**
+	 * 
+	 */
+	@Test
+	public void testDisconnectAfterConnectFails()
+	{
+		// with no broker to connect to, the client is created, but never connected
+		Assume.assumeFalse(this.mqttClient.connectClient());
+		
+		assertFalse(this.mqttClient.isConnected());
+		assertTrue(this.mqttClient.disconnectClient());
+		assertFalse(this.mqttClient.disconnectClient());
+	}
+
+}
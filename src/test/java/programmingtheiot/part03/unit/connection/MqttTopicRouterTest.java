@@ -0,0 +1,201 @@
+/**
+ * This class is part of the Programming the Internet of Things
+ * project, and is available via the MIT License, which can be
+ * found in the LICENSE file at the top level of this repository.
+ * 
+ * Copyright (c) 2020 by Andrew D. King
+ */
+
+package programmingtheiot.part03.unit.connection;
+
+import static org.junit.Assert.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import programmingtheiot.common.ConfigConst;
+import programmingtheiot.common.DefaultDataMessageListener;
+import programmingtheiot.common.IDataMessageListener;
+import programmingtheiot.common.ResourceNameEnum;
+import programmingtheiot.data.DataEncodingEnum;
+import programmingtheiot.data.DataUtil;
+import programmingtheiot.data.IotDataRecycler;
+import programmingtheiot.data.SensorData;
+import programmingtheiot.gda.app.DeviceDataManager;
+import programmingtheiot.gda.connection.handlers.MqttTopicRouter;
+import programmingtheiot.part01.unit.common.ConfigUtilTest;
+
+/**
+ * This test case class contains very basic unit tests for
+ * MqttTopicRouter. It should not be considered complete,
+ * but serve as a starting point for the student implementing
+ * additional functionality within their Programming the IoT
+ * environment.
+ * 
+ */
+public class MqttTopicRouterTest
+{
+	// test setup methods
+	
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception
+	{
+		// DataUtil loads ConfigUtil, which reads the config file only once
+		// per JRE instance, so use the same file as ConfigUtilTest
+		System.setProperty(ConfigConst.CONFIG_FILE_KEY, ConfigUtilTest.TEST_VALID_CFG_FILE);
+	}
+	
+	
+	// test methods
+	
+	/**
+	 * 
+	 */
+	@Test
+	public void testMostSpecificRouteWins()
+	{
+		List<String> routed = new ArrayList<>();
+		
+		MqttTopicRouter router = new MqttTopicRouter();
+		router.addRoute("a/#", (resource, topic, payload) -> routed.add("a/#"));
+		router.addRoute("a/+/c", (resource, topic, payload) -> routed.add("a/+/c"));
+		router.addRoute("a/b/c", (resource, topic, payload) -> routed.add("a/b/c"));
+		router.addRoute("#", (resource, topic, payload) -> routed.add("#"));
+		
+		assertTrue(router.route("a/b/c", null));
+		assertTrue(router.route("a/x/c", null));
+		assertTrue(router.route("a/x/d", null));
+		assertTrue(router.route("a", null));
+		assertTrue(router.route("b", null));
+		
+		// wildcards at the first level don't match reserved topics
+		assertFalse(router.route("$SYS/broker/uptime", null));
+		
+		// a handler that throws is contained, and counted
+		router.addRoute("x/+", (resource, topic, payload) -> { throw new IllegalStateException(topic); });
+		router.addRoute("y", (resource, topic, payload) -> { throw new StackOverflowError(); });
+		
+		assertFalse(router.route("x/1", null));
+		assertFalse(router.route("y", null));
+		assertEquals(2, router.getFailedCount());
+		
+		assertEquals(List.of("a/b/c", "a/+/c", "a/#", "a/#", "#"), routed);
+	}
+	
+	/**
+	 * 
+	 */
+	@Test
+	public void testInvalidFilters()
+	{
+		MqttTopicRouter router = new MqttTopicRouter();
+		
+		for (String filter : new String[] {"a/#/c", "a/b#", "a+/b"}) {
+			try {
+				router.addRoute(filter, (resource, topic, payload) -> true);
+				fail("Filter should be rejected: " + filter);
+			} catch (IllegalArgumentException e) {
+				// expected
+			}
+		}
+	}
+	
+	/**
+	 * 
+	 */
+	@Test
+	public void testDataMessageRouting()
+	{
+		List<SensorData> sensorMsgs = new ArrayList<>();
+		List<ResourceNameEnum> incomingMsgs = new ArrayList<>();
+		
+		DefaultDataMessageListener listener = new DefaultDataMessageListener() {
+			@Override
+			public boolean handleSensorMessage(ResourceNameEnum resourceName, SensorData data)
+			{
+				return sensorMsgs.add(data);
+			}
+			
+			@Override
+			public boolean handleIncomingMessage(ResourceNameEnum resourceName, String msg)
+			{
+				return incomingMsgs.add(resourceName);
+			}
+		};
+		
+		MqttTopicRouter router = MqttTopicRouter.createDataMessageRouter(listener, DataEncodingEnum.JSON);
+		
+		SensorData data = new SensorData();
+		data.setName("TempSensor");
+		data.setValue(21.5f);
+		
+		byte[] payload = DataUtil.getInstance().sensorDataToJson(data).getBytes(StandardCharsets.UTF_8);
+		
+		assertEquals(ResourceNameEnum.CDA_SENSOR_MSG_RESOURCE,
+			router.getResource(ResourceNameEnum.CDA_SENSOR_MSG_RESOURCE.getResourceName()));
+		assertTrue(router.route(ResourceNameEnum.CDA_SENSOR_MSG_RESOURCE.getResourceName(), payload));
+		assertEquals(1, sensorMsgs.size());
+		assertEquals("TempSensor", sensorMsgs.get(0).getName());
+		assertEquals(21.5f, sensorMsgs.get(0).getValue(), 0.0f);
+		
+		// resources without a typed handler fall back to the subtree route
+		assertTrue(router.route(ResourceNameEnum.CDA_MGMT_STATUS_MSG_RESOURCE.getResourceName(), "{}".getBytes()));
+		assertEquals(List.of(ResourceNameEnum.CDA_MGMT_STATUS_MSG_RESOURCE), incomingMsgs);
+		
+		// unknown topics under the subtree are ignored
+		assertFalse(router.route("PIOT/Unknown/Topic", "{}".getBytes()));
+	}
+	
+	/**
+	 * 
+	 */
+	@Test
+	public void testDecodedDataIsReleased()
+	{
+		IotDataRecycler recycler = IotDataRecycler.getInstance();
+		boolean wasEnabled = recycler.isEnabled();
+		List<SensorData> sensorMsgs = new ArrayList<>();
+		
+		// the test config runs the manager's pipeline on the calling thread,
+		// so the reading has been released by the time route returns
+		DeviceDataManager devDataMgr = new DeviceDataManager(false, false, false, false, false);
+		
+		IDataMessageListener listener = new DefaultDataMessageListener() {
+			@Override
+			public boolean handleSensorMessage(ResourceNameEnum resourceName, SensorData data)
+			{
+				sensorMsgs.add(data);
+				
+				// reject every other reading
+				return (sensorMsgs.size() % 2 == 1 && devDataMgr.handleSensorMessage(resourceName, data));
+			}
+		};
+		
+		SensorData data = new SensorData();
+		data.setName("TempSensor");
+		
+		String topic = ResourceNameEnum.CDA_SENSOR_MSG_RESOURCE.getResourceName();
+		byte[] payload = DataUtil.getInstance().sensorDataToJson(data).getBytes(StandardCharsets.UTF_8);
+		
+		recycler.setEnabled(true);
+		
+		try {
+			MqttTopicRouter router = MqttTopicRouter.createDataMessageRouter(listener, DataEncodingEnum.JSON);
+			
+			// accepted: released by the manager once its pipeline is done with it
+			assertTrue(router.route(topic, payload));
+			assertSame(sensorMsgs.get(0), recycler.acquireSensorData());
+			
+			// rejected: released by the router
+			assertFalse(router.route(topic, payload));
+			assertSame(sensorMsgs.get(1), recycler.acquireSensorData());
+		} finally {
+			recycler.setEnabled(wasEnabled);
+		}
+	}
+
+}
@@ -0,0 +1,142 @@
+/**
+ * This class is part of the Programming the Internet of Things
+ * project, and is available via the MIT License, which can be
+ * found in the LICENSE file at the top level of this repository.
+ * 
+ * Copyright (c) 2020 by Andrew D. King
+ */
+
+package programmingtheiot.part03.unit.connection;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import org.eclipse.paho.mqttv5.client.MqttClientException;
+import org.eclipse.paho.mqttv5.common.MqttException;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import programmingtheiot.common.ConfigBindings;
+import programmingtheiot.common.ConfigConst;
+import programmingtheiot.common.DefaultDataMessageListener;
+import programmingtheiot.common.MqttConfig;
+import programmingtheiot.common.ResourceNameEnum;
+import programmingtheiot.data.DataEncodingEnum;
+import programmingtheiot.gda.connection.Mqttv5ClientConnector;
+import programmingtheiot.part01.unit.common.ConfigUtilTest;
+
+/**
+ * This test case class contains very basic unit tests for
+ * Mqttv5ClientConnector that don't require a broker. It should not
+ * be considered complete, but serve as a starting point for the
+ * student implementing additional functionality within their
+ * Programming the IoT environment.
+ * 
+ */
+public class Mqttv5ClientConnectorTest
+{
+	// member var's
+	
+	private Mqttv5ClientConnector mqttClient = null;
+	
+	
+	// test setup methods
+	
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception
+	{
+		// the connector loads ConfigUtil, which reads the config file only once
+		// per JRE instance, so use the same file as ConfigUtilTest
+		System.setProperty(ConfigConst.CONFIG_FILE_KEY, ConfigUtilTest.TEST_VALID_CFG_FILE);
+	}
+	
+	@Before
+	public void setUp() throws Exception
+	{
+		this.mqttClient = new Mqttv5ClientConnector();
+	}
+	
+	
+	// test methods
+	
+	/**
+	 * 
+	 */
+	@Test
+	public void testConfig()
+	{
+		MqttConfig mqttConfig = ConfigBindings.getInstance().getMqttConfig();
+		String topic = ResourceNameEnum.CDA_SENSOR_MSG_RESOURCE.getResourceName();
+		
+		assertTrue(this.mqttClient.getClientID().endsWith(Mqttv5ClientConnector.CLIENT_ID_SUFFIX));
+		assertEquals(mqttConfig.getMaxInflight(), this.mqttClient.getSendQuota());
+		assertEquals(0, this.mqttClient.getInflightCount());
+		
+		if (mqttConfig.isSharedSubscriptionEnabled()) {
+			assertEquals(
+				Mqttv5ClientConnector.SHARED_SUBSCRIPTION_PREFIX + mqttConfig.getSharedSubscriptionGroup() + "/" + topic,
+				this.mqttClient.getTopicFilter(ResourceNameEnum.CDA_SENSOR_MSG_RESOURCE));
+		} else {
+			assertEquals(topic, this.mqttClient.getTopicFilter(ResourceNameEnum.CDA_SENSOR_MSG_RESOURCE));
+		}
+		
+		// there's a router per encoding once a listener is set
+		assertNull(this.mqttClient.getTopicRouter(DataEncodingEnum.JSON));
+		assertTrue(this.mqttClient.setDataMessageListener(new DefaultDataMessageListener()));
+		
+		for (DataEncodingEnum encoding : DataEncodingEnum.values()) {
+			assertNotNull(this.mqttClient.getTopicRouter(encoding));
+		}
+	}
+	
+	/**
+	 * 
+	 */
+	@Test
+	public void testPublishWhenDisconnected()
+	{
+		assertFalse(this.mqttClient.isConnected());
+		assertFalse(this.mqttClient.disconnectClient());
+		assertFalse(this.mqttClient.publishMessage(ResourceNameEnum.GDA_MGMT_STATUS_MSG_RESOURCE, "TEST", 1));
+		assertFalse(this.mqttClient.subscribeToTopic(ResourceNameEnum.GDA_MGMT_STATUS_CMD_RESOURCE, 1));
+		
+		CompletableFuture<Boolean> future =
+			this.mqttClient.publishMessageAsync(
+				ResourceNameEnum.GDA_MGMT_STATUS_MSG_RESOURCE, new byte[] { 1 }, 1, DataEncodingEnum.CBOR);
+		
+		assertTrue(future.isCompletedExceptionally());
+		
+		try {
+			future.get();
+			fail("Publish succeeded while disconnected.");
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof MqttException);
+			assertEquals(
+				MqttClientException.REASON_CODE_CLIENT_NOT_CONNECTED, ((MqttException) e.getCause()).getReasonCode());
+		} catch (InterruptedException e) {
+			fail("Interrupted.");
+		}
+		
+		// nothing was sent, so none of the send quota is held
+		assertEquals(0, this.mqttClient.getInflightCount());
+	}
+	
+	/**
+	 * 
+	 */
+	@Test
+	public void testDisconnectAfterConnectFails()
+	{
+		// with no broker to connect to, the client is created, but never connected
+		Assume.assumeFalse(this.mqttClient.connectClient());
+		
+		assertFalse(this.mqttClient.isConnected());
+		assertTrue(this.mqttClient.disconnectClient());
+		assertFalse(this.mqttClient.disconnectClient());
+	}
+
+}
@@ -0,0 +1,176 @@
+/**
+ * This class is part of the Programming the Internet of Things
+ * project, and is available via the MIT License, which can be
+ * found in the LICENSE file at the top level of this repository.
+ * 
+ * Copyright (c) 2020 by Andrew D. King
+ */
+
+package programmingtheiot.part03.unit.connection;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import programmingtheiot.common.ResourceNameEnum;
+import programmingtheiot.gda.connection.OfflinePublishQueue;
+
+/**
+ * This test case class contains very basic unit tests for
+ * OfflinePublishQueue. It should not be considered complete,
+ * but serve as a starting point for the student implementing
+ * additional functionality within their Programming the IoT
+ * environment.
+ * 
+ */
+public class OfflinePublishQueueTest
+{
+	// static
+	
+	public static final int CAPACITY        = 100;
+	public static final int MEMORY_CAPACITY = 10;
+	public static final int PAYLOAD_SIZE    = 1024;
+	
+	
+	// member var's
+	
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+	
+	private File spillFile = null;
+	
+	
+	// test setup methods
+	
+	@Before
+	public void setUp() throws Exception
+	{
+		this.spillFile = new File(this.tempFolder.getRoot(), "offline.spill");
+	}
+	
+	
+	// test methods
+	
+	/**
+	 * 
+	 */
+	@Test
+	public void testOrderIsKeptThroughSpill()
+	{
+		OfflinePublishQueue queue = new OfflinePublishQueue(this.spillFile, CAPACITY, MEMORY_CAPACITY);
+		
+		for (int i = 0; i < CAPACITY; i++) {
+			assertTrue(queue.add(getTopic(i), Integer.toString(i).getBytes(), i % 3));
+		}
+		
+		assertEquals(CAPACITY, queue.size());
+		assertEquals(CAPACITY - MEMORY_CAPACITY, queue.getSpillCount());
+		assertTrue(this.spillFile.exists());
+		
+		// adding while draining goes behind what's already queued
+		for (int i = 0; i < CAPACITY / 2; i++) {
+			assertMessage(queue.poll(), i, i % 3);
+		}
+		
+		for (int i = CAPACITY; i < CAPACITY + CAPACITY / 2; i++) {
+			assertTrue(queue.add(getTopic(i), Integer.toString(i).getBytes(), i % 3));
+		}
+		
+		for (int i = CAPACITY / 2; i < CAPACITY + CAPACITY / 2; i++) {
+			assertMessage(queue.peek(), i, i % 3);
+			assertMessage(queue.poll(), i, i % 3);
+		}
+		
+		assertNull(queue.poll());
+		assertTrue(queue.isEmpty());
+		assertEquals(0, queue.getDroppedCount());
+		
+		// the spill file is deleted once it's been read back
+		assertFalse(this.spillFile.exists());
+	}
+	
+	/**
+	 * 
+	 */
+	@Test
+	public void testOldestAreDroppedWhenFull()
+	{
+		OfflinePublishQueue queue = new OfflinePublishQueue(this.spillFile, CAPACITY, MEMORY_CAPACITY);
+		
+		for (int i = 0; i < CAPACITY * 2; i++) {
+			queue.add(getTopic(i), Integer.toString(i).getBytes(), 1);
+		}
+		
+		assertEquals(CAPACITY, queue.size());
+		assertEquals(CAPACITY, queue.getDroppedCount());
+		assertMessage(queue.peek(), CAPACITY, 1);
+		
+		queue.clear();
+		
+		assertTrue(queue.isEmpty());
+		assertFalse(this.spillFile.exists());
+	}
+	
+	/**
+	 * 
+	 */
+	@Test
+	public void testSpillFileIsCompactedUnderSustainedTraffic()
+	{
+		OfflinePublishQueue queue = new OfflinePublishQueue(this.spillFile, CAPACITY, MEMORY_CAPACITY);
+		int next = 0;
+		
+		for (; next < CAPACITY; next++) {
+			assertTrue(queue.add(getTopic(next), createPayload(next), 1));
+		}
+		
+		// the queue never drains, so the spill file is never deleted
+		long maxLength = 0L;
+		
+		for (int i = 0; i < CAPACITY * 20; i++, next++) {
+			OfflinePublishQueue.QueuedMessage msg = queue.poll();
+			
+			assertNotNull(msg);
+			assertEquals(i, ByteBuffer.wrap(msg.getPayload()).getInt());
+			assertTrue(queue.add(getTopic(next), createPayload(next), 1));
+			
+			maxLength = Math.max(maxLength, this.spillFile.length());
+		}
+		
+		// without compaction, the file would hold every message spilled
+		assertTrue(this.spillFile.exists());
+		assertTrue(
+			"Spill file grew to " + maxLength,
+			maxLength <= OfflinePublishQueue.COMPACT_MIN_BYTES + 2L * CAPACITY * (PAYLOAD_SIZE + 64));
+		assertEquals(CAPACITY, queue.size());
+		assertEquals(0, queue.getDroppedCount());
+	}
+	
+	
+	// private methods
+	
+	private byte[] createPayload(int i)
+	{
+		return ByteBuffer.allocate(PAYLOAD_SIZE).putInt(i).array();
+	}
+	
+	private ResourceNameEnum getTopic(int i)
+	{
+		return (i % 2 == 0 ? ResourceNameEnum.CDA_SENSOR_MSG_RESOURCE : ResourceNameEnum.CDA_SYSTEM_PERF_MSG_RESOURCE);
+	}
+	
+	private void assertMessage(OfflinePublishQueue.QueuedMessage msg, int i, int qos)
+	{
+		assertNotNull(msg);
+		assertEquals(getTopic(i), msg.getTopic());
+		assertEquals(Integer.toString(i), new String(msg.getPayload()));
+		assertEquals(qos, msg.getQos());
+	}
+
+}